@@ -0,0 +1,57 @@
+package com.qozix.tileview.core;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps a running total of the bytes held by a set of keyed entries, e.g., tile bitmaps
+ * currently attached to a canvas.
+ *
+ * This class is not thread safe.
+ *
+ * @param <K> The key type.
+ */
+public class CacheAccounting<K> {
+
+  private Map<K, Long> mEntries = new HashMap<>();
+  private long mByteCount;
+
+  /**
+   * Records an entry; if the key was already recorded its previous size is replaced.
+   *
+   * @param key   Key of the entry.
+   * @param bytes Size of the entry in bytes.
+   */
+  public void add( K key, long bytes ) {
+    Long previous = mEntries.put( key, bytes );
+    if( previous != null ) {
+      mByteCount -= previous;
+    }
+    mByteCount += bytes;
+  }
+
+  public void remove( K key ) {
+    Long previous = mEntries.remove( key );
+    if( previous != null ) {
+      mByteCount -= previous;
+    }
+  }
+
+  public boolean contains( K key ) {
+    return mEntries.containsKey( key );
+  }
+
+  public long getByteCount() {
+    return mByteCount;
+  }
+
+  public int getEntryCount() {
+    return mEntries.size();
+  }
+
+  public void clear() {
+    mEntries.clear();
+    mByteCount = 0;
+  }
+
+}
@@ -0,0 +1,48 @@
+package com.qozix.tileview.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Submits tiles nearest the center of the visible range first, so the area the user is
+ * looking at fills in before the edges.
+ *
+ * @param <T> The tile type.
+ */
+public class CenterFirstRenderQueuePolicy<T extends GridCell> implements RenderQueuePolicy<T> {
+
+  @Override
+  public List<T> prioritize( Set<T> renderSet, TileRange range ) {
+    List<T> ordered = new ArrayList<>( renderSet );
+    if( range != null && ordered.size() > 1 ) {
+      Collections.sort( ordered, new DistanceComparator<T>( range.getCenterColumn(), range.getCenterRow() ) );
+    }
+    return ordered;
+  }
+
+  private static class DistanceComparator<T extends GridCell> implements Comparator<T> {
+
+    private final float mCenterColumn;
+    private final float mCenterRow;
+
+    public DistanceComparator( float centerColumn, float centerRow ) {
+      // cells are addressed by their top-left corner, so compare against their middle
+      mCenterColumn = centerColumn - 0.5f;
+      mCenterRow = centerRow - 0.5f;
+    }
+
+    private float getDistance( T cell ) {
+      float dx = cell.getColumn() - mCenterColumn;
+      float dy = cell.getRow() - mCenterRow;
+      return dx * dx + dy * dy;
+    }
+
+    @Override
+    public int compare( T lhs, T rhs ) {
+      return Float.compare( getDistance( lhs ), getDistance( rhs ) );
+    }
+  }
+}
@@ -0,0 +1,159 @@
+package com.qozix.tileview.core;
+
+/**
+ * Chooses how many tiles to render concurrently, adjusting continuously from what it observes,
+ * in the manner of additive increase, multiplicative decrease congestion control:
+ *
+ * - While tiles are waiting and decode latency holds near its baseline, the limit grows by one
+ *   each interval, since more workers are finishing more tiles (typical of I/O bound providers).
+ * - When decode latency rises well above its baseline, workers are contending for CPU or I/O,
+ *   and the limit is cut multiplicatively.
+ * - When frames are dropped during an animation, rendering is competing with the UI thread, and
+ *   the limit is cut multiplicatively.
+ *
+ * All methods are thread safe.
+ */
+public class ConcurrencyController {
+
+  public static final long DEFAULT_ADJUSTMENT_INTERVAL = 250;
+  public static final float DEFAULT_DECREASE_FACTOR = 0.5f;
+  public static final float DEFAULT_LATENCY_TOLERANCE = 1.5f;
+
+  /**
+   * How far the baseline moves toward a slower mean latency each interval, so it follows a
+   * provider that has become slower for reasons other than contention.
+   */
+  private static final double BASELINE_DRIFT = 0.05;
+
+  private final int mMinimumLimit;
+  private final int mMaximumLimit;
+  private int mLimit;
+
+  private long mAdjustmentInterval = DEFAULT_ADJUSTMENT_INTERVAL;
+  private float mDecreaseFactor = DEFAULT_DECREASE_FACTOR;
+  private float mLatencyTolerance = DEFAULT_LATENCY_TOLERANCE;
+
+  private long mLastAdjustment;
+  private long mWindowDecodeNanos;
+  private int mWindowDecodeCount;
+  private int mWindowDroppedFrames;
+  private double mBaselineLatency;
+
+  private long mIncreaseCount;
+  private long mDecreaseCount;
+
+  /**
+   * @param minimumLimit The fewest tiles rendered concurrently, at least 1.
+   * @param maximumLimit The most tiles rendered concurrently.
+   * @param initialLimit The limit until the first adjustment.
+   */
+  public ConcurrencyController( int minimumLimit, int maximumLimit, int initialLimit ) {
+    if( minimumLimit < 1 || maximumLimit < minimumLimit ) {
+      throw new IllegalArgumentException( "Limits must satisfy 1 <= minimum <= maximum" );
+    }
+    mMinimumLimit = minimumLimit;
+    mMaximumLimit = maximumLimit;
+    mLimit = clamp( initialLimit );
+  }
+
+  public synchronized int getLimit() {
+    return mLimit;
+  }
+
+  public int getMinimumLimit() {
+    return mMinimumLimit;
+  }
+
+  public int getMaximumLimit() {
+    return mMaximumLimit;
+  }
+
+  public synchronized void setAdjustmentInterval( long adjustmentInterval ) {
+    mAdjustmentInterval = adjustmentInterval;
+  }
+
+  /**
+   * @param decreaseFactor The fraction of the limit kept on a decrease, between 0 and 1.
+   */
+  public synchronized void setDecreaseFactor( float decreaseFactor ) {
+    mDecreaseFactor = decreaseFactor;
+  }
+
+  /**
+   * @param latencyTolerance How many times the baseline the mean decode latency may reach before the limit is decreased.
+   */
+  public synchronized void setLatencyTolerance( float latencyTolerance ) {
+    mLatencyTolerance = latencyTolerance;
+  }
+
+  /**
+   * @param nanos Time spent in the provider for a single tile.
+   */
+  public synchronized void recordDecode( long nanos ) {
+    mWindowDecodeNanos += nanos;
+    mWindowDecodeCount++;
+  }
+
+  /**
+   * @param count Frames missed while the view was animating.
+   */
+  public synchronized void recordDroppedFrames( int count ) {
+    mWindowDroppedFrames += count;
+  }
+
+  /**
+   * Adjusts the limit if an interval has passed since the last adjustment.
+   *
+   * @param now        The current time in milliseconds.
+   * @param queueDepth The number of tiles waiting for a worker.
+   * @return The limit, adjusted or not.
+   */
+  public synchronized int update( long now, int queueDepth ) {
+    if( now - mLastAdjustment < mAdjustmentInterval ) {
+      return mLimit;
+    }
+    mLastAdjustment = now;
+    double meanLatency = mWindowDecodeCount == 0 ? 0 : mWindowDecodeNanos / (double) mWindowDecodeCount;
+    boolean congested = meanLatency > 0 && mBaselineLatency > 0 && meanLatency > mBaselineLatency * mLatencyTolerance;
+    if( meanLatency > 0 ) {
+      if( mBaselineLatency == 0 || meanLatency < mBaselineLatency ) {
+        mBaselineLatency = meanLatency;
+      } else {
+        mBaselineLatency += (meanLatency - mBaselineLatency) * BASELINE_DRIFT;
+      }
+    }
+    if( mWindowDroppedFrames > 0 || congested ) {
+      int limit = clamp( (int) (mLimit * mDecreaseFactor) );
+      if( limit < mLimit ) {
+        mDecreaseCount++;
+      }
+      mLimit = limit;
+    } else if( queueDepth > 0 && mWindowDecodeCount > 0 && mLimit < mMaximumLimit ) {
+      mLimit++;
+      mIncreaseCount++;
+    }
+    mWindowDecodeNanos = 0;
+    mWindowDecodeCount = 0;
+    mWindowDroppedFrames = 0;
+    return mLimit;
+  }
+
+  /**
+   * @return The mean decode latency, in nanoseconds, that increases are measured against; 0 until tiles are decoded.
+   */
+  public synchronized double getBaselineLatency() {
+    return mBaselineLatency;
+  }
+
+  public synchronized long getIncreaseCount() {
+    return mIncreaseCount;
+  }
+
+  public synchronized long getDecreaseCount() {
+    return mDecreaseCount;
+  }
+
+  private int clamp( int limit ) {
+    return Math.max( mMinimumLimit, Math.min( mMaximumLimit, limit ) );
+  }
+}
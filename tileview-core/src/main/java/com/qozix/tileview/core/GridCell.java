@@ -0,0 +1,10 @@
+package com.qozix.tileview.core;
+
+/**
+ * Minimal description of a cell in a tile grid, so that core scheduling logic can reason
+ * about position without knowing anything about how a tile is decoded or drawn.
+ */
+public interface GridCell {
+  int getColumn();
+  int getRow();
+}
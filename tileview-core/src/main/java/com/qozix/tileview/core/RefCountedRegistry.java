@@ -0,0 +1,116 @@
+package com.qozix.tileview.core;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Shares values that are identified by a content key, counting how many holders reference
+ * each one so it can be released only when the last holder lets go.
+ *
+ * All methods are thread safe.
+ *
+ * @param <K> The content key type.
+ * @param <V> The shared value type; values are tracked by identity.
+ */
+public class RefCountedRegistry<K, V> {
+
+  private final Map<K, Entry<K, V>> mEntriesByKey = new HashMap<>();
+  private final Map<V, Entry<K, V>> mEntriesByValue = new IdentityHashMap<>();
+
+  private long mShareCount;
+
+  /**
+   * Returns the value registered for the key, adding a reference to it.
+   *
+   * @return The shared value, or null if none is registered.
+   */
+  public synchronized V acquire( K key ) {
+    Entry<K, V> entry = mEntriesByKey.get( key );
+    if( entry == null ) {
+      return null;
+    }
+    entry.references++;
+    mShareCount++;
+    return entry.value;
+  }
+
+  /**
+   * Registers the value under the key, unless an equal key is already registered - in which
+   * case the existing value is returned (with a reference added) and the caller should discard
+   * its own.  If isSameContent rejects the existing value, nothing changes and the caller's
+   * value is returned unregistered.
+   *
+   * @return The value the caller should use.
+   */
+  public synchronized V intern( K key, V value ) {
+    Entry<K, V> entry = mEntriesByKey.get( key );
+    if( entry != null ) {
+      if( entry.value == value ) {
+        entry.references++;
+        return value;
+      }
+      if( !isSameContent( entry.key, entry.value, value ) ) {
+        return value;
+      }
+      mShareCount++;
+      entry.references++;
+      return entry.value;
+    }
+    entry = new Entry<>( key, value );
+    mEntriesByKey.put( key, entry );
+    mEntriesByValue.put( value, entry );
+    return value;
+  }
+
+  /**
+   * Removes a reference to the value.
+   *
+   * @return True if no references remain (or the value was never registered), meaning the caller may dispose of it.
+   */
+  public synchronized boolean release( V value ) {
+    Entry<K, V> entry = mEntriesByValue.get( value );
+    if( entry == null ) {
+      return true;
+    }
+    entry.references--;
+    if( entry.references > 0 ) {
+      return false;
+    }
+    mEntriesByValue.remove( value );
+    mEntriesByKey.remove( entry.key );
+    return true;
+  }
+
+  /**
+   * Confirms that a value registered under a key is interchangeable with a new value under an
+   * equal key.  Called with the registry locked; override when keys can collide, e.g., hashes.
+   *
+   * @return True if the registered value may be shared in place of the new one.
+   */
+  protected boolean isSameContent( K key, V registered, V value ) {
+    return true;
+  }
+
+  public synchronized int getEntryCount() {
+    return mEntriesByKey.size();
+  }
+
+  /**
+   * @return The number of times a holder was given an existing value instead of keeping its own.
+   */
+  public synchronized long getShareCount() {
+    return mShareCount;
+  }
+
+  private static class Entry<K, V> {
+    final K key;
+    final V value;
+    int references = 1;
+
+    Entry( K key, V value ) {
+      this.key = key;
+      this.value = value;
+    }
+  }
+}
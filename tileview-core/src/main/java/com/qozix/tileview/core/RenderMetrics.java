@@ -0,0 +1,172 @@
+package com.qozix.tileview.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread safe counters describing the work done by a tile render pipeline.  Values are
+ * cumulative from creation or the last call to reset, and are cheap enough to leave on in
+ * production builds.
+ */
+public class RenderMetrics {
+
+  private final AtomicLong mReconcileCount = new AtomicLong();
+  private final AtomicLong mReconcileNanos = new AtomicLong();
+  private final AtomicLong mTilesQueued = new AtomicLong();
+  private final AtomicLong mBitmapsDecoded = new AtomicLong();
+  private final AtomicLong mDecodeNanos = new AtomicLong();
+  private final AtomicLong mDecodeFailures = new AtomicLong();
+  private final AtomicLong mTilesCommitted = new AtomicLong();
+  private final AtomicLong mCommitBatches = new AtomicLong();
+  private final AtomicInteger mLargestCommitBatch = new AtomicInteger();
+  private final AtomicLong mTilesCoalesced = new AtomicLong();
+  private final AtomicLong mTilesElided = new AtomicLong();
+  private final AtomicInteger mParallelism = new AtomicInteger();
+
+  public void recordReconcile( long nanos ) {
+    mReconcileCount.incrementAndGet();
+    mReconcileNanos.addAndGet( nanos );
+  }
+
+  public void recordTilesQueued( int count ) {
+    mTilesQueued.addAndGet( count );
+  }
+
+  /**
+   * @param nanos   Time spent in the provider for a single tile.
+   * @param success True if the provider returned a bitmap.
+   */
+  public void recordDecode( long nanos, boolean success ) {
+    mDecodeNanos.addAndGet( nanos );
+    if( success ) {
+      mBitmapsDecoded.incrementAndGet();
+    } else {
+      mDecodeFailures.incrementAndGet();
+    }
+  }
+
+  public void recordTileCommitted() {
+    mTilesCommitted.incrementAndGet();
+  }
+
+  /**
+   * Records the tiles committed together in one frame.
+   *
+   * @param count The number of tiles in the batch.
+   */
+  public void recordCommitBatch( int count ) {
+    mCommitBatches.incrementAndGet();
+    int largest;
+    while( count > (largest = mLargestCommitBatch.get()) ) {
+      if( mLargestCommitBatch.compareAndSet( largest, count ) ) {
+        break;
+      }
+    }
+  }
+
+  /**
+   * Records a tile request that was satisfied by joining a fetch already in flight, rather than starting a new one.
+   */
+  public void recordTileCoalesced() {
+    mTilesCoalesced.incrementAndGet();
+  }
+
+  /**
+   * Records a decoded tile found to be a single colour, whose bitmap was released.
+   */
+  public void recordTileElided() {
+    mTilesElided.incrementAndGet();
+  }
+
+  /**
+   * Records the number of tiles the render pool currently decodes at once.  Unlike the other
+   * values, this is a current level rather than a cumulative count, and is not cleared by reset.
+   */
+  public void recordParallelism( int parallelism ) {
+    mParallelism.set( parallelism );
+  }
+
+  public long getReconcileCount() {
+    return mReconcileCount.get();
+  }
+
+  public long getReconcileNanos() {
+    return mReconcileNanos.get();
+  }
+
+  public long getTilesQueued() {
+    return mTilesQueued.get();
+  }
+
+  public long getBitmapsDecoded() {
+    return mBitmapsDecoded.get();
+  }
+
+  public long getDecodeNanos() {
+    return mDecodeNanos.get();
+  }
+
+  public long getDecodeFailures() {
+    return mDecodeFailures.get();
+  }
+
+  public long getTilesCommitted() {
+    return mTilesCommitted.get();
+  }
+
+  /**
+   * @return The number of frames in which tiles were committed; with getTilesCommitted, gives the mean batch size.
+   */
+  public long getCommitBatches() {
+    return mCommitBatches.get();
+  }
+
+  /**
+   * @return The most tiles committed in a single frame.
+   */
+  public int getLargestCommitBatch() {
+    return mLargestCommitBatch.get();
+  }
+
+  public long getTilesCoalesced() {
+    return mTilesCoalesced.get();
+  }
+
+  public long getTilesElided() {
+    return mTilesElided.get();
+  }
+
+  public int getParallelism() {
+    return mParallelism.get();
+  }
+
+  public void reset() {
+    mReconcileCount.set( 0 );
+    mReconcileNanos.set( 0 );
+    mTilesQueued.set( 0 );
+    mBitmapsDecoded.set( 0 );
+    mDecodeNanos.set( 0 );
+    mDecodeFailures.set( 0 );
+    mTilesCommitted.set( 0 );
+    mCommitBatches.set( 0 );
+    mLargestCommitBatch.set( 0 );
+    mTilesCoalesced.set( 0 );
+    mTilesElided.set( 0 );
+  }
+
+  @Override
+  public String toString() {
+    return "RenderMetrics[reconciles=" + getReconcileCount()
+      + ", reconcileNanos=" + getReconcileNanos()
+      + ", queued=" + getTilesQueued()
+      + ", decoded=" + getBitmapsDecoded()
+      + ", decodeNanos=" + getDecodeNanos()
+      + ", failures=" + getDecodeFailures()
+      + ", committed=" + getTilesCommitted()
+      + ", commitBatches=" + getCommitBatches()
+      + ", largestCommitBatch=" + getLargestCommitBatch()
+      + ", coalesced=" + getTilesCoalesced()
+      + ", elided=" + getTilesElided()
+      + ", parallelism=" + getParallelism() + "]";
+  }
+}
@@ -0,0 +1,20 @@
+package com.qozix.tileview.core;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Decides the order in which tiles that need rendering are handed to workers.
+ *
+ * @param <T> The tile type.
+ */
+public interface RenderQueuePolicy<T extends GridCell> {
+
+  /**
+   * @param renderSet Tiles that need rendering; implementations must not modify this Set.
+   * @param range     The most recently computed visible range, or null if unknown.
+   * @return The tiles of renderSet, in submission order.
+   */
+  List<T> prioritize( Set<T> renderSet, TileRange range );
+
+}
@@ -0,0 +1,89 @@
+package com.qozix.tileview.core;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Tracks which tiles belong to the current viewport and which of those have already been
+ * rendered, and derives the set of tiles that still need work.
+ *
+ * This class is not thread safe, and is expected to be accessed from a single (UI) thread.
+ *
+ * @param <T> The tile type; must implement equals and hashCode by grid position and level.
+ */
+public class RenderSet<T> {
+
+  private Set<T> mTilesInCurrentViewport = new HashSet<>();
+  private Set<T> mTilesNotInCurrentViewport = new HashSet<>();
+  private Set<T> mTilesAlreadyRendered = new HashSet<>();
+
+  /**
+   * Effectively adds any new tiles, without replacing existing tiles, and removes those not in passed set.
+   *
+   * @param recentlyComputedVisibleTileSet Tile Set that should be visible, based on inspection of viewport size and position.
+   */
+  public void reconcile( Set<T> recentlyComputedVisibleTileSet ) {
+    for( T tile : mTilesInCurrentViewport ) {
+      if( !recentlyComputedVisibleTileSet.contains( tile ) ) {
+        mTilesNotInCurrentViewport.add( tile );
+      }
+    }
+    mTilesInCurrentViewport.addAll( recentlyComputedVisibleTileSet );
+    mTilesInCurrentViewport.removeAll( mTilesNotInCurrentViewport );
+    mTilesNotInCurrentViewport.clear();
+  }
+
+  /**
+   * @return A new Set containing tiles in the current viewport that have not been rendered.
+   */
+  public Set<T> getRenderSet() {
+    Set<T> renderSet = new HashSet<>( mTilesInCurrentViewport );
+    renderSet.removeAll( mTilesAlreadyRendered );
+    return renderSet;
+  }
+
+  public boolean isInViewport( T tile ) {
+    return mTilesInCurrentViewport.contains( tile );
+  }
+
+  public boolean isRendered( T tile ) {
+    return mTilesAlreadyRendered.contains( tile );
+  }
+
+  public void markRendered( T tile ) {
+    mTilesAlreadyRendered.add( tile );
+  }
+
+  /**
+   * Marks the tile rendered, replacing any equal instance already marked.
+   */
+  public void replaceRendered( T tile ) {
+    mTilesAlreadyRendered.remove( tile );
+    mTilesAlreadyRendered.add( tile );
+  }
+
+  /**
+   * Removes and returns the rendered tiles that are no longer in the current viewport.
+   *
+   * @return A new Set of tiles that should be destroyed by the caller.
+   */
+  public Set<T> condemnOutOfViewport() {
+    Set<T> condemned = new HashSet<>( mTilesAlreadyRendered );
+    condemned.removeAll( mTilesInCurrentViewport );
+    mTilesAlreadyRendered.removeAll( condemned );
+    return condemned;
+  }
+
+  public Set<T> getTilesInCurrentViewport() {
+    return mTilesInCurrentViewport;
+  }
+
+  public int getRenderedCount() {
+    return mTilesAlreadyRendered.size();
+  }
+
+  public void clearViewport() {
+    mTilesInCurrentViewport.clear();
+  }
+
+}
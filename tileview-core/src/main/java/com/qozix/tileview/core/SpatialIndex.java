@@ -0,0 +1,182 @@
+package com.qozix.tileview.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A uniform grid index of items by rectangular bounds.  Each item is recorded in every cell its
+ * bounds overlap, so a query only examines items near the rectangle queried.  Query results are
+ * returned in the order items were inserted, which for drawing operations is their paint order.
+ *
+ * All methods are thread safe.
+ *
+ * @param <T> The type of item indexed.
+ */
+public class SpatialIndex<T> {
+
+  public static final float DEFAULT_CELL_SIZE = 256;
+
+  private static final Comparator<Entry<?>> SEQUENCE_COMPARATOR = new Comparator<Entry<?>>() {
+    @Override
+    public int compare( Entry<?> lhs, Entry<?> rhs ) {
+      return lhs.mSequence < rhs.mSequence ? -1 : (lhs.mSequence == rhs.mSequence ? 0 : 1);
+    }
+  };
+
+  private final float mCellSize;
+  private final Map<Long, List<Entry<T>>> mCells = new HashMap<>();
+  private int mSize;
+  private int mNextSequence;
+
+  public SpatialIndex() {
+    this( DEFAULT_CELL_SIZE );
+  }
+
+  /**
+   * @param cellSize The width and height of each grid cell, in the units of the bounds indexed.
+   */
+  public SpatialIndex( float cellSize ) {
+    if( cellSize <= 0 ) {
+      throw new IllegalArgumentException( "Cell size must be positive" );
+    }
+    mCellSize = cellSize;
+  }
+
+  public synchronized void insert( T item, float left, float top, float right, float bottom ) {
+    Entry<T> entry = new Entry<>( item, mNextSequence++, left, top, right, bottom );
+    mSize++;
+    int firstColumn = toCell( left );
+    int lastColumn = toCell( right );
+    int firstRow = toCell( top );
+    int lastRow = toCell( bottom );
+    for( int row = firstRow; row <= lastRow; row++ ) {
+      for( int column = firstColumn; column <= lastColumn; column++ ) {
+        Long key = toKey( column, row );
+        List<Entry<T>> cell = mCells.get( key );
+        if( cell == null ) {
+          cell = new ArrayList<>();
+          mCells.put( key, cell );
+        }
+        cell.add( entry );
+      }
+    }
+  }
+
+  /**
+   * Collects the items whose bounds intersect the rectangle passed, in insertion order.
+   *
+   * @param results The list the items are added to; it is not cleared first.
+   */
+  public synchronized void query( float left, float top, float right, float bottom, List<T> results ) {
+    List<Entry<T>> matches = new ArrayList<>();
+    int firstColumn = toCell( left );
+    int lastColumn = toCell( right );
+    int firstRow = toCell( top );
+    int lastRow = toCell( bottom );
+    for( int row = firstRow; row <= lastRow; row++ ) {
+      for( int column = firstColumn; column <= lastColumn; column++ ) {
+        List<Entry<T>> cell = mCells.get( toKey( column, row ) );
+        if( cell == null ) {
+          continue;
+        }
+        for( Entry<T> entry : cell ) {
+          if( entry.intersects( left, top, right, bottom ) ) {
+            matches.add( entry );
+          }
+        }
+      }
+    }
+    Collections.sort( matches, SEQUENCE_COMPARATOR );
+    int lastSequence = -1;
+    for( Entry<T> entry : matches ) {
+      // items spanning several cells are found once per cell
+      if( entry.mSequence != lastSequence ) {
+        results.add( entry.mItem );
+        lastSequence = entry.mSequence;
+      }
+    }
+  }
+
+  /**
+   * Removes an item inserted with the bounds passed.
+   *
+   * @return True if the item was found.
+   */
+  public synchronized boolean remove( T item, float left, float top, float right, float bottom ) {
+    boolean removed = false;
+    int firstColumn = toCell( left );
+    int lastColumn = toCell( right );
+    int firstRow = toCell( top );
+    int lastRow = toCell( bottom );
+    for( int row = firstRow; row <= lastRow; row++ ) {
+      for( int column = firstColumn; column <= lastColumn; column++ ) {
+        Long key = toKey( column, row );
+        List<Entry<T>> cell = mCells.get( key );
+        if( cell == null ) {
+          continue;
+        }
+        Iterator<Entry<T>> iterator = cell.iterator();
+        while( iterator.hasNext() ) {
+          if( iterator.next().mItem == item ) {
+            iterator.remove();
+            removed = true;
+            break;
+          }
+        }
+        if( cell.isEmpty() ) {
+          mCells.remove( key );
+        }
+      }
+    }
+    if( removed ) {
+      mSize--;
+    }
+    return removed;
+  }
+
+  public synchronized int size() {
+    return mSize;
+  }
+
+  public synchronized void clear() {
+    mCells.clear();
+    mSize = 0;
+    mNextSequence = 0;
+  }
+
+  private int toCell( float coordinate ) {
+    return (int) Math.floor( coordinate / mCellSize );
+  }
+
+  private static Long toKey( int column, int row ) {
+    return ((long) column << 32) | (row & 0xffffffffL);
+  }
+
+  private static class Entry<T> {
+
+    private final T mItem;
+    private final int mSequence;
+    private final float mLeft;
+    private final float mTop;
+    private final float mRight;
+    private final float mBottom;
+
+    Entry( T item, int sequence, float left, float top, float right, float bottom ) {
+      mItem = item;
+      mSequence = sequence;
+      mLeft = left;
+      mTop = top;
+      mRight = right;
+      mBottom = bottom;
+    }
+
+    boolean intersects( float left, float top, float right, float bottom ) {
+      return mLeft <= right && left <= mRight && mTop <= bottom && top <= mBottom;
+    }
+  }
+}
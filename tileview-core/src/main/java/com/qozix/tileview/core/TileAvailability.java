@@ -0,0 +1,123 @@
+package com.qozix.tileview.core;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A compact, one bit per tile record of which tiles in a detail level's grid do not exist,
+ * so they can be skipped without asking the provider.  Tiles are assumed to exist until
+ * marked missing, either from an index shipped with the tile set or as misses are learned.
+ *
+ * Instances can be written to and read from a stream, to be kept alongside cached tiles.
+ * All methods are thread safe.
+ */
+public class TileAvailability {
+
+  private static final int MAGIC = 0x54565441; // "TVTA"
+  private static final int VERSION = 1;
+
+  private final int mColumnCount;
+  private final int mRowCount;
+  private final long[] mMissing;
+
+  private int mMissingCount;
+
+  public TileAvailability( int columnCount, int rowCount ) {
+    if( columnCount < 0 || rowCount < 0 ) {
+      throw new IllegalArgumentException( "Grid dimensions must not be negative" );
+    }
+    mColumnCount = columnCount;
+    mRowCount = rowCount;
+    mMissing = new long[(int) ((((long) columnCount * rowCount) + 63) >>> 6)];
+  }
+
+  public int getColumnCount() {
+    return mColumnCount;
+  }
+
+  public int getRowCount() {
+    return mRowCount;
+  }
+
+  /**
+   * @return True unless the tile has been marked missing; positions outside the grid are reported available.
+   */
+  public synchronized boolean isAvailable( int column, int row ) {
+    int index = indexOf( column, row );
+    return index < 0 || (mMissing[index >>> 6] & (1L << index)) == 0;
+  }
+
+  public synchronized void markMissing( int column, int row ) {
+    int index = indexOf( column, row );
+    if( index < 0 ) {
+      return;
+    }
+    long bit = 1L << index;
+    if( (mMissing[index >>> 6] & bit) == 0 ) {
+      mMissing[index >>> 6] |= bit;
+      mMissingCount++;
+    }
+  }
+
+  public synchronized void markAvailable( int column, int row ) {
+    int index = indexOf( column, row );
+    if( index < 0 ) {
+      return;
+    }
+    long bit = 1L << index;
+    if( (mMissing[index >>> 6] & bit) != 0 ) {
+      mMissing[index >>> 6] &= ~bit;
+      mMissingCount--;
+    }
+  }
+
+  public synchronized int getMissingCount() {
+    return mMissingCount;
+  }
+
+  private int indexOf( int column, int row ) {
+    if( column < 0 || row < 0 || column >= mColumnCount || row >= mRowCount ) {
+      return -1;
+    }
+    return row * mColumnCount + column;
+  }
+
+  /**
+   * Writes the grid dimensions and missing bits; the stream is not closed.
+   */
+  public synchronized void writeTo( OutputStream outputStream ) throws IOException {
+    DataOutputStream dataOutputStream = new DataOutputStream( outputStream );
+    dataOutputStream.writeInt( MAGIC );
+    dataOutputStream.writeInt( VERSION );
+    dataOutputStream.writeInt( mColumnCount );
+    dataOutputStream.writeInt( mRowCount );
+    for( long word : mMissing ) {
+      dataOutputStream.writeLong( word );
+    }
+    dataOutputStream.flush();
+  }
+
+  /**
+   * Reads an instance written by writeTo; the stream is not closed.
+   */
+  public static TileAvailability readFrom( InputStream inputStream ) throws IOException {
+    DataInputStream dataInputStream = new DataInputStream( inputStream );
+    if( dataInputStream.readInt() != MAGIC ) {
+      throw new IOException( "Not a tile availability index" );
+    }
+    int version = dataInputStream.readInt();
+    if( version != VERSION ) {
+      throw new IOException( "Unsupported tile availability index version " + version );
+    }
+    TileAvailability tileAvailability = new TileAvailability( dataInputStream.readInt(), dataInputStream.readInt() );
+    for( int i = 0; i < tileAvailability.mMissing.length; i++ ) {
+      long word = dataInputStream.readLong();
+      tileAvailability.mMissing[i] = word;
+      tileAvailability.mMissingCount += Long.bitCount( word );
+    }
+    return tileAvailability;
+  }
+}
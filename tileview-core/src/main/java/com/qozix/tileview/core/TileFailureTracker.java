@@ -0,0 +1,210 @@
+package com.qozix.tileview.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers which tiles a provider failed to supply, so the render pipeline can stop asking
+ * for them repeatedly.
+ *
+ * Transient failures (timeouts, i/o errors, or a provider returning nothing) put a tile into
+ * exponential backoff: it is not requested again until the backoff delay has elapsed, and the
+ * delay doubles with each consecutive failure up to a maximum.  After a number of consecutive
+ * transient failures, or immediately on a permanent failure (e.g., a 404), the tile is placed
+ * in a bounded negative cache and is not requested again until the tracker is cleared or the
+ * entry is evicted.  A caller that keeps permanent misses somewhere else (such as a detail
+ * level's TileAvailability) can record them without remembering them here, so they are counted
+ * but not held twice.
+ *
+ * All methods are thread safe; times are supplied by the caller in milliseconds, from any
+ * monotonic clock.
+ *
+ * @param <K> The key type identifying a tile.
+ */
+public class TileFailureTracker<K> {
+
+  public static final long DEFAULT_INITIAL_BACKOFF = 500;
+  public static final long DEFAULT_MAXIMUM_BACKOFF = 30000;
+  public static final int DEFAULT_MAXIMUM_TRANSIENT_ATTEMPTS = 6;
+  public static final int DEFAULT_NEGATIVE_CACHE_CAPACITY = 1024;
+
+  private long mInitialBackoff = DEFAULT_INITIAL_BACKOFF;
+  private long mMaximumBackoff = DEFAULT_MAXIMUM_BACKOFF;
+  private int mMaximumTransientAttempts = DEFAULT_MAXIMUM_TRANSIENT_ATTEMPTS;
+
+  private final BoundedMap<K, Backoff> mBackoffs = new BoundedMap<>( DEFAULT_NEGATIVE_CACHE_CAPACITY );
+  /**
+   * Values are true once a request for the missing tile has been counted as suppressed.
+   */
+  private final BoundedMap<K, Boolean> mNegativeCache = new BoundedMap<>( DEFAULT_NEGATIVE_CACHE_CAPACITY );
+
+  private long mTransientFailureCount;
+  private long mPermanentFailureCount;
+  private long mSuppressedRequestCount;
+
+  /**
+   * @param initialBackoff Delay after the first transient failure, in milliseconds.
+   * @param maximumBackoff Upper bound on the delay between attempts, in milliseconds.
+   */
+  public synchronized void setBackoff( long initialBackoff, long maximumBackoff ) {
+    mInitialBackoff = initialBackoff;
+    mMaximumBackoff = maximumBackoff;
+  }
+
+  /**
+   * @param maximumTransientAttempts Consecutive transient failures after which a tile is treated as permanently missing; 0 to never promote.
+   */
+  public synchronized void setMaximumTransientAttempts( int maximumTransientAttempts ) {
+    mMaximumTransientAttempts = maximumTransientAttempts;
+  }
+
+  /**
+   * @param capacity Maximum number of tiles remembered as missing (and, separately, in backoff); the least recently touched are forgotten first.
+   */
+  public synchronized void setNegativeCacheCapacity( int capacity ) {
+    mNegativeCache.setCapacity( capacity );
+    mBackoffs.setCapacity( capacity );
+  }
+
+  /**
+   * Returns true if the tile may be requested now.  The first false result after each failure of
+   * a tile is counted as a suppressed request; render passes that skip the same tile again while it
+   * stays missing or in backoff are not.
+   */
+  public synchronized boolean shouldRequest( K key, long now ) {
+    Boolean counted = mNegativeCache.get( key );
+    if( counted != null ) {
+      if( !counted ) {
+        mSuppressedRequestCount++;
+        mNegativeCache.put( key, Boolean.TRUE );
+      }
+      return false;
+    }
+    Backoff backoff = mBackoffs.get( key );
+    if( backoff != null && now < backoff.retryTime ) {
+      if( !backoff.counted ) {
+        mSuppressedRequestCount++;
+        backoff.counted = true;
+      }
+      return false;
+    }
+    return true;
+  }
+
+  public synchronized void recordSuccess( K key ) {
+    mBackoffs.remove( key );
+  }
+
+  public synchronized void recordTransientFailure( K key, long now ) {
+    mTransientFailureCount++;
+    Backoff backoff = mBackoffs.get( key );
+    if( backoff == null ) {
+      backoff = new Backoff();
+      mBackoffs.put( key, backoff );
+    }
+    backoff.attempts++;
+    if( mMaximumTransientAttempts > 0 && backoff.attempts >= mMaximumTransientAttempts ) {
+      mBackoffs.remove( key );
+      mNegativeCache.put( key, Boolean.FALSE );
+      return;
+    }
+    long delay = mInitialBackoff << Math.min( backoff.attempts - 1, 30 );
+    backoff.retryTime = now + Math.min( delay, mMaximumBackoff );
+    backoff.counted = false;
+  }
+
+  public synchronized void recordPermanentFailure( K key ) {
+    recordPermanentFailure( key, true );
+  }
+
+  /**
+   * @param remember False if the miss is kept elsewhere, e.g., in a TileAvailability index that
+   *                 already stops the tile being requested; it is then counted and taken out of
+   *                 backoff, but not held in the negative cache as well.
+   */
+  public synchronized void recordPermanentFailure( K key, boolean remember ) {
+    mPermanentFailureCount++;
+    mBackoffs.remove( key );
+    if( remember && !mNegativeCache.containsKey( key ) ) {
+      mNegativeCache.put( key, Boolean.FALSE );
+    }
+  }
+
+  /**
+   * @return True if the tile is in the negative cache.
+   */
+  public synchronized boolean isMissing( K key ) {
+    return mNegativeCache.containsKey( key );
+  }
+
+  /**
+   * @return Milliseconds until the soonest tile in backoff may be retried, or -1 if none are waiting.
+   */
+  public synchronized long getNextRetryDelay( long now ) {
+    long soonest = Long.MAX_VALUE;
+    for( Backoff backoff : mBackoffs.values() ) {
+      if( backoff.retryTime > now ) {
+        soonest = Math.min( soonest, backoff.retryTime );
+      }
+    }
+    return soonest == Long.MAX_VALUE ? -1 : soonest - now;
+  }
+
+  public synchronized long getTransientFailureCount() {
+    return mTransientFailureCount;
+  }
+
+  public synchronized long getPermanentFailureCount() {
+    return mPermanentFailureCount;
+  }
+
+  /**
+   * @return The number of failures that caused a request to be skipped, because the tile was missing or in backoff.
+   */
+  public synchronized long getSuppressedRequestCount() {
+    return mSuppressedRequestCount;
+  }
+
+  public synchronized int getNegativeCacheSize() {
+    return mNegativeCache.size();
+  }
+
+  public synchronized int getBackoffCount() {
+    return mBackoffs.size();
+  }
+
+  /**
+   * Forgets every failure; counters are preserved.
+   */
+  public synchronized void clear() {
+    mBackoffs.clear();
+    mNegativeCache.clear();
+  }
+
+  private static class Backoff {
+    int attempts;
+    long retryTime;
+    boolean counted;
+  }
+
+  private static class BoundedMap<K, V> extends LinkedHashMap<K, V> {
+
+    private static final long serialVersionUID = 1L;
+
+    private int mCapacity;
+
+    public BoundedMap( int capacity ) {
+      super( 16, 0.75f, true );
+      mCapacity = capacity;
+    }
+
+    public void setCapacity( int capacity ) {
+      mCapacity = capacity;
+    }
+
+    @Override
+    protected boolean removeEldestEntry( Map.Entry<K, V> eldest ) {
+      return size() > mCapacity;
+    }
+  }
+}
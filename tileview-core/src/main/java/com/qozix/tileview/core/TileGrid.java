@@ -0,0 +1,60 @@
+package com.qozix.tileview.core;
+
+/**
+ * Viewport to tile grid math, free of any platform types so it can be exercised on the JVM.
+ */
+public class TileGrid {
+
+  private static final int MAXIMUM_SAMPLE_SIZE = 64;
+
+  private TileGrid() {
+
+  }
+
+  /**
+   * Computes the range of tiles that intersect a viewport.
+   *
+   * @param left           Left edge of the viewport, in scaled pixels.
+   * @param top            Top edge of the viewport, in scaled pixels.
+   * @param right          Right edge of the viewport, in scaled pixels.
+   * @param bottom         Bottom edge of the viewport, in scaled pixels.
+   * @param drawableWidth  Scaled width of the entire tiled image.
+   * @param drawableHeight Scaled height of the entire tiled image.
+   * @param tileWidth      Width of a single tile at the detail level's own scale.
+   * @param tileHeight     Height of a single tile at the detail level's own scale.
+   * @param relativeScale  Ratio of the current scale to the detail level's scale.
+   * @return The range of tiles intersecting the viewport, clamped to the drawable area.
+   */
+  public static TileRange computeRange( int left, int top, int right, int bottom,
+    int drawableWidth, int drawableHeight, int tileWidth, int tileHeight, float relativeScale ) {
+    float offsetWidth = tileWidth * relativeScale;
+    float offsetHeight = tileHeight * relativeScale;
+    top = Math.max( top, 0 );
+    left = Math.max( left, 0 );
+    right = Math.min( right, drawableWidth );
+    bottom = Math.min( bottom, drawableHeight );
+    int rowStart = (int) Math.floor( top / offsetHeight );
+    int rowEnd = (int) Math.ceil( bottom / offsetHeight );
+    int columnStart = (int) Math.floor( left / offsetWidth );
+    int columnEnd = (int) Math.ceil( right / offsetWidth );
+    return new TileRange( rowStart, rowEnd, columnStart, columnEnd );
+  }
+
+  /**
+   * Computes the largest power of 2 reduction that still supplies at least one bitmap pixel per
+   * screen pixel, for a level displayed at the given scale relative to its own resolution.
+   *
+   * @param relativeScale The scale at which a detail level is displayed, relative to its own scale (e.g., DetailLevel.getRelativeScale).
+   * @return A sample size suitable for BitmapFactory.Options.inSampleSize; 1 when displayed at or above full resolution.
+   */
+  public static int computeSampleSize( float relativeScale ) {
+    int sampleSize = 1;
+    if( relativeScale <= 0 ) {
+      return sampleSize;
+    }
+    while( sampleSize < MAXIMUM_SAMPLE_SIZE && sampleSize * 2 * relativeScale <= 1 ) {
+      sampleSize <<= 1;
+    }
+    return sampleSize;
+  }
+}
@@ -0,0 +1,61 @@
+package com.qozix.tileview.core;
+
+/**
+ * Immutable identity of a tile: its detail level scale and grid position.  Unlike a Tile,
+ * a TileKey holds no bitmap or view references, so it is safe to retain in long lived
+ * caches and registries.
+ */
+public final class TileKey implements GridCell {
+
+  private final float mScale;
+  private final int mColumn;
+  private final int mRow;
+
+  public TileKey( float scale, int column, int row ) {
+    mScale = scale;
+    mColumn = column;
+    mRow = row;
+  }
+
+  public float getScale() {
+    return mScale;
+  }
+
+  @Override
+  public int getColumn() {
+    return mColumn;
+  }
+
+  @Override
+  public int getRow() {
+    return mRow;
+  }
+
+  @Override
+  public boolean equals( Object o ) {
+    if( o == this ) {
+      return true;
+    }
+    if( o instanceof TileKey ) {
+      TileKey tileKey = (TileKey) o;
+      return mColumn == tileKey.mColumn
+        && mRow == tileKey.mRow
+        && mScale == tileKey.mScale;
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = 17;
+    hash = hash * 31 + mColumn;
+    hash = hash * 31 + mRow;
+    hash = hash * 31 + Float.floatToIntBits( mScale );
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    return "TileKey[" + mScale + ", " + mColumn + ", " + mRow + "]";
+  }
+}
@@ -0,0 +1,94 @@
+package com.qozix.tileview.core;
+
+/**
+ * Immutable description of a block of grid cells; start values are inclusive, end values
+ * are exclusive.
+ */
+public class TileRange {
+
+  private final int mRowStart;
+  private final int mRowEnd;
+  private final int mColumnStart;
+  private final int mColumnEnd;
+
+  public TileRange( int rowStart, int rowEnd, int columnStart, int columnEnd ) {
+    mRowStart = rowStart;
+    mRowEnd = rowEnd;
+    mColumnStart = columnStart;
+    mColumnEnd = columnEnd;
+  }
+
+  public int getRowStart() {
+    return mRowStart;
+  }
+
+  public int getRowEnd() {
+    return mRowEnd;
+  }
+
+  public int getColumnStart() {
+    return mColumnStart;
+  }
+
+  public int getColumnEnd() {
+    return mColumnEnd;
+  }
+
+  public int getRowCount() {
+    return Math.max( 0, mRowEnd - mRowStart );
+  }
+
+  public int getColumnCount() {
+    return Math.max( 0, mColumnEnd - mColumnStart );
+  }
+
+  /**
+   * @return The number of cells described by this range.
+   */
+  public int getCount() {
+    return getRowCount() * getColumnCount();
+  }
+
+  public float getCenterColumn() {
+    return (mColumnStart + mColumnEnd) * 0.5f;
+  }
+
+  public float getCenterRow() {
+    return (mRowStart + mRowEnd) * 0.5f;
+  }
+
+  public boolean contains( int column, int row ) {
+    return column >= mColumnStart && column < mColumnEnd
+      && row >= mRowStart && row < mRowEnd;
+  }
+
+  @Override
+  public boolean equals( Object o ) {
+    if( o == this ) {
+      return true;
+    }
+    if( o instanceof TileRange ) {
+      TileRange tileRange = (TileRange) o;
+      return mRowStart == tileRange.mRowStart
+        && mRowEnd == tileRange.mRowEnd
+        && mColumnStart == tileRange.mColumnStart
+        && mColumnEnd == tileRange.mColumnEnd;
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = 17;
+    hash = hash * 31 + mRowStart;
+    hash = hash * 31 + mRowEnd;
+    hash = hash * 31 + mColumnStart;
+    hash = hash * 31 + mColumnEnd;
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    return "TileRange[rows " + mRowStart + "-" + mRowEnd + ", columns " + mColumnStart + "-" + mColumnEnd + "]";
+  }
+}
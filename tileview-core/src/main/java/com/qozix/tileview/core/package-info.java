@@ -0,0 +1,10 @@
+/**
+ * Platform-independent tiling logic: viewport to tile grid computation, render set
+ * reconciliation, render queue ordering, cache accounting and coordinate transforms.
+ *
+ * This package (with {@link com.qozix.tileview.geom.FloatMathHelper}) makes up the
+ * tileview-core module, a plain Java module the tileview library depends on, so it can be
+ * compiled, profiled and tested on a plain JVM; nothing in it may reference android.* types.
+ * The Android classes in the tileview module adapt these to Views, Handlers and Bitmaps.
+ */
+package com.qozix.tileview.core;
@@ -0,0 +1,21 @@
+package com.qozix.tileview.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class CacheAccountingTest {
+
+  @Test
+  public void addingAKeyAgainReplacesItsSize() {
+    CacheAccounting<String> accounting = new CacheAccounting<>();
+    accounting.add( "a", 100 );
+    accounting.add( "b", 50 );
+    accounting.add( "a", 30 );
+    assertEquals( 80, accounting.getByteCount() );
+    accounting.remove( "b" );
+    accounting.remove( "missing" );
+    assertEquals( 30, accounting.getByteCount() );
+    assertEquals( 1, accounting.getEntryCount() );
+  }
+}
@@ -0,0 +1,25 @@
+package com.qozix.tileview.core;
+
+import com.qozix.tileview.core.RenderSetTest.Cell;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class CenterFirstRenderQueuePolicyTest {
+
+  @Test
+  public void tilesNearestTheCenterComeFirst() {
+    CenterFirstRenderQueuePolicy<Cell> policy = new CenterFirstRenderQueuePolicy<>();
+    HashSet<Cell> renderSet = new HashSet<>( Arrays.asList(
+      new Cell( 0, 0 ), new Cell( 4, 4 ), new Cell( 2, 2 ), new Cell( 0, 4 ), new Cell( 2, 1 ) ) );
+    List<Cell> ordered = policy.prioritize( renderSet, new TileRange( 0, 5, 0, 5 ) );
+    assertEquals( new Cell( 2, 2 ), ordered.get( 0 ) );
+    assertEquals( new Cell( 2, 1 ), ordered.get( 1 ) );
+    assertEquals( 5, ordered.size() );
+  }
+}
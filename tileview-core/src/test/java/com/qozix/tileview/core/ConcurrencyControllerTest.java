@@ -0,0 +1,101 @@
+package com.qozix.tileview.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ConcurrencyControllerTest {
+
+  private static final long INTERVAL = ConcurrencyController.DEFAULT_ADJUSTMENT_INTERVAL;
+  private static final long MILLISECOND = 1000000;
+
+  /**
+   * Records decodes of the given latency and runs one adjustment, an interval after the last.
+   */
+  private static int adjust( ConcurrencyController controller, int step, long latencyNanos, int queueDepth ) {
+    for( int i = 0; i < 4; i++ ) {
+      controller.recordDecode( latencyNanos );
+    }
+    return controller.update( step * INTERVAL, queueDepth );
+  }
+
+  @Test
+  public void limitGrowsByOneWhileTilesWaitAndLatencyHolds() {
+    ConcurrencyController controller = new ConcurrencyController( 1, 8, 2 );
+    assertEquals( 3, adjust( controller, 1, MILLISECOND, 10 ) );
+    assertEquals( 4, adjust( controller, 2, MILLISECOND, 10 ) );
+    assertEquals( 2, controller.getIncreaseCount() );
+    assertEquals( 0, controller.getDecreaseCount() );
+  }
+
+  @Test
+  public void limitHoldsBetweenIntervals() {
+    ConcurrencyController controller = new ConcurrencyController( 1, 8, 2 );
+    assertEquals( 3, adjust( controller, 1, MILLISECOND, 10 ) );
+    controller.recordDecode( MILLISECOND );
+    assertEquals( 3, controller.update( INTERVAL + INTERVAL / 2, 10 ) );
+  }
+
+  @Test
+  public void limitHoldsWithoutQueuedTilesOrDecodes() {
+    ConcurrencyController controller = new ConcurrencyController( 1, 8, 2 );
+    assertEquals( 2, adjust( controller, 1, MILLISECOND, 0 ) );
+    assertEquals( 2, controller.update( 2 * INTERVAL, 10 ) );
+  }
+
+  @Test
+  public void risingLatencyHalvesTheLimit() {
+    ConcurrencyController controller = new ConcurrencyController( 1, 16, 8 );
+    adjust( controller, 1, MILLISECOND, 0 );
+    assertEquals( MILLISECOND, controller.getBaselineLatency(), 0 );
+    // within the tolerance of 1.5 times the baseline
+    assertEquals( 9, adjust( controller, 2, MILLISECOND * 14 / 10, 10 ) );
+    assertEquals( 4, adjust( controller, 3, MILLISECOND * 3, 10 ) );
+    assertEquals( 1, controller.getDecreaseCount() );
+  }
+
+  @Test
+  public void baselineDriftsTowardSlowerLatency() {
+    ConcurrencyController controller = new ConcurrencyController( 1, 16, 8 );
+    adjust( controller, 1, MILLISECOND, 0 );
+    adjust( controller, 2, MILLISECOND * 14 / 10, 0 );
+    double baseline = controller.getBaselineLatency();
+    assertEquals( MILLISECOND * 1.02, baseline, 1 );
+    // faster decodes lower the baseline at once
+    adjust( controller, 3, MILLISECOND / 2, 0 );
+    assertEquals( MILLISECOND / 2, controller.getBaselineLatency(), 0 );
+  }
+
+  @Test
+  public void droppedFramesHalveTheLimit() {
+    ConcurrencyController controller = new ConcurrencyController( 1, 16, 8 );
+    controller.recordDroppedFrames( 1 );
+    assertEquals( 4, adjust( controller, 1, MILLISECOND, 10 ) );
+    // the window is cleared after each adjustment
+    assertEquals( 5, adjust( controller, 2, MILLISECOND, 10 ) );
+  }
+
+  @Test
+  public void limitIsClampedToItsBounds() {
+    ConcurrencyController controller = new ConcurrencyController( 2, 4, 10 );
+    assertEquals( 4, controller.getLimit() );
+    assertEquals( 4, adjust( controller, 1, MILLISECOND, 10 ) );
+    assertEquals( 0, controller.getIncreaseCount() );
+    controller.recordDroppedFrames( 3 );
+    assertEquals( 2, adjust( controller, 2, MILLISECOND, 10 ) );
+    controller.recordDroppedFrames( 3 );
+    assertEquals( 2, adjust( controller, 3, MILLISECOND, 10 ) );
+    assertEquals( 1, controller.getDecreaseCount() );
+    assertEquals( 2, new ConcurrencyController( 2, 4, 0 ).getLimit() );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void minimumBelowOneIsRejected() {
+    new ConcurrencyController( 0, 4, 2 );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void maximumBelowMinimumIsRejected() {
+    new ConcurrencyController( 4, 2, 2 );
+  }
+}
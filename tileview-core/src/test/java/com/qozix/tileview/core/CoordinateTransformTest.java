@@ -0,0 +1,32 @@
+package com.qozix.tileview.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CoordinateTransformTest {
+
+  @Test
+  public void withoutBoundsPositionsArePixels() {
+    CoordinateTransform transform = new CoordinateTransform();
+    transform.setSize( 1000, 2000 );
+    assertEquals( 250, transform.translateX( 250 ) );
+    assertEquals( 125, transform.translateAndScaleX( 250, 0.5f ) );
+  }
+
+  @Test
+  public void boundsMapToPixelsAndBack() {
+    CoordinateTransform transform = new CoordinateTransform();
+    transform.setSize( 1000, 2000 );
+    // latitude decreases downwards
+    transform.setBounds( -71.1, 42.4, -71.0, 42.3 );
+    assertEquals( 500, transform.translateX( -71.05 ) );
+    assertEquals( 1000, transform.translateY( 42.35 ) );
+    assertEquals( -71.05, transform.translateAbsoluteToRelativeX( 500 ), 1e-6 );
+    assertEquals( 42.35, transform.translateAndScaleAbsoluteToRelativeY( 500, 0.5f ), 1e-6 );
+    assertTrue( transform.contains( -71.05, 42.35 ) );
+    assertFalse( transform.contains( -70.9, 42.35 ) );
+  }
+}
@@ -0,0 +1,89 @@
+package com.qozix.tileview.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RefCountedRegistryTest {
+
+  @Test
+  public void firstValueForAKeyIsRegistered() {
+    RefCountedRegistry<String, Object> registry = new RefCountedRegistry<>();
+    Object value = new Object();
+    assertSame( value, registry.intern( "a", value ) );
+    assertEquals( 1, registry.getEntryCount() );
+    assertEquals( 0, registry.getShareCount() );
+  }
+
+  @Test
+  public void equalKeyReturnsTheRegisteredValue() {
+    RefCountedRegistry<String, Object> registry = new RefCountedRegistry<>();
+    Object first = new Object();
+    registry.intern( "a", first );
+    assertSame( first, registry.intern( new String( "a" ), new Object() ) );
+    assertSame( first, registry.acquire( "a" ) );
+    assertEquals( 1, registry.getEntryCount() );
+    assertEquals( 2, registry.getShareCount() );
+  }
+
+  @Test
+  public void acquireUnknownKeyReturnsNull() {
+    RefCountedRegistry<String, Object> registry = new RefCountedRegistry<>();
+    assertNull( registry.acquire( "a" ) );
+    assertEquals( 0, registry.getShareCount() );
+  }
+
+  @Test
+  public void valueIsReleasedWithItsLastReference() {
+    RefCountedRegistry<String, Object> registry = new RefCountedRegistry<>();
+    Object value = new Object();
+    registry.intern( "a", value );
+    registry.acquire( "a" );
+    registry.intern( "a", new Object() );
+    assertFalse( registry.release( value ) );
+    assertFalse( registry.release( value ) );
+    assertTrue( registry.release( value ) );
+    assertEquals( 0, registry.getEntryCount() );
+    assertNull( registry.acquire( "a" ) );
+  }
+
+  @Test
+  public void unregisteredValueMayBeDisposed() {
+    RefCountedRegistry<String, Object> registry = new RefCountedRegistry<>();
+    assertTrue( registry.release( new Object() ) );
+  }
+
+  @Test
+  public void reinterningTheSameValueIsNotCountedAsShared() {
+    RefCountedRegistry<String, Object> registry = new RefCountedRegistry<>();
+    Object value = new Object();
+    registry.intern( "a", value );
+    assertSame( value, registry.intern( "a", value ) );
+    assertEquals( 0, registry.getShareCount() );
+    assertFalse( registry.release( value ) );
+    assertTrue( registry.release( value ) );
+  }
+
+  @Test
+  public void rejectedCollisionLeavesTheRegistryUnchanged() {
+    RefCountedRegistry<String, Object> registry = new RefCountedRegistry<String, Object>() {
+      @Override
+      protected boolean isSameContent( String key, Object registered, Object value ) {
+        return false;
+      }
+    };
+    Object first = new Object();
+    Object second = new Object();
+    registry.intern( "a", first );
+    assertSame( second, registry.intern( "a", second ) );
+    assertEquals( 0, registry.getShareCount() );
+    assertEquals( 1, registry.getEntryCount() );
+    // the colliding value was never registered, and the first still has a single reference
+    assertTrue( registry.release( second ) );
+    assertTrue( registry.release( first ) );
+  }
+}
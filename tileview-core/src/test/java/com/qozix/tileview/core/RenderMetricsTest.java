@@ -0,0 +1,21 @@
+package com.qozix.tileview.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class RenderMetricsTest {
+
+  @Test
+  public void commitBatchesTrackCountAndLargest() {
+    RenderMetrics renderMetrics = new RenderMetrics();
+    renderMetrics.recordCommitBatch( 3 );
+    renderMetrics.recordCommitBatch( 7 );
+    renderMetrics.recordCommitBatch( 2 );
+    assertEquals( 3, renderMetrics.getCommitBatches() );
+    assertEquals( 7, renderMetrics.getLargestCommitBatch() );
+    renderMetrics.reset();
+    assertEquals( 0, renderMetrics.getCommitBatches() );
+    assertEquals( 0, renderMetrics.getLargestCommitBatch() );
+  }
+}
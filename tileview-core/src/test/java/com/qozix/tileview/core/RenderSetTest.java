@@ -0,0 +1,117 @@
+package com.qozix.tileview.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RenderSetTest {
+
+  @Test
+  public void reconcileAddsNewTilesAndDropsTilesNoLongerVisible() {
+    RenderSet<Cell> renderSet = new RenderSet<>();
+    renderSet.reconcile( cells( new Cell( 0, 0 ), new Cell( 1, 0 ) ) );
+    renderSet.reconcile( cells( new Cell( 1, 0 ), new Cell( 2, 0 ) ) );
+    assertEquals( cells( new Cell( 1, 0 ), new Cell( 2, 0 ) ), renderSet.getTilesInCurrentViewport() );
+  }
+
+  @Test
+  public void reconcileKeepsExistingInstances() {
+    RenderSet<Cell> renderSet = new RenderSet<>();
+    Cell original = new Cell( 1, 1 );
+    renderSet.reconcile( cells( original ) );
+    renderSet.reconcile( cells( new Cell( 1, 1 ) ) );
+    assertSame( original, renderSet.getTilesInCurrentViewport().iterator().next() );
+  }
+
+  @Test
+  public void renderSetExcludesRenderedTiles() {
+    RenderSet<Cell> renderSet = new RenderSet<>();
+    Cell rendered = new Cell( 0, 0 );
+    renderSet.reconcile( cells( rendered, new Cell( 0, 1 ) ) );
+    renderSet.markRendered( rendered );
+    assertEquals( cells( new Cell( 0, 1 ) ), renderSet.getRenderSet() );
+    assertTrue( renderSet.isRendered( new Cell( 0, 0 ) ) );
+  }
+
+  @Test
+  public void condemnReturnsOnlyRenderedTilesOutsideTheViewport() {
+    RenderSet<Cell> renderSet = new RenderSet<>();
+    Cell leaving = new Cell( 0, 0 );
+    Cell staying = new Cell( 1, 0 );
+    renderSet.reconcile( cells( leaving, staying ) );
+    renderSet.markRendered( leaving );
+    renderSet.markRendered( staying );
+    renderSet.reconcile( cells( staying, new Cell( 2, 0 ) ) );
+    Set<Cell> condemned = renderSet.condemnOutOfViewport();
+    assertEquals( cells( leaving ), condemned );
+    assertFalse( renderSet.isRendered( leaving ) );
+    assertTrue( renderSet.isRendered( staying ) );
+    assertEquals( 1, renderSet.getRenderedCount() );
+  }
+
+  @Test
+  public void replaceRenderedSwapsTheInstance() {
+    RenderSet<Cell> renderSet = new RenderSet<>();
+    Cell first = new Cell( 0, 0 );
+    Cell second = new Cell( 0, 0 );
+    renderSet.reconcile( cells( first ) );
+    renderSet.markRendered( first );
+    renderSet.replaceRendered( second );
+    renderSet.clearViewport();
+    assertSame( second, renderSet.condemnOutOfViewport().iterator().next() );
+  }
+
+  private static Set<Cell> cells( Cell... cells ) {
+    return new HashSet<>( Arrays.asList( cells ) );
+  }
+
+  /**
+   * Equal by position, like Tile, so instances can be told apart with assertSame.
+   */
+  static class Cell implements GridCell {
+
+    private final int mColumn;
+    private final int mRow;
+
+    Cell( int column, int row ) {
+      mColumn = column;
+      mRow = row;
+    }
+
+    @Override
+    public int getColumn() {
+      return mColumn;
+    }
+
+    @Override
+    public int getRow() {
+      return mRow;
+    }
+
+    @Override
+    public boolean equals( Object o ) {
+      if( o instanceof Cell ) {
+        Cell cell = (Cell) o;
+        return mColumn == cell.mColumn && mRow == cell.mRow;
+      }
+      return false;
+    }
+
+    @Override
+    public int hashCode() {
+      return mColumn * 31 + mRow;
+    }
+
+    @Override
+    public String toString() {
+      return mColumn + ":" + mRow;
+    }
+  }
+}
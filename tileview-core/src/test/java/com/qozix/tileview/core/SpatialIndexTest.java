@@ -0,0 +1,54 @@
+package com.qozix.tileview.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SpatialIndexTest {
+
+  private static List<String> query( SpatialIndex<String> spatialIndex, float left, float top, float right, float bottom ) {
+    List<String> results = new ArrayList<>();
+    spatialIndex.query( left, top, right, bottom, results );
+    return results;
+  }
+
+  @Test
+  public void onlyIntersectingItemsAreReturned() {
+    SpatialIndex<String> spatialIndex = new SpatialIndex<>( 100 );
+    spatialIndex.insert( "near", 10, 10, 20, 20 );
+    spatialIndex.insert( "sameCell", 60, 60, 90, 90 );
+    spatialIndex.insert( "far", 500, 500, 600, 600 );
+    assertEquals( Arrays.asList( "near" ), query( spatialIndex, 0, 0, 50, 50 ) );
+  }
+
+  @Test
+  public void itemsAreReturnedOnceInInsertionOrder() {
+    SpatialIndex<String> spatialIndex = new SpatialIndex<>( 100 );
+    // spans four cells, and is found in each of them
+    spatialIndex.insert( "first", 50, 50, 250, 250 );
+    spatialIndex.insert( "second", 150, 150, 160, 160 );
+    spatialIndex.insert( "third", 20, 20, 30, 30 );
+    assertEquals( Arrays.asList( "first", "second", "third" ), query( spatialIndex, 0, 0, 300, 300 ) );
+  }
+
+  @Test
+  public void removedItemsAreNoLongerReturned() {
+    SpatialIndex<String> spatialIndex = new SpatialIndex<>( 100 );
+    spatialIndex.insert( "kept", 0, 0, 10, 10 );
+    spatialIndex.insert( "removed", 50, 50, 250, 250 );
+    assertTrue( spatialIndex.remove( "removed", 50, 50, 250, 250 ) );
+    assertFalse( spatialIndex.remove( "removed", 50, 50, 250, 250 ) );
+    assertEquals( 1, spatialIndex.size() );
+    assertEquals( Arrays.asList( "kept" ), query( spatialIndex, 0, 0, 300, 300 ) );
+    spatialIndex.clear();
+    assertEquals( 0, spatialIndex.size() );
+    assertTrue( query( spatialIndex, 0, 0, 300, 300 ).isEmpty() );
+  }
+
+}
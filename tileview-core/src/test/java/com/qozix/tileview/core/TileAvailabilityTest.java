@@ -0,0 +1,99 @@
+package com.qozix.tileview.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TileAvailabilityTest {
+
+  private static byte[] encode( TileAvailability tileAvailability ) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    tileAvailability.writeTo( outputStream );
+    return outputStream.toByteArray();
+  }
+
+  @Test
+  public void tilesAreAvailableUntilMarkedMissing() {
+    TileAvailability tileAvailability = new TileAvailability( 4, 3 );
+    assertTrue( tileAvailability.isAvailable( 2, 1 ) );
+    tileAvailability.markMissing( 2, 1 );
+    tileAvailability.markMissing( 2, 1 );
+    assertFalse( tileAvailability.isAvailable( 2, 1 ) );
+    assertTrue( tileAvailability.isAvailable( 1, 2 ) );
+    assertEquals( 1, tileAvailability.getMissingCount() );
+    tileAvailability.markAvailable( 2, 1 );
+    tileAvailability.markAvailable( 2, 1 );
+    assertTrue( tileAvailability.isAvailable( 2, 1 ) );
+    assertEquals( 0, tileAvailability.getMissingCount() );
+  }
+
+  @Test
+  public void positionsOutsideTheGridAreIgnored() {
+    TileAvailability tileAvailability = new TileAvailability( 2, 2 );
+    tileAvailability.markMissing( 2, 0 );
+    tileAvailability.markMissing( -1, 0 );
+    tileAvailability.markMissing( 0, 2 );
+    assertEquals( 0, tileAvailability.getMissingCount() );
+    assertTrue( tileAvailability.isAvailable( 5, 5 ) );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void negativeDimensionsAreRejected() {
+    new TileAvailability( -1, 2 );
+  }
+
+  @Test
+  public void roundTripPreservesMissingTilesAcrossWords() throws Exception {
+    // 65 x 3 spans several 64 bit words, with bits on both sides of each boundary
+    TileAvailability original = new TileAvailability( 65, 3 );
+    int[][] missing = { { 0, 0 }, { 63, 0 }, { 64, 0 }, { 0, 1 }, { 62, 1 }, { 64, 2 } };
+    for( int[] position : missing ) {
+      original.markMissing( position[0], position[1] );
+    }
+    TileAvailability copy = TileAvailability.readFrom( new ByteArrayInputStream( encode( original ) ) );
+    assertEquals( 65, copy.getColumnCount() );
+    assertEquals( 3, copy.getRowCount() );
+    assertEquals( missing.length, copy.getMissingCount() );
+    for( int row = 0; row < 3; row++ ) {
+      for( int column = 0; column < 65; column++ ) {
+        assertEquals( column + "," + row, original.isAvailable( column, row ), copy.isAvailable( column, row ) );
+      }
+    }
+  }
+
+  @Test
+  public void emptyGridRoundTrips() throws Exception {
+    TileAvailability copy = TileAvailability.readFrom( new ByteArrayInputStream( encode( new TileAvailability( 0, 0 ) ) ) );
+    assertEquals( 0, copy.getColumnCount() );
+    assertEquals( 0, copy.getMissingCount() );
+  }
+
+  @Test( expected = IOException.class )
+  public void otherDataIsRejected() throws Exception {
+    byte[] bytes = encode( new TileAvailability( 2, 2 ) );
+    bytes[0] ^= 0xFF;
+    TileAvailability.readFrom( new ByteArrayInputStream( bytes ) );
+  }
+
+  @Test( expected = IOException.class )
+  public void unknownVersionIsRejected() throws Exception {
+    byte[] bytes = encode( new TileAvailability( 2, 2 ) );
+    // the version follows the four byte magic number
+    bytes[7] = 2;
+    TileAvailability.readFrom( new ByteArrayInputStream( bytes ) );
+  }
+
+  @Test( expected = IOException.class )
+  public void truncatedIndexIsRejected() throws Exception {
+    byte[] bytes = encode( new TileAvailability( 2, 2 ) );
+    byte[] truncated = new byte[bytes.length - 4];
+    System.arraycopy( bytes, 0, truncated, 0, truncated.length );
+    TileAvailability.readFrom( new ByteArrayInputStream( truncated ) );
+  }
+}
@@ -0,0 +1,122 @@
+package com.qozix.tileview.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TileFailureTrackerTest {
+
+  private static TileFailureTracker<String> createTracker() {
+    TileFailureTracker<String> tracker = new TileFailureTracker<>();
+    tracker.setBackoff( 100, 1000 );
+    tracker.setMaximumTransientAttempts( 4 );
+    return tracker;
+  }
+
+  @Test
+  public void unknownTileMayBeRequested() {
+    assertTrue( createTracker().shouldRequest( "a", 0 ) );
+  }
+
+  @Test
+  public void backoffDoublesAndIsCapped() {
+    TileFailureTracker<String> tracker = createTracker();
+    tracker.setMaximumTransientAttempts( 0 );
+    long[] expected = { 100, 200, 400, 800, 1000, 1000 };
+    for( long delay : expected ) {
+      tracker.recordTransientFailure( "a", 0 );
+      assertEquals( delay, tracker.getNextRetryDelay( 0 ) );
+    }
+    assertFalse( tracker.isMissing( "a" ) );
+  }
+
+  @Test
+  public void tileInBackoffIsRequestedOnceDelayElapses() {
+    TileFailureTracker<String> tracker = createTracker();
+    tracker.recordTransientFailure( "a", 1000 );
+    assertFalse( tracker.shouldRequest( "a", 1099 ) );
+    assertTrue( tracker.shouldRequest( "a", 1100 ) );
+    assertTrue( tracker.shouldRequest( "b", 1000 ) );
+  }
+
+  @Test
+  public void successEndsBackoff() {
+    TileFailureTracker<String> tracker = createTracker();
+    tracker.recordTransientFailure( "a", 0 );
+    tracker.recordSuccess( "a" );
+    assertTrue( tracker.shouldRequest( "a", 0 ) );
+    assertEquals( 0, tracker.getBackoffCount() );
+    assertEquals( -1, tracker.getNextRetryDelay( 0 ) );
+  }
+
+  @Test
+  public void repeatedTransientFailuresArePromotedToMissing() {
+    TileFailureTracker<String> tracker = createTracker();
+    for( int i = 0; i < 4; i++ ) {
+      assertFalse( tracker.isMissing( "a" ) );
+      tracker.recordTransientFailure( "a", 0 );
+    }
+    assertTrue( tracker.isMissing( "a" ) );
+    assertEquals( 0, tracker.getBackoffCount() );
+    assertFalse( tracker.shouldRequest( "a", Long.MAX_VALUE ) );
+    assertEquals( 4, tracker.getTransientFailureCount() );
+  }
+
+  @Test
+  public void permanentFailureIsMissingUntilCleared() {
+    TileFailureTracker<String> tracker = createTracker();
+    tracker.recordPermanentFailure( "a" );
+    assertTrue( tracker.isMissing( "a" ) );
+    assertFalse( tracker.shouldRequest( "a", 0 ) );
+    tracker.clear();
+    assertTrue( tracker.shouldRequest( "a", 0 ) );
+    assertEquals( 1, tracker.getPermanentFailureCount() );
+  }
+
+  @Test
+  public void permanentFailureKeptElsewhereIsOnlyCounted() {
+    TileFailureTracker<String> tracker = createTracker();
+    tracker.recordTransientFailure( "a", 0 );
+    tracker.recordPermanentFailure( "a", false );
+    assertFalse( tracker.isMissing( "a" ) );
+    assertEquals( 0, tracker.getBackoffCount() );
+    assertEquals( 0, tracker.getNegativeCacheSize() );
+    assertEquals( 1, tracker.getPermanentFailureCount() );
+  }
+
+  @Test
+  public void suppressedRequestsAreCountedOncePerFailure() {
+    TileFailureTracker<String> tracker = createTracker();
+    tracker.recordTransientFailure( "a", 0 );
+    tracker.recordPermanentFailure( "b" );
+    // several render passes and upgrade scans skip the same tiles
+    for( int i = 0; i < 5; i++ ) {
+      assertFalse( tracker.shouldRequest( "a", i ) );
+      assertFalse( tracker.shouldRequest( "b", i ) );
+    }
+    assertEquals( 2, tracker.getSuppressedRequestCount() );
+
+    // the retry fails again, so the next skip is a new suppression
+    assertTrue( tracker.shouldRequest( "a", 100 ) );
+    tracker.recordTransientFailure( "a", 100 );
+    assertFalse( tracker.shouldRequest( "a", 101 ) );
+    assertFalse( tracker.shouldRequest( "a", 102 ) );
+    assertEquals( 3, tracker.getSuppressedRequestCount() );
+  }
+
+  @Test
+  public void negativeCacheForgetsLeastRecentlyTouched() {
+    TileFailureTracker<String> tracker = createTracker();
+    tracker.setNegativeCacheCapacity( 2 );
+    tracker.recordPermanentFailure( "a" );
+    tracker.recordPermanentFailure( "b" );
+    tracker.shouldRequest( "a", 0 );
+    tracker.recordPermanentFailure( "c" );
+    assertEquals( 2, tracker.getNegativeCacheSize() );
+    assertTrue( tracker.isMissing( "a" ) );
+    assertFalse( tracker.isMissing( "b" ) );
+    assertTrue( tracker.isMissing( "c" ) );
+  }
+}
@@ -0,0 +1,51 @@
+package com.qozix.tileview.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class TileGridTest {
+
+  @Test
+  public void viewportAlignedToTilesCoversExactlyThoseTiles() {
+    TileRange range = TileGrid.computeRange( 256, 512, 768, 1024, 4096, 4096, 256, 256, 1 );
+    assertEquals( new TileRange( 2, 4, 1, 3 ), range );
+    assertEquals( 4, range.getCount() );
+  }
+
+  @Test
+  public void partiallyVisibleTilesAreIncluded() {
+    TileRange range = TileGrid.computeRange( 255, 1, 257, 511, 4096, 4096, 256, 256, 1 );
+    assertEquals( new TileRange( 0, 2, 0, 2 ), range );
+  }
+
+  @Test
+  public void viewportIsClampedToTheImage() {
+    TileRange range = TileGrid.computeRange( -500, -500, 5000, 300, 1000, 1000, 256, 256, 1 );
+    assertEquals( new TileRange( 0, 2, 0, 4 ), range );
+  }
+
+  @Test
+  public void viewportOutsideTheImageIsEmpty() {
+    TileRange range = TileGrid.computeRange( 2000, 2000, 3000, 3000, 1000, 1000, 256, 256, 1 );
+    assertEquals( 0, range.getCount() );
+  }
+
+  @Test
+  public void relativeScaleResizesTiles() {
+    // a level shown at half its own resolution: each 256 pixel tile covers 128 screen pixels
+    TileRange range = TileGrid.computeRange( 0, 0, 512, 256, 2048, 2048, 256, 256, 0.5f );
+    assertEquals( new TileRange( 0, 2, 0, 4 ), range );
+  }
+
+  @Test
+  public void sampleSizeIsLargestPowerOfTwoThatKeepsFullResolution() {
+    assertEquals( 1, TileGrid.computeSampleSize( 1 ) );
+    assertEquals( 1, TileGrid.computeSampleSize( 2 ) );
+    assertEquals( 1, TileGrid.computeSampleSize( 0.6f ) );
+    assertEquals( 2, TileGrid.computeSampleSize( 0.5f ) );
+    assertEquals( 4, TileGrid.computeSampleSize( 0.2f ) );
+    assertEquals( 64, TileGrid.computeSampleSize( 0.0001f ) );
+    assertEquals( 1, TileGrid.computeSampleSize( 0 ) );
+  }
+}
@@ -6,8 +6,6 @@ import android.graphics.Path;
 import android.graphics.Rect;
 import android.graphics.RectF;
 import android.graphics.Region;
-import android.os.Handler;
-import android.os.Message;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.util.AttributeSet;
@@ -15,21 +13,26 @@ import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
 
+import com.qozix.tileview.detail.DeepZoomDescriptor;
+import com.qozix.tileview.detail.DeepZoomDetailLevelManager;
 import com.qozix.tileview.detail.DetailLevel;
 import com.qozix.tileview.detail.DetailLevelManager;
 import com.qozix.tileview.geom.CoordinateTranslater;
 import com.qozix.tileview.geom.FloatMathHelper;
 import com.qozix.tileview.graphics.BitmapProvider;
+import com.qozix.tileview.graphics.TilePostProcessor;
 import com.qozix.tileview.hotspots.HotSpot;
 import com.qozix.tileview.hotspots.HotSpotManager;
 import com.qozix.tileview.markers.CalloutLayout;
+import com.qozix.tileview.markers.Marker;
+import com.qozix.tileview.markers.MarkerAdapter;
 import com.qozix.tileview.markers.MarkerLayout;
 import com.qozix.tileview.paths.CompositePathView;
 import com.qozix.tileview.tiles.TileCanvasViewGroup;
+import com.qozix.tileview.tiles.TileRenderEngine;
 import com.qozix.tileview.widgets.ScalingLayout;
 import com.qozix.tileview.widgets.ZoomPanLayout;
 
-import java.lang.ref.WeakReference;
 import java.util.List;
 
 /**
@@ -83,11 +86,18 @@ public class TileView extends ZoomPanLayout implements
   private MarkerLayout mMarkerLayout;
   private CalloutLayout mCalloutLayout;
 
-  private RenderThrottleHandler mRenderThrottleHandler;
-
-  private boolean mShouldRenderWhilePanning = false;
   private boolean mShouldUpdateDetailLevelWhileZooming = false;
 
+  private boolean mShouldRenderImmediately = true;
+
+  private boolean mIsPinching;
+
+  private boolean mHasPendingFrame;
+  private boolean mPendingFrameIsAbsolute;
+  private double mPendingFrameX;
+  private double mPendingFrameY;
+  private float mPendingFrameScale;
+
   /**
    * Constructor to use when creating a TileView from code.
    *
@@ -125,10 +135,6 @@ public class TileView extends ZoomPanLayout implements
     addZoomListener( this );
     addPanListener( this );
 
-    mRenderThrottleHandler = new RenderThrottleHandler( this );
-
-    requestRender();
-
   }
 
   /**
@@ -223,34 +229,27 @@ public class TileView extends ZoomPanLayout implements
 
   /**
    * Request that the current tile set is re-examined and re-drawn.
-   * The request is added to a queue and is not guaranteed to be processed at any particular
-   * time, and will never be handled immediately.
+   * The request is merged with others made before it is handled, which happens at the next frame
+   * while idle, or is paced by the viewport's velocity while panning, and is never immediate.
    */
   public void requestRender() {
     mTileCanvasViewGroup.requestRender();
   }
 
   /**
-   * While all render operation requests are queued and batched, this method provides an additional
-   * throttle layer, so that any subsequent invocations cancel and pending invocations.
-   *
-   * This is useful when requesting in a stream fashion, either in a loop or in response to a
-   * progressive action like an animation or touch move.
+   * Equivalent to requestRender: requests made while panning or flinging are already throttled
+   * by the render scheduler, which defers or rate limits them until the motion ends.
    */
   public void requestThrottledRender() {
-    mRenderThrottleHandler.submit();
+    requestRender();
   }
 
   /**
-   * If flinging, defer render, otherwise request now.
-   * If a render operation starts at the beginning of a fling, a stutter can occur.
+   * Equivalent to requestRender, which no longer starts render operations during a fling
+   * unless rendering while panning is enabled.
    */
   protected void requestSafeRender() {
-    if( isFlinging() ) {
-      requestThrottledRender();
-    } else {
-      requestRender();
-    }
+    requestRender();
   }
 
   /**
@@ -275,11 +274,13 @@ public class TileView extends ZoomPanLayout implements
    * By default, a BitmapDecoder implementation is provided that renders bitmaps from the context's
    * Assets, but alternative implementations could be used that fetch images via HTTP, or from the
    * SD card, or resources, SVG, etc.
+   * Tiles previously learned to be missing (see DetailLevel.getTileAvailability) are forgotten.
    *
    * @param bitmapProvider A class instance that implements BitmapProvider, and must define a getBitmap method, which accepts a String file name and a Context object, and returns a Bitmap
    */
   public void setBitmapProvider( BitmapProvider bitmapProvider ) {
     mTileCanvasViewGroup.setBitmapProvider( bitmapProvider );
+    mDetailLevelManager.clearTileAvailability();
   }
 
   /**
@@ -303,6 +304,51 @@ public class TileView extends ZoomPanLayout implements
     mTileCanvasViewGroup.setShouldRecycleBitmaps( shouldRecycleBitmaps );
   }
 
+  /**
+   * Render tiles with an engine shared with other TileViews, so they use one thread pool and one
+   * memory budget, rather than each starting their own.  Bitmaps are not cached by the engine;
+   * tiles are only shared when its deduplicator can tell their content is identical.
+   *
+   * @param tileRenderEngine The shared engine, e.g., TileRenderEngine.getSharedInstance(), or null for a private one.
+   */
+  public void setTileRenderEngine( TileRenderEngine tileRenderEngine ) {
+    mTileCanvasViewGroup.setTileRenderEngine( tileRenderEngine );
+  }
+
+  /**
+   * Sets this TileView's share of a shared TileRenderEngine's workers, relative to the other
+   * TileViews using it; e.g., the focused pane of a comparison might use 2 and the others 1.
+   *
+   * @param renderPriority The priority, at least 1; the default is 1.
+   */
+  public void setRenderPriority( int renderPriority ) {
+    mTileCanvasViewGroup.setRenderPriority( renderPriority );
+  }
+
+  /**
+   * Transform each tile once, as it's decoded, rather than filtering it every time it's drawn;
+   * e.g., {@code setTilePostProcessor( ColorMatrixTilePostProcessor.createNightMode() )}.
+   * Visible tiles are re-rendered when the post processor changes.
+   *
+   * @param tilePostProcessor The TilePostProcessor to apply, or null for none.
+   */
+  public void setTilePostProcessor( TilePostProcessor tilePostProcessor ) {
+    mTileCanvasViewGroup.setTilePostProcessor( tilePostProcessor );
+  }
+
+  /**
+   * Decode tiles in two passes: a quick, reduced resolution pass drawn scaled up, then a full
+   * resolution pass once the viewport settles.  Requires a SampledBitmapProvider (the default
+   * BitmapProviderAssets is one); has no effect otherwise.
+   *
+   * The default value is false.
+   *
+   * @param shouldRenderProgressively True if tiles should be decoded progressively.
+   */
+  public void setShouldRenderProgressively( boolean shouldRenderProgressively ) {
+    mTileCanvasViewGroup.setShouldRenderProgressively( shouldRenderProgressively );
+  }
+
   /**
    * Defines the total size, in pixels, of the tile set at 100% scale.
    * The TileView wills pan within it's layout dimensions, with the content (scrollable)
@@ -316,6 +362,7 @@ public class TileView extends ZoomPanLayout implements
     super.setSize( width, height );
     mDetailLevelManager.setSize( width, height );
     mCoordinateTranslater.setSize( width, height );
+    mMarkerLayout.setSize( width, height );
   }
 
   /**
@@ -344,6 +391,19 @@ public class TileView extends ZoomPanLayout implements
     mDetailLevelManager.addDetailLevel( detailScale, data, tileWidth, tileHeight );
   }
 
+  /**
+   * Register a detail level that is built on device from a finer level, for tile sets that only
+   * ship their highest resolution.  Each derived tile is composited from the source tiles it covers,
+   * so the BitmapProvider must be a {@link com.qozix.tileview.graphics.BitmapProviderDerived},
+   * which persists derived tiles so each is only composited once.
+   *
+   * @param detailScale Scale at which the TileView should use the derived tiles.
+   * @param sourceScale Scale of a registered detail level; detailScale times 2, 4, etc.
+   */
+  public void addDerivedDetailLevel( float detailScale, float sourceScale ) {
+    mDetailLevelManager.addDerivedDetailLevel( detailScale, sourceScale );
+  }
+
   /**
    * Pads the viewport by the number of pixels passed.  e.g., setViewportPadding( 100 ) instructs the
    * TileView to interpret it's actual viewport offset by 100 pixels in each direction (top, left,
@@ -409,6 +469,51 @@ public class TileView extends ZoomPanLayout implements
     );
   }
 
+  /**
+   * Sets the scale, then centers the viewport on the relative x and y positions provided.
+   * If the TileView has not been laid out yet, this happens as soon as its dimensions are
+   * known, and the first render starts at once rather than waiting for the next frame.
+   *
+   * @param x     The relative x position to center on.
+   * @param y     The relative y position to center on.
+   * @param scale The scale to set.
+   */
+  public void frameTo( double x, double y, float scale ) {
+    setPendingFrame( x, y, scale, false );
+  }
+
+  /**
+   * As {@link #frameTo(double, double, float)}, but x and y are pixels on the unscaled image,
+   * so no coordinate bounds need to be defined.
+   */
+  private void frameToAbsolute( double x, double y, float scale ) {
+    setPendingFrame( x, y, scale, true );
+  }
+
+  private void setPendingFrame( double x, double y, float scale, boolean absolute ) {
+    mPendingFrameX = x;
+    mPendingFrameY = y;
+    mPendingFrameScale = scale;
+    mPendingFrameIsAbsolute = absolute;
+    mHasPendingFrame = true;
+    if( getWidth() > 0 && getHeight() > 0 ) {
+      applyPendingFrame();
+    }
+  }
+
+  private void applyPendingFrame() {
+    mHasPendingFrame = false;
+    setScale( mPendingFrameScale );
+    if( mPendingFrameIsAbsolute ) {
+      // scaled by the scale actually set, which the scale limits may have clamped
+      scrollToAndCenter(
+        (int) Math.round( mPendingFrameX * getScale() ),
+        (int) Math.round( mPendingFrameY * getScale() ) );
+    } else {
+      scrollToAndCenter( mPendingFrameX, mPendingFrameY );
+    }
+  }
+
   /**
    * Scrolls (with animation) the TileView to the relative x and y positions provided.
    *
@@ -507,6 +612,56 @@ public class TileView extends ZoomPanLayout implements
       mCoordinateTranslater.translateY( y ) );
   }
 
+  /**
+   * Sets the adapter that supplies and binds Views for markers added as Marker records.
+   * Only records near the viewport are bound to Views, which are recycled by type as the
+   * viewport moves, so large numbers of markers can be added cheaply.
+   *
+   * @param markerAdapter The MarkerAdapter to use.
+   */
+  public void setMarkerAdapter( MarkerAdapter markerAdapter ) {
+    mMarkerLayout.setMarkerAdapter( markerAdapter );
+  }
+
+  /**
+   * Add a lightweight marker, displayed by a View from the MarkerAdapter while near the viewport.
+   *
+   * @param x       Relative x position of the marker.
+   * @param y       Relative y position of the marker.
+   * @param anchorX The x-axis position of a marker will be offset by a number equal to the width of the marker multiplied by this value.
+   * @param anchorY The y-axis position of a marker will be offset by a number equal to the height of the marker multiplied by this value.
+   * @param type    The view type passed to the MarkerAdapter; Views are only reused for markers of the same type.
+   * @return The Marker record added, e.g., to attach data to with Marker.setData.
+   */
+  public Marker addMarker( double x, double y, Float anchorX, Float anchorY, int type ) {
+    return mMarkerLayout.addMarker( new Marker(
+      mCoordinateTranslater.translateX( x ),
+      mCoordinateTranslater.translateY( y ),
+      anchorX, anchorY, type ) );
+  }
+
+  /**
+   * Removes a Marker record, recycling its View if it has one.
+   *
+   * @param marker The Marker to be removed.
+   */
+  public void removeMarker( Marker marker ) {
+    mMarkerLayout.removeMarker( marker );
+  }
+
+  /**
+   * Moves an existing Marker record to another position.
+   *
+   * @param marker The Marker to be repositioned.
+   * @param x      Relative x position the Marker should be positioned at.
+   * @param y      Relative y position the Marker should be positioned at.
+   */
+  public void moveMarker( Marker marker, double x, double y ) {
+    mMarkerLayout.moveMarker( marker,
+      mCoordinateTranslater.translateX( x ),
+      mCoordinateTranslater.translateY( y ) );
+  }
+
   /**
    * Scroll the TileView so that the View passed is centered in the viewport.
    *
@@ -675,11 +830,11 @@ public class TileView extends ZoomPanLayout implements
   }
 
   /**
-   * Recycles bitmap image files, prevents path drawing, and clears pending Handler messages,
+   * Recycles bitmap image files, prevents path drawing, and drops pending render requests,
    * appropriate for Activity.onPause.
    */
   public void pause() {
-    mRenderThrottleHandler.clear();
+    mTileCanvasViewGroup.cancelScheduledRender();
     mDetailLevelManager.invalidateAll();
     setWillNotDraw( true );
   }
@@ -714,7 +869,7 @@ public class TileView extends ZoomPanLayout implements
    * @param shouldRender True if it should render while panning.
    */
   public void setShouldRenderWhilePanning( boolean shouldRender ) {
-    mShouldRenderWhilePanning = shouldRender;
+    mTileCanvasViewGroup.setShouldRenderDuringMotion( shouldRender );
     int buffer = shouldRender ? TileCanvasViewGroup.FAST_RENDER_BUFFER : TileCanvasViewGroup.DEFAULT_RENDER_BUFFER;
     mTileCanvasViewGroup.setRenderBuffer( buffer );
   }
@@ -725,8 +880,10 @@ public class TileView extends ZoomPanLayout implements
    * consistently.
    * <p>
    * However, a zoom out may require a lot of tiles of the locked {@code DetailLevel} to be rendered.
-   * In worst case, it can cause {@link OutOfMemoryError}.
-   * Then, disabling the {@code DetailLevel} lock is a bandage to that issue. Using
+   * In worst case, it can cause {@link OutOfMemoryError}.  If the {@link BitmapProvider} is a
+   * {@link com.qozix.tileview.graphics.SampledBitmapProvider}, those tiles are decoded at the
+   * reduced resolution they are displayed at, which usually avoids the problem.
+   * Otherwise, disabling the {@code DetailLevel} lock is a bandage to that issue. Using
    * {@code setShouldUpdateDetailLevelWhileZooming( true )} is not advised unless you have that issue.
    * </p>
    *
@@ -739,6 +896,11 @@ public class TileView extends ZoomPanLayout implements
   /**
    * Allows the use of a custom {@link DetailLevelManager}.
    * <p>
+   * To change only how a {@link DetailLevel} is chosen for a scale, it is simpler to supply a
+   * {@link com.qozix.tileview.detail.DetailLevelSelectionPolicy} through
+   * {@code getDetailLevelManager().setDetailLevelSelectionPolicy}.
+   * </p>
+   * <p>
    * For example, to change the logic of {@link DetailLevel} choice for a given scale, you
    * declare your own {@code DetailLevelMangerCustom} that extends {@link DetailLevelManager} :
    * <pre>{@code
@@ -760,35 +922,76 @@ public class TileView extends ZoomPanLayout implements
     mDetailLevelManager = manager;
   }
 
+  /**
+   * Configures the TileView for a Deep Zoom image: the size is set from the descriptor, and detail
+   * levels are created from the pyramid as the scale requires them.  Pair this with a
+   * {@link com.qozix.tileview.graphics.BitmapProviderDeepZoom} for the same descriptor.
+   *
+   * @param deepZoomDescriptor The parsed .dzi descriptor.
+   */
+  public void setDeepZoomDescriptor( DeepZoomDescriptor deepZoomDescriptor ) {
+    DetailLevelManager manager = new DeepZoomDetailLevelManager( deepZoomDescriptor );
+    manager.setDetailLevelChangeListener( this );
+    mDetailLevelManager = manager;
+    setSize( deepZoomDescriptor.getWidth(), deepZoomDescriptor.getHeight() );
+    // the manager chose its first level before the listener was attached, and has not seen the
+    // current scale or viewport
+    manager.setScale( getScale() );
+    updateViewport();
+    mTileCanvasViewGroup.updateTileSet( manager.getCurrentDetailLevel() );
+    requestRender();
+  }
+
   @Override
   protected void onLayout( boolean changed, int l, int t, int r, int b ) {
     super.onLayout( changed, l, t, r, b );
+    if( getWidth() == 0 || getHeight() == 0 ) {
+      return;
+    }
+    if( mHasPendingFrame ) {
+      applyPendingFrame();
+    }
     updateViewport();
-    requestRender();
+    if( mShouldRenderImmediately ) {
+      mShouldRenderImmediately = false;
+      mTileCanvasViewGroup.renderImmediately();
+    } else {
+      requestRender();
+    }
   }
 
   protected void updateViewport() {
-    int left = getScrollX();
-    int top = getScrollY();
+    updateViewport( getScrollX(), getScrollY() );
+  }
+
+  /**
+   * @param left The horizontal scroll position; onScrollChanged passes its own, since the scroll
+   *             position a View reports while that callback runs is not reliably the new one.
+   * @param top The vertical scroll position.
+   */
+  private void updateViewport( int left, int top ) {
     int right = left + getWidth();
     int bottom = top + getHeight();
     mDetailLevelManager.updateViewport( left, top, right, bottom );
+    mMarkerLayout.setViewport( left, top, right, bottom );
   }
 
   @Override
   protected void onScrollChanged( int l, int t, int oldl, int oldt ) {
     super.onScrollChanged( l, t, oldl, oldt );
-    updateViewport();
-    if( mShouldRenderWhilePanning ) {
-      requestRender();
-    } else {
-      requestThrottledRender();
+    updateViewport( l, t );
+    if( isInTouchMotion() ) {
+      mTileCanvasViewGroup.onMotion( l - oldl, t - oldt );
     }
+    requestRender();
   }
 
   @Override
   public void onScaleChanged( float scale, float previous ) {
     super.onScaleChanged( scale, previous );
+    if( isInTouchMotion() ) {
+      mTileCanvasViewGroup.onMotion( 0, 0 );
+    }
     mDetailLevelManager.setScale( scale );
     mHotSpotManager.setScale( scale );
     mTileCanvasViewGroup.setScale( scale );
@@ -798,6 +1001,14 @@ public class TileView extends ZoomPanLayout implements
     mCalloutLayout.setScale( scale );
   }
 
+  /**
+   * Only a drag, fling or pinch defers render passes as motion; programmatic moves, e.g., scrollTo
+   * or setScale, render at the next frame.
+   */
+  private boolean isInTouchMotion() {
+    return isDragging() || isFlinging() || mIsPinching;
+  }
+
   @Override
   public void onPanBegin( int x, int y, Origination origin ) {
     suppressRender();
@@ -805,16 +1016,21 @@ public class TileView extends ZoomPanLayout implements
 
   @Override
   public void onPanUpdate( int x, int y, Origination origin ) {
-
+    if( origin == Origination.FLING || origin == null ) {
+      mTileCanvasViewGroup.onAnimationFrame();
+    }
   }
 
   @Override
   public void onPanEnd( int x, int y, Origination origin ) {
+    mTileCanvasViewGroup.onAnimationEnd();
+    mTileCanvasViewGroup.onMotionEnd();
     requestRender();
   }
 
   @Override
   public void onZoomBegin( float scale, Origination origin ) {
+    mIsPinching = origin == Origination.PINCH;
     if( !mShouldUpdateDetailLevelWhileZooming ) {
       mDetailLevelManager.lockDetailLevel();
     }
@@ -823,13 +1039,18 @@ public class TileView extends ZoomPanLayout implements
 
   @Override
   public void onZoomUpdate( float scale, Origination origin ) {
-
+    if( origin == null ) {
+      mTileCanvasViewGroup.onAnimationFrame();
+    }
   }
 
   @Override
   public void onZoomEnd( float scale, Origination origin ) {
+    mIsPinching = false;
+    mTileCanvasViewGroup.onAnimationEnd();
     mDetailLevelManager.unlockDetailLevel();
     mDetailLevelManager.setScale( scale );
+    mTileCanvasViewGroup.onMotionEnd();
     requestRender();
   }
 
@@ -863,38 +1084,6 @@ public class TileView extends ZoomPanLayout implements
 
   }
 
-  private static class RenderThrottleHandler extends Handler {
-
-    private static final int MESSAGE = 0;
-    private static final int RENDER_THROTTLE_TIMEOUT = 100;
-
-    private final WeakReference<TileView> mTileViewWeakReference;
-
-    public RenderThrottleHandler( TileView tileView ) {
-      super();
-      mTileViewWeakReference = new WeakReference<TileView>( tileView );
-    }
-
-    @Override
-    public void handleMessage( Message msg ) {
-      TileView tileView = mTileViewWeakReference.get();
-      if( tileView != null ) {
-        tileView.requestSafeRender();
-      }
-    }
-
-    public void clear() {
-      if( hasMessages( MESSAGE ) ) {
-        removeMessages( MESSAGE );
-      }
-    }
-
-    public void submit() {
-      clear();
-      sendEmptyMessageDelayed( MESSAGE, RENDER_THROTTLE_TIMEOUT );
-    }
-  }
-
   /**
    * Object used to keep some data when a configuration change happens and the activity is
    * re-created.
@@ -956,15 +1145,14 @@ public class TileView extends ZoomPanLayout implements
 
   @Override
   public void onRestoreInstanceState(Parcelable state) {
-    final SavedState ss = (SavedState) state;
+    SavedState ss = (SavedState) state;
     super.onRestoreInstanceState( ss.getSuperState() );
-    setScale( ss.mScale );
-    post(new Runnable() {
-      @Override
-      public void run() {
-        scrollToAndCenter(ss.mSavedCenterX, ss.mSavedCenterY);
-      }
-    });
+    if( getWidth() == 0 || getHeight() == 0 ) {
+      mShouldRenderImmediately = true;
+    }
+    // the center was saved in pixels at the saved scale; restore it in pixels too, since
+    // translating to relative coordinates only works once bounds are defined
+    frameToAbsolute( ss.mSavedCenterX / ss.mScale, ss.mSavedCenterY / ss.mScale, ss.mScale );
   }
 
 }
\ No newline at end of file
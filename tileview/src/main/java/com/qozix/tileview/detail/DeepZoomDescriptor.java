@@ -0,0 +1,145 @@
+package com.qozix.tileview.detail;
+
+import android.util.Xml;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The contents of a Deep Zoom Image (.dzi) descriptor: image size, tile size, tile overlap and
+ * tile format, from which every level of the pyramid can be derived.
+ *
+ * Level n of a Deep Zoom pyramid is the image scaled to fit within 2^n pixels on its longer
+ * side, so the highest level is the full resolution image and each lower level halves it.
+ * Tiles for level n are stored as {@code name_files/n/column_row.format}.
+ */
+public class DeepZoomDescriptor {
+
+  private final int mWidth;
+  private final int mHeight;
+  private final int mTileSize;
+  private final int mOverlap;
+  private final String mFormat;
+  private final int mMaximumLevel;
+
+  public DeepZoomDescriptor( int width, int height, int tileSize, int overlap, String format ) {
+    if( width <= 0 || height <= 0 || tileSize <= 0 || overlap < 0 ) {
+      throw new IllegalArgumentException( "Invalid Deep Zoom dimensions" );
+    }
+    mWidth = width;
+    mHeight = height;
+    mTileSize = tileSize;
+    mOverlap = overlap;
+    mFormat = format;
+    // ceil( log2( size ) ) in integer math, which floating point logs get wrong for large powers of two
+    mMaximumLevel = 32 - Integer.numberOfLeadingZeros( Math.max( width, height ) - 1 );
+  }
+
+  /**
+   * Reads a .dzi descriptor.  The stream is not closed.
+   *
+   * @param inputStream A stream of .dzi XML.
+   * @return The parsed descriptor.
+   * @throws IOException If the stream cannot be read or is not a valid descriptor.
+   */
+  public static DeepZoomDescriptor parse( InputStream inputStream ) throws IOException {
+    try {
+      XmlPullParser parser = Xml.newPullParser();
+      parser.setInput( inputStream, null );
+      String tileSize = null;
+      String overlap = null;
+      String format = null;
+      String width = null;
+      String height = null;
+      for( int event = parser.getEventType(); event != XmlPullParser.END_DOCUMENT; event = parser.next() ) {
+        if( event != XmlPullParser.START_TAG ) {
+          continue;
+        }
+        if( "Image".equals( parser.getName() ) ) {
+          tileSize = parser.getAttributeValue( null, "TileSize" );
+          overlap = parser.getAttributeValue( null, "Overlap" );
+          format = parser.getAttributeValue( null, "Format" );
+        } else if( "Size".equals( parser.getName() ) ) {
+          width = parser.getAttributeValue( null, "Width" );
+          height = parser.getAttributeValue( null, "Height" );
+        }
+      }
+      if( tileSize == null || format == null || width == null || height == null ) {
+        throw new IOException( "Not a Deep Zoom descriptor" );
+      }
+      return new DeepZoomDescriptor(
+        Integer.parseInt( width ),
+        Integer.parseInt( height ),
+        Integer.parseInt( tileSize ),
+        overlap == null ? 0 : Integer.parseInt( overlap ),
+        format );
+    } catch( XmlPullParserException | IllegalArgumentException e ) {
+      IOException exception = new IOException( "Invalid Deep Zoom descriptor" );
+      exception.initCause( e );
+      throw exception;
+    }
+  }
+
+  public int getWidth() {
+    return mWidth;
+  }
+
+  public int getHeight() {
+    return mHeight;
+  }
+
+  public int getTileSize() {
+    return mTileSize;
+  }
+
+  public int getOverlap() {
+    return mOverlap;
+  }
+
+  public String getFormat() {
+    return mFormat;
+  }
+
+  /**
+   * @return The level holding the full resolution image.
+   */
+  public int getMaximumLevel() {
+    return mMaximumLevel;
+  }
+
+  /**
+   * @return The scale of the level, relative to the full resolution image.
+   */
+  public float getScale( int level ) {
+    return (float) Math.pow( 2, level - mMaximumLevel );
+  }
+
+  /**
+   * @return The coarsest level whose scale is at least the scale passed.
+   */
+  public int getLevelForScale( float scale ) {
+    if( scale <= 0 ) {
+      return 0;
+    }
+    int offset = (int) Math.ceil( Math.log( scale ) / Math.log( 2 ) - 1e-6 );
+    return Math.max( 0, Math.min( mMaximumLevel, mMaximumLevel + offset ) );
+  }
+
+  public int getLevelWidth( int level ) {
+    return (int) Math.ceil( mWidth / Math.pow( 2, mMaximumLevel - level ) );
+  }
+
+  public int getLevelHeight( int level ) {
+    return (int) Math.ceil( mHeight / Math.pow( 2, mMaximumLevel - level ) );
+  }
+
+  /**
+   * @return The path of a tile, relative to the {@code name_files} directory.
+   */
+  public String getTilePath( int level, int column, int row ) {
+    return level + "/" + column + "_" + row + "." + mFormat;
+  }
+}
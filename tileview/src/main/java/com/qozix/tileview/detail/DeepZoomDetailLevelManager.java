@@ -0,0 +1,47 @@
+package com.qozix.tileview.detail;
+
+import java.util.List;
+
+/**
+ * A DetailLevelManager for a Deep Zoom pyramid.  Rather than registering every level up
+ * front, a DetailLevel is created for a pyramid level only when the scale first requires it.
+ * Each level's data is its Deep Zoom level number (an Integer), as expected by
+ * BitmapProviderDeepZoom.
+ */
+public class DeepZoomDetailLevelManager extends DetailLevelManager {
+
+  private final DeepZoomDescriptor mDeepZoomDescriptor;
+
+  public DeepZoomDetailLevelManager( DeepZoomDescriptor deepZoomDescriptor ) {
+    mDeepZoomDescriptor = deepZoomDescriptor;
+    setSize( deepZoomDescriptor.getWidth(), deepZoomDescriptor.getHeight() );
+  }
+
+  public DeepZoomDescriptor getDeepZoomDescriptor() {
+    return mDeepZoomDescriptor;
+  }
+
+  @Override
+  public DetailLevel getDetailLevelForScale() {
+    // the superclass constructor updates before the descriptor is assigned
+    if( mDeepZoomDescriptor != null ) {
+      int level = mDeepZoomDescriptor.getLevelForScale( getScale() );
+      float scale = mDeepZoomDescriptor.getScale( level );
+      // scale updates arrive every frame during a gesture; only a level not yet seen is created
+      if( !isRegistered( scale ) ) {
+        int tileSize = mDeepZoomDescriptor.getTileSize();
+        insertDetailLevel( new DetailLevel( this, scale, level, tileSize, tileSize ) );
+      }
+    }
+    return super.getDetailLevelForScale();
+  }
+
+  private boolean isRegistered( float scale ) {
+    List<DetailLevel> detailLevels = getDetailLevels();
+    if( detailLevels.isEmpty() ) {
+      return false;
+    }
+    int index = ScaleDetailLevelSelectionPolicy.indexForScale( detailLevels, scale );
+    return detailLevels.get( index ).getScale() == scale;
+  }
+}
@@ -0,0 +1,38 @@
+package com.qozix.tileview.detail;
+
+import android.content.Context;
+
+import java.util.List;
+
+/**
+ * On screens denser than a target density, pixels are too small for the extra detail of a
+ * finer level to be visible; this policy selects levels as if the scale were reduced by the
+ * ratio of target to actual density, which uses coarser levels (fewer, cheaper tiles) on
+ * very dense screens and leaves other screens unchanged.
+ */
+public class DensityAwareDetailLevelSelectionPolicy implements DetailLevelSelectionPolicy {
+
+  public static final float DEFAULT_TARGET_DENSITY = 2f;
+
+  private final DetailLevelSelectionPolicy mDelegate;
+  private final float mScaleFactor;
+
+  public DensityAwareDetailLevelSelectionPolicy( Context context ) {
+    this( new ScaleDetailLevelSelectionPolicy(), context.getResources().getDisplayMetrics().density, DEFAULT_TARGET_DENSITY );
+  }
+
+  /**
+   * @param delegate      The policy that selects a level for the adjusted scale.
+   * @param density       The screen's logical density (DisplayMetrics.density).
+   * @param targetDensity The density beyond which finer detail is not worth rendering.
+   */
+  public DensityAwareDetailLevelSelectionPolicy( DetailLevelSelectionPolicy delegate, float density, float targetDensity ) {
+    mDelegate = delegate;
+    mScaleFactor = density > targetDensity ? targetDensity / density : 1;
+  }
+
+  @Override
+  public DetailLevel selectDetailLevel( List<DetailLevel> detailLevels, float scale, DetailLevel current ) {
+    return mDelegate.selectDetailLevel( detailLevels, scale * mScaleFactor, current );
+  }
+}
@@ -0,0 +1,33 @@
+package com.qozix.tileview.detail;
+
+/**
+ * The data of a detail level synthesized on device from a finer level: each of its tiles
+ * covers a square of {@code factor} by {@code factor} tiles of the source level.
+ *
+ * @see DetailLevelManager#addDerivedDetailLevel(float, float)
+ * @see com.qozix.tileview.graphics.BitmapProviderDerived
+ */
+public class DerivedTileSource {
+
+  private final DetailLevel mSourceDetailLevel;
+  private final int mFactor;
+
+  public DerivedTileSource( DetailLevel sourceDetailLevel, int factor ) {
+    mSourceDetailLevel = sourceDetailLevel;
+    mFactor = factor;
+  }
+
+  /**
+   * @return The finer level the tiles are built from.
+   */
+  public DetailLevel getSourceDetailLevel() {
+    return mSourceDetailLevel;
+  }
+
+  /**
+   * @return The number of source tiles along each side of a derived tile.
+   */
+  public int getFactor() {
+    return mFactor;
+  }
+}
@@ -3,6 +3,10 @@ package com.qozix.tileview.detail;
 import android.graphics.Rect;
 import android.support.annotation.NonNull;
 
+import com.qozix.tileview.core.TileAvailability;
+import com.qozix.tileview.core.TileGrid;
+import com.qozix.tileview.core.TileRange;
+import com.qozix.tileview.geom.FloatMathHelper;
 import com.qozix.tileview.tiles.Tile;
 
 import java.util.HashSet;
@@ -17,7 +21,9 @@ public class DetailLevel implements Comparable<DetailLevel> {
 
   private DetailLevelManager mDetailLevelManager;
 
-  private StateSnapshot mLastStateSnapshot;
+  private TileRange mLastComputedTileRange;
+
+  private volatile TileAvailability mTileAvailability;
 
   public DetailLevel( DetailLevelManager detailLevelManager, float scale, Object data, int tileWidth, int tileHeight ) {
     mDetailLevelManager = detailLevelManager;
@@ -33,23 +39,13 @@ public class DetailLevel implements Comparable<DetailLevel> {
    * @return True if there has been a change, false otherwise.
    */
   public boolean computeCurrentState() {
-    float relativeScale = getRelativeScale();
-    int drawableWidth = mDetailLevelManager.getScaledWidth();
-    int drawableHeight = mDetailLevelManager.getScaledHeight();
-    float offsetWidth = mTileWidth * relativeScale;
-    float offsetHeight = mTileHeight * relativeScale;
-    Rect viewport = new Rect( mDetailLevelManager.getComputedViewport() );
-    viewport.top = Math.max( viewport.top, 0 );
-    viewport.left = Math.max( viewport.left, 0 );
-    viewport.right = Math.min( viewport.right, drawableWidth );
-    viewport.bottom = Math.min( viewport.bottom, drawableHeight );
-    int rowStart = (int) Math.floor( viewport.top / offsetHeight );
-    int rowEnd = (int) Math.ceil( viewport.bottom / offsetHeight );
-    int columnStart = (int) Math.floor( viewport.left / offsetWidth );
-    int columnEnd = (int) Math.ceil( viewport.right / offsetWidth );
-    StateSnapshot stateSnapshot = new StateSnapshot( this, rowStart, rowEnd, columnStart, columnEnd );
-    boolean sameState = stateSnapshot.equals( mLastStateSnapshot );
-    mLastStateSnapshot = stateSnapshot;
+    Rect viewport = mDetailLevelManager.getComputedViewport();
+    TileRange tileRange = TileGrid.computeRange(
+      viewport.left, viewport.top, viewport.right, viewport.bottom,
+      mDetailLevelManager.getScaledWidth(), mDetailLevelManager.getScaledHeight(),
+      mTileWidth, mTileHeight, getRelativeScale() );
+    boolean sameState = tileRange.equals( mLastComputedTileRange );
+    mLastComputedTileRange = tileRange;
     return !sameState;
   }
 
@@ -59,12 +55,16 @@ public class DetailLevel implements Comparable<DetailLevel> {
    * @return List of Tile instances describing the currently visible viewport.
    */
   public Set<Tile> getVisibleTilesFromLastViewportComputation() {
-    if( mLastStateSnapshot == null ) {
+    if( mLastComputedTileRange == null ) {
       throw new StateNotComputedException();
     }
+    TileAvailability tileAvailability = mTileAvailability;
     Set<Tile> intersections = new HashSet<>();
-    for( int rowCurrent = mLastStateSnapshot.rowStart; rowCurrent < mLastStateSnapshot.rowEnd; rowCurrent++ ) {
-      for( int columnCurrent = mLastStateSnapshot.columnStart; columnCurrent < mLastStateSnapshot.columnEnd; columnCurrent++ ) {
+    for( int rowCurrent = mLastComputedTileRange.getRowStart(); rowCurrent < mLastComputedTileRange.getRowEnd(); rowCurrent++ ) {
+      for( int columnCurrent = mLastComputedTileRange.getColumnStart(); columnCurrent < mLastComputedTileRange.getColumnEnd(); columnCurrent++ ) {
+        if( tileAvailability != null && !tileAvailability.isAvailable( columnCurrent, rowCurrent ) ) {
+          continue;
+        }
         Tile tile = new Tile( columnCurrent, rowCurrent, mTileWidth, mTileHeight, mData, this );
         intersections.add( tile );
       }
@@ -72,11 +72,98 @@ public class DetailLevel implements Comparable<DetailLevel> {
     return intersections;
   }
 
+  /**
+   * Returns the record of which tiles in this level's grid are known not to exist; tiles marked
+   * missing are left out of getVisibleTilesFromLastViewportComputation.  An index is created
+   * on first use, sized to the level's grid, and replaced if the grid dimensions change.
+   *
+   * @return The TileAvailability for this level, or null if the image size is not yet known.
+   */
+  public synchronized TileAvailability getTileAvailability() {
+    int columnCount = getColumnCount();
+    int rowCount = getRowCount();
+    if( columnCount == 0 || rowCount == 0 ) {
+      return mTileAvailability;
+    }
+    if( mTileAvailability == null
+      || mTileAvailability.getColumnCount() != columnCount
+      || mTileAvailability.getRowCount() != rowCount ) {
+      mTileAvailability = new TileAvailability( columnCount, rowCount );
+    }
+    return mTileAvailability;
+  }
+
+  /**
+   * @return The TileAvailability for this level if one has been created or supplied, without creating one.
+   */
+  synchronized TileAvailability peekTileAvailability() {
+    return mTileAvailability;
+  }
+
+  /**
+   * Supplies a known availability index for this level, e.g., one shipped with the tile set or
+   * saved from a previous session.
+   *
+   * @param tileAvailability The TileAvailability to consult, or null to assume every tile exists.
+   */
+  public synchronized void setTileAvailability( TileAvailability tileAvailability ) {
+    mTileAvailability = tileAvailability;
+  }
+
+  /**
+   * Estimates how many of this level's tiles a viewport of the given size would intersect at
+   * the current scale, wherever it is positioned.
+   *
+   * @param viewportWidth  Width of the viewport, in pixels.
+   * @param viewportHeight Height of the viewport, in pixels.
+   * @return The maximum number of tiles visible at once.
+   */
+  public int estimateVisibleTileCount( int viewportWidth, int viewportHeight ) {
+    double relativeScale = getRelativeScale();
+    if( relativeScale <= 0 ) {
+      return 0;
+    }
+    long columns = (long) Math.ceil( viewportWidth / (mTileWidth * relativeScale) ) + 1;
+    long rows = (long) Math.ceil( viewportHeight / (mTileHeight * relativeScale) ) + 1;
+    int columnCount = getColumnCount();
+    int rowCount = getRowCount();
+    if( columnCount > 0 && rowCount > 0 ) {
+      columns = Math.min( columns, columnCount );
+      rows = Math.min( rows, rowCount );
+    }
+    return (int) Math.min( Integer.MAX_VALUE, columns * rows );
+  }
+
+  /**
+   * @return The number of tile columns in this level's grid.
+   */
+  public int getColumnCount() {
+    int scaledWidth = FloatMathHelper.scale( mDetailLevelManager.getBaseWidth(), mScale );
+    return (int) Math.ceil( scaledWidth / (double) mTileWidth );
+  }
+
+  /**
+   * @return The number of tile rows in this level's grid.
+   */
+  public int getRowCount() {
+    int scaledHeight = FloatMathHelper.scale( mDetailLevelManager.getBaseHeight(), mScale );
+    return (int) Math.ceil( scaledHeight / (double) mTileHeight );
+  }
+
   /**
    * Ensures that computeCurrentState will return true, indicating a change has occurred.
    */
   public void invalidate(){
-    mLastStateSnapshot = null;
+    mLastComputedTileRange = null;
+  }
+
+  /**
+   * Returns the range of tiles found by the most recent call to computeCurrentState.
+   *
+   * @return The last computed TileRange, or null if the state has not been computed.
+   */
+  public TileRange getLastComputedTileRange() {
+    return mLastComputedTileRange;
   }
 
   public float getScale() {
@@ -130,36 +217,4 @@ public class DetailLevel implements Comparable<DetailLevel> {
     }
   }
 
-  private static class StateSnapshot {
-    public int rowStart;
-    public int rowEnd;
-    public int columnStart;
-    public int columnEnd;
-    public DetailLevel detailLevel;
-
-    public StateSnapshot( DetailLevel detailLevel, int rowStart, int rowEnd, int columnStart, int columnEnd ) {
-      this.detailLevel = detailLevel;
-      this.rowStart = rowStart;
-      this.rowEnd = rowEnd;
-      this.columnStart = columnStart;
-      this.columnEnd = columnEnd;
-    }
-
-    public boolean equals( Object o ) {
-      if( o == this ) {
-        return true;
-      }
-      if( o instanceof StateSnapshot ) {
-        StateSnapshot stateSnapshot = (StateSnapshot) o;
-        return detailLevel.equals( stateSnapshot.detailLevel )
-          && rowStart == stateSnapshot.rowStart
-          && columnStart == stateSnapshot.columnStart
-          && rowEnd == stateSnapshot.rowEnd
-          && columnEnd == stateSnapshot.columnEnd;
-      }
-      return false;
-    }
-  }
-
-
-}
\ No newline at end of file
+}
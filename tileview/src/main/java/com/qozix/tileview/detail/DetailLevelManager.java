@@ -2,15 +2,38 @@ package com.qozix.tileview.detail;
 
 import android.graphics.Rect;
 
+import com.qozix.tileview.core.TileAvailability;
 import com.qozix.tileview.geom.FloatMathHelper;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedList;
+import java.util.List;
 
 public class DetailLevelManager {
 
+  /**
+   * Registered levels, kept sorted by ascending scale.
+   */
+  private final ArrayList<DetailLevel> mDetailLevels = new ArrayList<>();
+  private final List<DetailLevel> mUnmodifiableDetailLevels = Collections.unmodifiableList( mDetailLevels );
+
+  /**
+   * A copy of the registered levels, in the same order, kept for subclasses that read it.
+   * Changes made to it directly are not seen by the manager.
+   *
+   * @deprecated Use getDetailLevels; this field will be removed in a future release.
+   */
+  @Deprecated
   protected LinkedList<DetailLevel> mDetailLevelLinkedList = new LinkedList<DetailLevel>();
 
+  private DetailLevelSelectionPolicy mDetailLevelSelectionPolicy = new ScaleDetailLevelSelectionPolicy();
+
   private DetailLevelChangeListener mDetailLevelChangeListener;
 
   protected float mScale = 1;
@@ -24,11 +47,18 @@ public class DetailLevelManager {
 
   private int mPadding;
 
+  private int mMaximumVisibleTileCount;
+
   private Rect mViewport = new Rect();
   private Rect mComputedViewport = new Rect();
 
   private DetailLevel mCurrentDetailLevel;
 
+  /**
+   * The level chosen for the scale (or held by the lock) before the visible tile budget is applied.
+   */
+  private DetailLevel mSelectedDetailLevel;
+
   public DetailLevelManager() {
     update();
   }
@@ -118,8 +148,27 @@ public class DetailLevelManager {
     mDetailLevelLocked = false;
   }
 
+  /**
+   * Bounds render cost by limiting how many tiles may be visible at once.  When the level
+   * selected for the current scale (or the level locked during a zoom) would show more tiles
+   * than this, the next coarser registered level that fits is used instead - or the coarsest
+   * level, if none fit.
+   *
+   * @param maximumVisibleTileCount The most tiles that may be visible at once, or 0 for no limit.
+   */
+  public void setMaximumVisibleTileCount( int maximumVisibleTileCount ) {
+    mMaximumVisibleTileCount = maximumVisibleTileCount;
+    update();
+  }
+
+  public int getMaximumVisibleTileCount() {
+    return mMaximumVisibleTileCount;
+  }
+
   public void resetDetailLevels() {
+    mDetailLevels.clear();
     mDetailLevelLinkedList.clear();
+    mSelectedDetailLevel = null;
     update();
   }
 
@@ -129,12 +178,15 @@ public class DetailLevelManager {
 
   protected void update() {
     boolean detailLevelChanged = false;
-    if( !mDetailLevelLocked ) {
-      DetailLevel matchingLevel = getDetailLevelForScale();
-      if( matchingLevel != null ) {
-        detailLevelChanged = !matchingLevel.equals( mCurrentDetailLevel );
-        mCurrentDetailLevel = matchingLevel;
-      }
+    if( !mDetailLevelLocked || mSelectedDetailLevel == null ) {
+      mSelectedDetailLevel = getDetailLevelForScale();
+    }
+    // the budget is applied to the locked level afresh each time, so zooming back in during a
+    // pinch can return to it rather than only ever moving coarser
+    DetailLevel matchingLevel = applyVisibleTileBudget( mSelectedDetailLevel );
+    if( matchingLevel != null ) {
+      detailLevelChanged = !matchingLevel.equals( mCurrentDetailLevel );
+      mCurrentDetailLevel = matchingLevel;
     }
     mScaledWidth = FloatMathHelper.scale( mBaseWidth, mScale );
     mScaledHeight = FloatMathHelper.scale( mBaseHeight, mScale );
@@ -145,39 +197,170 @@ public class DetailLevelManager {
     }
   }
 
+  /**
+   * @return The level passed, or the finest coarser level that fits within the visible tile budget.
+   */
+  private DetailLevel applyVisibleTileBudget( DetailLevel detailLevel ) {
+    if( detailLevel == null || mMaximumVisibleTileCount <= 0 ) {
+      return detailLevel;
+    }
+    int width = mComputedViewport.width();
+    int height = mComputedViewport.height();
+    int index = Collections.binarySearch( mDetailLevels, detailLevel );
+    while( index > 0 && detailLevel.estimateVisibleTileCount( width, height ) > mMaximumVisibleTileCount ) {
+      index--;
+      detailLevel = mDetailLevels.get( index );
+    }
+    return detailLevel;
+  }
+
   public void addDetailLevel( float scale, Object data, int tileWidth, int tileHeight ) {
-    DetailLevel detailLevel = new DetailLevel( this, scale, data, tileWidth, tileHeight );
-    if( mDetailLevelLinkedList.contains( detailLevel ) ) {
-      return;
+    if( insertDetailLevel( new DetailLevel( this, scale, data, tileWidth, tileHeight ) ) ) {
+      update();
+    }
+  }
+
+  /**
+   * Registers a level synthesized from a finer, already registered level.  Its tiles are the
+   * same size as the source level's, so each one covers a square of source tiles; its data is
+   * a DerivedTileSource, which BitmapProviderDerived knows how to render.
+   *
+   * @param scale The scale of the derived level.
+   * @param sourceScale The scale of a registered level, a power of two multiple of the derived scale.
+   */
+  public void addDerivedDetailLevel( float scale, float sourceScale ) {
+    DetailLevel sourceDetailLevel = null;
+    for( DetailLevel detailLevel : mDetailLevels ) {
+      if( detailLevel.getScale() == sourceScale ) {
+        sourceDetailLevel = detailLevel;
+      }
+    }
+    if( sourceDetailLevel == null ) {
+      throw new IllegalArgumentException( "No detail level registered at scale " + sourceScale );
+    }
+    int factor = Math.round( sourceScale / scale );
+    if( factor < 2 || (factor & (factor - 1)) != 0 || Math.abs( scale * factor - sourceScale ) > 1e-4 * sourceScale ) {
+      throw new IllegalArgumentException( "Derived scale must be the source scale divided by a power of two" );
+    }
+    addDetailLevel( scale, new DerivedTileSource( sourceDetailLevel, factor ),
+      sourceDetailLevel.getTileWidth(), sourceDetailLevel.getTileHeight() );
+  }
+
+  /**
+   * Registers a level in scale order, without updating the current level.
+   *
+   * @return True if the level was added, false if a level with the same scale was already registered.
+   */
+  protected boolean insertDetailLevel( DetailLevel detailLevel ) {
+    int index = Collections.binarySearch( mDetailLevels, detailLevel );
+    if( index >= 0 ) {
+      return false;
+    }
+    mDetailLevels.add( -(index + 1), detailLevel );
+    mDetailLevelLinkedList.add( -(index + 1), detailLevel );
+    return true;
+  }
+
+  /**
+   * @return The registered levels, sorted by ascending scale.
+   */
+  public List<DetailLevel> getDetailLevels() {
+    return mUnmodifiableDetailLevels;
+  }
+
+  public DetailLevelSelectionPolicy getDetailLevelSelectionPolicy() {
+    return mDetailLevelSelectionPolicy;
+  }
+
+  /**
+   * Sets the policy that chooses a DetailLevel for the current scale.  The default,
+   * ScaleDetailLevelSelectionPolicy, selects the coarsest level at least as fine as the scale;
+   * HysteresisDetailLevelSelectionPolicy, DensityAwareDetailLevelSelectionPolicy and
+   * MemoryPressureDetailLevelSelectionPolicy refine that choice, and can be nested.
+   *
+   * @param detailLevelSelectionPolicy The DetailLevelSelectionPolicy to use.
+   */
+  public void setDetailLevelSelectionPolicy( DetailLevelSelectionPolicy detailLevelSelectionPolicy ) {
+    mDetailLevelSelectionPolicy = detailLevelSelectionPolicy;
+    if( detailLevelSelectionPolicy instanceof MemoryPressureDetailLevelSelectionPolicy ) {
+      ((MemoryPressureDetailLevelSelectionPolicy) detailLevelSelectionPolicy).setDetailLevelManager( this );
     }
-    mDetailLevelLinkedList.add( detailLevel );
-    Collections.sort( mDetailLevelLinkedList );
     update();
   }
 
   public DetailLevel getDetailLevelForScale() {
-    if( mDetailLevelLinkedList.size() == 0 ) {
+    if( mDetailLevels.size() == 0 ) {
       return null;
     }
-    if( mDetailLevelLinkedList.size() == 1 ) {
-      return mDetailLevelLinkedList.get( 0 );
+    if( mDetailLevels.size() == 1 ) {
+      return mDetailLevels.get( 0 );
     }
-    DetailLevel match = null;
-    int index = mDetailLevelLinkedList.size() - 1;
-    for( int i = index; i >= 0; i-- ) {
-      match = mDetailLevelLinkedList.get( i );
-      if( match.getScale() < mScale ) {
-        if( i < index ) {
-          match = mDetailLevelLinkedList.get( i + 1 );
+    return mDetailLevelSelectionPolicy.selectDetailLevel( getDetailLevels(), mScale, mCurrentDetailLevel );
+  }
+
+  /**
+   * Writes the tile availability index of every detail level that has tiles marked missing, so
+   * misses learned in this session can be restored with readTileAvailability.  The stream is not
+   * closed.
+   *
+   * @param outputStream The stream to write to, e.g., a file kept alongside cached tiles.
+   * @throws IOException If the stream cannot be written.
+   */
+  public void writeTileAvailability( OutputStream outputStream ) throws IOException {
+    DataOutputStream dataOutputStream = new DataOutputStream( outputStream );
+    List<DetailLevel> detailLevels = new ArrayList<>();
+    List<TileAvailability> tileAvailabilities = new ArrayList<>();
+    for( DetailLevel detailLevel : mDetailLevels ) {
+      // getTileAvailability would create an empty index for every level
+      TileAvailability tileAvailability = detailLevel.peekTileAvailability();
+      if( tileAvailability != null && tileAvailability.getMissingCount() > 0 ) {
+        detailLevels.add( detailLevel );
+        tileAvailabilities.add( tileAvailability );
+      }
+    }
+    dataOutputStream.writeInt( detailLevels.size() );
+    for( int i = 0; i < detailLevels.size(); i++ ) {
+      dataOutputStream.writeFloat( detailLevels.get( i ).getScale() );
+      tileAvailabilities.get( i ).writeTo( dataOutputStream );
+    }
+    dataOutputStream.flush();
+  }
+
+  /**
+   * Restores indexes written by writeTileAvailability to detail levels with matching scales.
+   * Indexes for unregistered scales, or whose grid no longer matches the level, are ignored.
+   * The stream is not closed.
+   *
+   * @param inputStream The stream to read from.
+   * @throws IOException If the stream cannot be read or is not an availability index.
+   */
+  public void readTileAvailability( InputStream inputStream ) throws IOException {
+    DataInputStream dataInputStream = new DataInputStream( inputStream );
+    int count = dataInputStream.readInt();
+    for( int i = 0; i < count; i++ ) {
+      float scale = dataInputStream.readFloat();
+      TileAvailability tileAvailability = TileAvailability.readFrom( dataInputStream );
+      for( DetailLevel detailLevel : mDetailLevels ) {
+        if( detailLevel.getScale() == scale
+          && detailLevel.getColumnCount() == tileAvailability.getColumnCount()
+          && detailLevel.getRowCount() == tileAvailability.getRowCount() ) {
+          detailLevel.setTileAvailability( tileAvailability );
         }
-        break;
       }
     }
-    return match;
+  }
+
+  /**
+   * Forgets every tile marked missing, on all detail levels.
+   */
+  public void clearTileAvailability() {
+    for( DetailLevel detailLevel : mDetailLevels ) {
+      detailLevel.setTileAvailability( null );
+    }
   }
 
   public void invalidateAll(){
-    for( DetailLevel detailLevel : mDetailLevelLinkedList ){
+    for( DetailLevel detailLevel : mDetailLevels ){
       detailLevel.invalidate();
     }
   }
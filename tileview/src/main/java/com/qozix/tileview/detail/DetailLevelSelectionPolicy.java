@@ -0,0 +1,16 @@
+package com.qozix.tileview.detail;
+
+import java.util.List;
+
+/**
+ * Decides which registered DetailLevel a DetailLevelManager should use for a scale.
+ */
+public interface DetailLevelSelectionPolicy {
+  /**
+   * @param detailLevels The registered levels, sorted by ascending scale; never empty.
+   * @param scale        The scale the TileView is displayed at.
+   * @param current      The level currently in use, or null if none has been selected.
+   * @return One of the registered levels.
+   */
+  DetailLevel selectDetailLevel( List<DetailLevel> detailLevels, float scale, DetailLevel current );
+}
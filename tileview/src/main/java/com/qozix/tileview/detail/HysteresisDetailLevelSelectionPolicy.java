@@ -0,0 +1,42 @@
+package com.qozix.tileview.detail;
+
+import java.util.List;
+
+/**
+ * Keeps the current level until the scale moves a margin beyond the point where another
+ * policy would switch, so a pinch hovering around a threshold does not flip levels (and
+ * restart rendering) repeatedly.
+ */
+public class HysteresisDetailLevelSelectionPolicy implements DetailLevelSelectionPolicy {
+
+  public static final float DEFAULT_BAND = 0.1f;
+
+  private final DetailLevelSelectionPolicy mDelegate;
+  private final float mBand;
+
+  public HysteresisDetailLevelSelectionPolicy() {
+    this( new ScaleDetailLevelSelectionPolicy(), DEFAULT_BAND );
+  }
+
+  /**
+   * @param delegate The policy whose choices are damped.
+   * @param band     How far, as a fraction of the scale, the scale must pass a threshold before the level changes.
+   */
+  public HysteresisDetailLevelSelectionPolicy( DetailLevelSelectionPolicy delegate, float band ) {
+    mDelegate = delegate;
+    mBand = band;
+  }
+
+  @Override
+  public DetailLevel selectDetailLevel( List<DetailLevel> detailLevels, float scale, DetailLevel current ) {
+    DetailLevel selected = mDelegate.selectDetailLevel( detailLevels, scale, current );
+    if( current == null || selected.equals( current ) || !detailLevels.contains( current ) ) {
+      return selected;
+    }
+    float adjustedScale = selected.getScale() > current.getScale()
+      ? scale / (1 + mBand)
+      : scale * (1 + mBand);
+    DetailLevel adjusted = mDelegate.selectDetailLevel( detailLevels, adjustedScale, current );
+    return adjusted.equals( current ) ? current : selected;
+  }
+}
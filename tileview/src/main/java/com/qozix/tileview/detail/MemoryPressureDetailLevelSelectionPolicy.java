@@ -0,0 +1,109 @@
+package com.qozix.tileview.detail;
+
+import android.content.ComponentCallbacks2;
+
+import java.util.List;
+
+/**
+ * Selects a coarser level than another policy would while memory is under pressure, since
+ * coarser levels need fewer tiles (and less bitmap memory) to fill the viewport.
+ *
+ * Pressure is reported by forwarding onTrimMemory and onLowMemory from an Activity or
+ * Application, and is also assumed whenever the Java heap is nearly full.  When reported
+ * pressure starts or ends, the DetailLevelManager passed to setDetailLevelManager selects its
+ * level again, rather than waiting for the next scale change.
+ */
+public class MemoryPressureDetailLevelSelectionPolicy implements DetailLevelSelectionPolicy {
+
+  public static final float DEFAULT_HEAP_THRESHOLD = 0.75f;
+
+  private final DetailLevelSelectionPolicy mDelegate;
+  private final int mLevelsToDrop;
+
+  private float mHeapThreshold = DEFAULT_HEAP_THRESHOLD;
+  private volatile boolean mIsUnderPressure;
+
+  private DetailLevelManager mDetailLevelManager;
+
+  public MemoryPressureDetailLevelSelectionPolicy() {
+    this( new ScaleDetailLevelSelectionPolicy(), 1 );
+  }
+
+  /**
+   * @param delegate     The policy used when memory is not under pressure.
+   * @param levelsToDrop How many levels coarser than the delegate's choice to use under pressure.
+   */
+  public MemoryPressureDetailLevelSelectionPolicy( DetailLevelSelectionPolicy delegate, int levelsToDrop ) {
+    mDelegate = delegate;
+    mLevelsToDrop = levelsToDrop;
+  }
+
+  /**
+   * @param heapThreshold The fraction of the maximum heap in use beyond which memory is considered under pressure; 1 or more to ignore heap use.
+   */
+  public void setHeapThreshold( float heapThreshold ) {
+    mHeapThreshold = heapThreshold;
+  }
+
+  /**
+   * A manager given this policy directly sets itself; call this when the policy is wrapped by another.
+   *
+   * @param detailLevelManager The manager using this policy (directly or through another policy), or null.
+   */
+  public void setDetailLevelManager( DetailLevelManager detailLevelManager ) {
+    mDetailLevelManager = detailLevelManager;
+  }
+
+  /**
+   * Forward ComponentCallbacks2.onTrimMemory here, on the main thread.
+   */
+  public void onTrimMemory( int level ) {
+    setIsUnderPressure( level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW );
+  }
+
+  /**
+   * Forward ComponentCallbacks.onLowMemory here, on the main thread.
+   */
+  public void onLowMemory() {
+    setIsUnderPressure( true );
+  }
+
+  /**
+   * Clears pressure reported through onTrimMemory or onLowMemory.
+   */
+  public void onMemoryRelieved() {
+    setIsUnderPressure( false );
+  }
+
+  private void setIsUnderPressure( boolean isUnderPressure ) {
+    if( mIsUnderPressure == isUnderPressure ) {
+      return;
+    }
+    mIsUnderPressure = isUnderPressure;
+    if( mDetailLevelManager != null ) {
+      mDetailLevelManager.update();
+    }
+  }
+
+  public boolean isUnderPressure() {
+    if( mIsUnderPressure ) {
+      return true;
+    }
+    if( mHeapThreshold >= 1 ) {
+      return false;
+    }
+    Runtime runtime = Runtime.getRuntime();
+    long used = runtime.totalMemory() - runtime.freeMemory();
+    return used > runtime.maxMemory() * mHeapThreshold;
+  }
+
+  @Override
+  public DetailLevel selectDetailLevel( List<DetailLevel> detailLevels, float scale, DetailLevel current ) {
+    DetailLevel selected = mDelegate.selectDetailLevel( detailLevels, scale, current );
+    if( !isUnderPressure() ) {
+      return selected;
+    }
+    int index = detailLevels.indexOf( selected );
+    return detailLevels.get( Math.max( 0, index - mLevelsToDrop ) );
+  }
+}
@@ -0,0 +1,34 @@
+package com.qozix.tileview.detail;
+
+import java.util.List;
+
+/**
+ * The default policy: selects the coarsest level whose scale is at least the current scale,
+ * or the finest level if the current scale exceeds them all.  Uses a binary search.
+ */
+public class ScaleDetailLevelSelectionPolicy implements DetailLevelSelectionPolicy {
+
+  @Override
+  public DetailLevel selectDetailLevel( List<DetailLevel> detailLevels, float scale, DetailLevel current ) {
+    return detailLevels.get( indexForScale( detailLevels, scale ) );
+  }
+
+  /**
+   * @param detailLevels Levels sorted by ascending scale; never empty.
+   * @param scale        The scale to match.
+   * @return The index of the first level with a scale not less than the scale passed, or the last index if there is none.
+   */
+  public static int indexForScale( List<DetailLevel> detailLevels, float scale ) {
+    int low = 0;
+    int high = detailLevels.size() - 1;
+    while( low < high ) {
+      int middle = (low + high) >>> 1;
+      if( detailLevels.get( middle ).getScale() < scale ) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+}
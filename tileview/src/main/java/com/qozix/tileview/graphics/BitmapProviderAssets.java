@@ -17,7 +17,7 @@ import java.io.InputStream;
  * Picasso, or add your own disk-caching scheme, etc.
  */
 
-public class BitmapProviderAssets implements BitmapProvider {
+public class BitmapProviderAssets implements SampledBitmapProvider {
 
   private static final BitmapFactory.Options OPTIONS = new BitmapFactory.Options();
 
@@ -27,6 +27,17 @@ public class BitmapProviderAssets implements BitmapProvider {
 
   @Override
   public Bitmap getBitmap( Tile tile, Context context ) {
+    return getBitmap( tile, context, 1 );
+  }
+
+  @Override
+  public Bitmap getBitmap( Tile tile, Context context, int sampleSize ) {
+    BitmapFactory.Options options = OPTIONS;
+    if( sampleSize > 1 ) {
+      options = new BitmapFactory.Options();
+      options.inPreferredConfig = OPTIONS.inPreferredConfig;
+      options.inSampleSize = sampleSize;
+    }
     Object data = tile.getData();
     if( data instanceof String ) {
       String unformattedFileName = (String) tile.getData();
@@ -36,7 +47,7 @@ public class BitmapProviderAssets implements BitmapProvider {
         InputStream inputStream = assetManager.open( formattedFileName );
         if( inputStream != null ) {
           try {
-            return BitmapFactory.decodeStream( inputStream, null, OPTIONS );
+            return BitmapFactory.decodeStream( inputStream, null, options );
           } catch( OutOfMemoryError | Exception e ) {
             // this is probably an out of memory error - you can try sleeping (this method won't be called in the UI thread) or try again (or give up)
           }
@@ -0,0 +1,124 @@
+package com.qozix.tileview.graphics;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import com.qozix.tileview.detail.DeepZoomDescriptor;
+import com.qozix.tileview.tiles.Tile;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A BitmapProvider for Deep Zoom tiles, read either from a local {@code name_files} directory
+ * or from a zip archive containing one.  Tile data is expected to be the Deep Zoom level number,
+ * as supplied by DeepZoomDetailLevelManager.
+ *
+ * Deep Zoom tiles repeat {@code Overlap} pixels of each neighbour along interior edges; those
+ * pixels are cropped so tiles meet exactly on TileView's grid.
+ */
+public class BitmapProviderDeepZoom implements BitmapProvider {
+
+  private static final BitmapFactory.Options OPTIONS = new BitmapFactory.Options();
+
+  static {
+    OPTIONS.inPreferredConfig = Bitmap.Config.RGB_565;
+  }
+
+  private final DeepZoomDescriptor mDeepZoomDescriptor;
+  private final File mDirectory;
+  private final ZipFile mZipFile;
+  private final String mEntryPrefix;
+
+  /**
+   * @param deepZoomDescriptor The descriptor of the image.
+   * @param directory The {@code name_files} directory holding the level directories.
+   */
+  public BitmapProviderDeepZoom( DeepZoomDescriptor deepZoomDescriptor, File directory ) {
+    mDeepZoomDescriptor = deepZoomDescriptor;
+    mDirectory = directory;
+    mZipFile = null;
+    mEntryPrefix = null;
+  }
+
+  /**
+   * @param deepZoomDescriptor The descriptor of the image.
+   * @param zipFile An open archive containing the tiles.  The caller remains responsible for closing it.
+   * @param entryPrefix The path within the archive of the {@code name_files} directory, e.g. "image_files/".
+   */
+  public BitmapProviderDeepZoom( DeepZoomDescriptor deepZoomDescriptor, ZipFile zipFile, String entryPrefix ) {
+    mDeepZoomDescriptor = deepZoomDescriptor;
+    mDirectory = null;
+    mZipFile = zipFile;
+    mEntryPrefix = entryPrefix == null ? "" : entryPrefix;
+  }
+
+  public DeepZoomDescriptor getDeepZoomDescriptor() {
+    return mDeepZoomDescriptor;
+  }
+
+  @Override
+  public Bitmap getBitmap( Tile tile, Context context ) {
+    Object data = tile.getData();
+    if( !(data instanceof Integer) ) {
+      return null;
+    }
+    int level = (Integer) data;
+    String path = mDeepZoomDescriptor.getTilePath( level, tile.getColumn(), tile.getRow() );
+    try {
+      InputStream inputStream = open( path );
+      if( inputStream == null ) {
+        throw new TileUnavailableException( "No Deep Zoom tile at " + path, true, null );
+      }
+      try {
+        Bitmap bitmap = BitmapFactory.decodeStream( inputStream, null, OPTIONS );
+        return bitmap == null ? null : crop( bitmap, level, tile.getColumn(), tile.getRow() );
+      } finally {
+        inputStream.close();
+      }
+    } catch( IOException | OutOfMemoryError e ) {
+      // this is probably an IOException reading the file; returning null lets the tile be retried
+    }
+    return null;
+  }
+
+  private InputStream open( String path ) throws IOException {
+    if( mZipFile != null ) {
+      ZipEntry entry = mZipFile.getEntry( mEntryPrefix + path );
+      return entry == null ? null : mZipFile.getInputStream( entry );
+    }
+    File file = new File( mDirectory, path );
+    return file.exists() ? new FileInputStream( file ) : null;
+  }
+
+  /**
+   * @return The part of a decoded tile that lies on its own grid cell, or null if none of it does.
+   */
+  Bitmap crop( Bitmap bitmap, int level, int column, int row ) {
+    int tileSize = mDeepZoomDescriptor.getTileSize();
+    int overlap = mDeepZoomDescriptor.getOverlap();
+    int x = column > 0 ? overlap : 0;
+    int y = row > 0 ? overlap : 0;
+    int width = Math.min( tileSize, mDeepZoomDescriptor.getLevelWidth( level ) - column * tileSize );
+    int height = Math.min( tileSize, mDeepZoomDescriptor.getLevelHeight( level ) - row * tileSize );
+    width = Math.min( width, bitmap.getWidth() - x );
+    height = Math.min( height, bitmap.getHeight() - y );
+    if( width <= 0 || height <= 0 ) {
+      bitmap.recycle();
+      return null;
+    }
+    if( x == 0 && y == 0 && width == bitmap.getWidth() && height == bitmap.getHeight() ) {
+      return bitmap;
+    }
+    Bitmap cropped = Bitmap.createBitmap( bitmap, x, y, width, height );
+    if( cropped != bitmap ) {
+      bitmap.recycle();
+    }
+    return cropped;
+  }
+}
@@ -0,0 +1,234 @@
+package com.qozix.tileview.graphics;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+import com.qozix.tileview.detail.DerivedTileSource;
+import com.qozix.tileview.detail.DetailLevel;
+import com.qozix.tileview.tiles.Tile;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Wraps a BitmapProvider so that detail levels registered with
+ * {@link com.qozix.tileview.TileView#addDerivedDetailLevel(float, float)} can be rendered from the
+ * finer level they derive from.  Tiles of any other level are passed to the wrapped provider.
+ *
+ * A derived tile is built by decoding each source tile it covers, reduced by the derivation factor
+ * when the wrapped provider is a SampledBitmapProvider, and drawing them into a single bitmap.  This
+ * happens on the render thread that requested the tile.  The result is written to a cache directory,
+ * so afterwards each derived tile costs a single decode.  The cache directory should be specific to
+ * the tile set, and cleared with clearCache if the source tiles change.
+ */
+public class BitmapProviderDerived implements SampledBitmapProvider {
+
+  private static final BitmapFactory.Options OPTIONS = new BitmapFactory.Options();
+
+  static {
+    OPTIONS.inPreferredConfig = Bitmap.Config.RGB_565;
+  }
+
+  private static final Paint COMPOSITE_PAINT = new Paint( Paint.FILTER_BITMAP_FLAG );
+
+  private final BitmapProvider mBitmapProvider;
+  private final File mCacheDirectory;
+
+  /**
+   * @param bitmapProvider The provider of the source tiles, and of every level that isn't derived.
+   * @param cacheDirectory The directory derived tiles are written to, or null to rebuild them each time.
+   */
+  public BitmapProviderDerived( BitmapProvider bitmapProvider, File cacheDirectory ) {
+    mBitmapProvider = bitmapProvider;
+    mCacheDirectory = cacheDirectory;
+  }
+
+  public BitmapProvider getBitmapProvider() {
+    return mBitmapProvider;
+  }
+
+  @Override
+  public Bitmap getBitmap( Tile tile, Context context ) {
+    if( !(tile.getData() instanceof DerivedTileSource) ) {
+      return mBitmapProvider.getBitmap( tile, context );
+    }
+    File file = getCacheFile( tile );
+    if( file != null && file.exists() ) {
+      Bitmap bitmap = BitmapFactory.decodeFile( file.getPath(), OPTIONS );
+      if( bitmap != null ) {
+        return bitmap;
+      }
+    }
+    Bitmap bitmap = composite( tile, context );
+    if( bitmap != null && file != null ) {
+      write( bitmap, file );
+    }
+    return bitmap;
+  }
+
+  @Override
+  public Bitmap getBitmap( Tile tile, Context context, int sampleSize ) {
+    if( !(tile.getData() instanceof DerivedTileSource) ) {
+      if( mBitmapProvider instanceof SampledBitmapProvider ) {
+        return ((SampledBitmapProvider) mBitmapProvider).getBitmap( tile, context, sampleSize );
+      }
+      return mBitmapProvider.getBitmap( tile, context );
+    }
+    Bitmap bitmap = getBitmap( tile, context );
+    if( bitmap == null || sampleSize <= 1 ) {
+      return bitmap;
+    }
+    int width = Math.max( 1, bitmap.getWidth() / sampleSize );
+    int height = Math.max( 1, bitmap.getHeight() / sampleSize );
+    Bitmap scaled = Bitmap.createScaledBitmap( bitmap, width, height, true );
+    if( scaled != bitmap ) {
+      bitmap.recycle();
+    }
+    return scaled;
+  }
+
+  /**
+   * Deletes every derived tile written to the cache directory.
+   */
+  public void clearCache() {
+    if( mCacheDirectory != null ) {
+      delete( mCacheDirectory );
+    }
+  }
+
+  private Bitmap composite( Tile tile, Context context ) {
+    DerivedTileSource derivedTileSource = (DerivedTileSource) tile.getData();
+    DetailLevel sourceDetailLevel = derivedTileSource.getSourceDetailLevel();
+    int factor = derivedTileSource.getFactor();
+    int sourceWidth = sourceDetailLevel.getTileWidth();
+    int sourceHeight = sourceDetailLevel.getTileHeight();
+    int columnCount = sourceDetailLevel.getColumnCount();
+    int rowCount = sourceDetailLevel.getRowCount();
+    // source levels that are themselves derived are built (or read from the cache) at full size
+    boolean sampled = mBitmapProvider instanceof SampledBitmapProvider
+      && !(sourceDetailLevel.getData() instanceof DerivedTileSource);
+    Bitmap composite = null;
+    Canvas canvas = null;
+    Rect destination = new Rect();
+    int right = 0;
+    int bottom = 0;
+    for( int row = 0; row < factor; row++ ) {
+      int sourceRow = tile.getRow() * factor + row;
+      if( sourceRow >= rowCount ) {
+        break;
+      }
+      for( int column = 0; column < factor; column++ ) {
+        int sourceColumn = tile.getColumn() * factor + column;
+        if( sourceColumn >= columnCount ) {
+          break;
+        }
+        if( Thread.currentThread().isInterrupted() ) {
+          recycle( composite );
+          return null;
+        }
+        Tile sourceTile = new Tile( sourceColumn, sourceRow, sourceWidth, sourceHeight,
+          sourceDetailLevel.getData(), sourceDetailLevel );
+        Bitmap bitmap;
+        try {
+          bitmap = sampled
+            ? ((SampledBitmapProvider) mBitmapProvider).getBitmap( sourceTile, context, factor )
+            : getBitmap( sourceTile, context );
+        } catch( TileUnavailableException e ) {
+          if( e.isPermanent() ) {
+            // a source tile known not to exist leaves its part of the derived tile empty
+            continue;
+          }
+          recycle( composite );
+          throw e;
+        }
+        if( bitmap == null ) {
+          // a transient failure; don't cache an incomplete tile, so it can be retried
+          recycle( composite );
+          return null;
+        }
+        if( composite == null ) {
+          composite = Bitmap.createBitmap( tile.getWidth(), tile.getHeight(), OPTIONS.inPreferredConfig );
+          canvas = new Canvas( composite );
+        }
+        int left = column * tile.getWidth() / factor;
+        int top = row * tile.getHeight() / factor;
+        int scale = sampled ? factor : 1;
+        destination.set( left, top,
+          left + bitmap.getWidth() * scale / factor,
+          top + bitmap.getHeight() * scale / factor );
+        canvas.drawBitmap( bitmap, null, destination, COMPOSITE_PAINT );
+        bitmap.recycle();
+        right = Math.max( right, destination.right );
+        bottom = Math.max( bottom, destination.bottom );
+      }
+    }
+    if( composite == null || right <= 0 || bottom <= 0 ) {
+      recycle( composite );
+      throw new TileUnavailableException( "No source tiles for derived tile", true, null );
+    }
+    right = Math.min( right, composite.getWidth() );
+    bottom = Math.min( bottom, composite.getHeight() );
+    if( right < composite.getWidth() || bottom < composite.getHeight() ) {
+      // edge tiles are cropped to the source tiles they cover, as edge tiles usually are
+      Bitmap cropped = Bitmap.createBitmap( composite, 0, 0, right, bottom );
+      if( cropped != composite ) {
+        composite.recycle();
+      }
+      composite = cropped;
+    }
+    return composite;
+  }
+
+  private File getCacheFile( Tile tile ) {
+    if( mCacheDirectory == null ) {
+      return null;
+    }
+    File directory = new File( mCacheDirectory, Float.toString( tile.getDetailLevel().getScale() ) );
+    return new File( directory, tile.getColumn() + "_" + tile.getRow() + ".png" );
+  }
+
+  private static void write( Bitmap bitmap, File file ) {
+    File directory = file.getParentFile();
+    if( !directory.isDirectory() && !directory.mkdirs() ) {
+      return;
+    }
+    // write to a temporary file first, so a partially written tile is never read back
+    File temporary = new File( directory, file.getName() + "." + Thread.currentThread().getId() + ".tmp" );
+    try {
+      OutputStream outputStream = new FileOutputStream( temporary );
+      try {
+        bitmap.compress( Bitmap.CompressFormat.PNG, 100, outputStream );
+      } finally {
+        outputStream.close();
+      }
+      if( !temporary.renameTo( file ) ) {
+        temporary.delete();
+      }
+    } catch( IOException e ) {
+      // the tile is still returned, just not cached
+      temporary.delete();
+    }
+  }
+
+  private static void delete( File file ) {
+    File[] children = file.listFiles();
+    if( children != null ) {
+      for( File child : children ) {
+        delete( child );
+        child.delete();
+      }
+    }
+  }
+
+  private static void recycle( Bitmap bitmap ) {
+    if( bitmap != null ) {
+      bitmap.recycle();
+    }
+  }
+}
@@ -0,0 +1,248 @@
+package com.qozix.tileview.graphics;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.Rect;
+
+import com.qozix.tileview.tiles.Tile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A BitmapProvider that stacks several tile sets on the same grid, e.g., a base raster with label
+ * and heat map overlays, and composites them into a single bitmap per tile.  The TileView then
+ * draws and holds one bitmap per tile, however many layers there are.
+ *
+ * Each detail level's data is an Object[] with one entry per layer, passed to that layer's provider
+ * as the tile's data; any other data is passed unchanged to every layer.  The layers of a tile are
+ * fetched in parallel: the first on the render thread that requested the tile, the rest on a layer
+ * executor.  A layer the executor hasn't started by the time the render thread needs it is fetched
+ * on the render thread instead, so a busy or saturated executor delays a tile no more than fetching
+ * every layer in turn would.
+ *
+ * By default the provider owns a small pool, which TileView.destroy shuts down; an executor passed
+ * to the constructor (e.g., one already sized for the app's other background work) is left to its
+ * owner.
+ */
+public class BitmapProviderLayered implements BitmapProvider {
+
+  public static final int DEFAULT_LAYER_THREAD_COUNT = 2;
+
+  private static final long KEEP_ALIVE_TIME = 1;
+
+  private final List<TileLayer> mTileLayers;
+  private final ExecutorService mExecutorService;
+  private final boolean mOwnsExecutorService;
+
+  public BitmapProviderLayered( List<TileLayer> tileLayers ) {
+    this( tileLayers, DEFAULT_LAYER_THREAD_COUNT );
+  }
+
+  /**
+   * @param tileLayers The layers, from bottom to top.
+   * @param layerThreadCount The number of threads fetching layers in addition to the render threads.
+   */
+  public BitmapProviderLayered( List<TileLayer> tileLayers, int layerThreadCount ) {
+    this( tileLayers, createExecutorService( layerThreadCount ), true );
+  }
+
+  /**
+   * @param tileLayers The layers, from bottom to top.
+   * @param layerExecutorService Runs layer fetches; it remains the caller's to shut down.
+   */
+  public BitmapProviderLayered( List<TileLayer> tileLayers, ExecutorService layerExecutorService ) {
+    this( tileLayers, layerExecutorService, false );
+  }
+
+  private BitmapProviderLayered( List<TileLayer> tileLayers, ExecutorService executorService, boolean ownsExecutorService ) {
+    if( tileLayers.isEmpty() ) {
+      throw new IllegalArgumentException( "At least one layer is required" );
+    }
+    mTileLayers = new ArrayList<>( tileLayers );
+    mExecutorService = executorService;
+    mOwnsExecutorService = ownsExecutorService;
+  }
+
+  private static ExecutorService createExecutorService( int threadCount ) {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(
+      threadCount, threadCount, KEEP_ALIVE_TIME, TimeUnit.SECONDS,
+      new LinkedBlockingQueue<Runnable>(), new LayerThreadFactory() );
+    executor.allowCoreThreadTimeOut( true );
+    return executor;
+  }
+
+  public List<TileLayer> getTileLayers() {
+    return Collections.unmodifiableList( mTileLayers );
+  }
+
+  /**
+   * Stops the threads fetching layers, if this provider created them; TileView.destroy calls this.
+   * Tiles requested afterwards fetch every layer on the render thread.
+   */
+  public void shutdown() {
+    if( mOwnsExecutorService ) {
+      mExecutorService.shutdownNow();
+    }
+  }
+
+  @Override
+  public Bitmap getBitmap( Tile tile, Context context ) {
+    int count = mTileLayers.size();
+    List<FutureTask<Bitmap>> futures = new ArrayList<>( count );
+    futures.add( null );
+    for( int i = 1; i < count; i++ ) {
+      futures.add( fetchAsync( i, tile, context ) );
+    }
+    Bitmap[] bitmaps = new Bitmap[count];
+    try {
+      for( int i = 0; i < count; i++ ) {
+        FutureTask<Bitmap> future = futures.get( i );
+        bitmaps[i] = future == null ? fetch( i, tile, context ) : await( future );
+        if( bitmaps[i] == null && mTileLayers.get( i ).isRequired() ) {
+          return null;
+        }
+      }
+      return composite( tile, bitmaps );
+    } finally {
+      for( FutureTask<Bitmap> future : futures ) {
+        if( future != null ) {
+          future.cancel( false );
+        }
+      }
+      for( Bitmap bitmap : bitmaps ) {
+        if( bitmap != null ) {
+          bitmap.recycle();
+        }
+      }
+    }
+  }
+
+  private FutureTask<Bitmap> fetchAsync( final int index, final Tile tile, final Context context ) {
+    if( mExecutorService.isShutdown() ) {
+      return null;
+    }
+    FutureTask<Bitmap> future = new FutureTask<>( new Callable<Bitmap>() {
+      @Override
+      public Bitmap call() {
+        return fetch( index, tile, context );
+      }
+    } );
+    try {
+      mExecutorService.execute( future );
+    } catch( RejectedExecutionException e ) {
+      return null;
+    }
+    return future;
+  }
+
+  private static Bitmap await( FutureTask<Bitmap> future ) {
+    // runs the fetch here if the executor hasn't started it; once started or done this returns at once
+    future.run();
+    try {
+      return future.get();
+    } catch( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new TileUnavailableException( false, e );
+    } catch( ExecutionException e ) {
+      if( e.getCause() instanceof RuntimeException ) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new TileUnavailableException( false, e.getCause() );
+    }
+  }
+
+  /**
+   * Fetches one layer's tile, or returns null if an optional layer has no tile here.  Transient
+   * failures are thrown, so a tile is never completed without a layer that may yet arrive.
+   */
+  private Bitmap fetch( int index, Tile tile, Context context ) {
+    TileLayer tileLayer = mTileLayers.get( index );
+    Object data = tile.getData();
+    if( data instanceof Object[] ) {
+      Object[] layerData = (Object[]) data;
+      data = index < layerData.length ? layerData[index] : null;
+      if( data == null ) {
+        if( tileLayer.isRequired() ) {
+          throw new TileUnavailableException( true );
+        }
+        return null;
+      }
+    }
+    Tile layerTile = new Tile( tile.getColumn(), tile.getRow(), tile.getWidth(), tile.getHeight(), data, tile.getDetailLevel() );
+    Bitmap bitmap;
+    try {
+      bitmap = tileLayer.getBitmapProvider().getBitmap( layerTile, context );
+    } catch( TileUnavailableException e ) {
+      if( e.isPermanent() && !tileLayer.isRequired() ) {
+        return null;
+      }
+      throw e;
+    }
+    if( bitmap == null ) {
+      throw new TileUnavailableException( false );
+    }
+    return bitmap;
+  }
+
+  private Bitmap composite( Tile tile, Bitmap[] bitmaps ) {
+    int width = 0;
+    int height = 0;
+    boolean opaqueBase = false;
+    for( int i = 0; i < bitmaps.length; i++ ) {
+      Bitmap bitmap = bitmaps[i];
+      if( bitmap != null ) {
+        // edge tiles may be smaller than the grid; every layer's tile is cropped to the same extent
+        width = Math.max( width, Math.min( bitmap.getWidth(), tile.getWidth() ) );
+        height = Math.max( height, Math.min( bitmap.getHeight(), tile.getHeight() ) );
+        if( i == 0 ) {
+          TileLayer base = mTileLayers.get( 0 );
+          opaqueBase = !bitmap.hasAlpha() && base.getOpacity() == 1 && base.getBlendMode() == PorterDuff.Mode.SRC_OVER;
+        }
+      }
+    }
+    if( width == 0 || height == 0 ) {
+      throw new TileUnavailableException( true );
+    }
+    Bitmap composite = Bitmap.createBitmap( width, height, opaqueBase ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888 );
+    Canvas canvas = new Canvas( composite );
+    Paint paint = new Paint( Paint.FILTER_BITMAP_FLAG );
+    Rect source = new Rect();
+    for( int i = 0; i < bitmaps.length; i++ ) {
+      Bitmap bitmap = bitmaps[i];
+      if( bitmap == null ) {
+        continue;
+      }
+      TileLayer tileLayer = mTileLayers.get( i );
+      paint.setAlpha( Math.round( tileLayer.getOpacity() * 255 ) );
+      paint.setXfermode( new PorterDuffXfermode( tileLayer.getBlendMode() ) );
+      source.set( 0, 0, Math.min( bitmap.getWidth(), width ), Math.min( bitmap.getHeight(), height ) );
+      canvas.drawBitmap( bitmap, source, source, paint );
+    }
+    return composite;
+  }
+
+  private static class LayerThreadFactory implements ThreadFactory {
+    @Override
+    public Thread newThread( Runnable runnable ) {
+      Thread thread = new Thread( runnable, "TileView layer" );
+      thread.setDaemon( true );
+      thread.setPriority( Thread.MIN_PRIORITY );
+      return thread;
+    }
+  }
+}
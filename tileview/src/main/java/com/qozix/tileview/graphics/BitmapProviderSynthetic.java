@@ -0,0 +1,339 @@
+package com.qozix.tileview.graphics;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+import com.qozix.tileview.tiles.Tile;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A BitmapProvider that draws tiles procedurally (a colour per detail level, a grid outline
+ * and the tile's coordinates) with configurable latency, failure rate and CPU cost, and that
+ * counts how many times each tile was requested.
+ *
+ * Intended for load testing and tuning: tests can assert exactly how many (and how many
+ * redundant) fetches the render pipeline makes, and thread counts or caches can be tuned
+ * against a provider whose behaviour is known.
+ *
+ * <pre>{@code
+ * BitmapProviderSynthetic provider = new BitmapProviderSynthetic( 42 );
+ * provider.setLatency( BitmapProviderSynthetic.LatencyDistribution.longTail( 20, 1.5, 2000 ) );
+ * provider.setFailureRate( 0.05f );
+ * tileView.setBitmapProvider( provider );
+ * }</pre>
+ */
+public class BitmapProviderSynthetic implements BitmapProvider {
+
+  private final long mSeed;
+
+  private LatencyDistribution mLatencyDistribution = LatencyDistribution.fixed( 0 );
+  private Sleeper mSleeper = Sleeper.SYSTEM;
+  private float mFailureRate;
+  private long mCpuBurnNanos;
+  private boolean mShouldDrawLabels = true;
+  private Bitmap.Config mBitmapConfig = Bitmap.Config.RGB_565;
+
+  private final Map<String, Integer> mCallCounts = new HashMap<>();
+  private int mTotalCallCount;
+  private int mFailureCount;
+  private int mInterruptedCount;
+
+  public BitmapProviderSynthetic() {
+    this( System.nanoTime() );
+  }
+
+  /**
+   * Latency and failures are sampled from the seed, the tile's position and detail level, and
+   * how many times that tile was requested before, so the nth request for a tile behaves the
+   * same in every run with the same seed, whatever order worker threads make requests in.
+   *
+   * @param seed Seed for latency and failure sampling.
+   */
+  public BitmapProviderSynthetic( long seed ) {
+    mSeed = seed;
+  }
+
+  public void setLatency( LatencyDistribution latencyDistribution ) {
+    mLatencyDistribution = latencyDistribution;
+  }
+
+  /**
+   * @param sleeper Waits out each request's latency; replace Sleeper.SYSTEM to simulate latency
+   *                against a test clock rather than in real time.
+   */
+  public void setSleeper( Sleeper sleeper ) {
+    mSleeper = sleeper;
+  }
+
+  /**
+   * @param failureRate Probability (0-1) that a request returns null instead of a bitmap.
+   */
+  public void setFailureRate( float failureRate ) {
+    mFailureRate = failureRate;
+  }
+
+  /**
+   * @param cpuBurnMicros Time each request spends spinning on the worker thread, simulating decode cost.
+   */
+  public void setCpuBurn( long cpuBurnMicros ) {
+    mCpuBurnNanos = cpuBurnMicros * 1000;
+  }
+
+  public void setShouldDrawLabels( boolean shouldDrawLabels ) {
+    mShouldDrawLabels = shouldDrawLabels;
+  }
+
+  public void setBitmapConfig( Bitmap.Config bitmapConfig ) {
+    mBitmapConfig = bitmapConfig;
+  }
+
+  @Override
+  public Bitmap getBitmap( Tile tile, Context context ) {
+    float scale = tile.getDetailLevel().getScale();
+    int attempt;
+    synchronized( mCallCounts ) {
+      String key = getKey( scale, tile.getColumn(), tile.getRow() );
+      Integer count = mCallCounts.get( key );
+      attempt = count == null ? 0 : count;
+      mCallCounts.put( key, attempt + 1 );
+      mTotalCallCount++;
+    }
+    Random random = getRandom( scale, tile.getColumn(), tile.getRow(), attempt );
+    long latency = mLatencyDistribution.sample( random );
+    boolean shouldFail = mFailureRate > 0 && random.nextFloat() < mFailureRate;
+    if( shouldFail ) {
+      synchronized( mCallCounts ) {
+        mFailureCount++;
+      }
+    }
+    if( latency > 0 ) {
+      try {
+        mSleeper.sleep( latency );
+      } catch( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        synchronized( mCallCounts ) {
+          mInterruptedCount++;
+        }
+        return null;
+      }
+    }
+    burn();
+    if( shouldFail ) {
+      return null;
+    }
+    return draw( tile, scale );
+  }
+
+  /**
+   * @return A Random for one request, seeded from everything that identifies it.
+   */
+  private Random getRandom( float scale, int column, int row, int attempt ) {
+    long hash = mSeed;
+    hash = mix( hash + Float.floatToIntBits( scale ) );
+    hash = mix( hash + column );
+    hash = mix( hash + row );
+    hash = mix( hash + attempt );
+    return new Random( hash );
+  }
+
+  /**
+   * The SplitMix64 finalizer; spreads small differences in the input over every bit, since
+   * Random's first samples from adjacent seeds are correlated.
+   */
+  private static long mix( long value ) {
+    value += 0x9E3779B97F4A7C15L;
+    value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+    value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+    return value ^ (value >>> 31);
+  }
+
+  private void burn() {
+    if( mCpuBurnNanos <= 0 ) {
+      return;
+    }
+    long end = System.nanoTime() + mCpuBurnNanos;
+    double sink = 0;
+    while( System.nanoTime() < end ) {
+      sink += Math.sqrt( sink + 1 );
+    }
+    if( sink < 0 ) {
+      // never true; keeps the loop from being optimized away
+      throw new IllegalStateException();
+    }
+  }
+
+  private Bitmap draw( Tile tile, float scale ) {
+    int width = tile.getWidth();
+    int height = tile.getHeight();
+    Bitmap bitmap = Bitmap.createBitmap( width, height, mBitmapConfig );
+    Canvas canvas = new Canvas( bitmap );
+    canvas.drawColor( getLevelColor( scale ) );
+    // Paints are per call, since several workers draw at once
+    Paint gridPaint = new Paint();
+    gridPaint.setStyle( Paint.Style.STROKE );
+    gridPaint.setColor( Color.DKGRAY );
+    gridPaint.setStrokeWidth( 2 );
+    canvas.drawRect( 0, 0, width, height, gridPaint );
+    if( mShouldDrawLabels ) {
+      Paint textPaint = new Paint( Paint.ANTI_ALIAS_FLAG );
+      textPaint.setColor( Color.BLACK );
+      textPaint.setTextSize( 24 );
+      canvas.drawText( tile.getColumn() + "," + tile.getRow() + " @" + scale, 8, 32, textPaint );
+    }
+    return bitmap;
+  }
+
+  /**
+   * Each halving of scale rotates the hue, so adjacent detail levels are easy to tell apart.
+   */
+  private static int getLevelColor( float scale ) {
+    double octave = -Math.log( scale ) / Math.log( 2 );
+    float hue = (float) (((octave * 60) % 360 + 360) % 360);
+    return Color.HSVToColor( new float[]{ hue, 0.35f, 0.95f } );
+  }
+
+  private static String getKey( float scale, int column, int row ) {
+    return scale + ":" + column + ":" + row;
+  }
+
+  /**
+   * @return The number of times the tile at this position and detail level scale was requested.
+   */
+  public int getCallCount( float scale, int column, int row ) {
+    synchronized( mCallCounts ) {
+      Integer count = mCallCounts.get( getKey( scale, column, row ) );
+      return count == null ? 0 : count;
+    }
+  }
+
+  public int getCallCount( Tile tile ) {
+    return getCallCount( tile.getDetailLevel().getScale(), tile.getColumn(), tile.getRow() );
+  }
+
+  public int getTotalCallCount() {
+    synchronized( mCallCounts ) {
+      return mTotalCallCount;
+    }
+  }
+
+  /**
+   * @return The number of distinct tiles requested.
+   */
+  public int getUniqueCallCount() {
+    synchronized( mCallCounts ) {
+      return mCallCounts.size();
+    }
+  }
+
+  /**
+   * @return The number of requests for a tile that had already been requested at least once.
+   */
+  public int getRedundantCallCount() {
+    synchronized( mCallCounts ) {
+      return mTotalCallCount - mCallCounts.size();
+    }
+  }
+
+  public int getFailureCount() {
+    synchronized( mCallCounts ) {
+      return mFailureCount;
+    }
+  }
+
+  /**
+   * @return The number of requests abandoned because the worker was interrupted during their latency.
+   */
+  public int getInterruptedCount() {
+    synchronized( mCallCounts ) {
+      return mInterruptedCount;
+    }
+  }
+
+  /**
+   * Clears the counts; since samples depend on how often a tile was requested, this also makes
+   * the next request for each tile behave as its first.
+   */
+  public void resetCounts() {
+    synchronized( mCallCounts ) {
+      mCallCounts.clear();
+      mTotalCallCount = 0;
+      mFailureCount = 0;
+      mInterruptedCount = 0;
+    }
+  }
+
+  /**
+   * Waits out simulated latency on the calling worker thread.
+   */
+  public interface Sleeper {
+
+    /**
+     * Sleeps in real time.
+     */
+    Sleeper SYSTEM = new Sleeper() {
+      @Override
+      public void sleep( long millis ) throws InterruptedException {
+        Thread.sleep( millis );
+      }
+    };
+
+    void sleep( long millis ) throws InterruptedException;
+  }
+
+  /**
+   * Source of simulated per-tile latency, in milliseconds.
+   */
+  public static abstract class LatencyDistribution {
+
+    public abstract long sample( Random random );
+
+    /**
+     * Every request takes exactly the given time.
+     */
+    public static LatencyDistribution fixed( final long millis ) {
+      return new LatencyDistribution() {
+        @Override
+        public long sample( Random random ) {
+          return millis;
+        }
+      };
+    }
+
+    /**
+     * Requests take between min and max milliseconds, uniformly distributed.
+     */
+    public static LatencyDistribution uniform( final long minMillis, final long maxMillis ) {
+      return new LatencyDistribution() {
+        @Override
+        public long sample( Random random ) {
+          return minMillis + (long) (random.nextDouble() * (maxMillis - minMillis));
+        }
+      };
+    }
+
+    /**
+     * Pareto distributed latency: most requests take close to minMillis, but a heavy tail
+     * of requests take much longer, as with network or flash storage.
+     *
+     * @param minMillis The minimum (and most common) latency.
+     * @param shape     Pareto shape; smaller values give a heavier tail.  1.5 is a reasonable start.
+     * @param maxMillis Upper bound on any single sample.
+     */
+    public static LatencyDistribution longTail( final long minMillis, final double shape, final long maxMillis ) {
+      return new LatencyDistribution() {
+        @Override
+        public long sample( Random random ) {
+          double uniform = 1 - random.nextDouble(); // (0, 1]
+          double value = minMillis / Math.pow( uniform, 1 / shape );
+          return (long) Math.min( value, maxMillis );
+        }
+      };
+    }
+  }
+}
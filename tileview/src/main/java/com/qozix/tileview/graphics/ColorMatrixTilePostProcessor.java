@@ -0,0 +1,64 @@
+package com.qozix.tileview.graphics;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorMatrix;
+import android.graphics.ColorMatrixColorFilter;
+import android.graphics.Paint;
+
+/**
+ * A TilePostProcessor that applies a ColorMatrix to each tile.  Static factories cover the common
+ * cases of night mode, grayscale and tinting.
+ */
+public class ColorMatrixTilePostProcessor implements TilePostProcessor {
+
+  private final Paint mPaint = new Paint();
+
+  /**
+   * @param colorMatrix The matrix to apply; it is copied, so later changes to it have no effect.
+   */
+  public ColorMatrixTilePostProcessor( ColorMatrix colorMatrix ) {
+    mPaint.setColorFilter( new ColorMatrixColorFilter( new ColorMatrix( colorMatrix ) ) );
+  }
+
+  /**
+   * @return A post processor that inverts brightness while roughly keeping hue (an inversion
+   *         followed by a 180 degree hue rotation), dimmed to 80% for dark surroundings.
+   */
+  public static ColorMatrixTilePostProcessor createNightMode() {
+    return new ColorMatrixTilePostProcessor( new ColorMatrix( new float[]{
+      0.459f, -1.144f, -0.115f, 0, 204,
+      -0.341f, -0.344f, -0.115f, 0, 204,
+      -0.341f, -1.144f, 0.685f, 0, 204,
+      0, 0, 0, 1, 0
+    } ) );
+  }
+
+  public static ColorMatrixTilePostProcessor createGrayscale() {
+    ColorMatrix colorMatrix = new ColorMatrix();
+    colorMatrix.setSaturation( 0 );
+    return new ColorMatrixTilePostProcessor( colorMatrix );
+  }
+
+  /**
+   * @param color The colour each channel is multiplied by; white leaves tiles unchanged.
+   */
+  public static ColorMatrixTilePostProcessor createTint( int color ) {
+    return new ColorMatrixTilePostProcessor( new ColorMatrix( new float[]{
+      Color.red( color ) / 255f, 0, 0, 0, 0,
+      0, Color.green( color ) / 255f, 0, 0, 0,
+      0, 0, Color.blue( color ) / 255f, 0, 0,
+      0, 0, 0, 1, 0
+    } ) );
+  }
+
+  @Override
+  public Bitmap process( Bitmap bitmap ) {
+    Bitmap.Config config = bitmap.getConfig() == null ? Bitmap.Config.ARGB_8888 : bitmap.getConfig();
+    Bitmap result = Bitmap.createBitmap( bitmap.getWidth(), bitmap.getHeight(), config );
+    // drawing is thread safe as long as the paint isn't changed, which it never is after construction
+    new Canvas( result ).drawBitmap( bitmap, 0, 0, mPaint );
+    return result;
+  }
+}
@@ -0,0 +1,19 @@
+package com.qozix.tileview.graphics;
+
+import android.content.Context;
+
+import com.qozix.tileview.tiles.Tile;
+
+/**
+ * A BitmapProvider that can say, before fetching, which tiles share identical content (e.g.,
+ * tiles served from the same url, or known to be empty ocean).  Tiles with equal content keys
+ * share a single bitmap, and only the first of them is fetched.
+ *
+ * getContentKey is called on a worker thread, before getBitmap, and should be cheap.
+ */
+public interface ContentKeyedBitmapProvider extends BitmapProvider {
+  /**
+   * @return A key with meaningful equals and hashCode that is equal for tiles with identical bitmaps, or null if unknown.
+   */
+  Object getContentKey( Tile tile, Context context );
+}
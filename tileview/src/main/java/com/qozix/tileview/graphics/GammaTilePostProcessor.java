@@ -0,0 +1,49 @@
+package com.qozix.tileview.graphics;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+/**
+ * A TilePostProcessor that applies gamma correction, which a ColorMatrix can't express, through
+ * a lookup table over each row of pixels.
+ */
+public class GammaTilePostProcessor implements TilePostProcessor {
+
+  private final int[] mLookupTable = new int[256];
+
+  /**
+   * @param gamma Values above 1 brighten mid tones, values below 1 darken them.
+   */
+  public GammaTilePostProcessor( float gamma ) {
+    if( gamma <= 0 ) {
+      throw new IllegalArgumentException( "Gamma must be positive" );
+    }
+    for( int i = 0; i < mLookupTable.length; i++ ) {
+      mLookupTable[i] = Math.round( (float) Math.pow( i / 255.0, 1.0 / gamma ) * 255 );
+    }
+  }
+
+  @Override
+  public Bitmap process( Bitmap bitmap ) {
+    int width = bitmap.getWidth();
+    int height = bitmap.getHeight();
+    Bitmap result = bitmap.isMutable() ? bitmap : bitmap.copy( bitmap.getConfig() == null ? Bitmap.Config.ARGB_8888 : bitmap.getConfig(), true );
+    if( result == null ) {
+      return bitmap;
+    }
+    int[] row = new int[width];
+    for( int y = 0; y < height; y++ ) {
+      result.getPixels( row, 0, width, 0, y, width, 1 );
+      for( int x = 0; x < width; x++ ) {
+        int pixel = row[x];
+        row[x] = Color.argb(
+          Color.alpha( pixel ),
+          mLookupTable[Color.red( pixel )],
+          mLookupTable[Color.green( pixel )],
+          mLookupTable[Color.blue( pixel )] );
+      }
+      result.setPixels( row, 0, width, 0, y, width, 1 );
+    }
+    return result;
+  }
+}
@@ -0,0 +1,21 @@
+package com.qozix.tileview.graphics;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+
+import com.qozix.tileview.tiles.Tile;
+
+/**
+ * A BitmapProvider that can supply reduced resolution tiles cheaply, e.g., by decoding with
+ * BitmapFactory.Options.inSampleSize, or from an embedded thumbnail.  Reduced bitmaps are
+ * requested for progressive rendering, and when a detail level is displayed below its own
+ * scale (the sample size then matches the tile's DetailLevel.getRelativeScale).  They are
+ * drawn scaled up to fill the tile, and replaced by finer bitmaps once the viewport settles.
+ */
+public interface SampledBitmapProvider extends BitmapProvider {
+  /**
+   * @param sampleSize The requested reduction, as a power of 2 (e.g., 4 means 1/4 of the tile's width and height); 1 means full resolution.
+   * @return A bitmap of roughly the tile's dimensions divided by sampleSize, or null.
+   */
+  Bitmap getBitmap( Tile tile, Context context, int sampleSize );
+}
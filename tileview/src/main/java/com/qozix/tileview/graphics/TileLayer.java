@@ -0,0 +1,66 @@
+package com.qozix.tileview.graphics;
+
+import android.graphics.PorterDuff;
+
+/**
+ * One tile set in a BitmapProviderLayered stack, drawn with an opacity and blend mode over the
+ * layers beneath it.  Every layer shares the detail levels' tile grid.
+ */
+public class TileLayer {
+
+  private final BitmapProvider mBitmapProvider;
+  private volatile float mOpacity = 1;
+  private volatile PorterDuff.Mode mBlendMode = PorterDuff.Mode.SRC_OVER;
+  private volatile boolean mRequired;
+
+  public TileLayer( BitmapProvider bitmapProvider ) {
+    mBitmapProvider = bitmapProvider;
+  }
+
+  public TileLayer( BitmapProvider bitmapProvider, float opacity, PorterDuff.Mode blendMode ) {
+    mBitmapProvider = bitmapProvider;
+    setOpacity( opacity );
+    mBlendMode = blendMode;
+  }
+
+  public BitmapProvider getBitmapProvider() {
+    return mBitmapProvider;
+  }
+
+  public float getOpacity() {
+    return mOpacity;
+  }
+
+  /**
+   * Changes take effect as tiles are next rendered.
+   *
+   * @param opacity From 0 (invisible) to 1 (opaque).
+   */
+  public void setOpacity( float opacity ) {
+    mOpacity = Math.max( 0, Math.min( 1, opacity ) );
+  }
+
+  public PorterDuff.Mode getBlendMode() {
+    return mBlendMode;
+  }
+
+  /**
+   * @param blendMode How the layer combines with the layers beneath it; SRC_OVER by default.
+   */
+  public void setBlendMode( PorterDuff.Mode blendMode ) {
+    mBlendMode = blendMode;
+  }
+
+  public boolean isRequired() {
+    return mRequired;
+  }
+
+  /**
+   * @param required True if a tile can't be drawn without this layer's tile, as is usually the
+   *                 case for a base layer.  Optional layers, the default, are omitted where their
+   *                 tile set has no tile.
+   */
+  public void setRequired( boolean required ) {
+    mRequired = required;
+  }
+}
@@ -0,0 +1,21 @@
+package com.qozix.tileview.graphics;
+
+import android.graphics.Bitmap;
+
+/**
+ * Transforms each tile's bitmap once, on the render thread that decoded it, before it is cached
+ * and drawn; e.g., a night mode colour matrix.  Because the result is what's held, drawing costs
+ * nothing extra and the tile's Paint remains free for transitions.
+ *
+ * A TileView re-renders its visible tiles when its post processor is replaced, so instances should
+ * be treated as immutable: to change a transform, set a new instance.
+ */
+public interface TilePostProcessor {
+
+  /**
+   * @param bitmap The decoded bitmap, which may be immutable.
+   * @return The transformed bitmap, or the bitmap passed if it was transformed in place.
+   *         If a different bitmap is returned, the one passed is recycled.
+   */
+  Bitmap process( Bitmap bitmap );
+}
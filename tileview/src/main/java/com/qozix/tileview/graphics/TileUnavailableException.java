@@ -0,0 +1,36 @@
+package com.qozix.tileview.graphics;
+
+/**
+ * A BitmapProvider may throw this from getBitmap to tell the TileView why a tile could not be
+ * supplied.  A permanent failure (e.g., the tile does not exist on the server) means the tile
+ * will not be requested again; a transient failure (e.g., a timeout) means it will be retried
+ * after a growing backoff delay.
+ *
+ * Returning null from getBitmap is treated as a transient failure.
+ */
+public class TileUnavailableException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  private final boolean mPermanent;
+
+  public TileUnavailableException( boolean permanent ) {
+    this( null, permanent, null );
+  }
+
+  public TileUnavailableException( boolean permanent, Throwable cause ) {
+    this( null, permanent, cause );
+  }
+
+  public TileUnavailableException( String message, boolean permanent, Throwable cause ) {
+    super( message, cause );
+    mPermanent = permanent;
+  }
+
+  /**
+   * @return True if the tile will never be available, and should not be requested again.
+   */
+  public boolean isPermanent() {
+    return mPermanent;
+  }
+}
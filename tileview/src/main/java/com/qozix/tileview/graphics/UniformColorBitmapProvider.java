@@ -0,0 +1,19 @@
+package com.qozix.tileview.graphics;
+
+import android.content.Context;
+
+import com.qozix.tileview.tiles.Tile;
+
+/**
+ * A BitmapProvider that knows, before fetching, when a tile is a single solid colour (e.g.,
+ * ocean, or padding around an image).  Such tiles are drawn as filled rectangles, and getBitmap
+ * is never called for them.
+ *
+ * getUniformColor is called on a worker thread, before getBitmap, and should be cheap.
+ */
+public interface UniformColorBitmapProvider extends BitmapProvider {
+  /**
+   * @return The ARGB colour filling the entire tile, or null if the tile is not known to be uniform.
+   */
+  Integer getUniformColor( Tile tile, Context context );
+}
@@ -0,0 +1,82 @@
+package com.qozix.tileview.markers;
+
+/**
+ * A lightweight marker record: a position, optional anchor values and a view type.  A MarkerLayout
+ * only binds a View to a Marker (through its MarkerAdapter) while the Marker is near the viewport,
+ * so thousands of Markers can be added without a View for each.
+ */
+public class Marker {
+
+  private int mX;
+  private int mY;
+  private Float mAnchorX;
+  private Float mAnchorY;
+  private int mType;
+  private Object mData;
+
+  /**
+   * @param x    The absolute x position of the marker in pixels, at a scale of 1.
+   * @param y    The absolute y position of the marker in pixels, at a scale of 1.
+   * @param type The view type, passed to MarkerAdapter.onCreateView; Views are only reused for Markers of the same type.
+   */
+  public Marker( int x, int y, int type ) {
+    this( x, y, null, null, type );
+  }
+
+  /**
+   * @param x       The absolute x position of the marker in pixels, at a scale of 1.
+   * @param y       The absolute y position of the marker in pixels, at a scale of 1.
+   * @param anchorX Multiplied by the bound View's width to offset it horizontally; if null, the MarkerLayout's anchor is used.
+   * @param anchorY Multiplied by the bound View's height to offset it vertically; if null, the MarkerLayout's anchor is used.
+   * @param type    The view type, passed to MarkerAdapter.onCreateView; Views are only reused for Markers of the same type.
+   */
+  public Marker( int x, int y, Float anchorX, Float anchorY, int type ) {
+    mX = x;
+    mY = y;
+    mAnchorX = anchorX;
+    mAnchorY = anchorY;
+    mType = type;
+  }
+
+  public int getX() {
+    return mX;
+  }
+
+  public int getY() {
+    return mY;
+  }
+
+  /**
+   * Only MarkerLayout.moveMarker may change the position, since the layout indexes Markers by it.
+   */
+  void setPosition( int x, int y ) {
+    mX = x;
+    mY = y;
+  }
+
+  public Float getAnchorX() {
+    return mAnchorX;
+  }
+
+  public Float getAnchorY() {
+    return mAnchorY;
+  }
+
+  public int getType() {
+    return mType;
+  }
+
+  /**
+   * @return The application data attached with setData, or null.
+   */
+  public Object getData() {
+    return mData;
+  }
+
+  /**
+   * Attaches application data, e.g., the record the marker represents, for use when binding a View.
+   */
+  public void setData( Object data ) {
+    mData = data;
+  }
+}
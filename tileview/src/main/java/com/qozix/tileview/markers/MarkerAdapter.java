@@ -0,0 +1,40 @@
+package com.qozix.tileview.markers;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Supplies and binds the Views that display Markers.  A MarkerLayout asks for a View when a Marker
+ * comes near the viewport, and recycles it when the Marker moves away; recycled Views are rebound
+ * to other Markers of the same type, so onCreateView is only called until the pool for a type is
+ * large enough for the Markers visible at once.
+ */
+public abstract class MarkerAdapter {
+
+  /**
+   * Creates a View for Markers of a type.  The View is bound with onBindView before it is shown.
+   *
+   * @param parent The MarkerLayout the View will be added to.
+   * @param type   The type of the Markers the View will display.
+   * @return A new View.
+   */
+  public abstract View onCreateView( ViewGroup parent, int type );
+
+  /**
+   * Updates a View, new or recycled, to display a Marker.
+   *
+   * @param view   A View created by onCreateView for the Marker's type.
+   * @param marker The Marker to display.
+   */
+  public abstract void onBindView( View view, Marker marker );
+
+  /**
+   * Invoked when a View stops displaying a Marker, e.g., to release images it holds.
+   *
+   * @param view   The View being recycled.
+   * @param marker The Marker it displayed.
+   */
+  public void onViewRecycled( View view, Marker marker ) {
+
+  }
+}
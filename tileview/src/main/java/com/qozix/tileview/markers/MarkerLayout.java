@@ -2,20 +2,56 @@ package com.qozix.tileview.markers;
 
 import android.content.Context;
 import android.graphics.Rect;
+import android.graphics.RectF;
 import android.view.View;
 import android.view.ViewGroup;
 
+import com.qozix.tileview.core.SpatialIndex;
 import com.qozix.tileview.geom.FloatMathHelper;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * Positions marker Views by anchor and scale.  Markers may be added as Views, which stay attached
+ * until removed, or as Marker records, which are bound to Views supplied by a MarkerAdapter only
+ * while they are within the marker margin of the viewport; as the viewport moves away, their Views
+ * are hidden and kept in a pool for each type, to be rebound to other Markers.
+ */
 public class MarkerLayout extends ViewGroup {
 
+  public static final int DEFAULT_MARKER_MARGIN = 256;
+  public static final int DEFAULT_MAXIMUM_RECYCLED_VIEWS = 8;
+
   private float mScale = 1;
 
+  private int mWidth;
+  private int mHeight;
+
   private float mAnchorX;
   private float mAnchorY;
 
   private MarkerTapListener mMarkerTapListener;
 
+  private MarkerAdapter mMarkerAdapter;
+  private SpatialIndex<Marker> mMarkerIndex = new SpatialIndex<>();
+  private HashMap<Marker, View> mBoundViews = new HashMap<>();
+  private HashMap<Integer, ArrayList<View>> mRecycledViews = new HashMap<>();
+
+  private int mMarkerMargin = DEFAULT_MARKER_MARGIN;
+  private int mMaximumRecycledViews = DEFAULT_MAXIMUM_RECYCLED_VIEWS;
+
+  private Rect mViewport = new Rect();
+  private RectF mBoundRegion = new RectF();
+  private RectF mRegion = new RectF();
+  private float mBoundScale;
+  private boolean mIsBoundRegionValid;
+
+  private ArrayList<Marker> mMarkersInRegion = new ArrayList<>();
+  private HashSet<Marker> mMarkersInRegionSet = new HashSet<>();
+  private ArrayList<Marker> mMarkersToRecycle = new ArrayList<>();
+
   public MarkerLayout( Context context ) {
     super( context );
   }
@@ -40,6 +76,7 @@ public class MarkerLayout extends ViewGroup {
    */
   public void setScale( float scale ) {
     mScale = scale;
+    updateBoundMarkers();
     requestLayout();
   }
 
@@ -52,6 +89,20 @@ public class MarkerLayout extends ViewGroup {
     return mScale;
   }
 
+  /**
+   * Sets the size of the image, in unscaled pixels.  Marker records are only looked up within it,
+   * so at low scales the region searched does not grow far beyond the image.
+   *
+   * @param width  Width of the image at scale 1, or 0 if unknown.
+   * @param height Height of the image at scale 1, or 0 if unknown.
+   */
+  public void setSize( int width, int height ) {
+    mWidth = width;
+    mHeight = height;
+    mIsBoundRegionValid = false;
+    bindMarkers();
+  }
+
   public View addMarker( View view, int x, int y, Float aX, Float aY ) {
     LayoutParams layoutParams = new LayoutParams( LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT, x, y, aX, aY );
     return addMarker( view, layoutParams );
@@ -80,6 +131,260 @@ public class MarkerLayout extends ViewGroup {
     removeView( view );
   }
 
+  /**
+   * Sets the adapter that supplies and binds Views for Marker records.  Views bound by a previous
+   * adapter are removed.
+   *
+   * @param markerAdapter The MarkerAdapter to use, or null to display no Marker records.
+   */
+  public void setMarkerAdapter( MarkerAdapter markerAdapter ) {
+    for( Marker marker : new ArrayList<>( mBoundViews.keySet() ) ) {
+      recycleView( marker );
+    }
+    for( ArrayList<View> recycledViews : mRecycledViews.values() ) {
+      for( View view : recycledViews ) {
+        removeView( view );
+      }
+    }
+    mRecycledViews.clear();
+    mMarkerAdapter = markerAdapter;
+    bindMarkers();
+  }
+
+  public MarkerAdapter getMarkerAdapter() {
+    return mMarkerAdapter;
+  }
+
+  /**
+   * Marker records within this distance of the viewport are bound to Views.  It should be at least
+   * as large as the largest marker View, so Views are bound before any part of them scrolls into view.
+   *
+   * @param pixels The margin around the viewport, in pixels.
+   */
+  public void setMarkerMargin( int pixels ) {
+    mMarkerMargin = pixels;
+    bindMarkers();
+  }
+
+  public int getMarkerMargin() {
+    return mMarkerMargin;
+  }
+
+  /**
+   * @param maximumRecycledViews The most hidden Views kept for reuse, per type; Views recycled beyond this are removed.
+   */
+  public void setMaximumRecycledViews( int maximumRecycledViews ) {
+    mMaximumRecycledViews = maximumRecycledViews;
+    trimRecycledViews();
+  }
+
+  /**
+   * Updates the visible area, which decides which Marker records are bound to Views.
+   * Coordinates are scaled pixels, as returned by getScrollX and getScrollY.
+   */
+  public void setViewport( int left, int top, int right, int bottom ) {
+    mViewport.set( left, top, right, bottom );
+    updateBoundMarkers();
+  }
+
+  /**
+   * Adds a Marker record; it is bound to a View from the MarkerAdapter while near the viewport.
+   *
+   * @param marker The Marker to add.
+   * @return The Marker added.
+   */
+  public Marker addMarker( Marker marker ) {
+    mMarkerIndex.insert( marker, marker.getX(), marker.getY(), marker.getX(), marker.getY() );
+    if( isInBoundRegion( marker ) ) {
+      bindView( marker );
+    }
+    return marker;
+  }
+
+  public void moveMarker( Marker marker, int x, int y ) {
+    if( !mMarkerIndex.remove( marker, marker.getX(), marker.getY(), marker.getX(), marker.getY() ) ) {
+      return;
+    }
+    marker.setPosition( x, y );
+    mMarkerIndex.insert( marker, x, y, x, y );
+    View view = mBoundViews.get( marker );
+    boolean isInBoundRegion = isInBoundRegion( marker );
+    if( view == null ) {
+      if( isInBoundRegion ) {
+        bindView( marker );
+      }
+    } else if( isInBoundRegion ) {
+      LayoutParams layoutParams = (LayoutParams) view.getLayoutParams();
+      layoutParams.x = x;
+      layoutParams.y = y;
+      requestLayout();
+    } else {
+      recycleView( marker );
+      trimRecycledViews();
+    }
+  }
+
+  public void removeMarker( Marker marker ) {
+    if( mMarkerIndex.remove( marker, marker.getX(), marker.getY(), marker.getX(), marker.getY() )
+      && mBoundViews.containsKey( marker ) ) {
+      recycleView( marker );
+      trimRecycledViews();
+    }
+  }
+
+  /**
+   * @return The number of Marker records added; most have no View at any one time.
+   */
+  public int getMarkerCount() {
+    return mMarkerIndex.size();
+  }
+
+  /**
+   * @return The Marker record a View is bound to, e.g., for a View passed to a MarkerTapListener, or null.
+   */
+  public Marker getMarker( View view ) {
+    ViewGroup.LayoutParams layoutParams = view.getLayoutParams();
+    if( layoutParams instanceof LayoutParams ) {
+      return ((LayoutParams) layoutParams).mMarker;
+    }
+    return null;
+  }
+
+  private boolean isInBoundRegion( Marker marker ) {
+    return mMarkerAdapter != null && mIsBoundRegionValid && mBoundRegion.contains( marker.getX(), marker.getY() );
+  }
+
+  /**
+   * Rebinds Marker records only when the viewport comes within half the marker margin of the
+   * region last bound, or the scale has doubled since, so small movements cost nothing.
+   */
+  private void updateBoundMarkers() {
+    if( mMarkerAdapter == null ) {
+      return;
+    }
+    if( !mIsBoundRegionValid || mScale > mBoundScale * 2 ) {
+      bindMarkers();
+      return;
+    }
+    getRegion( mMarkerMargin / 2f, mRegion );
+    if( !mBoundRegion.contains( mRegion.left, mRegion.top, mRegion.right, mRegion.bottom ) ) {
+      bindMarkers();
+    }
+  }
+
+  /**
+   * Computes the unscaled region within a margin of the viewport, clipped to the image if its size is known.
+   */
+  private void getRegion( float margin, RectF region ) {
+    float left = (mViewport.left - margin) / mScale;
+    float top = (mViewport.top - margin) / mScale;
+    float right = (mViewport.right + margin) / mScale;
+    float bottom = (mViewport.bottom + margin) / mScale;
+    if( mWidth > 0 && mHeight > 0 ) {
+      left = Math.max( left, 0 );
+      top = Math.max( top, 0 );
+      right = Math.min( right, mWidth );
+      bottom = Math.min( bottom, mHeight );
+    }
+    region.set( left, top, right, bottom );
+  }
+
+  /**
+   * Binds Views to the Marker records within the marker margin of the viewport, and recycles the
+   * Views of those that are not.
+   */
+  private void bindMarkers() {
+    if( mMarkerAdapter == null || mViewport.isEmpty() || mScale <= 0 ) {
+      mIsBoundRegionValid = false;
+      return;
+    }
+    getRegion( mMarkerMargin, mBoundRegion );
+    mBoundScale = mScale;
+    mIsBoundRegionValid = true;
+    mMarkersInRegion.clear();
+    mMarkerIndex.query( mBoundRegion.left, mBoundRegion.top, mBoundRegion.right, mBoundRegion.bottom, mMarkersInRegion );
+    mMarkersInRegionSet.clear();
+    mMarkersInRegionSet.addAll( mMarkersInRegion );
+    mMarkersToRecycle.clear();
+    for( Marker marker : mBoundViews.keySet() ) {
+      if( !mMarkersInRegionSet.contains( marker ) ) {
+        mMarkersToRecycle.add( marker );
+      }
+    }
+    // recycle first, so the Views released can be bound to the Markers coming into range
+    for( Marker marker : mMarkersToRecycle ) {
+      recycleView( marker );
+    }
+    for( Marker marker : mMarkersInRegion ) {
+      if( !mBoundViews.containsKey( marker ) ) {
+        bindView( marker );
+      }
+    }
+    // the pool is only trimmed once every Marker coming into range has taken a View from it
+    trimRecycledViews();
+  }
+
+  private void bindView( Marker marker ) {
+    View view = obtainView( marker.getType() );
+    ViewGroup.LayoutParams params = view.getLayoutParams();
+    LayoutParams layoutParams;
+    if( params instanceof LayoutParams ) {
+      layoutParams = (LayoutParams) params;
+    } else if( params != null ) {
+      layoutParams = new LayoutParams( params );
+    } else {
+      layoutParams = new LayoutParams( LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT );
+    }
+    layoutParams.x = marker.getX();
+    layoutParams.y = marker.getY();
+    layoutParams.anchorX = marker.getAnchorX();
+    layoutParams.anchorY = marker.getAnchorY();
+    layoutParams.mMarker = marker;
+    mMarkerAdapter.onBindView( view, marker );
+    mBoundViews.put( marker, view );
+    if( view.getParent() == null ) {
+      addView( view, layoutParams );
+    } else {
+      view.setLayoutParams( layoutParams );
+      view.setVisibility( VISIBLE );
+    }
+  }
+
+  private View obtainView( int type ) {
+    ArrayList<View> recycledViews = mRecycledViews.get( type );
+    if( recycledViews != null && !recycledViews.isEmpty() ) {
+      return recycledViews.remove( recycledViews.size() - 1 );
+    }
+    return mMarkerAdapter.onCreateView( this, type );
+  }
+
+  private void recycleView( Marker marker ) {
+    View view = mBoundViews.remove( marker );
+    if( view == null ) {
+      return;
+    }
+    mMarkerAdapter.onViewRecycled( view, marker );
+    ((LayoutParams) view.getLayoutParams()).mMarker = null;
+    ArrayList<View> recycledViews = mRecycledViews.get( marker.getType() );
+    if( recycledViews == null ) {
+      recycledViews = new ArrayList<>();
+      mRecycledViews.put( marker.getType(), recycledViews );
+    }
+    view.setVisibility( GONE );
+    recycledViews.add( view );
+  }
+
+  /**
+   * Removes recycled Views beyond the maximum kept for each type.
+   */
+  private void trimRecycledViews() {
+    for( ArrayList<View> recycledViews : mRecycledViews.values() ) {
+      while( recycledViews.size() > mMaximumRecycledViews ) {
+        removeView( recycledViews.remove( recycledViews.size() - 1 ) );
+      }
+    }
+  }
+
   public void setMarkerTapListener( MarkerTapListener markerTapListener ) {
     mMarkerTapListener = markerTapListener;
   }
@@ -87,6 +392,9 @@ public class MarkerLayout extends ViewGroup {
   private View getViewFromTap( int x, int y ) {
     for( int i = getChildCount() - 1; i >= 0; i-- ) {
       View child = getChildAt( i );
+      if( child.getVisibility() == GONE ) {
+        continue;
+      }
       LayoutParams layoutParams = (LayoutParams) child.getLayoutParams();
       Rect hitRect = layoutParams.getHitRect();
       if( hitRect.contains( x, y ) ) {
@@ -198,6 +506,8 @@ public class MarkerLayout extends ViewGroup {
 
     private Rect mHitRect;
 
+    private Marker mMarker;
+
     private Rect getHitRect() {
       if( mHitRect == null ) {
         mHitRect = new Rect();
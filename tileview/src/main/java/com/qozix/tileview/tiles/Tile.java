@@ -3,16 +3,26 @@ package com.qozix.tileview.tiles;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.Rect;
 import android.view.animation.AnimationUtils;
 
+import com.qozix.tileview.core.GridCell;
+import com.qozix.tileview.core.TileKey;
 import com.qozix.tileview.detail.DetailLevel;
 import com.qozix.tileview.graphics.BitmapProvider;
+import com.qozix.tileview.graphics.ContentKeyedBitmapProvider;
+import com.qozix.tileview.graphics.SampledBitmapProvider;
+import com.qozix.tileview.graphics.TilePostProcessor;
+import com.qozix.tileview.graphics.UniformColorBitmapProvider;
 
-public class Tile {
+public class Tile implements GridCell {
 
   private static final int DEFAULT_TRANSITION_DURATION = 200;
 
+  private static final Paint SAMPLED_BITMAP_PAINT = new Paint( Paint.FILTER_BITMAP_FLAG );
+
   private int mWidth;
   private int mHeight;
   private int mLeft;
@@ -36,6 +46,21 @@ public class Tile {
 
   private DetailLevel mDetailLevel;
 
+  private TileKey mTileKey;
+
+  private TileBitmapDeduplicator mBitmapDeduplicator;
+
+  private TilePostProcessor mTilePostProcessor;
+
+  private boolean mHasUniformColor;
+  private int mUniformColor;
+  private int mUniformWidth;
+  private int mUniformHeight;
+
+  private int mSampleSize = 1;
+  private Tile mSupersededTile;
+  private Rect mDestinationRect;
+
   public Tile( int column, int row, int width, int height, Object data, DetailLevel detailLevel ) {
     mRow = row;
     mColumn = column;
@@ -63,14 +88,26 @@ public class Tile {
     return mTop;
   }
 
+  @Override
   public int getRow() {
     return mRow;
   }
 
+  @Override
   public int getColumn() {
     return mColumn;
   }
 
+  /**
+   * @return An immutable key identifying this tile by detail level scale, column and row, safe to retain after the tile is destroyed.
+   */
+  public TileKey getKey() {
+    if( mTileKey == null ) {
+      mTileKey = new TileKey( mDetailLevel.getScale(), mColumn, mRow );
+    }
+    return mTileKey;
+  }
+
   public Object getData() {
     return mData;
   }
@@ -83,6 +120,75 @@ public class Tile {
     return mBitmap != null;
   }
 
+  /**
+   * @return True if the tile is a single solid colour, and is drawn as a filled rectangle rather than a bitmap.
+   */
+  public boolean hasUniformColor() {
+    return mHasUniformColor;
+  }
+
+  public int getUniformColor() {
+    return mUniformColor;
+  }
+
+  int getUniformWidth() {
+    return mUniformWidth;
+  }
+
+  int getUniformHeight() {
+    return mUniformHeight;
+  }
+
+  /**
+   * @return The factor by which the tile's bitmap is reduced from full resolution; 1 for a full resolution bitmap.
+   */
+  public int getSampleSize() {
+    return mSampleSize;
+  }
+
+  void setSampleSize( int sampleSize ) {
+    mSampleSize = Math.max( 1, sampleSize );
+  }
+
+  /**
+   * Creates an equal tile that will fetch a finer bitmap to replace this tile's reduced one.
+   */
+  Tile createUpgrade( int sampleSize ) {
+    Tile tile = new Tile( mColumn, mRow, mWidth, mHeight, mData, mDetailLevel );
+    tile.setSampleSize( sampleSize );
+    tile.mTilePostProcessor = mTilePostProcessor;
+    tile.mSupersededTile = this;
+    return tile;
+  }
+
+  /**
+   * @return The reduced resolution tile this tile was created to replace, or null.
+   */
+  Tile getSupersededTile() {
+    return mSupersededTile;
+  }
+
+  void clearSupersededTile() {
+    mSupersededTile = null;
+  }
+
+  /**
+   * @return True if the tile has something to draw, either a bitmap or a uniform colour.
+   */
+  public boolean hasContent() {
+    return mBitmap != null || mHasUniformColor;
+  }
+
+  /**
+   * @return The number of bytes used to store the tile's bitmap pixels, or 0 if there is no bitmap.
+   */
+  public int getBitmapByteCount() {
+    if( mBitmap == null || mBitmap.isRecycled() ) {
+      return 0;
+    }
+    return mBitmap.getRowBytes() * mBitmap.getHeight();
+  }
+
   public void setTransitionDuration( int transitionDuration ) {
     mTransitionDuration = transitionDuration;
   }
@@ -121,7 +227,8 @@ public class Tile {
       return null;
     }
     if( mPaint == null ) {
-      mPaint = new Paint();
+      // filtered like SAMPLED_BITMAP_PAINT, so a sampled tile doesn't pop when its fade ends
+      mPaint = new Paint( Paint.FILTER_BITMAP_FLAG );
     }
     float rendered = getRendered();
     int opacity = (int) (rendered * 255);
@@ -129,11 +236,165 @@ public class Tile {
     return mPaint;
   }
 
+  private Paint getUniformColorPaint() {
+    if( mPaint == null ) {
+      mPaint = new Paint( Paint.FILTER_BITMAP_FLAG );
+    }
+    mPaint.setColor( mUniformColor );
+    if( mTransitionsEnabled ) {
+      mPaint.setAlpha( (int) (Color.alpha( mUniformColor ) * getRendered()) );
+    }
+    return mPaint;
+  }
+
   void generateBitmap( Context context, BitmapProvider bitmapProvider ) {
-    if( mBitmap != null ) {
+    if( hasContent() ) {
       return;
     }
-    mBitmap = bitmapProvider.getBitmap( this, context );
+    if( bitmapProvider instanceof UniformColorBitmapProvider ) {
+      Integer uniformColor = ((UniformColorBitmapProvider) bitmapProvider).getUniformColor( this, context );
+      if( uniformColor != null ) {
+        setUniformColor( postProcessColor( uniformColor ), mWidth, mHeight );
+        return;
+      }
+    }
+    Object contentKey = null;
+    if( mSampleSize > 1 && !(bitmapProvider instanceof SampledBitmapProvider) ) {
+      mSampleSize = 1;
+    }
+    if( mSampleSize > 1 ) {
+      mBitmap = postProcess( ((SampledBitmapProvider) bitmapProvider).getBitmap( this, context, mSampleSize ) );
+      return;
+    }
+    if( mBitmapDeduplicator != null && bitmapProvider instanceof ContentKeyedBitmapProvider ) {
+      contentKey = ((ContentKeyedBitmapProvider) bitmapProvider).getContentKey( this, context );
+      if( contentKey != null ) {
+        if( mTilePostProcessor != null ) {
+          contentKey = new PostProcessedContentKey( contentKey, mTilePostProcessor );
+        }
+        mBitmap = mBitmapDeduplicator.acquire( contentKey );
+        if( mBitmap != null ) {
+          return;
+        }
+      }
+    }
+    Bitmap bitmap = postProcess( bitmapProvider.getBitmap( this, context ) );
+    if( bitmap != null && mBitmapDeduplicator != null ) {
+      bitmap = mBitmapDeduplicator.intern( contentKey, bitmap );
+    }
+    mBitmap = bitmap;
+  }
+
+  private Bitmap postProcess( Bitmap bitmap ) {
+    if( bitmap == null || mTilePostProcessor == null ) {
+      return bitmap;
+    }
+    Bitmap processed = mTilePostProcessor.process( bitmap );
+    if( processed != bitmap ) {
+      bitmap.recycle();
+    }
+    return processed;
+  }
+
+  private int postProcessColor( int color ) {
+    if( mTilePostProcessor == null ) {
+      return color;
+    }
+    Bitmap bitmap = Bitmap.createBitmap( 1, 1, Bitmap.Config.ARGB_8888 );
+    bitmap.eraseColor( color );
+    bitmap = postProcess( bitmap );
+    color = bitmap.getPixel( 0, 0 );
+    bitmap.recycle();
+    return color;
+  }
+
+  /**
+   * If every pixel of the bitmap is the same colour, keeps only the colour and releases the bitmap.
+   *
+   * @return True if the bitmap was elided.
+   */
+  boolean elideUniformBitmap() {
+    if( mBitmap == null || mBitmap.isRecycled() ) {
+      return false;
+    }
+    int width = mBitmap.getWidth();
+    int height = mBitmap.getHeight();
+    if( width == 0 || height == 0 ) {
+      return false;
+    }
+    int color = mBitmap.getPixel( 0, 0 );
+    if( mBitmap.getPixel( width - 1, 0 ) != color
+      || mBitmap.getPixel( 0, height - 1 ) != color
+      || mBitmap.getPixel( width - 1, height - 1 ) != color
+      || mBitmap.getPixel( width >> 1, height >> 1 ) != color ) {
+      return false;
+    }
+    // getPixel rather than getPixels, which Robolectric's Bitmap does not implement; the corners
+    // and centre above already reject almost every tile with an image
+    for( int y = 0; y < height; y++ ) {
+      for( int x = 0; x < width; x++ ) {
+        if( mBitmap.getPixel( x, y ) != color ) {
+          return false;
+        }
+      }
+    }
+    releaseBitmap( true );
+    setUniformColor( color, width * mSampleSize, height * mSampleSize );
+    return true;
+  }
+
+  private void setUniformColor( int color, int width, int height ) {
+    mHasUniformColor = true;
+    mUniformColor = color;
+    mUniformWidth = width;
+    mUniformHeight = height;
+  }
+
+  void setBitmapDeduplicator( TileBitmapDeduplicator bitmapDeduplicator ) {
+    mBitmapDeduplicator = bitmapDeduplicator;
+  }
+
+  /**
+   * @return The post processor this tile's bitmap is (or will be) transformed by, or null.
+   */
+  TilePostProcessor getTilePostProcessor() {
+    return mTilePostProcessor;
+  }
+
+  void setTilePostProcessor( TilePostProcessor tilePostProcessor ) {
+    mTilePostProcessor = tilePostProcessor;
+  }
+
+  /**
+   * Moves the bitmap generated for an equal tile instance to this one.
+   */
+  void takeBitmap( Tile source ) {
+    if( source.mHasUniformColor && !hasContent() ) {
+      mSampleSize = source.mSampleSize;
+      setUniformColor( source.mUniformColor, source.mUniformWidth, source.mUniformHeight );
+    }
+    if( mBitmap == null && !mHasUniformColor ) {
+      mBitmap = source.mBitmap;
+      mSampleSize = source.mSampleSize;
+      mBitmapDeduplicator = source.mBitmapDeduplicator;
+      source.mBitmap = null;
+    } else {
+      source.releaseBitmap( true );
+    }
+  }
+
+  /**
+   * Drops this tile's reference to its bitmap, recycling it if requested and no other tile shares it.
+   */
+  private void releaseBitmap( boolean shouldRecycle ) {
+    if( mBitmap == null ) {
+      return;
+    }
+    boolean unreferenced = mBitmapDeduplicator == null || mBitmapDeduplicator.release( mBitmap );
+    if( shouldRecycle && unreferenced && !mBitmap.isRecycled() ) {
+      mBitmap.recycle();
+    }
+    mBitmap = null;
   }
 
   void setParentTileCanvasView( TileCanvasView tileCanvasView ) {
@@ -145,10 +406,8 @@ public class Tile {
   }
 
   void destroy( boolean shouldRecycle, boolean shouldRemove ) {
-    if( shouldRecycle && mBitmap != null && !mBitmap.isRecycled() ) {
-      mBitmap.recycle();
-    }
-    mBitmap = null;
+    releaseBitmap( shouldRecycle );
+    mHasUniformColor = false;
     if( shouldRemove && mParentTileCanvasView != null ) {
       mParentTileCanvasView.removeTile( this );
     }
@@ -160,7 +419,18 @@ public class Tile {
    */
   boolean draw( Canvas canvas ) {
     if( mBitmap != null ) {
-      canvas.drawBitmap( mBitmap, mLeft, mTop, getPaint() );
+      if( mSampleSize > 1 ) {
+        if( mDestinationRect == null ) {
+          mDestinationRect = new Rect();
+        }
+        mDestinationRect.set( mLeft, mTop, mLeft + mBitmap.getWidth() * mSampleSize, mTop + mBitmap.getHeight() * mSampleSize );
+        Paint paint = getPaint();
+        canvas.drawBitmap( mBitmap, null, mDestinationRect, paint == null ? SAMPLED_BITMAP_PAINT : paint );
+      } else {
+        canvas.drawBitmap( mBitmap, mLeft, mTop, getPaint() );
+      }
+    } else if( mHasUniformColor ) {
+      canvas.drawRect( mLeft, mTop, mLeft + mUniformWidth, mTop + mUniformHeight, getUniformColorPaint() );
     }
     return getIsDirty();
   }
@@ -188,4 +458,32 @@ public class Tile {
     return false;
   }
 
+
+  /**
+   * Distinguishes shared bitmaps of the same content transformed by different post processors.
+   */
+  private static class PostProcessedContentKey {
+
+    private final Object mContentKey;
+    private final TilePostProcessor mTilePostProcessor;
+
+    PostProcessedContentKey( Object contentKey, TilePostProcessor tilePostProcessor ) {
+      mContentKey = contentKey;
+      mTilePostProcessor = tilePostProcessor;
+    }
+
+    @Override
+    public boolean equals( Object object ) {
+      if( !(object instanceof PostProcessedContentKey) ) {
+        return false;
+      }
+      PostProcessedContentKey other = (PostProcessedContentKey) object;
+      return mContentKey.equals( other.mContentKey ) && mTilePostProcessor.equals( other.mTilePostProcessor );
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * mContentKey.hashCode() + mTilePostProcessor.hashCode();
+    }
+  }
 }
@@ -0,0 +1,133 @@
+package com.qozix.tileview.tiles;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+
+import com.qozix.tileview.core.RefCountedRegistry;
+
+/**
+ * Lets tiles with identical content share a single, reference counted bitmap.  Content is
+ * identified by a key supplied by a ContentKeyedBitmapProvider or, if hashing is enabled, by
+ * a hash of the decoded pixels.  A shared bitmap is recycled only when the last tile using
+ * it is destroyed.
+ *
+ * Hashing works on decoded pixels rather than the encoded bytes a provider reads, because a
+ * BitmapProvider only hands back a Bitmap; the encoded stream never reaches the pipeline.  It
+ * saves memory but not decode time.  A provider that can identify duplicates before decoding
+ * (by url, file or a hash of the bytes it reads) should implement ContentKeyedBitmapProvider,
+ * which skips the fetch entirely.
+ */
+public class TileBitmapDeduplicator {
+
+  private final RefCountedRegistry<Object, Bitmap> mRegistry = new RefCountedRegistry<Object, Bitmap>() {
+    @Override
+    protected boolean isSameContent( Object key, Bitmap registered, Bitmap bitmap ) {
+      // a pixel hash can collide; compare the pixels before sharing
+      return !(key instanceof PixelHash)
+        || Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB_MR1
+        || registered.sameAs( bitmap );
+    }
+  };
+
+  private boolean mHashingEnabled = false;
+
+  public boolean getHashingEnabled() {
+    return mHashingEnabled;
+  }
+
+  /**
+   * Pixel hashing finds duplicates the provider doesn't know about (e.g., repeated blank tiles),
+   * at the cost of reading every pixel of each decoded bitmap on the worker thread.
+   *
+   * @param hashingEnabled True to hash decoded bitmaps that have no content key.
+   */
+  public void setHashingEnabled( boolean hashingEnabled ) {
+    mHashingEnabled = hashingEnabled;
+  }
+
+  /**
+   * @return The number of distinct bitmaps currently shared through this deduplicator.
+   */
+  public int getSharedBitmapCount() {
+    return mRegistry.getEntryCount();
+  }
+
+  /**
+   * @return The number of times a tile used an existing bitmap rather than one of its own.
+   */
+  public long getShareCount() {
+    return mRegistry.getShareCount();
+  }
+
+  Bitmap acquire( Object contentKey ) {
+    return mRegistry.acquire( contentKey );
+  }
+
+  /**
+   * Returns the bitmap a tile should keep; if an identical bitmap is already held, the one passed is recycled.
+   */
+  Bitmap intern( Object contentKey, Bitmap bitmap ) {
+    if( contentKey == null ) {
+      if( !mHashingEnabled ) {
+        return bitmap;
+      }
+      contentKey = new PixelHash( bitmap );
+    }
+    Bitmap shared = mRegistry.intern( contentKey, bitmap );
+    if( shared == bitmap ) {
+      return bitmap;
+    }
+    bitmap.recycle();
+    return shared;
+  }
+
+  /**
+   * @return True if no other tile references the bitmap, so it may be recycled.
+   */
+  boolean release( Bitmap bitmap ) {
+    return mRegistry.release( bitmap );
+  }
+
+  private static class PixelHash {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final int mWidth;
+    private final int mHeight;
+    private final Bitmap.Config mConfig;
+    private final long mHash;
+
+    PixelHash( Bitmap bitmap ) {
+      mWidth = bitmap.getWidth();
+      mHeight = bitmap.getHeight();
+      mConfig = bitmap.getConfig();
+      int[] row = new int[mWidth];
+      long hash = FNV_OFFSET_BASIS;
+      for( int y = 0; y < mHeight; y++ ) {
+        bitmap.getPixels( row, 0, mWidth, 0, y, mWidth, 1 );
+        for( int pixel : row ) {
+          hash = (hash ^ pixel) * FNV_PRIME;
+        }
+      }
+      mHash = hash;
+    }
+
+    @Override
+    public boolean equals( Object o ) {
+      if( o instanceof PixelHash ) {
+        PixelHash pixelHash = (PixelHash) o;
+        return mHash == pixelHash.mHash
+          && mWidth == pixelHash.mWidth
+          && mHeight == pixelHash.mHeight
+          && mConfig == pixelHash.mConfig;
+      }
+      return false;
+    }
+
+    @Override
+    public int hashCode() {
+      return (int) (mHash ^ (mHash >>> 32));
+    }
+  }
+}
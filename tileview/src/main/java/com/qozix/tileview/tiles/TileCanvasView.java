@@ -2,9 +2,14 @@ package com.qozix.tileview.tiles;
 
 import android.content.Context;
 import android.graphics.Canvas;
+import android.graphics.Paint;
 import android.view.View;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 public class TileCanvasView extends View {
@@ -17,6 +22,9 @@ public class TileCanvasView extends View {
 
   private boolean mHasHadPendingUpdatesSinceLastCompleteDraw;
 
+  private List<Tile> mDrawOrder = new ArrayList<>();
+  private Paint mUniformColorPaint = new Paint();
+
   public TileCanvasView( Context context ) {
     super( context );
   }
@@ -63,18 +71,63 @@ public class TileCanvasView extends View {
   }
 
   /**
-   * Draw tile bitmaps into the surface canvas displayed by this View.
+   * Draw tile bitmaps into the surface canvas displayed by this View.  Tiles are drawn in row-major
+   * order; horizontally adjacent solid-coloured tiles of the same colour are merged into a single
+   * rectangle, drawn in the place of the tiles it covers.
    * @param canvas The Canvas instance to draw tile bitmaps into.
    * @return True if there are incomplete tile transitions pending, false otherwise.
    */
   private boolean drawTiles( Canvas canvas ) {
     boolean pending = false;
-    for( Tile tile : mTiles ) {
+    mDrawOrder.addAll( mTiles );
+    Collections.sort( mDrawOrder, DRAW_ORDER_COMPARATOR );
+    Tile first = null;
+    int right = 0;
+    for( Tile tile : mDrawOrder ) {
+      if( tile.hasUniformColor() && !tile.getIsDirty() ) {
+        if( first != null
+          && tile.getRow() == first.getRow()
+          && tile.getLeft() == right
+          && tile.getUniformColor() == first.getUniformColor()
+          && tile.getUniformHeight() == first.getUniformHeight() ) {
+          right += tile.getUniformWidth();
+          continue;
+        }
+        if( first != null ) {
+          fillUniformRun( canvas, first, right );
+        }
+        first = tile;
+        right = tile.getLeft() + tile.getUniformWidth();
+        continue;
+      }
+      if( first != null ) {
+        fillUniformRun( canvas, first, right );
+        first = null;
+      }
       pending = tile.draw( canvas ) || pending;
     }
+    if( first != null ) {
+      fillUniformRun( canvas, first, right );
+    }
+    mDrawOrder.clear();
     return pending;
   }
 
+  private void fillUniformRun( Canvas canvas, Tile first, int right ) {
+    mUniformColorPaint.setColor( first.getUniformColor() );
+    canvas.drawRect( first.getLeft(), first.getTop(), right, first.getTop() + first.getUniformHeight(), mUniformColorPaint );
+  }
+
+  private static final Comparator<Tile> DRAW_ORDER_COMPARATOR = new Comparator<Tile>() {
+    @Override
+    public int compare( Tile lhs, Tile rhs ) {
+      if( lhs.getRow() != rhs.getRow() ) {
+        return lhs.getRow() < rhs.getRow() ? -1 : 1;
+      }
+      return lhs.getColumn() < rhs.getColumn() ? -1 : (lhs.getColumn() == rhs.getColumn() ? 0 : 1);
+    }
+  };
+
   /**
    * During a draw operation, if any tiles are transitioning in, the operation is considered pending,
    * and another redraw is requested immediately (via invalidate).
@@ -4,26 +4,51 @@ import android.content.Context;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
-
+import android.os.SystemClock;
+import android.view.WindowManager;
+
+import com.qozix.tileview.core.CacheAccounting;
+import com.qozix.tileview.core.CenterFirstRenderQueuePolicy;
+import com.qozix.tileview.core.RenderMetrics;
+import com.qozix.tileview.core.RenderQueuePolicy;
+import com.qozix.tileview.core.RenderSet;
+import com.qozix.tileview.core.TileFailureTracker;
+import com.qozix.tileview.core.TileGrid;
+import com.qozix.tileview.core.TileKey;
 import com.qozix.tileview.detail.DetailLevel;
 import com.qozix.tileview.graphics.BitmapProvider;
 import com.qozix.tileview.graphics.BitmapProviderAssets;
+import com.qozix.tileview.graphics.BitmapProviderLayered;
+import com.qozix.tileview.graphics.SampledBitmapProvider;
+import com.qozix.tileview.graphics.TilePostProcessor;
 import com.qozix.tileview.widgets.ScalingLayout;
 
 import java.lang.ref.WeakReference;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 
 public class TileCanvasViewGroup extends ScalingLayout implements TileCanvasView.TileCanvasDrawListener {
 
-  private static final int RENDER_FLAG = 1;
+  private static final int RETRY_FLAG = 2;
+  private static final int UPGRADE_FLAG = 3;
+
+  private static final float DEFAULT_REFRESH_RATE = 60;
+  private static final long MAXIMUM_FRAME_GAP = 250;
 
+  /**
+   * Render buffers bound the interval between render passes during motion; see setRenderBuffer.
+   */
   public static final int DEFAULT_RENDER_BUFFER = 250;
   public static final int FAST_RENDER_BUFFER = 15;
 
   private static final int DEFAULT_TRANSITION_DURATION = 200;
 
+  public static final int DEFAULT_PREVIEW_SAMPLE_SIZE = 4;
+  public static final int DEFAULT_UPGRADE_DELAY = 300;
+
   private BitmapProvider mBitmapProvider;
   private HashMap<Float, TileCanvasView> mTileCanvasViewHashMap = new HashMap<>();
 
@@ -35,8 +60,16 @@ public class TileCanvasViewGroup extends ScalingLayout implements TileCanvasView
   private boolean mRenderIsCancelled = false;
   private boolean mRenderIsSuppressed = false;
   private boolean mIsRendering = false;
+  private boolean mIsRenderCompletePending = false;
+  private boolean mShouldRenderUrgently = false;
 
   private boolean mShouldRecycleBitmaps = true;
+  private boolean mShouldElideUniformTiles = false;
+
+  private boolean mShouldRenderProgressively = false;
+  private int mPreviewSampleSize = DEFAULT_PREVIEW_SAMPLE_SIZE;
+  private boolean mShouldDecodeAtDisplayScale = true;
+  private boolean mHasReducedTiles = false;
 
   private boolean mTransitionsEnabled = true;
   private int mTransitionDuration = DEFAULT_TRANSITION_DURATION;
@@ -44,19 +77,32 @@ public class TileCanvasViewGroup extends ScalingLayout implements TileCanvasView
   private TileRenderThrottleHandler mTileRenderThrottleHandler;
   private TileRenderListener mTileRenderListener;
 
-  private int mRenderBuffer = DEFAULT_RENDER_BUFFER;
+  private TileRenderScheduler mTileRenderScheduler;
 
   private TileRenderPoolExecutor mTileRenderPoolExecutor;
+  private TileRenderClient mTileRenderClient;
+  private TileRenderEngine mTileRenderEngine;
+
+  private long mLastAnimationFrame;
+  private float mFrameInterval = 1000 / DEFAULT_REFRESH_RATE;
 
-  private Set<Tile> mTilesInCurrentViewport = new HashSet<>();
-  private Set<Tile> mTilesNotInCurrentViewport = new HashSet<>();
-  private Set<Tile> mTilesAlreadyRendered = new HashSet<>();
+  private RenderQueuePolicy<Tile> mRenderQueuePolicy = new CenterFirstRenderQueuePolicy<>();
+
+  private RenderSet<Tile> mRenderSet = new RenderSet<>();
+  private CacheAccounting<Tile> mCacheAccounting = new CacheAccounting<>();
+  private RenderMetrics mRenderMetrics = new RenderMetrics();
+  private TileFailureTracker<TileKey> mTileFailureTracker = new TileFailureTracker<>();
+  private TileBitmapDeduplicator mTileBitmapDeduplicator = new TileBitmapDeduplicator();
+  private TilePostProcessor mTilePostProcessor;
 
   public TileCanvasViewGroup( Context context ) {
     super( context );
     setWillNotDraw( false );
     mTileRenderThrottleHandler = new TileRenderThrottleHandler( this );
+    mTileRenderScheduler = new TileRenderScheduler( this );
+    mTileRenderScheduler.setMinimumMotionInterval( DEFAULT_RENDER_BUFFER );
     mTileRenderPoolExecutor = new TileRenderPoolExecutor();
+    mTileRenderClient = new TileRenderClient( this );
   }
 
   public boolean getTransitionsEnabled() {
@@ -84,6 +130,7 @@ public class TileCanvasViewGroup extends ScalingLayout implements TileCanvasView
 
   public void setBitmapProvider( BitmapProvider bitmapProvider ) {
     mBitmapProvider = bitmapProvider;
+    mTileFailureTracker.clear();
   }
 
   public void setTileRenderListener( TileRenderListener tileRenderListener ) {
@@ -91,11 +138,53 @@ public class TileCanvasViewGroup extends ScalingLayout implements TileCanvasView
   }
 
   public int getRenderBuffer() {
-    return mRenderBuffer;
+    return (int) mTileRenderScheduler.getMinimumMotionInterval();
   }
 
+  /**
+   * Sets the shortest interval between render passes while the viewport is moving; faster motion
+   * lengthens it.  Passes requested while idle, or when motion ends, start at the next frame.
+   *
+   * @param renderBuffer The shortest interval, in milliseconds, between render passes during motion.
+   */
   public void setRenderBuffer( int renderBuffer ) {
-    mRenderBuffer = renderBuffer;
+    mTileRenderScheduler.setMinimumMotionInterval( renderBuffer );
+  }
+
+  public boolean getShouldRenderDuringMotion() {
+    return mTileRenderScheduler.getShouldRenderDuringMotion();
+  }
+
+  /**
+   * @param shouldRenderDuringMotion True to render passes, rate limited, while the viewport is moving;
+   *                                 false to wait for the motion to end.
+   */
+  public void setShouldRenderDuringMotion( boolean shouldRenderDuringMotion ) {
+    mTileRenderScheduler.setShouldRenderDuringMotion( shouldRenderDuringMotion );
+  }
+
+  /**
+   * Reports that the viewport moved, so render passes are paced by its velocity.
+   *
+   * @param dx Horizontal distance moved since the last report, in pixels.
+   * @param dy Vertical distance moved since the last report, in pixels.
+   */
+  public void onMotion( int dx, int dy ) {
+    mTileRenderScheduler.onMotion( dx, dy );
+  }
+
+  /**
+   * Reports that a pan or zoom ended, so a pending render pass starts at the next frame.
+   */
+  public void onMotionEnd() {
+    mTileRenderScheduler.onMotionEnd();
+  }
+
+  /**
+   * Drops a render pass that was requested but has not started.
+   */
+  public void cancelScheduledRender() {
+    mTileRenderScheduler.cancel();
   }
 
   public boolean getShouldRecycleBitmaps() {
@@ -106,6 +195,273 @@ public class TileCanvasViewGroup extends ScalingLayout implements TileCanvasView
     mShouldRecycleBitmaps = shouldRecycleBitmaps;
   }
 
+  public boolean getShouldElideUniformTiles() {
+    return mShouldElideUniformTiles;
+  }
+
+  /**
+   * When enabled, each decoded bitmap is checked (on the worker thread) for a single solid
+   * colour; uniform tiles keep only the colour, recycle the bitmap, and are drawn as filled
+   * rectangles, with runs of adjacent same-coloured tiles merged into one.  Disabled by default:
+   * a few pixels are probed before any full scan, but the probe is still wasted work for imagery
+   * that is rarely solid.
+   *
+   * @param shouldElideUniformTiles True to replace uniform bitmaps with colour fills.
+   */
+  public void setShouldElideUniformTiles( boolean shouldElideUniformTiles ) {
+    mShouldElideUniformTiles = shouldElideUniformTiles;
+  }
+
+  public TilePostProcessor getTilePostProcessor() {
+    return mTilePostProcessor;
+  }
+
+  /**
+   * Sets a transform applied once to each tile's bitmap on the render thread, e.g., a night
+   * mode colour matrix, in place of a ColorFilter evaluated every frame.  Tiles in the viewport
+   * are re-rendered with the new transform, nearest the center first, each replacing its
+   * predecessor as it arrives.
+   *
+   * @param tilePostProcessor The TilePostProcessor to apply, or null for none.
+   */
+  public void setTilePostProcessor( TilePostProcessor tilePostProcessor ) {
+    if( tilePostProcessor == mTilePostProcessor ) {
+      return;
+    }
+    mTilePostProcessor = tilePostProcessor;
+    // tiles queued or in flight under the previous post processor are discarded when they
+    // finish, so the next pass must queue them again even if the viewport has not moved
+    if( mDetailLevelToRender != null ) {
+      mDetailLevelToRender.invalidate();
+    }
+    requestRender();
+  }
+
+  public boolean getShouldRenderProgressively() {
+    return mShouldRenderProgressively;
+  }
+
+  /**
+   * When enabled, and the BitmapProvider is a SampledBitmapProvider, tiles are first decoded at
+   * reduced resolution (see setPreviewSampleSize) and drawn scaled up, which is much faster
+   * during quick navigation.  Once no render has been requested for DEFAULT_UPGRADE_DELAY
+   * milliseconds, tiles still in the viewport are decoded again at full resolution, at lower
+   * priority; tiles that have left the viewport by then are never upgraded.
+   *
+   * @param shouldRenderProgressively True to decode tiles in two passes.
+   */
+  public void setShouldRenderProgressively( boolean shouldRenderProgressively ) {
+    mShouldRenderProgressively = shouldRenderProgressively;
+  }
+
+  public int getPreviewSampleSize() {
+    return mPreviewSampleSize;
+  }
+
+  /**
+   * @param previewSampleSize The reduction (a power of 2) used for the first pass of progressive rendering.
+   */
+  public void setPreviewSampleSize( int previewSampleSize ) {
+    mPreviewSampleSize = previewSampleSize;
+  }
+
+  public boolean getShouldDecodeAtDisplayScale() {
+    return mShouldDecodeAtDisplayScale;
+  }
+
+  /**
+   * When enabled, and the BitmapProvider is a SampledBitmapProvider, tiles of a detail level
+   * displayed below its own scale (e.g., while the level is locked during a pinch out) are
+   * requested with the sample size matching DetailLevel.getRelativeScale, rather than at full
+   * resolution.  Reduced tiles are replaced with finer ones once the viewport settles.
+   *
+   * The default value is true.
+   *
+   * @param shouldDecodeAtDisplayScale True to decode tiles no finer than they are displayed.
+   */
+  public void setShouldDecodeAtDisplayScale( boolean shouldDecodeAtDisplayScale ) {
+    mShouldDecodeAtDisplayScale = shouldDecodeAtDisplayScale;
+  }
+
+  public RenderQueuePolicy<Tile> getRenderQueuePolicy() {
+    return mRenderQueuePolicy;
+  }
+
+  /**
+   * Sets the policy that decides in which order tiles needing a render are handed to workers.
+   * The default submits tiles nearest the center of the viewport first.
+   *
+   * @param renderQueuePolicy The RenderQueuePolicy to use.
+   */
+  public void setRenderQueuePolicy( RenderQueuePolicy<Tile> renderQueuePolicy ) {
+    mRenderQueuePolicy = renderQueuePolicy;
+  }
+
+  /**
+   * @return The number of bytes held by the bitmaps of tiles currently rendered.
+   */
+  public long getRenderedByteCount() {
+    return mCacheAccounting.getByteCount();
+  }
+
+  /**
+   * @return The number of tiles currently rendered.
+   */
+  public int getRenderedTileCount() {
+    return mCacheAccounting.getEntryCount();
+  }
+
+  /**
+   * Returns the counters this TileCanvasViewGroup updates as tiles are reconciled, decoded and
+   * committed.  Useful for profiling and regression testing.
+   *
+   * @return The RenderMetrics instance.
+   */
+  public RenderMetrics getRenderMetrics() {
+    return mRenderMetrics;
+  }
+
+  /**
+   * Returns the tracker that remembers tiles the BitmapProvider failed to supply.  Tiles that
+   * failed transiently are retried with exponential backoff; tiles that failed permanently (or
+   * too many times in a row) are not requested again until the tracker is cleared or the
+   * BitmapProvider is replaced.  Use it to tune backoff and negative cache size, or to read
+   * failure counters.
+   *
+   * @return The TileFailureTracker instance.
+   */
+  public TileFailureTracker<TileKey> getTileFailureTracker() {
+    return mTileFailureTracker;
+  }
+
+  /**
+   * Returns the deduplicator that lets tiles with identical content share one bitmap.  Tiles
+   * are matched by content key when the BitmapProvider is a ContentKeyedBitmapProvider, and
+   * optionally by pixel hash.
+   *
+   * @return The TileBitmapDeduplicator instance.
+   */
+  public TileBitmapDeduplicator getTileBitmapDeduplicator() {
+    return mTileBitmapDeduplicator;
+  }
+
+  public TileRenderEngine getTileRenderEngine() {
+    return mTileRenderEngine;
+  }
+
+  /**
+   * Renders tiles with an engine shared with other TileCanvasViewGroups, using its executor,
+   * bitmap deduplicator and memory budget instead of this group's own.  Tiles already rendered
+   * are kept.
+   *
+   * @param tileRenderEngine The engine to share, or null to render with a private executor.
+   */
+  public void setTileRenderEngine( TileRenderEngine tileRenderEngine ) {
+    if( tileRenderEngine == mTileRenderEngine ) {
+      return;
+    }
+    mTileRenderPoolExecutor.cancel( this, true );
+    if( mTileRenderEngine == null ) {
+      mTileRenderPoolExecutor.shutdown();
+    } else {
+      mTileRenderEngine.unregister( this );
+    }
+    // in-flight fetches on the previous executor can't be joined from the new one
+    TileRenderClient previousTileRenderClient = mTileRenderClient;
+    mTileRenderClient = new TileRenderClient( this );
+    mTileRenderClient.setRenderPriority( previousTileRenderClient.getRenderPriority() );
+    mTileRenderClient.getTileCommitQueue().setFrameBudget( previousTileRenderClient.getTileCommitQueue().getFrameBudget() );
+    mTileRenderEngine = tileRenderEngine;
+    if( tileRenderEngine == null ) {
+      mTileRenderPoolExecutor = new TileRenderPoolExecutor();
+      mTileBitmapDeduplicator = new TileBitmapDeduplicator();
+    } else {
+      mTileRenderPoolExecutor = tileRenderEngine.getTileRenderPoolExecutor();
+      mTileBitmapDeduplicator = tileRenderEngine.getTileBitmapDeduplicator();
+      tileRenderEngine.register( this );
+    }
+    requestRender();
+  }
+
+  public int getRenderPriority() {
+    return mTileRenderClient.getRenderPriority();
+  }
+
+  /**
+   * Sets this group's share of a TileRenderEngine's workers, relative to the other groups using
+   * it: a group with priority 2 has tiles started twice as often as one with priority 1, and
+   * releases memory after it when over budget.  Has no effect without a shared engine.
+   *
+   * @param renderPriority The priority, at least 1; the default is 1.
+   */
+  public void setRenderPriority( int renderPriority ) {
+    mTileRenderClient.setRenderPriority( renderPriority );
+  }
+
+  /**
+   * Call on each frame of an animation (e.g., a fling), so frames the UI thread misses can be
+   * detected and rendering throttled in favour of it.
+   */
+  public void onAnimationFrame() {
+    long now = SystemClock.uptimeMillis();
+    if( mLastAnimationFrame > 0 ) {
+      long interval = now - mLastAnimationFrame;
+      // longer gaps are pauses between animations rather than dropped frames
+      if( interval > mFrameInterval * 1.5f && interval < MAXIMUM_FRAME_GAP ) {
+        mTileRenderPoolExecutor.recordDroppedFrames( Math.round( interval / mFrameInterval ) - 1 );
+      }
+    } else {
+      updateFrameInterval();
+    }
+    mLastAnimationFrame = now;
+  }
+
+  /**
+   * Reads the display's refresh rate at the start of each animation, since it differs between
+   * devices and may change while the app runs.
+   */
+  private void updateFrameInterval() {
+    WindowManager windowManager = (WindowManager) getContext().getSystemService( Context.WINDOW_SERVICE );
+    if( windowManager == null ) {
+      return;
+    }
+    float refreshRate = windowManager.getDefaultDisplay().getRefreshRate();
+    mFrameInterval = 1000 / (refreshRate > 0 ? refreshRate : DEFAULT_REFRESH_RATE);
+  }
+
+  /**
+   * Call when an animation reported with onAnimationFrame ends.
+   */
+  public void onAnimationEnd() {
+    mLastAnimationFrame = 0;
+  }
+
+  public long getCommitFrameBudget() {
+    return mTileRenderClient.getTileCommitQueue().getFrameBudget();
+  }
+
+  /**
+   * Finished tiles are added to the canvas in batches, once per frame; this limits the time
+   * each frame may spend on them.  Tiles left over are added in the next frame.
+   *
+   * @param frameBudget The time in milliseconds; the default is 4.
+   */
+  public void setCommitFrameBudget( long frameBudget ) {
+    mTileRenderClient.getTileCommitQueue().setFrameBudget( frameBudget );
+  }
+
+  TileRenderClient getTileRenderClient() {
+    return mTileRenderClient;
+  }
+
+  /**
+   * Releases tiles that are not visible: those outside the viewport and those of detail levels
+   * no longer current.
+   */
+  public void trimMemory() {
+    cleanup();
+  }
+
 
   /**
    * The layout dimensions supplied to this ViewGroup will be exactly as large as the scaled
@@ -114,17 +470,54 @@ public class TileCanvasViewGroup extends ScalingLayout implements TileCanvasView
    * large as the smallest size the TileCanvasView might be.
    */
 
+  /**
+   * Starts a render pass now, rather than at the next frame, and decodes its tiles ahead of any
+   * work already queued, at the default thread priority.  Intended for the first pass after the
+   * viewport is known, when nothing is on screen yet.
+   */
+  public void renderImmediately() {
+    mRenderIsCancelled = false;
+    mRenderIsSuppressed = false;
+    mTileRenderScheduler.cancel();
+    if( mDetailLevelToRender == null ) {
+      return;
+    }
+    mShouldRenderUrgently = true;
+    try {
+      renderTiles();
+    } finally {
+      mShouldRenderUrgently = false;
+    }
+  }
+
+  /**
+   * @return True if the current viewport has tiles, and all of them have been rendered.
+   */
+  public boolean isViewportRendered() {
+    return !mRenderSet.getTilesInCurrentViewport().isEmpty() && mRenderSet.getRenderSet().isEmpty();
+  }
+
   public void requestRender() {
     mRenderIsCancelled = false;
     mRenderIsSuppressed = false;
     if( mDetailLevelToRender == null ) {
       return;
     }
-    if( !mTileRenderThrottleHandler.hasMessages( RENDER_FLAG ) ) {
-      mTileRenderThrottleHandler.sendEmptyMessageDelayed( RENDER_FLAG, mRenderBuffer );
+    mTileRenderScheduler.request();
+    if( mHasReducedTiles ) {
+      scheduleUpgrade();
     }
   }
 
+  /**
+   * Upgrades wait until no render has been requested for DEFAULT_UPGRADE_DELAY, so each request
+   * pushes them back.
+   */
+  private void scheduleUpgrade() {
+    mTileRenderThrottleHandler.removeMessages( UPGRADE_FLAG );
+    mTileRenderThrottleHandler.sendEmptyMessageDelayed( UPGRADE_FLAG, DEFAULT_UPGRADE_DELAY );
+  }
+
   /**
    * Prevent new render tasks from starting, attempts to interrupt ongoing tasks, and will
    * prevent queued tiles from begin decoded or rendered.
@@ -132,7 +525,7 @@ public class TileCanvasViewGroup extends ScalingLayout implements TileCanvasView
   public void cancelRender() {
     mRenderIsCancelled = true;
     if( mTileRenderPoolExecutor != null ){
-      mTileRenderPoolExecutor.cancel();
+      mTileRenderPoolExecutor.cancel( this );
     }
   }
 
@@ -165,8 +558,10 @@ public class TileCanvasViewGroup extends ScalingLayout implements TileCanvasView
   public void clear() {
     suppressRender();
     cancelRender();
-    mTilesInCurrentViewport.clear();
-    mCurrentTileCanvasView.clearTiles( mShouldRecycleBitmaps );
+    mRenderSet.clearViewport();
+    if( mCurrentTileCanvasView != null ) {
+      mCurrentTileCanvasView.clearTiles( mShouldRecycleBitmaps );
+    }
   }
 
   /**
@@ -174,23 +569,23 @@ public class TileCanvasViewGroup extends ScalingLayout implements TileCanvasView
    * @param recentlyComputedVisibleTileSet Tile Set that should be visible, based on DetailLevel inspection of viewport size and position.
    */
   public void reconcile( Set<Tile> recentlyComputedVisibleTileSet ){
-    for( Tile tile : mTilesInCurrentViewport ) {
-      if( !recentlyComputedVisibleTileSet.contains( tile ) ) {
-        mTilesNotInCurrentViewport.add( tile );
-      }
-    }
-    mTilesInCurrentViewport.addAll( recentlyComputedVisibleTileSet );
-    mTilesInCurrentViewport.removeAll( mTilesNotInCurrentViewport );
-    mTilesNotInCurrentViewport.clear();
+    mRenderSet.reconcile( recentlyComputedVisibleTileSet );
   }
 
-  private float getCurrentDetailLevelScale() {
+  float getCurrentDetailLevelScale() {
     if( mDetailLevelToRender != null ) {
       return mDetailLevelToRender.getScale();
     }
     return 1;
   }
 
+  /**
+   * @return The tiles of the current detail level that intersect the viewport at the last render pass.
+   */
+  Set<Tile> getTilesInCurrentViewport() {
+    return mRenderSet.getTilesInCurrentViewport();
+  }
+
   private TileCanvasView getCurrentTileCanvasView() {
     float levelScale = getCurrentDetailLevelScale();
     if( mTileCanvasViewHashMap.containsKey( levelScale ) ) {
@@ -211,22 +606,24 @@ public class TileCanvasViewGroup extends ScalingLayout implements TileCanvasView
   }
 
   private void beginRenderTask() {
+    long start = System.nanoTime();
     boolean changed = mDetailLevelToRender.computeCurrentState();
     if( !changed && mDetailLevelToRender.equals( mLastRenderedDetailLevel ) ) {
       return;
     }
     Set<Tile> visibleTiles = mDetailLevelToRender.getVisibleTilesFromLastViewportComputation();
     reconcile( visibleTiles );
+    mRenderMetrics.recordReconcile( System.nanoTime() - start );
     if( mTileRenderPoolExecutor != null ){
-      mTileRenderPoolExecutor.queue( this, getRenderSet() );
+      mTileRenderPoolExecutor.queue( this, getRenderSet(), mShouldRenderUrgently );
+      reprocessTiles();
     }
   }
 
   private void clearOutOfViewportTiles(){
-    Set<Tile> condemned = new HashSet<>( mTilesAlreadyRendered );
-    condemned.removeAll( mTilesInCurrentViewport );
-    mTilesAlreadyRendered.removeAll( condemned );
+    Set<Tile> condemned = mRenderSet.condemnOutOfViewport();
     for( Tile tile : condemned ) {
+      mCacheAccounting.remove( tile );
       tile.destroy( mShouldRecycleBitmaps );
     }
     mCurrentTileCanvasView.invalidate();
@@ -262,26 +659,158 @@ public class TileCanvasViewGroup extends ScalingLayout implements TileCanvasView
   }
 
   Set<Tile> getRenderSet() {
-    Set<Tile> renderSet = new HashSet<>( mTilesInCurrentViewport );
-    renderSet.removeAll( mTilesAlreadyRendered );
+    Set<Tile> renderSet = mRenderSet.getRenderSet();
+    long now = SystemClock.uptimeMillis();
+    Iterator<Tile> iterator = renderSet.iterator();
+    int sampleSize = getInitialSampleSize();
+    if( sampleSize > 1 && !renderSet.isEmpty() ) {
+      // only progressive or reduced renders leave anything to upgrade
+      mHasReducedTiles = true;
+      scheduleUpgrade();
+    }
+    while( iterator.hasNext() ) {
+      Tile tile = iterator.next();
+      if( !mTileFailureTracker.shouldRequest( tile.getKey(), now ) ) {
+        iterator.remove();
+      } else if( !tile.hasContent() ) {
+        tile.setSampleSize( sampleSize );
+      }
+    }
     return renderSet;
   }
 
+  private int getInitialSampleSize() {
+    int sampleSize = getTargetSampleSize();
+    if( mShouldRenderProgressively && getBitmapProvider() instanceof SampledBitmapProvider ) {
+      return Math.max( sampleSize, mPreviewSampleSize );
+    }
+    return sampleSize;
+  }
+
+  /**
+   * @return The sample size at which tiles of the current detail level should finally be held, given the current scale.
+   */
+  private int getTargetSampleSize() {
+    if( !mShouldDecodeAtDisplayScale
+      || mDetailLevelToRender == null
+      || !(getBitmapProvider() instanceof SampledBitmapProvider) ) {
+      return 1;
+    }
+    return TileGrid.computeSampleSize( mDetailLevelToRender.getRelativeScale() );
+  }
+
+  /**
+   * Queues finer replacements for reduced resolution tiles still in the viewport.
+   */
+  void upgradeTiles() {
+    if( mRenderIsCancelled || mRenderIsSuppressed || mCurrentTileCanvasView == null ) {
+      return;
+    }
+    long now = SystemClock.uptimeMillis();
+    int sampleSize = getTargetSampleSize();
+    Set<Tile> upgradeSet = new HashSet<>();
+    boolean hasReducedTiles = false;
+    for( Tile tile : mCurrentTileCanvasView.getTiles() ) {
+      if( tile.getSampleSize() <= sampleSize ) {
+        continue;
+      }
+      hasReducedTiles = true;
+      if( mRenderSet.isInViewport( tile )
+        && mTileFailureTracker.shouldRequest( tile.getKey(), now ) ) {
+        upgradeSet.add( tile.createUpgrade( sampleSize ) );
+      }
+    }
+    mHasReducedTiles = hasReducedTiles;
+    if( !upgradeSet.isEmpty() && mTileRenderPoolExecutor != null ) {
+      mTileRenderPoolExecutor.queueUpgrades( this, upgradeSet );
+    }
+  }
+
+  /**
+   * Queues replacements for tiles in the viewport that were transformed by a different post processor.
+   * Called after the render set is queued, which would otherwise cancel them while still waiting.
+   */
+  private void reprocessTiles() {
+    if( mCurrentTileCanvasView == null || mTileRenderPoolExecutor == null ) {
+      return;
+    }
+    Set<Tile> reprocessSet = new HashSet<>();
+    for( Tile tile : mCurrentTileCanvasView.getTiles() ) {
+      if( tile.getTilePostProcessor() != mTilePostProcessor && mRenderSet.isInViewport( tile ) ) {
+        reprocessSet.add( tile.createUpgrade( tile.getSampleSize() ) );
+      }
+    }
+    if( !reprocessSet.isEmpty() ) {
+      mTileRenderPoolExecutor.queueUpgrades( this, reprocessSet );
+    }
+  }
+
+  private void scheduleRetry() {
+    long delay = mTileFailureTracker.getNextRetryDelay( SystemClock.uptimeMillis() );
+    if( delay >= 0 && !mTileRenderThrottleHandler.hasMessages( RETRY_FLAG ) ) {
+      mTileRenderThrottleHandler.sendEmptyMessageDelayed( RETRY_FLAG, delay );
+    }
+  }
+
+  void retryTiles() {
+    if( mDetailLevelToRender != null ) {
+      mDetailLevelToRender.invalidate();
+      requestRender();
+    }
+  }
+
+  List<Tile> prioritize( Set<Tile> renderSet ) {
+    return mRenderQueuePolicy.prioritize( renderSet, mDetailLevelToRender == null ? null : mDetailLevelToRender.getLastComputedTileRange() );
+  }
+
   void generateTileBitmap( Tile tile ) {
     tile.generateBitmap( getContext(), getBitmapProvider() );
   }
 
   void addTileToCurrentTileCanvasView( final Tile tile ) {
-    if( !mTilesInCurrentViewport.contains( tile ) ) {
+    if( !mRenderSet.isInViewport( tile ) ) {
       return;
     }
-    tile.setTransitionsEnabled( mTransitionsEnabled );
+    if( tile.getTilePostProcessor() != mTilePostProcessor ) {
+      // finished after the post processor changed; a replacement has been requested
+      tile.destroy( mShouldRecycleBitmaps, false );
+      return;
+    }
+    Tile superseded = tile.getSupersededTile();
+    tile.clearSupersededTile();
+    if( superseded != null ) {
+      if( !superseded.hasContent() || !mRenderSet.isRendered( superseded ) ) {
+        tile.destroy( mShouldRecycleBitmaps, false );
+        return;
+      }
+      mCacheAccounting.remove( superseded );
+      superseded.destroy( mShouldRecycleBitmaps );
+    }
+    tile.setTransitionsEnabled( mTransitionsEnabled && superseded == null );
     tile.setTransitionDuration( mTransitionDuration );
     tile.stampTime();
-    mTilesAlreadyRendered.add( tile );
+    mRenderSet.replaceRendered( tile );
+    mCacheAccounting.add( tile, tile.getBitmapByteCount() );
+    mRenderMetrics.recordTileCommitted();
     mCurrentTileCanvasView.addTile( tile );
   }
 
+  /**
+   * Called once per frame in which tiles were committed, after the last of them.
+   *
+   * @param count The number of tiles committed in the frame.
+   */
+  void onTilesCommitted( int count ) {
+    mRenderMetrics.recordCommitBatch( count );
+    if( mTileRenderEngine != null ) {
+      mTileRenderEngine.enforceMemoryBudget();
+    }
+    if( mIsRenderCompletePending && mTileRenderClient.getTileCommitQueue().size() == 0 ) {
+      mIsRenderCompletePending = false;
+      completeRender();
+    }
+  }
+
   void handleTileRenderException( Throwable throwable ) {
     if( throwable instanceof OutOfMemoryError ){
       cleanup();
@@ -305,15 +834,27 @@ public class TileCanvasViewGroup extends ScalingLayout implements TileCanvasView
   }
 
   public void destroy(){
-    mTileRenderPoolExecutor.shutdownNow();
+    if( mTileRenderEngine == null ) {
+      mTileRenderPoolExecutor.shutdownNow();
+    } else {
+      mTileRenderPoolExecutor.cancel( this, true );
+      mTileRenderEngine.unregister( this );
+    }
+    if( mBitmapProvider instanceof BitmapProviderLayered ) {
+      ((BitmapProviderLayered) mBitmapProvider).shutdown();
+    }
+    mTileRenderClient.getTileCommitQueue().clear( mShouldRecycleBitmaps );
+    mIsRenderCompletePending = false;
     clear();
     for( TileCanvasView tileGroup : mTileCanvasViewHashMap.values() ) {
       tileGroup.clearTiles( mShouldRecycleBitmaps );
     }
     mTileCanvasViewHashMap.clear();
-    if( !mTileRenderThrottleHandler.hasMessages( RENDER_FLAG ) ) {
-      mTileRenderThrottleHandler.removeMessages( RENDER_FLAG );
-    }
+    mCacheAccounting.clear();
+    mTileRenderScheduler.cancel();
+    mTileRenderThrottleHandler.removeMessages( RETRY_FLAG );
+    mTileRenderThrottleHandler.removeMessages( UPGRADE_FLAG );
+    mHasReducedTiles = false;
   }
 
   private static class TileRenderThrottleHandler extends Handler {
@@ -328,8 +869,16 @@ public class TileCanvasViewGroup extends ScalingLayout implements TileCanvasView
     @Override
     public final void handleMessage( Message message ) {
       final TileCanvasViewGroup tileCanvasViewGroup = mTileCanvasViewGroupWeakReference.get();
-      if( tileCanvasViewGroup != null ) {
-        tileCanvasViewGroup.renderTiles();
+      if( tileCanvasViewGroup == null ) {
+        return;
+      }
+      switch( message.what ) {
+        case RETRY_FLAG:
+          tileCanvasViewGroup.retryTiles();
+          break;
+        case UPGRADE_FLAG:
+          tileCanvasViewGroup.upgradeTiles();
+          break;
       }
     }
   }
@@ -347,15 +896,25 @@ public class TileCanvasViewGroup extends ScalingLayout implements TileCanvasView
   private Runnable mRenderPostExecuteRunnable =  new Runnable() {
     @Override
     public void run() {
-      if ( !mTransitionsEnabled ) {
-        cleanup();
-      }
-      if( mTileRenderListener != null ) {
-        mTileRenderListener.onRenderComplete();
+      // the pass isn't complete until its tiles are on the canvas; onTilesCommitted finishes it
+      if( mTileRenderClient.getTileCommitQueue().size() > 0 ) {
+        mIsRenderCompletePending = true;
+        return;
       }
-      mLastRenderedDetailLevel = mDetailLevelToRender;
-      invalidate();
-      requestRender();
+      completeRender();
     }
   };
+
+  private void completeRender() {
+    if ( !mTransitionsEnabled ) {
+      cleanup();
+    }
+    if( mTileRenderListener != null ) {
+      mTileRenderListener.onRenderComplete();
+    }
+    mLastRenderedDetailLevel = mDetailLevelToRender;
+    invalidate();
+    requestRender();
+    scheduleRetry();
+  }
 }
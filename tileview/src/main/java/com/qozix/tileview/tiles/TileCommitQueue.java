@@ -0,0 +1,135 @@
+package com.qozix.tileview.tiles;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Collects tiles finished by render threads and commits them to a TileCanvasViewGroup in batches,
+ * once per frame, rather than posting a message (and an invalidation) per tile.  Each batch stops
+ * when the frame's time budget is spent, leaving the remaining tiles for the next frame, so a burst
+ * of completions can't stall the UI thread.
+ *
+ * Frames are timed with Choreographer where available (API 16); earlier versions drain on the next
+ * pass of the main looper.
+ */
+class TileCommitQueue {
+
+  public static final long DEFAULT_FRAME_BUDGET = 4;
+
+  private final ConcurrentLinkedQueue<Tile> mTiles = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean mScheduled = new AtomicBoolean();
+  private final Handler mHandler = new Handler( Looper.getMainLooper() );
+  private final WeakReference<TileCanvasViewGroup> mTileCanvasViewGroupWeakReference;
+
+  private volatile long mFrameBudgetNanos = DEFAULT_FRAME_BUDGET * 1000000;
+
+  private FrameCallback mFrameCallback;
+
+  private final Runnable mScheduleRunnable = new Runnable() {
+    @Override
+    public void run() {
+      if( Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN ) {
+        if( mFrameCallback == null ) {
+          mFrameCallback = new FrameCallback( TileCommitQueue.this );
+        }
+        Choreographer.getInstance().postFrameCallback( mFrameCallback );
+      } else {
+        drain();
+      }
+    }
+  };
+
+  TileCommitQueue( TileCanvasViewGroup tileCanvasViewGroup ) {
+    mTileCanvasViewGroupWeakReference = new WeakReference<>( tileCanvasViewGroup );
+  }
+
+  /**
+   * @param frameBudget The most time, in milliseconds, spent committing tiles in a single frame.
+   */
+  void setFrameBudget( long frameBudget ) {
+    mFrameBudgetNanos = frameBudget * 1000000;
+  }
+
+  long getFrameBudget() {
+    return mFrameBudgetNanos / 1000000;
+  }
+
+  /**
+   * Queues a finished tile for the next frame.  May be called from any thread.
+   */
+  void enqueue( Tile tile ) {
+    mTiles.add( tile );
+    schedule();
+  }
+
+  /**
+   * Discards queued tiles without committing them.
+   */
+  void clear( boolean shouldRecycle ) {
+    Tile tile;
+    while( (tile = mTiles.poll()) != null ) {
+      tile.destroy( shouldRecycle, false );
+    }
+  }
+
+  int size() {
+    return mTiles.size();
+  }
+
+  private void schedule() {
+    if( mScheduled.compareAndSet( false, true ) ) {
+      mHandler.post( mScheduleRunnable );
+    }
+  }
+
+  /**
+   * Commits queued tiles until the queue is empty or the frame budget is spent.
+   */
+  void drain() {
+    mScheduled.set( false );
+    TileCanvasViewGroup tileCanvasViewGroup = mTileCanvasViewGroupWeakReference.get();
+    if( tileCanvasViewGroup == null ) {
+      mTiles.clear();
+      return;
+    }
+    long deadline = System.nanoTime() + mFrameBudgetNanos;
+    int committed = 0;
+    Tile tile;
+    while( (tile = mTiles.poll()) != null ) {
+      tileCanvasViewGroup.addTileToCurrentTileCanvasView( tile );
+      committed++;
+      if( System.nanoTime() > deadline ) {
+        break;
+      }
+    }
+    if( committed > 0 ) {
+      tileCanvasViewGroup.onTilesCommitted( committed );
+    }
+    if( !mTiles.isEmpty() ) {
+      schedule();
+    }
+  }
+
+  /**
+   * Kept apart from TileCommitQueue so Choreographer is only loaded where it exists.
+   */
+  private static class FrameCallback implements Choreographer.FrameCallback {
+
+    private final TileCommitQueue mTileCommitQueue;
+
+    FrameCallback( TileCommitQueue tileCommitQueue ) {
+      mTileCommitQueue = tileCommitQueue;
+    }
+
+    @Override
+    public void doFrame( long frameTimeNanos ) {
+      mTileCommitQueue.drain();
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package com.qozix.tileview.tiles;
+
+import com.qozix.tileview.core.TileKey;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The state a TileRenderPoolExecutor keeps for each TileCanvasViewGroup it renders for, so that
+ * several groups can share one executor: where finished tiles and errors are delivered, which fetches are in
+ * flight (and so can be joined), how much work is outstanding, and the group's fair share of the
+ * workers.
+ */
+class TileRenderClient {
+
+  private final WeakReference<TileCanvasViewGroup> mTileCanvasViewGroupWeakReference;
+  private final TileRenderHandler mHandler = new TileRenderHandler();
+  private final ConcurrentHashMap<TileKey, TileRenderRunnable> mInFlightRunnables = new ConcurrentHashMap<>();
+  private final AtomicInteger mPendingCount = new AtomicInteger();
+  private final TileCommitQueue mTileCommitQueue;
+
+  private volatile int mRenderPriority = 1;
+  private double mLastRank;
+
+  TileRenderClient( TileCanvasViewGroup tileCanvasViewGroup ) {
+    mTileCanvasViewGroupWeakReference = new WeakReference<>( tileCanvasViewGroup );
+    mHandler.setTileCanvasViewGroup( tileCanvasViewGroup );
+    mTileCommitQueue = new TileCommitQueue( tileCanvasViewGroup );
+  }
+
+  TileCanvasViewGroup getTileCanvasViewGroup() {
+    return mTileCanvasViewGroupWeakReference.get();
+  }
+
+  TileRenderHandler getHandler() {
+    return mHandler;
+  }
+
+  /**
+   * @return The queue through which finished tiles are committed, in batches, once per frame.
+   */
+  TileCommitQueue getTileCommitQueue() {
+    return mTileCommitQueue;
+  }
+
+  ConcurrentHashMap<TileKey, TileRenderRunnable> getInFlightRunnables() {
+    return mInFlightRunnables;
+  }
+
+  int getRenderPriority() {
+    return mRenderPriority;
+  }
+
+  void setRenderPriority( int renderPriority ) {
+    mRenderPriority = Math.max( 1, renderPriority );
+  }
+
+  /**
+   * Assigns the next runnable its place in the shared queue.  Each client's runnables are spaced
+   * by the inverse of its priority, starting no earlier than the work now executing, so clients
+   * interleave in proportion to their priorities and a newly active client can't jump ahead.
+   *
+   * @param virtualTime The rank of the runnable most recently started by the executor.
+   */
+  synchronized double nextRank( double virtualTime ) {
+    mLastRank = Math.max( mLastRank, virtualTime ) + 1.0 / mRenderPriority;
+    return mLastRank;
+  }
+
+  void incrementPending() {
+    mPendingCount.incrementAndGet();
+  }
+
+  /**
+   * @return The number of runnables still queued or executing for this client.
+   */
+  int decrementPending() {
+    return mPendingCount.decrementAndGet();
+  }
+
+  int getPendingCount() {
+    return mPendingCount.get();
+  }
+}
@@ -0,0 +1,140 @@
+package com.qozix.tileview.tiles;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A render executor, bitmap deduplicator and memory budget shared by several TileViews, e.g., the
+ * panes of a split comparison or the floor plans in a list.  Without one each TileView starts a
+ * thread pool sized to every core, so several TileViews oversubscribe the CPU.
+ *
+ * The deduplicator only lets TileViews share bitmaps whose content it can identify: those from a
+ * ContentKeyedBitmapProvider or, with hashing enabled, those whose decoded pixels match.  Other
+ * tiles are still held once per TileView showing them.
+ *
+ * Each TileView using the engine is a client, scheduled fairly against the others in proportion
+ * to its render priority (see TileView.setRenderPriority).  When the bitmaps held by all clients
+ * exceed the memory budget, clients are asked to release tiles they are not showing, lowest
+ * priority first.
+ *
+ * Methods must be called on the UI thread.
+ */
+public class TileRenderEngine {
+
+  public static final float DEFAULT_MEMORY_BUDGET_FRACTION = 0.25f;
+
+  private static TileRenderEngine sSharedInstance;
+
+  private static final Comparator<TileCanvasViewGroup> PRIORITY_COMPARATOR = new Comparator<TileCanvasViewGroup>() {
+    @Override
+    public int compare( TileCanvasViewGroup lhs, TileCanvasViewGroup rhs ) {
+      return lhs.getRenderPriority() - rhs.getRenderPriority();
+    }
+  };
+
+  private final TileRenderPoolExecutor mTileRenderPoolExecutor = new TileRenderPoolExecutor();
+  private final TileBitmapDeduplicator mTileBitmapDeduplicator = new TileBitmapDeduplicator();
+  private final List<WeakReference<TileCanvasViewGroup>> mClients = new ArrayList<>();
+
+  private long mMemoryBudget = (long) (Runtime.getRuntime().maxMemory() * DEFAULT_MEMORY_BUDGET_FRACTION);
+
+  /**
+   * @return The process wide engine, created on first use.
+   */
+  public static synchronized TileRenderEngine getSharedInstance() {
+    if( sSharedInstance == null ) {
+      sSharedInstance = new TileRenderEngine();
+    }
+    return sSharedInstance;
+  }
+
+  TileRenderPoolExecutor getTileRenderPoolExecutor() {
+    return mTileRenderPoolExecutor;
+  }
+
+  /**
+   * @return The cache through which clients share bitmaps of identical content.
+   */
+  public TileBitmapDeduplicator getTileBitmapDeduplicator() {
+    return mTileBitmapDeduplicator;
+  }
+
+  public long getMemoryBudget() {
+    return mMemoryBudget;
+  }
+
+  /**
+   * @param memoryBudget The number of bytes of tile bitmaps all clients together should hold; by default a quarter of the maximum heap.
+   */
+  public void setMemoryBudget( long memoryBudget ) {
+    mMemoryBudget = memoryBudget;
+    enforceMemoryBudget();
+  }
+
+  /**
+   * @return The number of bytes held by the bitmaps of tiles rendered by every client.
+   */
+  public long getRenderedByteCount() {
+    long byteCount = 0;
+    for( TileCanvasViewGroup tileCanvasViewGroup : getClients() ) {
+      byteCount += tileCanvasViewGroup.getRenderedByteCount();
+    }
+    return byteCount;
+  }
+
+  public int getClientCount() {
+    return getClients().size();
+  }
+
+  void register( TileCanvasViewGroup tileCanvasViewGroup ) {
+    if( !getClients().contains( tileCanvasViewGroup ) ) {
+      mClients.add( new WeakReference<>( tileCanvasViewGroup ) );
+    }
+  }
+
+  void unregister( TileCanvasViewGroup tileCanvasViewGroup ) {
+    Iterator<WeakReference<TileCanvasViewGroup>> iterator = mClients.iterator();
+    while( iterator.hasNext() ) {
+      TileCanvasViewGroup client = iterator.next().get();
+      if( client == null || client == tileCanvasViewGroup ) {
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Asks clients, lowest priority first, to release tiles they are not showing until the
+   * bitmaps held fit within the budget, or there is nothing more to release.
+   */
+  void enforceMemoryBudget() {
+    if( getRenderedByteCount() <= mMemoryBudget ) {
+      return;
+    }
+    List<TileCanvasViewGroup> clients = getClients();
+    Collections.sort( clients, PRIORITY_COMPARATOR );
+    for( TileCanvasViewGroup tileCanvasViewGroup : clients ) {
+      tileCanvasViewGroup.trimMemory();
+      if( getRenderedByteCount() <= mMemoryBudget ) {
+        return;
+      }
+    }
+  }
+
+  private List<TileCanvasViewGroup> getClients() {
+    List<TileCanvasViewGroup> clients = new ArrayList<>( mClients.size() );
+    Iterator<WeakReference<TileCanvasViewGroup>> iterator = mClients.iterator();
+    while( iterator.hasNext() ) {
+      TileCanvasViewGroup client = iterator.next().get();
+      if( client == null ) {
+        iterator.remove();
+      } else {
+        clients.add( client );
+      }
+    }
+    return clients;
+  }
+}
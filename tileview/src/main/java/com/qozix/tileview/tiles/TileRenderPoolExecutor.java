@@ -1,47 +1,123 @@
 package com.qozix.tileview.tiles;
 
 import android.content.Context;
+import android.os.SystemClock;
 
+import com.qozix.tileview.core.ConcurrencyController;
+import com.qozix.tileview.core.RenderMetrics;
+import com.qozix.tileview.core.TileFailureTracker;
+import com.qozix.tileview.core.TileKey;
 import com.qozix.tileview.graphics.BitmapProvider;
+import com.qozix.tileview.graphics.TilePostProcessor;
 
-import java.lang.ref.WeakReference;
+import java.util.Comparator;
 import java.util.Set;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Renders tiles for one or more TileCanvasViewGroups.  Each group is a client with its own
+ * handler, in-flight registry and render priority; queued tiles from different clients are
+ * interleaved in proportion to their priorities, so a TileRenderEngine can share one executor
+ * between several TileViews without any of them starving the others.
+ *
+ * Other work passed to execute or submit runs at the current virtual time, ahead of tiles queued
+ * for later, in the order it was passed.
+ */
 public class TileRenderPoolExecutor extends ThreadPoolExecutor {
 
   private static final int KEEP_ALIVE_TIME = 1;
   private static final TimeUnit KEEP_ALIVE_TIME_UNIT = TimeUnit.SECONDS;
 
   private static final int AVAILABLE_PROCESSORS = Runtime.getRuntime().availableProcessors();
-  private static final int INITIAL_POOL_SIZE = AVAILABLE_PROCESSORS >> 1;
-  private static final int MAXIMUM_POOL_SIZE = AVAILABLE_PROCESSORS;
+  private static final int INITIAL_POOL_SIZE = Math.max( 1, AVAILABLE_PROCESSORS >> 1 );
+  // headroom beyond the core count for providers that mostly wait on I/O
+  private static final int MAXIMUM_POOL_SIZE = AVAILABLE_PROCESSORS * 2;
+  private static final int INITIAL_QUEUE_CAPACITY = 64;
 
-  private WeakReference<TileCanvasViewGroup> mTileCanvasViewGroupWeakReference;
+  private static final Comparator<Runnable> RANK_COMPARATOR = new Comparator<Runnable>() {
+    @Override
+    public int compare( Runnable lhs, Runnable rhs ) {
+      // execute wraps anything else, so the queue only ever holds ranked runnables
+      Ranked left = (Ranked) lhs;
+      Ranked right = (Ranked) rhs;
+      int comparison = Double.compare( left.getRank(), right.getRank() );
+      if( comparison != 0 ) {
+        return comparison;
+      }
+      return left.getSequence() < right.getSequence() ? -1 : (left.getSequence() == right.getSequence() ? 0 : 1);
+    }
+  };
+
+  private final AtomicLong mSequence = new AtomicLong();
+  private volatile double mVirtualTime;
 
-  private TileRenderHandler mHandler = new TileRenderHandler();
+  private final ConcurrencyController mConcurrencyController = new ConcurrencyController( 1, MAXIMUM_POOL_SIZE, INITIAL_POOL_SIZE );
 
+  /**
+   * The pool's core and maximum sizes are kept equal, at the ConcurrencyController's limit.  With an
+   * unbounded queue a pool never grows past its core size, and keeping the maximum at the same value
+   * retires surplus workers as soon as they finish a tile when the limit drops.
+   */
   public TileRenderPoolExecutor() {
     super(
       INITIAL_POOL_SIZE,
-      MAXIMUM_POOL_SIZE,
+      INITIAL_POOL_SIZE,
       KEEP_ALIVE_TIME,
       KEEP_ALIVE_TIME_UNIT,
-      new LinkedBlockingDeque<Runnable>()
+      new PriorityBlockingQueue<>( INITIAL_QUEUE_CAPACITY, RANK_COMPARATOR )
     );
+    allowCoreThreadTimeOut( true );
+  }
+
+  /**
+   * @return The controller that sets how many tiles are rendered at once.
+   */
+  public ConcurrencyController getConcurrencyController() {
+    return mConcurrencyController;
+  }
+
+  /**
+   * Reports frames dropped while the view was animating, so fewer workers compete with the UI thread.
+   */
+  public void recordDroppedFrames( int count ) {
+    mConcurrencyController.recordDroppedFrames( count );
+  }
+
+  private void adjustConcurrency() {
+    int limit = mConcurrencyController.update( SystemClock.uptimeMillis(), getQueue().size() );
+    synchronized( this ) {
+      if( limit > getMaximumPoolSize() ) {
+        setMaximumPoolSize( limit );
+        setCorePoolSize( limit );
+      } else if( limit < getCorePoolSize() ) {
+        setCorePoolSize( limit );
+        setMaximumPoolSize( limit );
+      }
+    }
   }
 
   public void queue( TileCanvasViewGroup tileCanvasViewGroup, Set<Tile> renderSet ) {
-    mTileCanvasViewGroupWeakReference = new WeakReference<>( tileCanvasViewGroup );
-    mHandler.setTileCanvasViewGroup( tileCanvasViewGroup );
-    final Context context = tileCanvasViewGroup.getContext();
-    final BitmapProvider bitmapProvider = tileCanvasViewGroup.getBitmapProvider();
+    queue( tileCanvasViewGroup, renderSet, false );
+  }
+
+  /**
+   * @param urgent True to run the tiles ahead of all queued work, from any client, at the default
+   *               thread priority rather than in the background.
+   */
+  public void queue( TileCanvasViewGroup tileCanvasViewGroup, Set<Tile> renderSet, boolean urgent ) {
+    TileRenderClient tileRenderClient = tileCanvasViewGroup.getTileRenderClient();
+    TilePostProcessor tilePostProcessor = tileCanvasViewGroup.getTilePostProcessor();
     tileCanvasViewGroup.onRenderTaskPreExecute();
     for( Runnable runnable : getQueue() ) {
       if( runnable instanceof TileRenderRunnable ) {
         TileRenderRunnable tileRenderRunnable = (TileRenderRunnable) runnable;
+        if( tileRenderRunnable.getTileRenderClient() != tileRenderClient ) {
+          continue;
+        }
         if( tileRenderRunnable.isDone() || tileRenderRunnable.isCancelled() ) {
           continue;
         }
@@ -49,57 +125,177 @@ public class TileRenderPoolExecutor extends ThreadPoolExecutor {
         if( tile == null ) {
           continue;
         }
-        if( renderSet.contains( tile ) ) {
+        // a tile queued under a previous post processor would be discarded when it finished
+        if( renderSet.contains( tile ) && tileRenderRunnable.getTilePostProcessor() == tilePostProcessor ) {
           renderSet.remove( tile );
         } else {
+          tileRenderRunnable.cancel( false );
+          discard( tileRenderRunnable );
+        }
+      }
+    }
+    enqueue( tileCanvasViewGroup, renderSet, urgent );
+    interruptUnjoined( tileCanvasViewGroup );
+  }
+
+  /**
+   * Interrupts fetches that this render pass did not join: cancelled fetches whose tile is gone,
+   * and fetches of the detail level being rendered that were cancelled or whose tiles have left
+   * the viewport.  Fetches of other detail levels keep running, so zooming back before they
+   * finish can still join them.
+   */
+  private void interruptUnjoined( TileCanvasViewGroup tileCanvasViewGroup ) {
+    TileRenderClient tileRenderClient = tileCanvasViewGroup.getTileRenderClient();
+    float scale = tileCanvasViewGroup.getCurrentDetailLevelScale();
+    Set<Tile> viewport = tileCanvasViewGroup.getTilesInCurrentViewport();
+    for( TileRenderRunnable tileRenderRunnable : tileRenderClient.getInFlightRunnables().values() ) {
+      Tile tile = tileRenderRunnable.getTile();
+      if( tile == null ) {
+        if( tileRenderRunnable.isCancelled() ) {
           tileRenderRunnable.cancel( true );
-          remove( tileRenderRunnable );
         }
+      } else if( tileRenderRunnable.getTileKey().getScale() == scale
+        && (tileRenderRunnable.isCancelled() || !viewport.contains( tile )) ) {
+        tileRenderRunnable.cancel( true );
       }
     }
-    for( Tile tile : renderSet ) {
+  }
+
+  /**
+   * Queues full resolution replacements for reduced resolution tiles, behind any work already
+   * queued.  Unlike queue, nothing already queued is cancelled; the next call to queue will
+   * cancel any of these still waiting, since they will not be part of its render set.
+   */
+  public void queueUpgrades( TileCanvasViewGroup tileCanvasViewGroup, Set<Tile> upgradeSet ) {
+    tileCanvasViewGroup.onRenderTaskPreExecute();
+    enqueue( tileCanvasViewGroup, upgradeSet, false );
+  }
+
+  private void enqueue( TileCanvasViewGroup tileCanvasViewGroup, Set<Tile> renderSet, boolean urgent ) {
+    final TileRenderClient tileRenderClient = tileCanvasViewGroup.getTileRenderClient();
+    final ConcurrentHashMap<TileKey, TileRenderRunnable> inFlightRunnables = tileRenderClient.getInFlightRunnables();
+    final Context context = tileCanvasViewGroup.getContext();
+    final BitmapProvider bitmapProvider = tileCanvasViewGroup.getBitmapProvider();
+    final RenderMetrics renderMetrics = tileCanvasViewGroup.getRenderMetrics();
+    final TileFailureTracker<TileKey> tileFailureTracker = tileCanvasViewGroup.getTileFailureTracker();
+    final TileBitmapDeduplicator bitmapDeduplicator = tileCanvasViewGroup.getTileBitmapDeduplicator();
+    final boolean shouldElideUniformTiles = tileCanvasViewGroup.getShouldElideUniformTiles();
+    final TilePostProcessor tilePostProcessor = tileCanvasViewGroup.getTilePostProcessor();
+    for( Tile tile : tileCanvasViewGroup.prioritize( renderSet ) ) {
       if( isShutdownOrTerminating() ) {
         return;
       }
+      tile.setBitmapDeduplicator( bitmapDeduplicator );
+      tile.setTilePostProcessor( tilePostProcessor );
+      TileRenderRunnable inFlight = inFlightRunnables.get( tile.getKey() );
+      if( inFlight != null ) {
+        if( inFlight.getSampleSize() <= tile.getSampleSize()
+          && inFlight.getTilePostProcessor() == tilePostProcessor
+          && inFlight.rebind( tile ) ) {
+          renderMetrics.recordTileCoalesced();
+          continue;
+        }
+        // superseded by the fetch started below; a cancelled fetch can't deliver anyway
+        if( inFlight.isCancelled() ) {
+          inFlight.cancel( true );
+        }
+      }
       TileRenderRunnable runnable = new TileRenderRunnable();
       runnable.setTile( tile );
       runnable.setContext( context );
       runnable.setBitmapProvider( bitmapProvider );
-      runnable.setHandler( mHandler );
+      runnable.setHandler( tileRenderClient.getHandler() );
+      runnable.setRenderMetrics( renderMetrics );
+      runnable.setTileFailureTracker( tileFailureTracker );
+      runnable.setShouldElideUniformTiles( shouldElideUniformTiles );
+      runnable.setTileRenderClient( tileRenderClient );
+      // urgent runnables share a rank below anything queued, and run in the order submitted
+      double rank = urgent ? mVirtualTime - 1 : tileRenderClient.nextRank( mVirtualTime );
+      runnable.setRank( rank, mSequence.getAndIncrement() );
+      runnable.setUrgent( urgent );
+      inFlightRunnables.put( runnable.getTileKey(), runnable );
+      tileRenderClient.incrementPending();
       execute( runnable );
+      renderMetrics.recordTilesQueued( 1 );
     }
   }
 
-  private void broadcastCancel() {
-    if( mTileCanvasViewGroupWeakReference != null ) {
-      TileCanvasViewGroup tileCanvasViewGroup = mTileCanvasViewGroupWeakReference.get();
-      if( tileCanvasViewGroup != null ) {
-        tileCanvasViewGroup.onRenderTaskCancelled();
-      }
+  /**
+   * Removes a runnable that has not started from the queue and from its client's records.
+   */
+  private void discard( TileRenderRunnable tileRenderRunnable ) {
+    TileRenderClient tileRenderClient = tileRenderRunnable.getTileRenderClient();
+    tileRenderClient.getInFlightRunnables().remove( tileRenderRunnable.getTileKey(), tileRenderRunnable );
+    if( remove( tileRenderRunnable ) ) {
+      tileRenderClient.decrementPending();
     }
   }
 
-  public void cancel() {
+  /**
+   * Cancels every queued and running tile of one client.  Queued tiles are dropped; running
+   * fetches are not interrupted yet, and remain in flight so that an equal tile requested by the
+   * next render pass can join them instead of starting a duplicate fetch.  That pass interrupts
+   * the fetches it does not join.
+   */
+  public void cancel( TileCanvasViewGroup tileCanvasViewGroup ) {
+    cancel( tileCanvasViewGroup, false );
+  }
+
+  /**
+   * @param interrupt True to interrupt running fetches immediately, when nothing can join them;
+   *                  e.g., because the client is being destroyed or moved to another executor.
+   */
+  public void cancel( TileCanvasViewGroup tileCanvasViewGroup, boolean interrupt ) {
+    TileRenderClient tileRenderClient = tileCanvasViewGroup.getTileRenderClient();
+    for( TileRenderRunnable tileRenderRunnable : tileRenderClient.getInFlightRunnables().values() ) {
+      tileRenderRunnable.cancel( interrupt );
+    }
     for( Runnable runnable : getQueue() ) {
-      if( runnable instanceof TileRenderRunnable ) {
-        TileRenderRunnable tileRenderRunnable = (TileRenderRunnable) runnable;
-        tileRenderRunnable.cancel( true );
+      if( runnable instanceof TileRenderRunnable
+        && ((TileRenderRunnable) runnable).getTileRenderClient() == tileRenderClient ) {
+        discard( (TileRenderRunnable) runnable );
       }
     }
-    getQueue().clear();
-    broadcastCancel();
+    tileCanvasViewGroup.onRenderTaskCancelled();
+  }
+
+  @Override
+  public void execute( Runnable runnable ) {
+    if( !(runnable instanceof Ranked) ) {
+      runnable = new RankedRunnable( runnable, mVirtualTime, mSequence.getAndIncrement() );
+    }
+    super.execute( runnable );
   }
 
   public boolean isShutdownOrTerminating() {
     return isShutdown() || isTerminating() || isTerminated();
   }
 
+  @Override
+  protected void beforeExecute( Thread thread, Runnable runnable ) {
+    super.beforeExecute( thread, runnable );
+    if( runnable instanceof TileRenderRunnable ) {
+      mVirtualTime = ((TileRenderRunnable) runnable).getRank();
+    }
+  }
+
   @Override
   protected void afterExecute( Runnable runnable, Throwable throwable ) {
-    synchronized( this ) {
-      super.afterExecute( runnable, throwable );
-      if( getQueue().size() == 0 && getActiveCount() == 1 ) {
-        TileCanvasViewGroup tileCanvasViewGroup = mTileCanvasViewGroupWeakReference.get();
+    super.afterExecute( runnable, throwable );
+    if( runnable instanceof TileRenderRunnable ) {
+      TileRenderRunnable tileRenderRunnable = (TileRenderRunnable) runnable;
+      TileRenderClient tileRenderClient = tileRenderRunnable.getTileRenderClient();
+      tileRenderClient.getInFlightRunnables().remove( tileRenderRunnable.getTileKey(), tileRenderRunnable );
+      if( tileRenderRunnable.getDecodeNanos() > 0 ) {
+        mConcurrencyController.recordDecode( tileRenderRunnable.getDecodeNanos() );
+      }
+      adjustConcurrency();
+      RenderMetrics renderMetrics = tileRenderRunnable.getRenderMetrics();
+      if( renderMetrics != null ) {
+        renderMetrics.recordParallelism( getCorePoolSize() );
+      }
+      if( tileRenderClient.decrementPending() == 0 ) {
+        TileCanvasViewGroup tileCanvasViewGroup = tileRenderClient.getTileCanvasViewGroup();
         if( tileCanvasViewGroup != null ) {
           tileCanvasViewGroup.onRenderTaskPostExecute();
         }
@@ -107,4 +303,47 @@ public class TileRenderPoolExecutor extends ThreadPoolExecutor {
     }
   }
 
+  /**
+   * A runnable with a place in the shared queue.
+   */
+  interface Ranked {
+    /**
+     * @return The runnable's place in the queue; lower ranks run first.
+     */
+    double getRank();
+
+    /**
+     * @return Breaks ties between equal ranks in submission order.
+     */
+    long getSequence();
+  }
+
+  private static class RankedRunnable implements Runnable, Ranked {
+
+    private final Runnable mRunnable;
+    private final double mRank;
+    private final long mSequence;
+
+    RankedRunnable( Runnable runnable, double rank, long sequence ) {
+      mRunnable = runnable;
+      mRank = rank;
+      mSequence = sequence;
+    }
+
+    @Override
+    public double getRank() {
+      return mRank;
+    }
+
+    @Override
+    public long getSequence() {
+      return mSequence;
+    }
+
+    @Override
+    public void run() {
+      mRunnable.run();
+    }
+  }
+
 }
@@ -1,32 +1,55 @@
 package com.qozix.tileview.tiles;
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.os.Handler;
 import android.os.Message;
 import android.os.Process;
+import android.os.SystemClock;
 
+import com.qozix.tileview.core.RenderMetrics;
+import com.qozix.tileview.core.TileAvailability;
+import com.qozix.tileview.core.TileFailureTracker;
+import com.qozix.tileview.core.TileKey;
 import com.qozix.tileview.graphics.BitmapProvider;
+import com.qozix.tileview.graphics.TilePostProcessor;
+import com.qozix.tileview.graphics.TileUnavailableException;
 
 import java.lang.ref.WeakReference;
 
 /**
  * @author Mike Dunn, 3/10/16.
  */
-class TileRenderRunnable implements Runnable {
+class TileRenderRunnable implements Runnable, TileRenderPoolExecutor.Ranked {
 
   private WeakReference<Tile> mTileWeakReference;
   private WeakReference<Handler> mHandlerWeakReference;
   private WeakReference<Context> mContextWeakReference;
   private WeakReference<BitmapProvider> mBitmapProviderWeakReference;
 
-  private boolean mCancelled = false;
+  private volatile boolean mCancelled = false;
   private boolean mComplete = false;
+  private boolean mFetching = false;
+
+  private TileKey mTileKey;
+  private int mSampleSize = 1;
+  private TilePostProcessor mTilePostProcessor;
+
+  private TileRenderClient mTileRenderClient;
+  private double mRank;
+  private long mSequence;
 
   private volatile Thread mThread;
 
   private Throwable mThrowable;
 
-  public boolean cancel( boolean mayInterrupt ) {
+  private RenderMetrics mRenderMetrics;
+  private long mDecodeNanos;
+  private TileFailureTracker<TileKey> mTileFailureTracker;
+  private boolean mShouldElideUniformTiles;
+  private boolean mUrgent;
+
+  public synchronized boolean cancel( boolean mayInterrupt ) {
     if( mayInterrupt && mThread != null ) {
       mThread.interrupt();
     }
@@ -35,6 +58,34 @@ class TileRenderRunnable implements Runnable {
     return !cancelled;
   }
 
+  /**
+   * Hands a cancelled fetch that is still waiting on the BitmapProvider to a new, equal tile,
+   * so the result is delivered rather than discarded and fetched again.
+   *
+   * @param tile The tile that should receive the bitmap.
+   * @return True if the fetch is in progress and will now deliver to the tile.
+   */
+  public synchronized boolean rebind( Tile tile ) {
+    if( !mFetching || mThread == null || mThread.isInterrupted() ) {
+      return false;
+    }
+    mTileWeakReference = new WeakReference<>( tile );
+    mCancelled = false;
+    return true;
+  }
+
+  private synchronized boolean beginFetch() {
+    if( mCancelled ) {
+      return false;
+    }
+    mFetching = true;
+    return true;
+  }
+
+  private synchronized void endFetch() {
+    mFetching = false;
+  }
+
   public boolean isCancelled() {
     return mCancelled;
   }
@@ -43,6 +94,33 @@ class TileRenderRunnable implements Runnable {
     return mComplete;
   }
 
+  TileRenderClient getTileRenderClient() {
+    return mTileRenderClient;
+  }
+
+  void setTileRenderClient( TileRenderClient tileRenderClient ) {
+    mTileRenderClient = tileRenderClient;
+  }
+
+  @Override
+  public double getRank() {
+    return mRank;
+  }
+
+  @Override
+  public long getSequence() {
+    return mSequence;
+  }
+
+  /**
+   * @param rank The runnable's place in a shared queue; lower ranks run first.
+   * @param sequence Breaks ties between equal ranks in submission order.
+   */
+  void setRank( double rank, long sequence ) {
+    mRank = rank;
+    mSequence = sequence;
+  }
+
   public void setHandler( Handler handler ) {
     mHandlerWeakReference = new WeakReference<>( handler );
   }
@@ -76,11 +154,51 @@ class TileRenderRunnable implements Runnable {
     return mBitmapProviderWeakReference.get();
   }
 
+  public void setRenderMetrics( RenderMetrics renderMetrics ) {
+    mRenderMetrics = renderMetrics;
+  }
+
+  public void setTileFailureTracker( TileFailureTracker<TileKey> tileFailureTracker ) {
+    mTileFailureTracker = tileFailureTracker;
+  }
+
+  public void setShouldElideUniformTiles( boolean shouldElideUniformTiles ) {
+    mShouldElideUniformTiles = shouldElideUniformTiles;
+  }
+
+  /**
+   * @param urgent True to decode at the default thread priority, rather than in the background.
+   */
+  void setUrgent( boolean urgent ) {
+    mUrgent = urgent;
+  }
+
   public void setTile( Tile tile ) {
     mTileWeakReference = new WeakReference<>( tile );
+    mTileKey = tile.getKey();
+    mSampleSize = tile.getSampleSize();
+    mTilePostProcessor = tile.getTilePostProcessor();
   }
 
-  public Tile getTile() {
+  /**
+   * @return The post processor applied to the bitmap this runnable fetches, or null.
+   */
+  public TilePostProcessor getTilePostProcessor() {
+    return mTilePostProcessor;
+  }
+
+  /**
+   * @return The sample size of the bitmap this runnable fetches.
+   */
+  public int getSampleSize() {
+    return mSampleSize;
+  }
+
+  public TileKey getTileKey() {
+    return mTileKey;
+  }
+
+  public synchronized Tile getTile() {
     if( mTileWeakReference != null ) {
       return mTileWeakReference.get();
     }
@@ -95,7 +213,7 @@ class TileRenderRunnable implements Runnable {
     if( mCancelled ) {
       return TileRenderHandler.Status.INCOMPLETE;
     }
-    android.os.Process.setThreadPriority( Process.THREAD_PRIORITY_BACKGROUND );
+    android.os.Process.setThreadPriority( mUrgent ? Process.THREAD_PRIORITY_DEFAULT : Process.THREAD_PRIORITY_BACKGROUND );
     if( mThread.isInterrupted() ) {
       return TileRenderHandler.Status.INCOMPLETE;
     }
@@ -111,28 +229,128 @@ class TileRenderRunnable implements Runnable {
     if( bitmapProvider == null ) {
       return TileRenderHandler.Status.INCOMPLETE;
     }
+    if( !beginFetch() ) {
+      return TileRenderHandler.Status.INCOMPLETE;
+    }
+    long start = System.nanoTime();
     try {
       tile.generateBitmap( context, bitmapProvider );
+    } catch( TileUnavailableException e ) {
+      endFetch();
+      recordDecode( start, false );
+      recordFailure( tile, e.isPermanent() );
+      return TileRenderHandler.Status.INCOMPLETE;
     } catch( Throwable throwable ) {
+      endFetch();
+      if( mThread.isInterrupted() ) {
+        // an interrupted fetch was abandoned, not failed
+        return TileRenderHandler.Status.INCOMPLETE;
+      }
       mThrowable = throwable;
+      recordDecode( start, false );
+      if( throwable instanceof Exception ) {
+        recordFailure( tile, false );
+      }
       return TileRenderHandler.Status.ERROR;
     }
-    if( mCancelled || tile.getBitmap() == null || mThread.isInterrupted() ) {
+    endFetch();
+    recordDecode( start, tile.hasContent() );
+    Tile target = getTile();
+    if( target != null && target != tile ) {
+      target.takeBitmap( tile );
+      tile = target;
+    }
+    if( mCancelled || mThread.isInterrupted() ) {
       tile.destroy( true );
       return TileRenderHandler.Status.INCOMPLETE;
     }
+    if( !tile.hasContent() ) {
+      recordFailure( tile, false );
+      tile.destroy( true );
+      return TileRenderHandler.Status.INCOMPLETE;
+    }
+    if( mTileFailureTracker != null ) {
+      mTileFailureTracker.recordSuccess( tile.getKey() );
+    }
+    if( mShouldElideUniformTiles && tile.elideUniformBitmap() && mRenderMetrics != null ) {
+      mRenderMetrics.recordTileElided();
+    }
     return TileRenderHandler.Status.COMPLETE;
   }
 
+  private void recordFailure( Tile tile, boolean permanent ) {
+    // a permanent miss is kept in the level's availability index, which can be saved, and only
+    // falls back to the failure tracker's negative cache if the level has no grid yet
+    boolean indexed = false;
+    if( permanent ) {
+      TileAvailability tileAvailability = tile.getDetailLevel().getTileAvailability();
+      if( tileAvailability != null ) {
+        tileAvailability.markMissing( tile.getColumn(), tile.getRow() );
+        indexed = true;
+      }
+    }
+    if( mTileFailureTracker == null ) {
+      return;
+    }
+    if( permanent ) {
+      mTileFailureTracker.recordPermanentFailure( tile.getKey(), !indexed );
+    } else {
+      mTileFailureTracker.recordTransientFailure( tile.getKey(), SystemClock.uptimeMillis() );
+    }
+  }
+
+  private void recordDecode( long start, boolean success ) {
+    mDecodeNanos = System.nanoTime() - start;
+    if( mRenderMetrics != null ) {
+      mRenderMetrics.recordDecode( mDecodeNanos, success );
+    }
+  }
+
+  /**
+   * @return The time spent in the provider, or 0 if the runnable never reached it.
+   */
+  long getDecodeNanos() {
+    return mDecodeNanos;
+  }
+
+  RenderMetrics getRenderMetrics() {
+    return mRenderMetrics;
+  }
+
+  /**
+   * Detaches the worker thread once this runnable is finished with it, so a late cancel(true)
+   * can't interrupt the next tile the thread picks up.
+   */
+  private synchronized void setThread( Thread thread ) {
+    mThread = thread;
+  }
+
   @Override
   public void run() {
-    mThread = Thread.currentThread();
-    TileRenderHandler.Status status = renderTile();
+    setThread( Thread.currentThread() );
+    try {
+      deliver( renderTile() );
+    } finally {
+      setThread( null );
+    }
+  }
+
+  private void deliver( TileRenderHandler.Status status ) {
     if( status == TileRenderHandler.Status.INCOMPLETE ) {
       return;
     }
     if( status == TileRenderHandler.Status.COMPLETE ) {
       mComplete = true;
+      Tile tile = getTile();
+      if( tile != null && mTileRenderClient != null ) {
+        Bitmap bitmap = tile.getBitmap();
+        if( bitmap != null ) {
+          // builds the bitmap's texture now, on this thread, rather than during the first draw
+          bitmap.prepareToDraw();
+        }
+        mTileRenderClient.getTileCommitQueue().enqueue( tile );
+        return;
+      }
     }
     Handler handler = getHandler();
     if( handler != null ) {
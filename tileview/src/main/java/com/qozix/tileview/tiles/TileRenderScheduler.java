@@ -0,0 +1,228 @@
+package com.qozix.tileview.tiles;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * Decides when a TileCanvasViewGroup starts its render passes, from frame timing and gesture state
+ * rather than a fixed delay:
+ *
+ * - While idle, a requested pass starts at the next frame.
+ * - During motion, passes are rate limited: the faster the viewport moves, the longer the interval
+ * between them, since tiles requested during a fast pan are off screen before they arrive.  If
+ * rendering during motion is disabled, the pass waits for the motion to end instead.
+ * - When motion ends (or no motion has been reported for MOTION_TIMEOUT), a pending pass starts at
+ * the next frame.
+ *
+ * Frames are timed with Choreographer where available (API 16); earlier versions start passes on the
+ * next pass of the main looper.  All methods must be called on the main thread.
+ */
+class TileRenderScheduler {
+
+  /**
+   * Motion is considered over if no motion has been reported for this long, in milliseconds.
+   */
+  public static final long MOTION_TIMEOUT = 100;
+
+  /**
+   * The longest interval, in milliseconds, between passes during motion.
+   */
+  public static final long MAXIMUM_MOTION_INTERVAL = 250;
+
+  /**
+   * Milliseconds added to the interval between passes during motion, per pixel per millisecond of velocity.
+   */
+  private static final float INTERVAL_PER_VELOCITY = 40;
+
+  /**
+   * Weight of the newest sample in the smoothed velocity.
+   */
+  private static final float VELOCITY_SMOOTHING = 0.5f;
+
+  private final Handler mHandler = new Handler( Looper.getMainLooper() );
+  private final WeakReference<TileCanvasViewGroup> mTileCanvasViewGroupWeakReference;
+
+  private long mMinimumMotionInterval = TileCanvasViewGroup.FAST_RENDER_BUFFER;
+  private boolean mShouldRenderDuringMotion;
+
+  private boolean mRenderPending;
+  private boolean mFramePosted;
+  private long mLastRenderTime;
+  private long mLastMotionTime;
+  private float mVelocity;
+
+  private FrameCallback mFrameCallback;
+
+  private final Runnable mPostFrameRunnable = new Runnable() {
+    @Override
+    public void run() {
+      postFrame();
+    }
+  };
+
+  private final Runnable mFrameRunnable = new Runnable() {
+    @Override
+    public void run() {
+      doFrame();
+    }
+  };
+
+  TileRenderScheduler( TileCanvasViewGroup tileCanvasViewGroup ) {
+    mTileCanvasViewGroupWeakReference = new WeakReference<>( tileCanvasViewGroup );
+  }
+
+  /**
+   * @param minimumMotionInterval The shortest interval, in milliseconds, between passes during motion.
+   */
+  void setMinimumMotionInterval( long minimumMotionInterval ) {
+    mMinimumMotionInterval = minimumMotionInterval;
+  }
+
+  long getMinimumMotionInterval() {
+    return mMinimumMotionInterval;
+  }
+
+  void setShouldRenderDuringMotion( boolean shouldRenderDuringMotion ) {
+    mShouldRenderDuringMotion = shouldRenderDuringMotion;
+  }
+
+  boolean getShouldRenderDuringMotion() {
+    return mShouldRenderDuringMotion;
+  }
+
+  /**
+   * Requests a render pass; repeated requests before it starts are merged into it.
+   */
+  void request() {
+    mRenderPending = true;
+    schedule();
+  }
+
+  /**
+   * Reports that the viewport moved.
+   *
+   * @param dx Horizontal distance moved since the last report, in pixels.
+   * @param dy Vertical distance moved since the last report, in pixels.
+   */
+  void onMotion( int dx, int dy ) {
+    long now = SystemClock.uptimeMillis();
+    if( mLastMotionTime > 0 && now > mLastMotionTime ) {
+      float velocity = (float) Math.hypot( dx, dy ) / (now - mLastMotionTime);
+      mVelocity += (velocity - mVelocity) * VELOCITY_SMOOTHING;
+    }
+    mLastMotionTime = now;
+  }
+
+  /**
+   * Reports that motion ended, so a pending pass starts at the next frame.
+   */
+  void onMotionEnd() {
+    mLastMotionTime = 0;
+    mVelocity = 0;
+    schedule();
+  }
+
+  /**
+   * Drops a pending pass.
+   */
+  void cancel() {
+    mRenderPending = false;
+    mHandler.removeCallbacks( mPostFrameRunnable );
+  }
+
+  boolean isInMotion( long now ) {
+    return mLastMotionTime > 0 && now - mLastMotionTime < MOTION_TIMEOUT;
+  }
+
+  /**
+   * @return The smoothed velocity of the current motion, in pixels per millisecond.
+   */
+  float getVelocity() {
+    return mVelocity;
+  }
+
+  /**
+   * @return How long, in milliseconds, a pass requested now must wait before the frame it starts on.
+   */
+  long getDelay( long now ) {
+    if( !isInMotion( now ) ) {
+      return 0;
+    }
+    long motionEnd = mLastMotionTime + MOTION_TIMEOUT;
+    if( !mShouldRenderDuringMotion ) {
+      return motionEnd - now;
+    }
+    long interval = mMinimumMotionInterval + (long) (mVelocity * INTERVAL_PER_VELOCITY);
+    interval = Math.min( interval, Math.max( mMinimumMotionInterval, MAXIMUM_MOTION_INTERVAL ) );
+    long next = Math.min( mLastRenderTime + interval, motionEnd );
+    return Math.max( 0, next - now );
+  }
+
+  private void schedule() {
+    if( !mRenderPending || mFramePosted ) {
+      return;
+    }
+    mHandler.removeCallbacks( mPostFrameRunnable );
+    long delay = getDelay( SystemClock.uptimeMillis() );
+    if( delay > 0 ) {
+      mHandler.postDelayed( mPostFrameRunnable, delay );
+    } else {
+      postFrame();
+    }
+  }
+
+  private void postFrame() {
+    mFramePosted = true;
+    if( Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN ) {
+      if( mFrameCallback == null ) {
+        mFrameCallback = new FrameCallback( this );
+      }
+      Choreographer.getInstance().postFrameCallback( mFrameCallback );
+    } else {
+      mHandler.post( mFrameRunnable );
+    }
+  }
+
+  /**
+   * Starts the pending pass, unless motion reported since it was scheduled pushed it back.
+   */
+  void doFrame() {
+    mFramePosted = false;
+    if( !mRenderPending ) {
+      return;
+    }
+    long now = SystemClock.uptimeMillis();
+    if( getDelay( now ) > 0 ) {
+      schedule();
+      return;
+    }
+    mRenderPending = false;
+    mLastRenderTime = now;
+    TileCanvasViewGroup tileCanvasViewGroup = mTileCanvasViewGroupWeakReference.get();
+    if( tileCanvasViewGroup != null ) {
+      tileCanvasViewGroup.renderTiles();
+    }
+  }
+
+  /**
+   * Kept apart from TileRenderScheduler so Choreographer is only loaded where it exists.
+   */
+  private static class FrameCallback implements Choreographer.FrameCallback {
+
+    private final TileRenderScheduler mTileRenderScheduler;
+
+    FrameCallback( TileRenderScheduler tileRenderScheduler ) {
+      mTileRenderScheduler = tileRenderScheduler;
+    }
+
+    @Override
+    public void doFrame( long frameTimeNanos ) {
+      mTileRenderScheduler.doFrame();
+    }
+  }
+}
@@ -0,0 +1,135 @@
+package com.qozix.tileview.trace;
+
+import android.os.SystemClock;
+import android.view.MotionEvent;
+
+import com.qozix.tileview.widgets.ZoomPanLayout;
+
+/**
+ * Records the touch events delivered to a ZoomPanLayout, and the scale and scroll states that
+ * result, into a GestureTrace.  States are sampled after every touch event and whenever a pan
+ * or zoom (including flings and animated zooms) ends.
+ *
+ * <pre>{@code
+ * GestureRecorder gestureRecorder = new GestureRecorder();
+ * gestureRecorder.start( tileView );
+ * // ... user interacts ...
+ * GestureTrace gestureTrace = gestureRecorder.stop();
+ * gestureTrace.writeTo( outputStream );
+ * }</pre>
+ */
+public class GestureRecorder implements ZoomPanLayout.ZoomListener, ZoomPanLayout.PanListener {
+
+  private ZoomPanLayout mZoomPanLayout;
+  private GestureTrace mGestureTrace;
+  private long mStartTime;
+
+  /**
+   * Begins recording touch events delivered to the ZoomPanLayout.  Any recording in progress
+   * is stopped and discarded.
+   *
+   * @param zoomPanLayout The ZoomPanLayout (or TileView) to record.
+   */
+  public void start( ZoomPanLayout zoomPanLayout ) {
+    stop();
+    mZoomPanLayout = zoomPanLayout;
+    mStartTime = SystemClock.uptimeMillis();
+    mGestureTrace = new GestureTrace( zoomPanLayout.getWidth(), zoomPanLayout.getHeight(), getCurrentState( 0 ) );
+    zoomPanLayout.addZoomListener( this );
+    zoomPanLayout.addPanListener( this );
+    zoomPanLayout.setGestureRecorder( this );
+  }
+
+  /**
+   * Stops recording.
+   *
+   * @return The trace recorded since start was called, or null if not recording.
+   */
+  public GestureTrace stop() {
+    if( mZoomPanLayout == null ) {
+      return null;
+    }
+    recordState();
+    mZoomPanLayout.removeZoomListener( this );
+    mZoomPanLayout.removePanListener( this );
+    mZoomPanLayout.setGestureRecorder( null );
+    mZoomPanLayout = null;
+    GestureTrace gestureTrace = mGestureTrace;
+    mGestureTrace = null;
+    return gestureTrace;
+  }
+
+  public boolean isRecording() {
+    return mZoomPanLayout != null;
+  }
+
+  private int getTimeOffset( long uptime ) {
+    return (int) (uptime - mStartTime);
+  }
+
+  private GestureTrace.State getCurrentState( int timeOffset ) {
+    return new GestureTrace.State( timeOffset, mZoomPanLayout.getScale(), mZoomPanLayout.getScrollX(), mZoomPanLayout.getScrollY() );
+  }
+
+  /**
+   * Invoked by the ZoomPanLayout before it handles a touch event.
+   */
+  public void recordMotionEvent( MotionEvent event ) {
+    if( mGestureTrace == null ) {
+      return;
+    }
+    int pointerCount = event.getPointerCount();
+    int[] pointerIds = new int[pointerCount];
+    float[] xs = new float[pointerCount];
+    float[] ys = new float[pointerCount];
+    for( int i = 0; i < pointerCount; i++ ) {
+      pointerIds[i] = event.getPointerId( i );
+      xs[i] = event.getX( i );
+      ys[i] = event.getY( i );
+    }
+    mGestureTrace.add( new GestureTrace.Motion(
+      getTimeOffset( event.getEventTime() ),
+      getTimeOffset( event.getDownTime() ),
+      event.getAction(), pointerIds, xs, ys ) );
+  }
+
+  /**
+   * Invoked by the ZoomPanLayout after it handles a touch event, and by pan and zoom end events.
+   */
+  public void recordState() {
+    if( mGestureTrace == null ) {
+      return;
+    }
+    mGestureTrace.add( getCurrentState( getTimeOffset( SystemClock.uptimeMillis() ) ) );
+  }
+
+  @Override
+  public void onPanBegin( int x, int y, ZoomPanLayout.Origination origin ) {
+
+  }
+
+  @Override
+  public void onPanUpdate( int x, int y, ZoomPanLayout.Origination origin ) {
+
+  }
+
+  @Override
+  public void onPanEnd( int x, int y, ZoomPanLayout.Origination origin ) {
+    recordState();
+  }
+
+  @Override
+  public void onZoomBegin( float scale, ZoomPanLayout.Origination origin ) {
+
+  }
+
+  @Override
+  public void onZoomUpdate( float scale, ZoomPanLayout.Origination origin ) {
+
+  }
+
+  @Override
+  public void onZoomEnd( float scale, ZoomPanLayout.Origination origin ) {
+    recordState();
+  }
+}
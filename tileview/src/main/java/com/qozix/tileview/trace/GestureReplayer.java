@@ -0,0 +1,135 @@
+package com.qozix.tileview.trace;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.InputDevice;
+import android.view.MotionEvent;
+
+import com.qozix.tileview.widgets.ZoomPanLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Feeds a GestureTrace back into a ZoomPanLayout, dispatching each touch event at the same
+ * offset from the start of replay as it had from the start of recording, with the same event
+ * and down times, so velocity and tap detection behave as they did when recorded.  When run
+ * under a controllable clock (e.g., Robolectric's scheduler) replay is fully deterministic.
+ *
+ * Recorded states are compared with the layout's actual state at the same offsets; any
+ * difference is reported as a divergence.  The bitmap provider and tile pipeline of the
+ * target are left untouched, so the same trace can be replayed against different
+ * configurations.
+ */
+public class GestureReplayer {
+
+  private Handler mHandler = new Handler( Looper.getMainLooper() );
+
+  private List<String> mDivergences = new ArrayList<>();
+  private ReplayListener mReplayListener;
+
+  public void setReplayListener( ReplayListener replayListener ) {
+    mReplayListener = replayListener;
+  }
+
+  /**
+   * Schedules every record of the trace for dispatch on the main thread.  The target must have
+   * the viewport dimensions the trace was recorded with.
+   *
+   * @param zoomPanLayout The ZoomPanLayout (or TileView) to replay into.
+   * @param gestureTrace  The trace to replay.
+   */
+  public void replay( final ZoomPanLayout zoomPanLayout, GestureTrace gestureTrace ) {
+    if( zoomPanLayout.getWidth() != gestureTrace.getViewportWidth()
+      || zoomPanLayout.getHeight() != gestureTrace.getViewportHeight() ) {
+      throw new IllegalStateException( "Trace was recorded at "
+        + gestureTrace.getViewportWidth() + "x" + gestureTrace.getViewportHeight()
+        + " but the target is " + zoomPanLayout.getWidth() + "x" + zoomPanLayout.getHeight() );
+    }
+    cancel();
+    mDivergences.clear();
+    GestureTrace.State initialState = gestureTrace.getInitialState();
+    zoomPanLayout.setScale( initialState.getScale() );
+    zoomPanLayout.scrollTo( initialState.getScrollX(), initialState.getScrollY() );
+    final long startTime = SystemClock.uptimeMillis();
+    for( final GestureTrace.Record record : gestureTrace.getRecords() ) {
+      mHandler.postAtTime( new Runnable() {
+        @Override
+        public void run() {
+          if( record instanceof GestureTrace.Motion ) {
+            dispatch( zoomPanLayout, (GestureTrace.Motion) record, startTime );
+          } else if( record instanceof GestureTrace.State ) {
+            verify( zoomPanLayout, (GestureTrace.State) record );
+          }
+        }
+      }, startTime + record.getTimeOffset() );
+    }
+    mHandler.postAtTime( new Runnable() {
+      @Override
+      public void run() {
+        if( mReplayListener != null ) {
+          mReplayListener.onReplayComplete( GestureReplayer.this );
+        }
+      }
+    }, startTime + gestureTrace.getDuration() );
+  }
+
+  /**
+   * Stops any replay in progress; events already dispatched are not undone.
+   */
+  public void cancel() {
+    mHandler.removeCallbacksAndMessages( null );
+  }
+
+  /**
+   * @return A description of each recorded state that did not match the replayed state.
+   */
+  public List<String> getDivergences() {
+    return mDivergences;
+  }
+
+  @SuppressWarnings( "deprecation" )
+  private void dispatch( ZoomPanLayout zoomPanLayout, GestureTrace.Motion motion, long startTime ) {
+    long downTime = startTime + motion.getDownTimeOffset();
+    long eventTime = startTime + motion.getTimeOffset();
+    int pointerCount = motion.getPointerCount();
+    MotionEvent event;
+    if( pointerCount == 1 && motion.getPointerId( 0 ) == 0 ) {
+      // a single touch uses the simplest form of obtain, which Robolectric's MotionEvent implements;
+      // the pointer array form is not, and replays a stale event there
+      event = MotionEvent.obtain( downTime, eventTime, motion.getAction(), motion.getX( 0 ), motion.getY( 0 ), 0 );
+      event.setSource( InputDevice.SOURCE_TOUCHSCREEN );
+    } else {
+      int[] pointerIds = new int[pointerCount];
+      MotionEvent.PointerCoords[] pointerCoords = new MotionEvent.PointerCoords[pointerCount];
+      for( int i = 0; i < pointerCount; i++ ) {
+        pointerIds[i] = motion.getPointerId( i );
+        MotionEvent.PointerCoords coords = new MotionEvent.PointerCoords();
+        coords.x = motion.getX( i );
+        coords.y = motion.getY( i );
+        coords.pressure = 1;
+        coords.size = 1;
+        pointerCoords[i] = coords;
+      }
+      event = MotionEvent.obtain(
+        downTime, eventTime,
+        motion.getAction(), pointerCount, pointerIds, pointerCoords,
+        0, 1, 1, 0, 0, InputDevice.SOURCE_TOUCHSCREEN, 0 );
+    }
+    zoomPanLayout.dispatchTouchEvent( event );
+    event.recycle();
+  }
+
+  private void verify( ZoomPanLayout zoomPanLayout, GestureTrace.State expected ) {
+    GestureTrace.State actual = new GestureTrace.State( expected.getTimeOffset(),
+      zoomPanLayout.getScale(), zoomPanLayout.getScrollX(), zoomPanLayout.getScrollY() );
+    if( !expected.matches( actual ) ) {
+      mDivergences.add( "expected " + expected + ", was " + actual );
+    }
+  }
+
+  public interface ReplayListener {
+    void onReplayComplete( GestureReplayer gestureReplayer );
+  }
+}
@@ -0,0 +1,274 @@
+package com.qozix.tileview.trace;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A recorded sequence of touch events and the scale and scroll states that resulted from them.
+ *
+ * Traces are stored in a compact big-endian binary form: a header describing the viewport and
+ * the starting state, followed by one record per touch event or state sample, each stamped
+ * with its offset in milliseconds from the start of recording.  This class has no platform
+ * dependencies, so traces can be inspected and diffed on the JVM.
+ */
+public class GestureTrace {
+
+  private static final int MAGIC = 0x54564754; // "TVGT"
+  private static final int VERSION = 1;
+
+  private static final int RECORD_END = 0;
+  private static final int RECORD_MOTION = 1;
+  private static final int RECORD_STATE = 2;
+
+  private int mViewportWidth;
+  private int mViewportHeight;
+  private State mInitialState;
+  private List<Record> mRecords = new ArrayList<>();
+
+  public GestureTrace( int viewportWidth, int viewportHeight, State initialState ) {
+    mViewportWidth = viewportWidth;
+    mViewportHeight = viewportHeight;
+    mInitialState = initialState;
+  }
+
+  public int getViewportWidth() {
+    return mViewportWidth;
+  }
+
+  public int getViewportHeight() {
+    return mViewportHeight;
+  }
+
+  public State getInitialState() {
+    return mInitialState;
+  }
+
+  public List<Record> getRecords() {
+    return Collections.unmodifiableList( mRecords );
+  }
+
+  public void add( Record record ) {
+    mRecords.add( record );
+  }
+
+  /**
+   * @return The offset of the last record, in milliseconds.
+   */
+  public int getDuration() {
+    return mRecords.isEmpty() ? 0 : mRecords.get( mRecords.size() - 1 ).getTimeOffset();
+  }
+
+  public void writeTo( OutputStream outputStream ) throws IOException {
+    DataOutputStream out = new DataOutputStream( outputStream );
+    out.writeInt( MAGIC );
+    out.writeByte( VERSION );
+    out.writeInt( mViewportWidth );
+    out.writeInt( mViewportHeight );
+    mInitialState.write( out );
+    for( Record record : mRecords ) {
+      out.writeByte( record.getType() );
+      out.writeInt( record.getTimeOffset() );
+      record.write( out );
+    }
+    out.writeByte( RECORD_END );
+    out.flush();
+  }
+
+  public static GestureTrace readFrom( InputStream inputStream ) throws IOException {
+    DataInputStream in = new DataInputStream( inputStream );
+    if( in.readInt() != MAGIC ) {
+      throw new IOException( "Not a gesture trace" );
+    }
+    int version = in.readUnsignedByte();
+    if( version != VERSION ) {
+      throw new IOException( "Unsupported gesture trace version: " + version );
+    }
+    int viewportWidth = in.readInt();
+    int viewportHeight = in.readInt();
+    GestureTrace trace = new GestureTrace( viewportWidth, viewportHeight, State.read( 0, in ) );
+    while( true ) {
+      int type = in.readUnsignedByte();
+      if( type == RECORD_END ) {
+        break;
+      }
+      int timeOffset = in.readInt();
+      switch( type ) {
+        case RECORD_MOTION:
+          trace.add( Motion.read( timeOffset, in ) );
+          break;
+        case RECORD_STATE:
+          trace.add( State.read( timeOffset, in ) );
+          break;
+        default:
+          throw new IOException( "Unknown gesture trace record type: " + type );
+      }
+    }
+    return trace;
+  }
+
+  public static abstract class Record {
+
+    private final int mTimeOffset;
+
+    Record( int timeOffset ) {
+      mTimeOffset = timeOffset;
+    }
+
+    /**
+     * @return Milliseconds since the start of the recording.
+     */
+    public int getTimeOffset() {
+      return mTimeOffset;
+    }
+
+    abstract int getType();
+
+    abstract void write( DataOutputStream out ) throws IOException;
+  }
+
+  /**
+   * A single touch event, with the position of every pointer it carried.
+   */
+  public static class Motion extends Record {
+
+    private final int mDownTimeOffset;
+    private final int mAction;
+    private final int[] mPointerIds;
+    private final float[] mXs;
+    private final float[] mYs;
+
+    public Motion( int timeOffset, int downTimeOffset, int action, int[] pointerIds, float[] xs, float[] ys ) {
+      super( timeOffset );
+      mDownTimeOffset = downTimeOffset;
+      mAction = action;
+      mPointerIds = pointerIds;
+      mXs = xs;
+      mYs = ys;
+    }
+
+    public int getDownTimeOffset() {
+      return mDownTimeOffset;
+    }
+
+    /**
+     * @return The raw action, including the pointer index bits.
+     */
+    public int getAction() {
+      return mAction;
+    }
+
+    public int getPointerCount() {
+      return mPointerIds.length;
+    }
+
+    public int getPointerId( int index ) {
+      return mPointerIds[index];
+    }
+
+    public float getX( int index ) {
+      return mXs[index];
+    }
+
+    public float getY( int index ) {
+      return mYs[index];
+    }
+
+    @Override
+    int getType() {
+      return RECORD_MOTION;
+    }
+
+    @Override
+    void write( DataOutputStream out ) throws IOException {
+      out.writeInt( mDownTimeOffset );
+      out.writeInt( mAction );
+      out.writeByte( mPointerIds.length );
+      for( int i = 0; i < mPointerIds.length; i++ ) {
+        out.writeByte( mPointerIds[i] );
+        out.writeFloat( mXs[i] );
+        out.writeFloat( mYs[i] );
+      }
+    }
+
+    static Motion read( int timeOffset, DataInputStream in ) throws IOException {
+      int downTimeOffset = in.readInt();
+      int action = in.readInt();
+      int pointerCount = in.readUnsignedByte();
+      int[] pointerIds = new int[pointerCount];
+      float[] xs = new float[pointerCount];
+      float[] ys = new float[pointerCount];
+      for( int i = 0; i < pointerCount; i++ ) {
+        pointerIds[i] = in.readUnsignedByte();
+        xs[i] = in.readFloat();
+        ys[i] = in.readFloat();
+      }
+      return new Motion( timeOffset, downTimeOffset, action, pointerIds, xs, ys );
+    }
+  }
+
+  /**
+   * The scale and scroll position of the recorded layout at a point in time.
+   */
+  public static class State extends Record {
+
+    private final float mScale;
+    private final int mScrollX;
+    private final int mScrollY;
+
+    public State( int timeOffset, float scale, int scrollX, int scrollY ) {
+      super( timeOffset );
+      mScale = scale;
+      mScrollX = scrollX;
+      mScrollY = scrollY;
+    }
+
+    public float getScale() {
+      return mScale;
+    }
+
+    public int getScrollX() {
+      return mScrollX;
+    }
+
+    public int getScrollY() {
+      return mScrollY;
+    }
+
+    /**
+     * @return True if the other state has the same scale and scroll position, ignoring time.
+     */
+    public boolean matches( State other ) {
+      return other != null
+        && mScale == other.mScale
+        && mScrollX == other.mScrollX
+        && mScrollY == other.mScrollY;
+    }
+
+    @Override
+    int getType() {
+      return RECORD_STATE;
+    }
+
+    @Override
+    void write( DataOutputStream out ) throws IOException {
+      out.writeFloat( mScale );
+      out.writeInt( mScrollX );
+      out.writeInt( mScrollY );
+    }
+
+    static State read( int timeOffset, DataInputStream in ) throws IOException {
+      return new State( timeOffset, in.readFloat(), in.readInt(), in.readInt() );
+    }
+
+    @Override
+    public String toString() {
+      return "State[" + getTimeOffset() + "ms, scale=" + mScale + ", scroll=" + mScrollX + "," + mScrollY + "]";
+    }
+  }
+}
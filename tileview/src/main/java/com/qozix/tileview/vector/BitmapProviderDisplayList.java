@@ -0,0 +1,112 @@
+package com.qozix.tileview.vector;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+
+import com.qozix.tileview.graphics.BitmapProvider;
+import com.qozix.tileview.tiles.Tile;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A BitmapProvider that rasterizes each tile from a VectorDisplayList, replaying only the
+ * operations that intersect the tile at the tile's detail level scale.  Content is sharp at any
+ * detail level and no tiles are stored, so a TileView can register as many levels as it needs.
+ *
+ * If a tile's data is itself a VectorDisplayList (e.g., one per floor), that list is drawn
+ * instead of the provider's.  Rasterizing runs on the render thread that requested the tile,
+ * with a Canvas kept per thread.
+ */
+public class BitmapProviderDisplayList implements BitmapProvider {
+
+  private final VectorDisplayList mVectorDisplayList;
+  private volatile int mBackgroundColor = Color.WHITE;
+
+  private final ThreadLocal<Replayer> mReplayers = new ThreadLocal<Replayer>() {
+    @Override
+    protected Replayer initialValue() {
+      return new Replayer();
+    }
+  };
+
+  /**
+   * @param vectorDisplayList The recorded content, or null if each detail level supplies its own as tile data.
+   */
+  public BitmapProviderDisplayList( VectorDisplayList vectorDisplayList ) {
+    mVectorDisplayList = vectorDisplayList;
+  }
+
+  public VectorDisplayList getVectorDisplayList() {
+    return mVectorDisplayList;
+  }
+
+  public int getBackgroundColor() {
+    return mBackgroundColor;
+  }
+
+  /**
+   * @param backgroundColor The colour tiles are filled with before replaying; opaque colours allow tiles to use RGB_565.
+   */
+  public void setBackgroundColor( int backgroundColor ) {
+    mBackgroundColor = backgroundColor;
+  }
+
+  @Override
+  public Bitmap getBitmap( Tile tile, Context context ) {
+    Object data = tile.getData();
+    VectorDisplayList vectorDisplayList = data instanceof VectorDisplayList ? (VectorDisplayList) data : mVectorDisplayList;
+    if( vectorDisplayList == null ) {
+      return null;
+    }
+    try {
+      return mReplayers.get().replay( vectorDisplayList, tile, mBackgroundColor );
+    } catch( OutOfMemoryError e ) {
+      // returning null lets the tile be retried
+      return null;
+    }
+  }
+
+  /**
+   * The drawing objects used by a single render thread.
+   */
+  private static class Replayer {
+
+    private final Canvas mCanvas = new Canvas();
+    private final List<VectorDisplayList.DrawOp> mDrawOps = new ArrayList<>();
+
+    Bitmap replay( VectorDisplayList vectorDisplayList, Tile tile, int backgroundColor ) {
+      float scale = tile.getDetailLevel().getScale();
+      mDrawOps.clear();
+      vectorDisplayList.query(
+        tile.getLeft() / scale,
+        tile.getTop() / scale,
+        (tile.getLeft() + tile.getWidth()) / scale,
+        (tile.getTop() + tile.getHeight()) / scale,
+        mDrawOps );
+      Bitmap.Config config = Color.alpha( backgroundColor ) == 255 ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+      Bitmap bitmap = Bitmap.createBitmap( tile.getWidth(), tile.getHeight(), config );
+      mCanvas.setBitmap( bitmap );
+      mCanvas.drawColor( backgroundColor );
+      int saveCount = mCanvas.save();
+      mCanvas.translate( -tile.getLeft(), -tile.getTop() );
+      mCanvas.scale( scale, scale );
+      for( VectorDisplayList.DrawOp drawOp : mDrawOps ) {
+        if( Thread.currentThread().isInterrupted() ) {
+          mCanvas.restoreToCount( saveCount );
+          mCanvas.setBitmap( null );
+          mDrawOps.clear();
+          bitmap.recycle();
+          return null;
+        }
+        drawOp.draw( mCanvas );
+      }
+      mCanvas.restoreToCount( saveCount );
+      mCanvas.setBitmap( null );
+      mDrawOps.clear();
+      return bitmap;
+    }
+  }
+}
@@ -0,0 +1,344 @@
+package com.qozix.tileview.vector;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Path;
+
+import com.qozix.tileview.graphics.BitmapProvider;
+import com.qozix.tileview.graphics.TileUnavailableException;
+import com.qozix.tileview.tiles.Tile;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A BitmapProvider that rasterizes Mapbox Vector Tiles, read from a local directory or zip archive,
+ * according to a VectorStyle.  As with BitmapProviderAssets, each detail level's data is a path
+ * formatted with the tile's column and row, e.g., "floor1/250/%d_%d.mvt".  Tiles may be gzipped.
+ *
+ * Rasterizing runs on the render thread that requested the tile, with a Canvas, Paint and Path
+ * kept per thread.  Geometry is simplified in tile pixels, so a coarse level, where a tile covers
+ * more of the map, drops proportionally more vertices.  The bitmaps returned are handled like any
+ * other provider's, including the tile caches and derived levels.
+ */
+public class BitmapProviderVectorTiles implements BitmapProvider {
+
+  public static final float DEFAULT_SIMPLIFICATION_TOLERANCE = 0.5f;
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private final File mDirectory;
+  private final ZipFile mZipFile;
+  private volatile VectorStyle mVectorStyle;
+  private volatile float mSimplificationTolerance = DEFAULT_SIMPLIFICATION_TOLERANCE;
+
+  private final ThreadLocal<Rasterizer> mRasterizers = new ThreadLocal<Rasterizer>() {
+    @Override
+    protected Rasterizer initialValue() {
+      return new Rasterizer();
+    }
+  };
+
+  /**
+   * @param directory The directory tile paths are relative to.
+   * @param vectorStyle The style sheet used to draw each layer.
+   */
+  public BitmapProviderVectorTiles( File directory, VectorStyle vectorStyle ) {
+    mDirectory = directory;
+    mZipFile = null;
+    mVectorStyle = vectorStyle;
+  }
+
+  /**
+   * @param zipFile An open archive tile paths are entries of.  The caller remains responsible for closing it.
+   * @param vectorStyle The style sheet used to draw each layer.
+   */
+  public BitmapProviderVectorTiles( ZipFile zipFile, VectorStyle vectorStyle ) {
+    mDirectory = null;
+    mZipFile = zipFile;
+    mVectorStyle = vectorStyle;
+  }
+
+  public VectorStyle getVectorStyle() {
+    return mVectorStyle;
+  }
+
+  /**
+   * Replaces the style sheet.  Tiles already rendered keep their previous style until they're re-rendered.
+   */
+  public void setVectorStyle( VectorStyle vectorStyle ) {
+    mVectorStyle = vectorStyle;
+  }
+
+  public float getSimplificationTolerance() {
+    return mSimplificationTolerance;
+  }
+
+  /**
+   * @param simplificationTolerance The distance in tile pixels within which consecutive vertices are merged; 0 to keep every vertex.
+   */
+  public void setSimplificationTolerance( float simplificationTolerance ) {
+    mSimplificationTolerance = simplificationTolerance;
+  }
+
+  @Override
+  public Bitmap getBitmap( Tile tile, Context context ) {
+    Object data = tile.getData();
+    if( !(data instanceof String) ) {
+      return null;
+    }
+    String path = String.format( (String) data, tile.getColumn(), tile.getRow() );
+    VectorTile vectorTile;
+    try {
+      byte[] bytes = read( path );
+      if( bytes == null ) {
+        throw new TileUnavailableException( "No vector tile at " + path, true, null );
+      }
+      vectorTile = VectorTile.decode( bytes );
+    } catch( IOException e ) {
+      // malformed data won't improve with retries
+      throw new TileUnavailableException( "Invalid vector tile at " + path, true, e );
+    }
+    try {
+      return mRasterizers.get().rasterize( vectorTile, tile, mVectorStyle, mSimplificationTolerance );
+    } catch( OutOfMemoryError e ) {
+      // returning null lets the tile be retried
+      return null;
+    }
+  }
+
+  private byte[] read( String path ) throws IOException {
+    InputStream inputStream;
+    if( mZipFile != null ) {
+      ZipEntry entry = mZipFile.getEntry( path );
+      if( entry == null ) {
+        return null;
+      }
+      inputStream = mZipFile.getInputStream( entry );
+    } else {
+      File file = new File( mDirectory, path );
+      if( !file.exists() ) {
+        return null;
+      }
+      inputStream = new FileInputStream( file );
+    }
+    try {
+      byte[] bytes = readFully( inputStream );
+      if( bytes.length > 1 && (bytes[0] & 0xff) == 0x1f && (bytes[1] & 0xff) == 0x8b ) {
+        InputStream gzipInputStream = new GZIPInputStream( new ByteArrayInputStream( bytes ) );
+        try {
+          bytes = readFully( gzipInputStream );
+        } finally {
+          gzipInputStream.close();
+        }
+      }
+      return bytes;
+    } finally {
+      inputStream.close();
+    }
+  }
+
+  private static byte[] readFully( InputStream inputStream ) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream( BUFFER_SIZE );
+    byte[] buffer = new byte[BUFFER_SIZE];
+    int count;
+    while( (count = inputStream.read( buffer )) != -1 ) {
+      outputStream.write( buffer, 0, count );
+    }
+    return outputStream.toByteArray();
+  }
+
+  /**
+   * The drawing objects used by a single render thread.
+   */
+  private static class Rasterizer {
+
+    private final Canvas mCanvas = new Canvas();
+    private final Paint mPaint = new Paint( Paint.ANTI_ALIAS_FLAG );
+    private final Path mPath = new Path();
+    private final PointDrawer mPointDrawer = new PointDrawer();
+    private final PathBuilder mPathBuilder = new PathBuilder();
+
+    Bitmap rasterize( VectorTile vectorTile, Tile tile, VectorStyle vectorStyle, float tolerance ) {
+      int backgroundColor = vectorStyle.getBackgroundColor();
+      Bitmap.Config config = Color.alpha( backgroundColor ) == 255 ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+      Bitmap bitmap = Bitmap.createBitmap( tile.getWidth(), tile.getHeight(), config );
+      mCanvas.setBitmap( bitmap );
+      mCanvas.drawColor( backgroundColor );
+      float scale = tile.getDetailLevel().getScale();
+      for( VectorStyle.Rule rule : vectorStyle.getRules() ) {
+        if( scale < rule.getMinimumScale() ) {
+          continue;
+        }
+        VectorTile.Layer layer = vectorTile.getLayer( rule.getLayerName() );
+        if( layer == null ) {
+          continue;
+        }
+        float scaleX = tile.getWidth() / (float) layer.getExtent();
+        float scaleY = tile.getHeight() / (float) layer.getExtent();
+        for( VectorTile.Feature feature : layer.getFeatures() ) {
+          if( rule.matches( feature ) ) {
+            draw( feature, rule, scaleX, scaleY, tolerance );
+          }
+        }
+      }
+      mCanvas.setBitmap( null );
+      return bitmap;
+    }
+
+    private void draw( VectorTile.Feature feature, VectorStyle.Rule rule, float scaleX, float scaleY, float tolerance ) {
+      switch( feature.getType() ) {
+        case VectorTile.GEOMETRY_POINT:
+          drawPoints( feature, rule, scaleX, scaleY );
+          break;
+        case VectorTile.GEOMETRY_LINESTRING:
+          buildPath( feature, scaleX, scaleY, tolerance );
+          stroke( rule );
+          break;
+        case VectorTile.GEOMETRY_POLYGON:
+          buildPath( feature, scaleX, scaleY, tolerance );
+          if( Color.alpha( rule.getFillColor() ) != 0 ) {
+            mPaint.setStyle( Paint.Style.FILL );
+            mPaint.setColor( rule.getFillColor() );
+            mCanvas.drawPath( mPath, mPaint );
+          }
+          stroke( rule );
+          break;
+      }
+    }
+
+    private void stroke( VectorStyle.Rule rule ) {
+      if( Color.alpha( rule.getStrokeColor() ) != 0 && rule.getStrokeWidth() > 0 ) {
+        mPaint.setStyle( Paint.Style.STROKE );
+        mPaint.setColor( rule.getStrokeColor() );
+        mPaint.setStrokeWidth( rule.getStrokeWidth() );
+        mCanvas.drawPath( mPath, mPaint );
+      }
+    }
+
+    private void drawPoints( VectorTile.Feature feature, VectorStyle.Rule rule, float scaleX, float scaleY ) {
+      int color = Color.alpha( rule.getFillColor() ) != 0 ? rule.getFillColor() : rule.getStrokeColor();
+      if( Color.alpha( color ) == 0 ) {
+        return;
+      }
+      mPaint.setStyle( Paint.Style.FILL );
+      mPaint.setColor( color );
+      mPointDrawer.set( rule.getPointRadius(), scaleX, scaleY );
+      feature.decodeGeometry( mPointDrawer );
+    }
+
+    /**
+     * Decodes the geometry into the shared path, in tile pixels.
+     */
+    private void buildPath( VectorTile.Feature feature, float scaleX, float scaleY, float tolerance ) {
+      mPath.rewind();
+      mPathBuilder.set( scaleX, scaleY, tolerance );
+      feature.decodeGeometry( mPathBuilder );
+      mPathBuilder.flush();
+    }
+
+    /**
+     * Draws a circle at each point of a point geometry.
+     */
+    private class PointDrawer implements VectorTile.GeometryHandler {
+
+      private float mRadius;
+      private float mScaleX;
+      private float mScaleY;
+
+      void set( float radius, float scaleX, float scaleY ) {
+        mRadius = radius;
+        mScaleX = scaleX;
+        mScaleY = scaleY;
+      }
+
+      @Override
+      public void moveTo( int x, int y ) {
+        mCanvas.drawCircle( x * mScaleX, y * mScaleY, mRadius, mPaint );
+      }
+
+      @Override
+      public void lineTo( int x, int y ) {
+      }
+
+      @Override
+      public void closePath() {
+      }
+    }
+
+    /**
+     * Adds geometry to the shared path, dropping vertices within the tolerance of the last
+     * vertex kept.  The last vertex of each run of lines is always kept.
+     */
+    private class PathBuilder implements VectorTile.GeometryHandler {
+
+      private float mScaleX;
+      private float mScaleY;
+      private float mToleranceSquared;
+      private float mLastX;
+      private float mLastY;
+      private float mPendingX;
+      private float mPendingY;
+      private boolean mHasPending;
+
+      void set( float scaleX, float scaleY, float tolerance ) {
+        mScaleX = scaleX;
+        mScaleY = scaleY;
+        mToleranceSquared = tolerance * tolerance;
+        mHasPending = false;
+      }
+
+      @Override
+      public void moveTo( int x, int y ) {
+        flush();
+        mLastX = x * mScaleX;
+        mLastY = y * mScaleY;
+        mPath.moveTo( mLastX, mLastY );
+      }
+
+      @Override
+      public void lineTo( int x, int y ) {
+        float pixelX = x * mScaleX;
+        float pixelY = y * mScaleY;
+        float dx = pixelX - mLastX;
+        float dy = pixelY - mLastY;
+        if( dx * dx + dy * dy < mToleranceSquared ) {
+          // held back in case it ends the run
+          mPendingX = pixelX;
+          mPendingY = pixelY;
+          mHasPending = true;
+          return;
+        }
+        mHasPending = false;
+        mPath.lineTo( pixelX, pixelY );
+        mLastX = pixelX;
+        mLastY = pixelY;
+      }
+
+      @Override
+      public void closePath() {
+        flush();
+        mPath.close();
+      }
+
+      void flush() {
+        if( mHasPending ) {
+          mHasPending = false;
+          mPath.lineTo( mPendingX, mPendingY );
+          mLastX = mPendingX;
+          mLastY = mPendingY;
+        }
+      }
+    }
+  }
+}
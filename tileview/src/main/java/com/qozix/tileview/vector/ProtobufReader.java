@@ -0,0 +1,175 @@
+package com.qozix.tileview.vector;
+
+import java.io.IOException;
+
+/**
+ * A minimal reader of the protocol buffer wire format, covering what vector tiles use:
+ * varints, fixed 32 and 64 bit values, and length delimited fields.  Nested messages are read
+ * with a reader over a slice of the same array, so decoding copies no bytes.
+ */
+class ProtobufReader {
+
+  static final int WIRE_TYPE_VARINT = 0;
+  static final int WIRE_TYPE_FIXED64 = 1;
+  static final int WIRE_TYPE_LENGTH_DELIMITED = 2;
+  static final int WIRE_TYPE_FIXED32 = 5;
+
+  private final byte[] mBuffer;
+  private final int mLimit;
+  private int mPosition;
+  private int mTag;
+
+  ProtobufReader( byte[] buffer ) {
+    this( buffer, 0, buffer.length );
+  }
+
+  private ProtobufReader( byte[] buffer, int offset, int limit ) {
+    mBuffer = buffer;
+    mPosition = offset;
+    mLimit = limit;
+  }
+
+  /**
+   * Advances to the next field.
+   *
+   * @return True if a field was read, false at the end of the message.
+   */
+  boolean next() throws IOException {
+    if( mPosition >= mLimit ) {
+      return false;
+    }
+    mTag = (int) readVarint();
+    return true;
+  }
+
+  int getFieldNumber() {
+    return mTag >>> 3;
+  }
+
+  int getWireType() {
+    return mTag & 7;
+  }
+
+  long readVarint() throws IOException {
+    long value = 0;
+    for( int shift = 0; shift < 64; shift += 7 ) {
+      if( mPosition >= mLimit ) {
+        throw new IOException( "Truncated varint" );
+      }
+      byte b = mBuffer[mPosition++];
+      value |= (long) (b & 0x7f) << shift;
+      if( (b & 0x80) == 0 ) {
+        return value;
+      }
+    }
+    throw new IOException( "Malformed varint" );
+  }
+
+  long readSignedVarint() throws IOException {
+    return decodeZigZag( readVarint() );
+  }
+
+  long readFixed64() throws IOException {
+    require( 8 );
+    long value = 0;
+    for( int i = 0; i < 8; i++ ) {
+      value |= (long) (mBuffer[mPosition++] & 0xff) << (i * 8);
+    }
+    return value;
+  }
+
+  int readFixed32() throws IOException {
+    require( 4 );
+    int value = 0;
+    for( int i = 0; i < 4; i++ ) {
+      value |= (mBuffer[mPosition++] & 0xff) << (i * 8);
+    }
+    return value;
+  }
+
+  /**
+   * @return A reader over the current length delimited field.
+   */
+  ProtobufReader readMessage() throws IOException {
+    int length = readLength();
+    ProtobufReader reader = new ProtobufReader( mBuffer, mPosition, mPosition + length );
+    mPosition += length;
+    return reader;
+  }
+
+  String readString() throws IOException {
+    int length = readLength();
+    String value = new String( mBuffer, mPosition, length, "UTF-8" );
+    mPosition += length;
+    return value;
+  }
+
+  /**
+   * Reads a packed repeated field of unsigned 32 bit varints.
+   */
+  int[] readPackedInts() throws IOException {
+    int length = readLength();
+    int end = mPosition + length;
+    if( length > 0 && (mBuffer[end - 1] & 0x80) != 0 ) {
+      throw new IOException( "Truncated varint" );
+    }
+    int count = 0;
+    for( int i = mPosition; i < end; i++ ) {
+      if( (mBuffer[i] & 0x80) == 0 ) {
+        count++;
+      }
+    }
+    int[] values = new int[count];
+    for( int i = 0; i < count; i++ ) {
+      values[i] = (int) readVarint();
+    }
+    mPosition = end;
+    return values;
+  }
+
+  void skip() throws IOException {
+    switch( getWireType() ) {
+      case WIRE_TYPE_VARINT:
+        readVarint();
+        break;
+      case WIRE_TYPE_FIXED64:
+        require( 8 );
+        mPosition += 8;
+        break;
+      case WIRE_TYPE_LENGTH_DELIMITED:
+        // not mPosition += readLength(), which would add to the position from before the length
+        int length = readLength();
+        mPosition += length;
+        break;
+      case WIRE_TYPE_FIXED32:
+        require( 4 );
+        mPosition += 4;
+        break;
+      default:
+        throw new IOException( "Unsupported wire type " + getWireType() );
+    }
+  }
+
+  static int decodeZigZag( int value ) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  static long decodeZigZag( long value ) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private int readLength() throws IOException {
+    int length = (int) readVarint();
+    if( length < 0 ) {
+      throw new IOException( "Negative length" );
+    }
+    require( length );
+    return length;
+  }
+
+  private void require( int count ) throws IOException {
+    if( mPosition + count > mLimit ) {
+      throw new IOException( "Truncated field" );
+    }
+  }
+}
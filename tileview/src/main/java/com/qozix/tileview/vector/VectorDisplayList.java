@@ -0,0 +1,184 @@
+package com.qozix.tileview.vector;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Picture;
+import android.graphics.RectF;
+
+import com.qozix.tileview.core.SpatialIndex;
+
+import java.util.List;
+
+/**
+ * A recorded list of drawing operations in image coordinates (i.e., at scale 1), with a spatial
+ * index of their bounds, so any rectangle of the image can be redrawn by replaying only the
+ * operations that intersect it.
+ *
+ * Paths and paints are copied as they're added, so callers may reuse them.  Operations are
+ * replayed concurrently by render threads, so content should be recorded before the list is
+ * handed to a BitmapProviderDisplayList; Pictures added with drawPicture must not be recorded
+ * into afterwards.
+ */
+public class VectorDisplayList {
+
+  private final SpatialIndex<DrawOp> mSpatialIndex;
+
+  public VectorDisplayList() {
+    mSpatialIndex = new SpatialIndex<>();
+  }
+
+  /**
+   * @param cellSize The size, in image pixels, of the cells of the spatial index.
+   */
+  public VectorDisplayList( float cellSize ) {
+    mSpatialIndex = new SpatialIndex<>( cellSize );
+  }
+
+  public void drawPath( Path path, Paint paint ) {
+    RectF bounds = new RectF();
+    path.computeBounds( bounds, true );
+    add( new PathOp( new Path( path ), new Paint( paint ) ), bounds, paint );
+  }
+
+  public void drawRect( float left, float top, float right, float bottom, Paint paint ) {
+    add( new RectOp( left, top, right, bottom, new Paint( paint ) ), new RectF( left, top, right, bottom ), paint );
+  }
+
+  public void drawLine( float startX, float startY, float stopX, float stopY, Paint paint ) {
+    RectF bounds = new RectF( Math.min( startX, stopX ), Math.min( startY, stopY ), Math.max( startX, stopX ), Math.max( startY, stopY ) );
+    add( new LineOp( startX, startY, stopX, stopY, new Paint( paint ) ), bounds, paint );
+  }
+
+  public void drawCircle( float centerX, float centerY, float radius, Paint paint ) {
+    RectF bounds = new RectF( centerX - radius, centerY - radius, centerX + radius, centerY + radius );
+    add( new CircleOp( centerX, centerY, radius, new Paint( paint ) ), bounds, paint );
+  }
+
+  /**
+   * Adds content recorded elsewhere, e.g., by an SVG library, as a single operation.
+   *
+   * @param picture A Picture that has finished recording, in image coordinates.
+   * @param bounds The area of the image the picture draws into.
+   */
+  public void drawPicture( Picture picture, RectF bounds ) {
+    mSpatialIndex.insert( new PictureOp( picture ), bounds.left, bounds.top, bounds.right, bounds.bottom );
+  }
+
+  /**
+   * @return The number of operations recorded.
+   */
+  public int size() {
+    return mSpatialIndex.size();
+  }
+
+  public void clear() {
+    mSpatialIndex.clear();
+  }
+
+  /**
+   * Collects the operations intersecting the image rectangle passed, in the order they were added.
+   */
+  void query( float left, float top, float right, float bottom, List<DrawOp> results ) {
+    mSpatialIndex.query( left, top, right, bottom, results );
+  }
+
+  private void add( DrawOp drawOp, RectF bounds, Paint paint ) {
+    // strokes extend half their width beyond the geometry
+    float outset = paint.getStyle() == Paint.Style.FILL ? 0 : Math.max( paint.getStrokeWidth(), 1 ) / 2;
+    mSpatialIndex.insert( drawOp, bounds.left - outset, bounds.top - outset, bounds.right + outset, bounds.bottom + outset );
+  }
+
+  abstract static class DrawOp {
+    abstract void draw( Canvas canvas );
+  }
+
+  private static class PathOp extends DrawOp {
+    private final Path mPath;
+    private final Paint mPaint;
+
+    PathOp( Path path, Paint paint ) {
+      mPath = path;
+      mPaint = paint;
+    }
+
+    @Override
+    void draw( Canvas canvas ) {
+      canvas.drawPath( mPath, mPaint );
+    }
+  }
+
+  private static class RectOp extends DrawOp {
+    private final float mLeft;
+    private final float mTop;
+    private final float mRight;
+    private final float mBottom;
+    private final Paint mPaint;
+
+    RectOp( float left, float top, float right, float bottom, Paint paint ) {
+      mLeft = left;
+      mTop = top;
+      mRight = right;
+      mBottom = bottom;
+      mPaint = paint;
+    }
+
+    @Override
+    void draw( Canvas canvas ) {
+      canvas.drawRect( mLeft, mTop, mRight, mBottom, mPaint );
+    }
+  }
+
+  private static class LineOp extends DrawOp {
+    private final float mStartX;
+    private final float mStartY;
+    private final float mStopX;
+    private final float mStopY;
+    private final Paint mPaint;
+
+    LineOp( float startX, float startY, float stopX, float stopY, Paint paint ) {
+      mStartX = startX;
+      mStartY = startY;
+      mStopX = stopX;
+      mStopY = stopY;
+      mPaint = paint;
+    }
+
+    @Override
+    void draw( Canvas canvas ) {
+      canvas.drawLine( mStartX, mStartY, mStopX, mStopY, mPaint );
+    }
+  }
+
+  private static class CircleOp extends DrawOp {
+    private final float mCenterX;
+    private final float mCenterY;
+    private final float mRadius;
+    private final Paint mPaint;
+
+    CircleOp( float centerX, float centerY, float radius, Paint paint ) {
+      mCenterX = centerX;
+      mCenterY = centerY;
+      mRadius = radius;
+      mPaint = paint;
+    }
+
+    @Override
+    void draw( Canvas canvas ) {
+      canvas.drawCircle( mCenterX, mCenterY, mRadius, mPaint );
+    }
+  }
+
+  private static class PictureOp extends DrawOp {
+    private final Picture mPicture;
+
+    PictureOp( Picture picture ) {
+      mPicture = picture;
+    }
+
+    @Override
+    void draw( Canvas canvas ) {
+      canvas.drawPicture( mPicture );
+    }
+  }
+}
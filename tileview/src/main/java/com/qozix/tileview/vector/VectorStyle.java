@@ -0,0 +1,136 @@
+package com.qozix.tileview.vector;
+
+import android.graphics.Color;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A simple style sheet for rasterizing vector tiles: a background colour and an ordered list of
+ * rules, each drawing the features of one layer, optionally filtered by a property value.
+ * Rules are drawn in the order they were added, so later rules draw over earlier ones.
+ *
+ * Rules may be added or removed while tiles are being rasterized; a tile in progress finishes
+ * with the rules it started with.
+ */
+public class VectorStyle {
+
+  private int mBackgroundColor = Color.WHITE;
+  private final List<Rule> mRules = new CopyOnWriteArrayList<>();
+
+  public int getBackgroundColor() {
+    return mBackgroundColor;
+  }
+
+  public void setBackgroundColor( int backgroundColor ) {
+    mBackgroundColor = backgroundColor;
+  }
+
+  public void addRule( Rule rule ) {
+    mRules.add( rule );
+  }
+
+  public void removeRule( Rule rule ) {
+    mRules.remove( rule );
+  }
+
+  public List<Rule> getRules() {
+    return Collections.unmodifiableList( mRules );
+  }
+
+  public static class Rule {
+
+    private final String mLayerName;
+    private String mFilterKey;
+    private Object mFilterValue;
+    private int mFillColor = Color.TRANSPARENT;
+    private int mStrokeColor = Color.TRANSPARENT;
+    private float mStrokeWidth = 1;
+    private float mPointRadius = 2;
+    private float mMinimumScale;
+
+    /**
+     * @param layerName The name of the vector tile layer whose features this rule draws.
+     */
+    public Rule( String layerName ) {
+      mLayerName = layerName;
+    }
+
+    public String getLayerName() {
+      return mLayerName;
+    }
+
+    /**
+     * Restricts the rule to features whose property has the value passed.  Numeric values
+     * match regardless of their encoded type.
+     */
+    public void setFilter( String key, Object value ) {
+      mFilterKey = key;
+      mFilterValue = value;
+    }
+
+    public int getFillColor() {
+      return mFillColor;
+    }
+
+    /**
+     * @param fillColor The colour polygons and points are filled with; transparent to not fill.
+     */
+    public void setFillColor( int fillColor ) {
+      mFillColor = fillColor;
+    }
+
+    public int getStrokeColor() {
+      return mStrokeColor;
+    }
+
+    /**
+     * @param strokeColor The colour lines and polygon outlines are drawn in; transparent to not stroke.
+     */
+    public void setStrokeColor( int strokeColor ) {
+      mStrokeColor = strokeColor;
+    }
+
+    public float getStrokeWidth() {
+      return mStrokeWidth;
+    }
+
+    /**
+     * @param strokeWidth The stroke width in tile pixels.
+     */
+    public void setStrokeWidth( float strokeWidth ) {
+      mStrokeWidth = strokeWidth;
+    }
+
+    public float getPointRadius() {
+      return mPointRadius;
+    }
+
+    public void setPointRadius( float pointRadius ) {
+      mPointRadius = pointRadius;
+    }
+
+    public float getMinimumScale() {
+      return mMinimumScale;
+    }
+
+    /**
+     * @param minimumScale The detail level scale below which this rule is not drawn, e.g., to omit small features when zoomed out.
+     */
+    public void setMinimumScale( float minimumScale ) {
+      mMinimumScale = minimumScale;
+    }
+
+    boolean matches( VectorTile.Feature feature ) {
+      if( mFilterKey == null ) {
+        return true;
+      }
+      Object value = feature.getProperty( mFilterKey );
+      if( value instanceof Number && mFilterValue instanceof Number ) {
+        return ((Number) value).doubleValue() == ((Number) mFilterValue).doubleValue();
+      }
+      return mFilterValue == null ? value == null : mFilterValue.equals( value );
+    }
+  }
+}
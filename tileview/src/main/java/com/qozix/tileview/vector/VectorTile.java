@@ -0,0 +1,259 @@
+package com.qozix.tileview.vector;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A decoded Mapbox Vector Tile (version 2): named layers of features, each with a geometry type,
+ * properties and a command-encoded geometry in the layer's extent.
+ */
+public class VectorTile {
+
+  public static final int GEOMETRY_UNKNOWN = 0;
+  public static final int GEOMETRY_POINT = 1;
+  public static final int GEOMETRY_LINESTRING = 2;
+  public static final int GEOMETRY_POLYGON = 3;
+
+  public static final int COMMAND_MOVE_TO = 1;
+  public static final int COMMAND_LINE_TO = 2;
+  public static final int COMMAND_CLOSE_PATH = 7;
+
+  private static final int DEFAULT_EXTENT = 4096;
+
+  /**
+   * Receives the decoded commands of a feature's geometry, in the layer's extent.
+   */
+  public interface GeometryHandler {
+    void moveTo( int x, int y );
+    void lineTo( int x, int y );
+    void closePath();
+  }
+
+  private final Map<String, Layer> mLayers;
+
+  private VectorTile( Map<String, Layer> layers ) {
+    mLayers = layers;
+  }
+
+  /**
+   * Decodes an uncompressed vector tile.
+   *
+   * @param data The protocol buffer encoded tile.
+   * @return The decoded tile.
+   * @throws IOException If the data is not a valid vector tile.
+   */
+  public static VectorTile decode( byte[] data ) throws IOException {
+    Map<String, Layer> layers = new HashMap<>();
+    ProtobufReader reader = new ProtobufReader( data );
+    while( reader.next() ) {
+      if( reader.getFieldNumber() == 3 && reader.getWireType() == ProtobufReader.WIRE_TYPE_LENGTH_DELIMITED ) {
+        Layer layer = decodeLayer( reader.readMessage() );
+        layers.put( layer.getName(), layer );
+      } else {
+        reader.skip();
+      }
+    }
+    return new VectorTile( layers );
+  }
+
+  /**
+   * @return The layer with the name passed, or null if the tile has no such layer.
+   */
+  public Layer getLayer( String name ) {
+    return mLayers.get( name );
+  }
+
+  public Map<String, Layer> getLayers() {
+    return Collections.unmodifiableMap( mLayers );
+  }
+
+  private static Layer decodeLayer( ProtobufReader reader ) throws IOException {
+    String name = "";
+    int extent = DEFAULT_EXTENT;
+    List<String> keys = new ArrayList<>();
+    List<Object> values = new ArrayList<>();
+    List<ProtobufReader> featureReaders = new ArrayList<>();
+    while( reader.next() ) {
+      switch( reader.getFieldNumber() ) {
+        case 1:
+          name = reader.readString();
+          break;
+        case 2:
+          // features refer to keys and values, which may follow them
+          featureReaders.add( reader.readMessage() );
+          break;
+        case 3:
+          keys.add( reader.readString() );
+          break;
+        case 4:
+          values.add( decodeValue( reader.readMessage() ) );
+          break;
+        case 5:
+          extent = (int) reader.readVarint();
+          break;
+        default:
+          reader.skip();
+      }
+    }
+    List<Feature> features = new ArrayList<>( featureReaders.size() );
+    for( ProtobufReader featureReader : featureReaders ) {
+      features.add( decodeFeature( featureReader, keys, values ) );
+    }
+    return new Layer( name, extent, features );
+  }
+
+  private static Feature decodeFeature( ProtobufReader reader, List<String> keys, List<Object> values ) throws IOException {
+    int type = GEOMETRY_UNKNOWN;
+    int[] tags = null;
+    int[] geometry = new int[0];
+    while( reader.next() ) {
+      switch( reader.getFieldNumber() ) {
+        case 2:
+          tags = reader.readPackedInts();
+          break;
+        case 3:
+          type = (int) reader.readVarint();
+          break;
+        case 4:
+          geometry = reader.readPackedInts();
+          break;
+        default:
+          reader.skip();
+      }
+    }
+    Map<String, Object> properties = new HashMap<>();
+    if( tags != null ) {
+      for( int i = 0; i + 1 < tags.length; i += 2 ) {
+        if( tags[i] < keys.size() && tags[i + 1] < values.size() ) {
+          properties.put( keys.get( tags[i] ), values.get( tags[i + 1] ) );
+        }
+      }
+    }
+    return new Feature( type, properties, geometry );
+  }
+
+  private static Object decodeValue( ProtobufReader reader ) throws IOException {
+    Object value = null;
+    while( reader.next() ) {
+      switch( reader.getFieldNumber() ) {
+        case 1:
+          value = reader.readString();
+          break;
+        case 2:
+          value = Float.intBitsToFloat( reader.readFixed32() );
+          break;
+        case 3:
+          value = Double.longBitsToDouble( reader.readFixed64() );
+          break;
+        case 4:
+        case 5:
+          value = reader.readVarint();
+          break;
+        case 6:
+          value = reader.readSignedVarint();
+          break;
+        case 7:
+          value = reader.readVarint() != 0;
+          break;
+        default:
+          reader.skip();
+      }
+    }
+    return value;
+  }
+
+  public static class Layer {
+
+    private final String mName;
+    private final int mExtent;
+    private final List<Feature> mFeatures;
+
+    Layer( String name, int extent, List<Feature> features ) {
+      mName = name;
+      mExtent = extent;
+      mFeatures = features;
+    }
+
+    public String getName() {
+      return mName;
+    }
+
+    /**
+     * @return The size of the tile in geometry units.
+     */
+    public int getExtent() {
+      return mExtent;
+    }
+
+    public List<Feature> getFeatures() {
+      return Collections.unmodifiableList( mFeatures );
+    }
+  }
+
+  public static class Feature {
+
+    private final int mType;
+    private final Map<String, Object> mProperties;
+    private final int[] mGeometry;
+
+    Feature( int type, Map<String, Object> properties, int[] geometry ) {
+      mType = type;
+      mProperties = properties;
+      mGeometry = geometry;
+    }
+
+    /**
+     * @return One of GEOMETRY_POINT, GEOMETRY_LINESTRING, GEOMETRY_POLYGON or GEOMETRY_UNKNOWN.
+     */
+    public int getType() {
+      return mType;
+    }
+
+    public Map<String, Object> getProperties() {
+      return Collections.unmodifiableMap( mProperties );
+    }
+
+    public Object getProperty( String key ) {
+      return mProperties.get( key );
+    }
+
+    /**
+     * Decodes the geometry, which is encoded as command integers each followed by zigzag
+     * encoded parameters relative to the previous vertex, passing each vertex in absolute
+     * coordinates.  A command whose parameters run past the end of the geometry is cut short.
+     *
+     * @param geometryHandler Receives the commands in order.
+     */
+    public void decodeGeometry( GeometryHandler geometryHandler ) {
+      int x = 0;
+      int y = 0;
+      int i = 0;
+      while( i < mGeometry.length ) {
+        int command = mGeometry[i] & 7;
+        int count = mGeometry[i] >>> 3;
+        i++;
+        if( command == COMMAND_CLOSE_PATH ) {
+          geometryHandler.closePath();
+          continue;
+        }
+        if( command != COMMAND_MOVE_TO && command != COMMAND_LINE_TO ) {
+          // an unknown command's parameter count can't be known, so nothing after it can be read
+          return;
+        }
+        for( int j = 0; j < count && i + 1 < mGeometry.length; j++ ) {
+          x += ProtobufReader.decodeZigZag( mGeometry[i++] );
+          y += ProtobufReader.decodeZigZag( mGeometry[i++] );
+          if( command == COMMAND_MOVE_TO ) {
+            geometryHandler.moveTo( x, y );
+          } else {
+            geometryHandler.lineTo( x, y );
+          }
+        }
+      }
+    }
+  }
+}
@@ -19,6 +19,7 @@ import android.view.animation.Interpolator;
 import android.widget.Scroller;
 
 import com.qozix.tileview.geom.FloatMathHelper;
+import com.qozix.tileview.trace.GestureRecorder;
 import com.qozix.tileview.view.TouchUpGestureDetector;
 
 import java.lang.ref.WeakReference;
@@ -90,6 +91,8 @@ public class ZoomPanLayout extends ViewGroup implements
 
   private OnScrollChangeListener onScrollChangeListener;
 
+  private GestureRecorder mGestureRecorder;
+
   /**
    * Constructor to use when creating a ZoomPanLayout from code.
    *
@@ -584,6 +587,29 @@ public class ZoomPanLayout extends ViewGroup implements
     return direction > 0 ? position < getScrollLimitX() : direction < 0 && position > 0;
   }
 
+  /**
+   * Registers a GestureRecorder that will receive every touch event delivered to this
+   * ZoomPanLayout, and the resulting state.  Normally invoked by GestureRecorder.start.
+   *
+   * @param gestureRecorder The GestureRecorder to notify, or null to stop recording.
+   */
+  public void setGestureRecorder(GestureRecorder gestureRecorder) {
+    mGestureRecorder = gestureRecorder;
+  }
+
+  @Override
+  public boolean dispatchTouchEvent(MotionEvent event) {
+    // synthetic events from dispatchSingleClickToChildren are regenerated on replay
+    if (mGestureRecorder == null || !intercept) {
+      return super.dispatchTouchEvent(event);
+    }
+    // record before dispatch; onInterceptTouchEvent may rewrite the event's action
+    mGestureRecorder.recordMotionEvent(event);
+    boolean handled = super.dispatchTouchEvent(event);
+    mGestureRecorder.recordState();
+    return handled;
+  }
+
   @Override
   public boolean onTouchEvent(MotionEvent event) {
     boolean gestureIntercept = mGestureDetector.onTouchEvent(event);
@@ -795,9 +821,11 @@ public class ZoomPanLayout extends ViewGroup implements
   public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
     int scrollEndX = getScrollX() + (int) distanceX;
     int scrollEndY = getScrollY() + (int) distanceY;
+    // flagged before scrolling, so the first step of a drag is seen as one by onScrollChanged
+    boolean isDragBeginning = !mIsDragging;
+    mIsDragging = true;
     scrollTo(scrollEndX, scrollEndY);
-    if (!mIsDragging) {
-      mIsDragging = true;
+    if (isDragBeginning) {
       broadcastDragBegin();
     } else {
       broadcastDragUpdate();
@@ -0,0 +1,81 @@
+package com.qozix.tileview;
+
+import android.view.View;
+
+import com.qozix.tileview.detail.DeepZoomDescriptor;
+import com.qozix.tileview.detail.DetailLevel;
+import com.qozix.tileview.graphics.BitmapProviderSynthetic;
+import com.qozix.tileview.tiles.TileCanvasViewGroup;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies that a TileView configured only with a Deep Zoom descriptor, with no detail levels
+ * added by hand, chooses a pyramid level and renders the viewport.
+ */
+@RunWith( RobolectricGradleTestRunner.class )
+@Config( constants = BuildConfig.class, sdk = 21 )
+public class TileViewDeepZoomTest {
+
+  private static final int WIDTH = 1080;
+  private static final int HEIGHT = 1920;
+  private static final int FRAME_INTERVAL_MS = 16;
+  private static final long RENDER_TIMEOUT_MS = 5000;
+
+  private TileView mTileView;
+  private BitmapProviderSynthetic mBitmapProvider;
+  private DeepZoomDescriptor mDeepZoomDescriptor;
+
+  @Before
+  public void setUp() {
+    mDeepZoomDescriptor = new DeepZoomDescriptor( 8192, 8192, 256, 0, "jpg" );
+    mBitmapProvider = new BitmapProviderSynthetic( 1 );
+    mTileView = new TileView( RuntimeEnvironment.application );
+    mTileView.setTransitionsEnabled( false );
+    mTileView.setBitmapProvider( mBitmapProvider );
+    // a scale that layout leaves alone, so no later scale change can select a level
+    mTileView.setScaleLimits( 0, 2 );
+    mTileView.setScale( 1 );
+    mTileView.setDeepZoomDescriptor( mDeepZoomDescriptor );
+  }
+
+  @After
+  public void tearDown() {
+    mTileView.destroy();
+  }
+
+  @Test
+  public void descriptorAloneRendersTiles() throws Exception {
+    DetailLevel detailLevel = mTileView.getDetailLevelManager().getCurrentDetailLevel();
+    assertNotNull( "no detail level was chosen", detailLevel );
+    assertEquals( mDeepZoomDescriptor.getLevelForScale( mTileView.getScale() ), detailLevel.getData() );
+
+    TileCanvasViewGroup tileCanvasViewGroup = mTileView.getTileCanvasViewGroup();
+    long deadline = System.currentTimeMillis() + RENDER_TIMEOUT_MS;
+    do {
+      mTileView.measure(
+        View.MeasureSpec.makeMeasureSpec( WIDTH, View.MeasureSpec.EXACTLY ),
+        View.MeasureSpec.makeMeasureSpec( HEIGHT, View.MeasureSpec.EXACTLY ) );
+      mTileView.layout( 0, 0, WIDTH, HEIGHT );
+      Robolectric.getForegroundThreadScheduler().advanceBy( FRAME_INTERVAL_MS );
+      Thread.sleep( 1 );
+      ShadowLooper.runUiThreadTasks();
+    } while( !tileCanvasViewGroup.isViewportRendered() && System.currentTimeMillis() < deadline );
+
+    assertTrue( "provider was never called", mBitmapProvider.getUniqueCallCount() > 0 );
+    assertTrue( "viewport was not rendered", tileCanvasViewGroup.isViewportRendered() );
+  }
+
+}
@@ -0,0 +1,118 @@
+package com.qozix.tileview;
+
+import android.view.MotionEvent;
+import android.view.View;
+
+import com.qozix.tileview.graphics.BitmapProviderSynthetic;
+import com.qozix.tileview.tiles.TileCanvasViewGroup;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies that only touch motion defers render passes: a programmatic scroll or scale renders at
+ * the next frame, while a drag waits for the finger to lift.
+ */
+@RunWith( RobolectricGradleTestRunner.class )
+@Config( constants = BuildConfig.class, sdk = 21 )
+public class TileViewMotionTest {
+
+  private static final int FRAME_INTERVAL_MS = 16;
+  private static final long RENDER_TIMEOUT_MS = 5000;
+
+  private TileView mTileView;
+  private CountingTileRenderListener mTileRenderListener;
+
+  @Before
+  public void setUp() throws Exception {
+    mTileView = new TileView( RuntimeEnvironment.application );
+    mTileView.setSize( 8192, 8192 );
+    mTileView.setBitmapProvider( new BitmapProviderSynthetic( 1 ) );
+    mTileView.setTransitionsEnabled( false );
+    mTileView.addDetailLevel( 1.000f, "1000" );
+    // starting above the minimum keeps the first layout from fitting the image and capping the maximum scale there
+    mTileView.setScaleLimits( 0, 2 );
+    mTileView.setScale( 1 );
+
+    TileCanvasViewGroup tileCanvasViewGroup = mTileView.getTileCanvasViewGroup();
+    long deadline = System.currentTimeMillis() + RENDER_TIMEOUT_MS;
+    do {
+      runFrame();
+    } while( !tileCanvasViewGroup.isViewportRendered() && System.currentTimeMillis() < deadline );
+    assertTrue( "viewport was not rendered", tileCanvasViewGroup.isViewportRendered() );
+
+    mTileRenderListener = new CountingTileRenderListener();
+    mTileView.getTileCanvasViewGroup().setTileRenderListener( mTileRenderListener );
+  }
+
+  @After
+  public void tearDown() {
+    mTileView.destroy();
+  }
+
+  private void runFrame() throws InterruptedException {
+    mTileView.measure(
+      View.MeasureSpec.makeMeasureSpec( 1080, View.MeasureSpec.EXACTLY ),
+      View.MeasureSpec.makeMeasureSpec( 1920, View.MeasureSpec.EXACTLY ) );
+    mTileView.layout( 0, 0, 1080, 1920 );
+    Robolectric.getForegroundThreadScheduler().advanceBy( FRAME_INTERVAL_MS );
+    Thread.sleep( 1 );
+    ShadowLooper.runUiThreadTasks();
+  }
+
+  @Test
+  public void programmaticScrollRendersAtTheNextFrame() throws Exception {
+    mTileView.scrollTo( 3000, 3000 );
+    runFrame();
+    assertEquals( 1, mTileRenderListener.mStarts );
+  }
+
+  @Test
+  public void programmaticScaleRendersAtTheNextFrame() throws Exception {
+    mTileView.setScale( 0.5f );
+    runFrame();
+    assertEquals( 1, mTileRenderListener.mStarts );
+  }
+
+  @Test
+  public void dragRendersOnceReleased() throws Exception {
+    MotionEvent down = MotionEvent.obtain( 0, 0, MotionEvent.ACTION_DOWN, 500, 500, 0 );
+    MotionEvent move = MotionEvent.obtain( 0, 0, MotionEvent.ACTION_MOVE, 400, 400, 0 );
+    mTileView.onScroll( down, move, 1500, 1500 );
+    mTileView.onScroll( down, move, 1500, 1500 );
+    runFrame();
+    assertEquals( "rendered during the drag", 0, mTileRenderListener.mStarts );
+
+    mTileView.onTouchUp( move );
+    runFrame();
+    assertEquals( 1, mTileRenderListener.mStarts );
+  }
+
+  private static class CountingTileRenderListener implements TileCanvasViewGroup.TileRenderListener {
+
+    int mStarts;
+
+    @Override
+    public void onRenderStart() {
+      mStarts++;
+    }
+
+    @Override
+    public void onRenderCancelled() {
+    }
+
+    @Override
+    public void onRenderComplete() {
+    }
+  }
+}
@@ -0,0 +1,71 @@
+package com.qozix.tileview;
+
+import android.os.Parcelable;
+import android.view.View;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Verifies that a TileView recreated from saved state returns to the same scale and center,
+ * whether or not relative coordinate bounds were defined.
+ */
+@RunWith( RobolectricGradleTestRunner.class )
+@Config( constants = BuildConfig.class, sdk = 21 )
+public class TileViewSavedStateTest {
+
+  private static final int WIDTH = 1080;
+  private static final int HEIGHT = 1920;
+
+  private TileView createTileView() {
+    TileView tileView = new TileView( RuntimeEnvironment.application );
+    tileView.setSize( 8192, 8192 );
+    tileView.setScaleLimits( 0, 2 );
+    // starting above the minimum keeps the first layout from fitting the image and capping the
+    // maximum scale there
+    tileView.setScale( 1 );
+    return tileView;
+  }
+
+  private void layout( TileView tileView ) {
+    tileView.measure(
+      View.MeasureSpec.makeMeasureSpec( WIDTH, View.MeasureSpec.EXACTLY ),
+      View.MeasureSpec.makeMeasureSpec( HEIGHT, View.MeasureSpec.EXACTLY ) );
+    tileView.layout( 0, 0, WIDTH, HEIGHT );
+  }
+
+  private void assertRestores( TileView original ) {
+    layout( original );
+    original.setScale( 0.5f );
+    original.scrollToAndCenter( 1500, 1200 );
+    Parcelable state = original.onSaveInstanceState();
+    original.destroy();
+
+    TileView restored = createTileView();
+    restored.onRestoreInstanceState( state );
+    layout( restored );
+
+    assertEquals( 0.5f, restored.getScale(), 0.0001f );
+    assertEquals( 1500, restored.getScrollX() + WIDTH / 2, 1 );
+    assertEquals( 1200, restored.getScrollY() + HEIGHT / 2, 1 );
+    restored.destroy();
+  }
+
+  @Test
+  public void restoresWithoutBounds() {
+    assertRestores( createTileView() );
+  }
+
+  @Test
+  public void restoresWithBounds() {
+    TileView tileView = createTileView();
+    tileView.defineBounds( -180, 90, 180, -90 );
+    assertRestores( tileView );
+  }
+
+}
@@ -0,0 +1,112 @@
+package com.qozix.tileview.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Compares ScenarioResults against recorded values and writes a report.
+ *
+ * Baseline values are read from benchmark/baseline.properties on the test classpath, keyed as
+ * scenarioName.measurement.  Each run writes its own measurements in the same format to
+ * build/reports/benchmark/baseline.properties, so a new baseline can be adopted by copying
+ * that file over the checked in one.  Measurements with no baseline are reported but never
+ * fail, and neither are wall clock timings: under Robolectric they measure the JVM rather than
+ * the device, so only counts and simulated times are compared.
+ */
+public class BenchmarkBaseline {
+
+  private static final String BASELINE_RESOURCE = "benchmark/baseline.properties";
+  private static final String REPORT_DIRECTORY = "build/reports/benchmark";
+
+  /**
+   * Counts can vary slightly with worker thread timing, so a small margin is allowed.
+   */
+  private static final double COUNT_TOLERANCE = 0.1;
+
+  private Properties mBaseline = new Properties();
+  private Properties mRecorded = new Properties();
+  private List<String> mReport = new ArrayList<>();
+
+  public BenchmarkBaseline() {
+    InputStream inputStream = getClass().getClassLoader().getResourceAsStream( BASELINE_RESOURCE );
+    if( inputStream != null ) {
+      try {
+        mBaseline.load( inputStream );
+      } catch( IOException e ) {
+        // no baseline; every measurement is reported only
+      } finally {
+        close( inputStream );
+      }
+    }
+  }
+
+  /**
+   * Records a result and compares it against the baseline.
+   *
+   * @param result The result of a scenario run.
+   * @return A description of each regression found; empty if there were none.
+   */
+  public List<String> check( ScenarioResult result ) {
+    List<String> regressions = new ArrayList<>();
+    for( Map.Entry<String, Double> entry : result.getValues().entrySet() ) {
+      String key = result.getScenarioName() + "." + entry.getKey();
+      double value = entry.getValue();
+      mRecorded.setProperty( key, String.valueOf( value ) );
+      String line = key + " = " + value;
+      String recorded = mBaseline.getProperty( key );
+      if( recorded != null && !ScenarioResult.isWallClock( entry.getKey() ) ) {
+        double expected = Double.parseDouble( recorded );
+        double limit = expected * (1 + COUNT_TOLERANCE);
+        line += " (baseline " + expected + ")";
+        if( value > limit && value - expected >= 1 ) {
+          String regression = key + " regressed: " + value + " > " + expected + " +" + (int) (COUNT_TOLERANCE * 100) + "%";
+          regressions.add( regression );
+          line += " REGRESSION";
+        }
+      }
+      mReport.add( line );
+    }
+    return regressions;
+  }
+
+  /**
+   * Writes the human readable report and the measurements of this run to the report directory.
+   */
+  public void write() throws IOException {
+    File directory = new File( REPORT_DIRECTORY );
+    if( !directory.exists() && !directory.mkdirs() ) {
+      throw new IOException( "Unable to create " + directory.getAbsolutePath() );
+    }
+    Writer writer = new OutputStreamWriter( new FileOutputStream( new File( directory, "render-loop.txt" ) ), "UTF-8" );
+    try {
+      for( String line : mReport ) {
+        writer.write( line );
+        writer.write( '\n' );
+      }
+    } finally {
+      close( writer );
+    }
+    FileOutputStream outputStream = new FileOutputStream( new File( directory, "baseline.properties" ) );
+    try {
+      mRecorded.store( outputStream, "TileView render loop benchmark" );
+    } finally {
+      close( outputStream );
+    }
+  }
+
+  private static void close( java.io.Closeable closeable ) {
+    try {
+      closeable.close();
+    } catch( IOException e ) {
+      // nothing to do
+    }
+  }
+}
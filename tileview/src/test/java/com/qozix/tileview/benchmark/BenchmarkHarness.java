@@ -0,0 +1,176 @@
+package com.qozix.tileview.benchmark;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.view.View;
+
+import com.qozix.tileview.TileView;
+import com.qozix.tileview.core.RenderMetrics;
+import com.qozix.tileview.graphics.BitmapProviderSynthetic;
+import com.qozix.tileview.tiles.TileCanvasViewGroup;
+
+import org.robolectric.Robolectric;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.util.Scheduler;
+
+/**
+ * Runs Scenarios against a real TileView inside Robolectric, using the foreground scheduler
+ * as a fake frame clock: each frame advances the clock by FRAME_INTERVAL_MS, which drives
+ * Handler messages and animators, then waits for tile workers to go idle and measures a
+ * layout and draw pass.
+ *
+ * The provider's latency (DECODE_LATENCY_MS per tile, unless reconfigured) is slept on the
+ * same simulated clock, so decodes take frames to complete just as they would on a device,
+ * and first frame times include them.
+ */
+public class BenchmarkHarness {
+
+  public static final int FRAME_INTERVAL_MS = 16;
+  public static final int DECODE_LATENCY_MS = 20;
+  public static final int SETTLE_FRAMES = 60;
+  public static final int FIRST_FRAME_TIMEOUT_FRAMES = 600;
+
+  private static final int VIEWPORT_WIDTH = 1080;
+  private static final int VIEWPORT_HEIGHT = 1920;
+
+  private static final int IMAGE_WIDTH = 8192;
+  private static final int IMAGE_HEIGHT = 8192;
+
+  private static final long PROVIDER_SEED = 1;
+  private static final long WORKER_TIMEOUT_MS = 5000;
+
+  private BitmapProviderSynthetic mBitmapProvider = new BitmapProviderSynthetic( PROVIDER_SEED );
+  private Canvas mCanvas;
+  private SimulatedClock mSimulatedClock;
+
+  public BenchmarkHarness() {
+    mBitmapProvider.setLatency( BitmapProviderSynthetic.LatencyDistribution.fixed( DECODE_LATENCY_MS ) );
+  }
+
+  /**
+   * The provider is exposed so scenarios or callers can configure latency, failures and CPU cost.
+   */
+  public BitmapProviderSynthetic getBitmapProvider() {
+    return mBitmapProvider;
+  }
+
+  protected TileView createTileView() {
+    TileView tileView = new TileView( RuntimeEnvironment.application );
+    tileView.setSize( IMAGE_WIDTH, IMAGE_HEIGHT );
+    tileView.setBitmapProvider( mBitmapProvider );
+    tileView.setTransitionsEnabled( false );
+    tileView.addDetailLevel( 1.000f, "1000" );
+    tileView.addDetailLevel( 0.500f, "500" );
+    tileView.addDetailLevel( 0.250f, "250" );
+    tileView.addDetailLevel( 0.125f, "125" );
+    tileView.setScaleLimits( 0, 2 );
+    return tileView;
+  }
+
+  public ScenarioResult run( Scenario scenario ) {
+    mSimulatedClock = new SimulatedClock( Robolectric.getForegroundThreadScheduler().getCurrentTime() );
+    mBitmapProvider.setSleeper( mSimulatedClock );
+    TileView tileView = createTileView();
+    mCanvas = new Canvas( Bitmap.createBitmap( VIEWPORT_WIDTH, VIEWPORT_HEIGHT, Bitmap.Config.ARGB_8888 ) );
+    TileCanvasViewGroup tileCanvasViewGroup = tileView.getTileCanvasViewGroup();
+    RenderMetrics renderMetrics = tileCanvasViewGroup.getRenderMetrics();
+
+    ScenarioResult result = new ScenarioResult( scenario.getName(), scenario.getFrameCount() );
+
+    scenario.onCreate( tileView );
+    result.setFirstFrameMillis( measureFirstFrame( tileView ) );
+    settle( tileView );
+    scenario.onStart( tileView );
+    settle( tileView );
+
+    renderMetrics.reset();
+    mBitmapProvider.resetCounts();
+
+    for( int frame = 0; frame < scenario.getFrameCount(); frame++ ) {
+      scenario.onFrame( tileView, frame );
+      runFrame( tileView, result );
+    }
+    settle( tileView );
+
+    result.setReconcile( renderMetrics.getReconcileCount(), renderMetrics.getReconcileNanos() );
+    result.setTilesQueued( renderMetrics.getTilesQueued() );
+    result.setBitmapsDecoded( renderMetrics.getBitmapsDecoded() );
+    result.setProviderCalls( mBitmapProvider.getTotalCallCount(), mBitmapProvider.getRedundantCallCount() );
+
+    tileView.destroy();
+    mSimulatedClock.release();
+    return result;
+  }
+
+  private void runFrame( TileView tileView, ScenarioResult result ) {
+    Scheduler scheduler = Robolectric.getForegroundThreadScheduler();
+    scheduler.advanceBy( FRAME_INTERVAL_MS );
+    mSimulatedClock.advanceTo( scheduler.getCurrentTime() );
+    awaitWorkers( tileView.getTileCanvasViewGroup() );
+    long start = System.nanoTime();
+    measureAndLayout( tileView );
+    long laidOut = System.nanoTime();
+    tileView.draw( mCanvas );
+    long drawn = System.nanoTime();
+    if( result != null ) {
+      result.addLayoutNanos( laidOut - start );
+      result.addDrawNanos( drawn - laidOut );
+    }
+  }
+
+  /**
+   * Lays the TileView out for the first time, then runs frames until every tile in the viewport
+   * has been rendered.  Decodes wait on the simulated clock, so their latency is included.
+   *
+   * @return The simulated time taken, in milliseconds; FIRST_FRAME_TIMEOUT_FRAMES frames if it never completes.
+   */
+  private long measureFirstFrame( TileView tileView ) {
+    TileCanvasViewGroup tileCanvasViewGroup = tileView.getTileCanvasViewGroup();
+    measureAndLayout( tileView );
+    awaitWorkers( tileCanvasViewGroup );
+    int frames = 0;
+    while( !tileCanvasViewGroup.isViewportRendered() && frames < FIRST_FRAME_TIMEOUT_FRAMES ) {
+      runFrame( tileView, null );
+      frames++;
+    }
+    return frames * FRAME_INTERVAL_MS;
+  }
+
+  /**
+   * Runs enough idle frames for throttled and buffered render requests to fire and complete.
+   */
+  private void settle( TileView tileView ) {
+    for( int i = 0; i < SETTLE_FRAMES; i++ ) {
+      runFrame( tileView, null );
+    }
+  }
+
+  private void measureAndLayout( TileView tileView ) {
+    tileView.measure(
+      View.MeasureSpec.makeMeasureSpec( VIEWPORT_WIDTH, View.MeasureSpec.EXACTLY ),
+      View.MeasureSpec.makeMeasureSpec( VIEWPORT_HEIGHT, View.MeasureSpec.EXACTLY ) );
+    tileView.layout( 0, 0, VIEWPORT_WIDTH, VIEWPORT_HEIGHT );
+  }
+
+  /**
+   * Tile decodes happen on real worker threads; wait for them to finish, or to block on the
+   * simulated clock until a later frame, and deliver their results to the (paused) main looper
+   * without advancing the fake clock.
+   */
+  private void awaitWorkers( TileCanvasViewGroup tileCanvasViewGroup ) {
+    long deadline = System.currentTimeMillis() + WORKER_TIMEOUT_MS;
+    ShadowLooper.runUiThreadTasks();
+    while( tileCanvasViewGroup.getIsRendering() && !mSimulatedClock.isBlocked() && System.currentTimeMillis() < deadline ) {
+      try {
+        Thread.sleep( 1 );
+      } catch( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      ShadowLooper.runUiThreadTasks();
+    }
+    ShadowLooper.runUiThreadTasks();
+  }
+
+}
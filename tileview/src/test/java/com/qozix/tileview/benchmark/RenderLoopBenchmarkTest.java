@@ -0,0 +1,133 @@
+package com.qozix.tileview.benchmark;
+
+import com.qozix.tileview.BuildConfig;
+import com.qozix.tileview.TileView;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Headless pan/zoom scenarios measuring layout, draw, reconciliation and decode work.
+ * Results are written to build/reports/benchmark; a scenario fails if one of its counts regresses
+ * against src/test/resources/benchmark/baseline.properties.
+ */
+@RunWith( RobolectricGradleTestRunner.class )
+@Config( constants = BuildConfig.class, sdk = 21 )
+public class RenderLoopBenchmarkTest {
+
+  private static BenchmarkBaseline sBaseline;
+
+  private BenchmarkHarness mHarness = new BenchmarkHarness();
+
+  @BeforeClass
+  public static void setUpClass() {
+    sBaseline = new BenchmarkBaseline();
+  }
+
+  @AfterClass
+  public static void tearDownClass() throws Exception {
+    sBaseline.write();
+  }
+
+  private ScenarioResult runAndCheck( Scenario scenario ) {
+    ScenarioResult result = mHarness.run( scenario );
+    List<String> regressions = sBaseline.check( result );
+    assertTrue( regressions.toString(), regressions.isEmpty() );
+    return result;
+  }
+
+  @Test
+  public void firstFrameFromInitialViewport() {
+    ScenarioResult result = runAndCheck( new Scenario( "firstFrameFromInitialViewport", 1 ) {
+      @Override
+      public void onCreate( TileView tileView ) {
+        tileView.frameTo( 4096, 4096, 0.5f );
+      }
+
+      @Override
+      public void onFrame( TileView tileView, int frame ) {
+
+      }
+    } );
+    // at least one round of decodes, and the viewport rendered before the harness gave up
+    long firstFrameMillis = result.getFirstFrameMillis();
+    assertTrue( "first frame took " + firstFrameMillis + "ms", firstFrameMillis >= BenchmarkHarness.DECODE_LATENCY_MS );
+    assertTrue( "viewport never rendered", firstFrameMillis < BenchmarkHarness.FIRST_FRAME_TIMEOUT_FRAMES * BenchmarkHarness.FRAME_INTERVAL_MS );
+  }
+
+  @Test
+  public void idle() {
+    runAndCheck( new Scenario( "idle", 120 ) {
+      @Override
+      public void onFrame( TileView tileView, int frame ) {
+
+      }
+    } );
+  }
+
+  @Test
+  public void panDiagonal() {
+    runAndCheck( new Scenario( "panDiagonal", 120 ) {
+      @Override
+      public void onFrame( TileView tileView, int frame ) {
+        tileView.scrollTo( tileView.getScrollX() + 24, tileView.getScrollY() + 40 );
+      }
+    } );
+  }
+
+  @Test
+  public void zoomSteps() {
+    runAndCheck( new Scenario( "zoomSteps", 120 ) {
+      @Override
+      public void onFrame( TileView tileView, int frame ) {
+        // out from 1 to 0.125 and back, one step every other frame
+        int step = (frame / 2) % 30;
+        float progress = step < 15 ? step / 15f : (30 - step) / 15f;
+        tileView.setScale( 1f - 0.875f * progress );
+      }
+    } );
+  }
+
+  @Test
+  public void smoothZoomFromFocalPoint() {
+    runAndCheck( new Scenario( "smoothZoomFromFocalPoint", 180 ) {
+      @Override
+      public void onStart( TileView tileView ) {
+        tileView.setScale( 0.25f );
+      }
+
+      @Override
+      public void onFrame( TileView tileView, int frame ) {
+        if( frame % 60 == 0 ) {
+          float destination = (frame / 60) % 2 == 0 ? 1f : 0.25f;
+          tileView.smoothScaleFromFocalPoint( 540, 960, destination );
+        }
+      }
+    } );
+  }
+
+  @Test
+  public void panWhileZoomed() {
+    runAndCheck( new Scenario( "panWhileZoomed", 120 ) {
+      @Override
+      public void onStart( TileView tileView ) {
+        tileView.setScale( 2f );
+      }
+
+      @Override
+      public void onFrame( TileView tileView, int frame ) {
+        int direction = (frame / 30) % 2 == 0 ? 1 : -1;
+        tileView.scrollTo( tileView.getScrollX() + direction * 60, tileView.getScrollY() );
+      }
+    } );
+  }
+
+}
@@ -0,0 +1,50 @@
+package com.qozix.tileview.benchmark;
+
+import com.qozix.tileview.TileView;
+
+/**
+ * A scripted sequence of TileView operations, applied one step per simulated frame.
+ */
+public abstract class Scenario {
+
+  private final String mName;
+  private final int mFrameCount;
+
+  public Scenario( String name, int frameCount ) {
+    mName = name;
+    mFrameCount = frameCount;
+  }
+
+  public String getName() {
+    return mName;
+  }
+
+  public int getFrameCount() {
+    return mFrameCount;
+  }
+
+  /**
+   * Invoked once after the TileView is created, before it is laid out; e.g., to frame or restore
+   * the initial viewport.
+   */
+  public void onCreate( TileView tileView ) {
+
+  }
+
+  /**
+   * Invoked once before the first frame, after the TileView has been laid out and has
+   * rendered its initial viewport.
+   */
+  public void onStart( TileView tileView ) {
+
+  }
+
+  /**
+   * Apply this scenario's operation for a single frame.
+   *
+   * @param tileView The TileView under test.
+   * @param frame    Zero-based index of the frame.
+   */
+  public abstract void onFrame( TileView tileView, int frame );
+
+}
@@ -0,0 +1,121 @@
+package com.qozix.tileview.benchmark;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Measurements collected while running a single Scenario.
+ */
+public class ScenarioResult {
+
+  public static final String FIRST_FRAME_MILLIS = "firstFrameMillis";
+  public static final String DRAW_MILLIS = "drawMillis";
+  public static final String LAYOUT_MILLIS = "layoutMillis";
+  public static final String RECONCILE_MILLIS = "reconcileMillis";
+  public static final String RECONCILE_COUNT = "reconcileCount";
+  public static final String TILES_QUEUED = "tilesQueued";
+  public static final String BITMAPS_DECODED = "bitmapsDecoded";
+  public static final String PROVIDER_CALLS = "providerCalls";
+  public static final String REDUNDANT_PROVIDER_CALLS = "redundantProviderCalls";
+
+  private final String mScenarioName;
+  private final int mFrameCount;
+
+  private long mFirstFrameMillis;
+  private long mDrawNanos;
+  private long mLayoutNanos;
+  private long mReconcileNanos;
+  private long mReconcileCount;
+  private long mTilesQueued;
+  private long mBitmapsDecoded;
+  private long mProviderCalls;
+  private long mRedundantProviderCalls;
+
+  public ScenarioResult( String scenarioName, int frameCount ) {
+    mScenarioName = scenarioName;
+    mFrameCount = frameCount;
+  }
+
+  /**
+   * @param measurement One of the measurement constants of this class.
+   * @return True if the measurement is real time spent on this JVM, which says little about a device.
+   */
+  public static boolean isWallClock( String measurement ) {
+    return DRAW_MILLIS.equals( measurement ) || LAYOUT_MILLIS.equals( measurement ) || RECONCILE_MILLIS.equals( measurement );
+  }
+
+  public String getScenarioName() {
+    return mScenarioName;
+  }
+
+  public int getFrameCount() {
+    return mFrameCount;
+  }
+
+  void setFirstFrameMillis( long millis ) {
+    mFirstFrameMillis = millis;
+  }
+
+  /**
+   * @return Simulated time from the first layout until every tile in the viewport was rendered.
+   */
+  public long getFirstFrameMillis() {
+    return mFirstFrameMillis;
+  }
+
+  void addDrawNanos( long nanos ) {
+    mDrawNanos += nanos;
+  }
+
+  void addLayoutNanos( long nanos ) {
+    mLayoutNanos += nanos;
+  }
+
+  void setReconcile( long count, long nanos ) {
+    mReconcileCount = count;
+    mReconcileNanos = nanos;
+  }
+
+  void setTilesQueued( long tilesQueued ) {
+    mTilesQueued = tilesQueued;
+  }
+
+  void setBitmapsDecoded( long bitmapsDecoded ) {
+    mBitmapsDecoded = bitmapsDecoded;
+  }
+
+  void setProviderCalls( long providerCalls, long redundantProviderCalls ) {
+    mProviderCalls = providerCalls;
+    mRedundantProviderCalls = redundantProviderCalls;
+  }
+
+  public long getBitmapsDecoded() {
+    return mBitmapsDecoded;
+  }
+
+  public long getRedundantProviderCalls() {
+    return mRedundantProviderCalls;
+  }
+
+  /**
+   * @return Every measurement, keyed by the constants of this class, in a stable order.
+   */
+  public Map<String, Double> getValues() {
+    Map<String, Double> values = new LinkedHashMap<>();
+    values.put( FIRST_FRAME_MILLIS, (double) mFirstFrameMillis );
+    values.put( DRAW_MILLIS, mDrawNanos / 1e6 );
+    values.put( LAYOUT_MILLIS, mLayoutNanos / 1e6 );
+    values.put( RECONCILE_MILLIS, mReconcileNanos / 1e6 );
+    values.put( RECONCILE_COUNT, (double) mReconcileCount );
+    values.put( TILES_QUEUED, (double) mTilesQueued );
+    values.put( BITMAPS_DECODED, (double) mBitmapsDecoded );
+    values.put( PROVIDER_CALLS, (double) mProviderCalls );
+    values.put( REDUNDANT_PROVIDER_CALLS, (double) mRedundantProviderCalls );
+    return values;
+  }
+
+  @Override
+  public String toString() {
+    return mScenarioName + " (" + mFrameCount + " frames): " + getValues();
+  }
+}
@@ -0,0 +1,80 @@
+package com.qozix.tileview.benchmark;
+
+import com.qozix.tileview.graphics.BitmapProviderSynthetic;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A Sleeper that waits on simulated time rather than real time, so provider latency is counted
+ * in the same frames as the rest of a scenario: a worker that sleeps for 20ms wakes only once the
+ * harness has advanced the clock by at least that much.
+ */
+class SimulatedClock implements BitmapProviderSynthetic.Sleeper {
+
+  /**
+   * How long, in real time, the set of sleeping workers must go unchanged before the workers are
+   * taken to be waiting on the clock rather than on the CPU.
+   */
+  private static final long QUIET_NANOS = 20 * 1000 * 1000;
+
+  private long mNow;
+  private final List<Long> mWakeTimes = new ArrayList<>();
+  private long mLastChangeNanos = System.nanoTime();
+  private boolean mReleased;
+
+  SimulatedClock( long now ) {
+    mNow = now;
+  }
+
+  @Override
+  public synchronized void sleep( long millis ) throws InterruptedException {
+    Long wake = mNow + millis;
+    mWakeTimes.add( wake );
+    mLastChangeNanos = System.nanoTime();
+    try {
+      while( mNow < wake && !mReleased ) {
+        wait();
+      }
+    } finally {
+      mWakeTimes.remove( wake );
+      mLastChangeNanos = System.nanoTime();
+    }
+  }
+
+  /**
+   * Moves simulated time forward and wakes every worker whose latency has elapsed.
+   */
+  synchronized void advanceTo( long now ) {
+    if( now > mNow ) {
+      mNow = now;
+      notifyAll();
+    }
+  }
+
+  /**
+   * @return True if at least one worker is sleeping, none is due to wake, and none has started or
+   * finished a sleep recently.
+   */
+  synchronized boolean isBlocked() {
+    if( mWakeTimes.isEmpty() || System.nanoTime() - mLastChangeNanos < QUIET_NANOS ) {
+      return false;
+    }
+    for( long wake : mWakeTimes ) {
+      // woken by the last advance, but not yet running again
+      if( wake <= mNow ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Wakes every sleeping worker, and lets later sleeps return at once, so no worker outlives a run.
+   */
+  synchronized void release() {
+    mReleased = true;
+    notifyAll();
+  }
+
+}
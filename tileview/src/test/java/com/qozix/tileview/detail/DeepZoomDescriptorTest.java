@@ -0,0 +1,65 @@
+package com.qozix.tileview.detail;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class DeepZoomDescriptorTest {
+
+  @Test
+  public void maximumLevelFitsTheLongerSide() {
+    assertEquals( 0, new DeepZoomDescriptor( 1, 1, 254, 1, "jpg" ).getMaximumLevel() );
+    assertEquals( 1, new DeepZoomDescriptor( 2, 1, 254, 1, "jpg" ).getMaximumLevel() );
+    assertEquals( 10, new DeepZoomDescriptor( 1000, 600, 254, 1, "jpg" ).getMaximumLevel() );
+    assertEquals( 10, new DeepZoomDescriptor( 600, 1024, 254, 1, "jpg" ).getMaximumLevel() );
+    assertEquals( 11, new DeepZoomDescriptor( 1025, 600, 254, 1, "jpg" ).getMaximumLevel() );
+    // floating point log2 rounds this up to 30
+    assertEquals( 29, new DeepZoomDescriptor( 1 << 29, 1, 254, 1, "jpg" ).getMaximumLevel() );
+  }
+
+  @Test
+  public void levelScalesHalveFromFullResolution() {
+    DeepZoomDescriptor descriptor = new DeepZoomDescriptor( 1000, 600, 254, 1, "jpg" );
+    assertEquals( 1f, descriptor.getScale( 10 ), 0f );
+    assertEquals( 0.5f, descriptor.getScale( 9 ), 0f );
+    assertEquals( 1f / 1024, descriptor.getScale( 0 ), 0f );
+  }
+
+  @Test
+  public void levelForScaleIsTheCoarsestAtLeastAsFine() {
+    DeepZoomDescriptor descriptor = new DeepZoomDescriptor( 1000, 600, 254, 1, "jpg" );
+    assertEquals( 10, descriptor.getLevelForScale( 1f ) );
+    assertEquals( 10, descriptor.getLevelForScale( 0.75f ) );
+    assertEquals( 10, descriptor.getLevelForScale( 4f ) );
+    assertEquals( 9, descriptor.getLevelForScale( 0.5f ) );
+    assertEquals( 9, descriptor.getLevelForScale( 0.3f ) );
+    assertEquals( 8, descriptor.getLevelForScale( 0.25f ) );
+    assertEquals( 0, descriptor.getLevelForScale( 1f / 4096 ) );
+    assertEquals( 0, descriptor.getLevelForScale( 0f ) );
+    assertEquals( 0, descriptor.getLevelForScale( -1f ) );
+  }
+
+  @Test
+  public void levelSizesRoundUp() {
+    DeepZoomDescriptor descriptor = new DeepZoomDescriptor( 1000, 601, 254, 1, "jpg" );
+    assertEquals( 1000, descriptor.getLevelWidth( 10 ) );
+    assertEquals( 601, descriptor.getLevelHeight( 10 ) );
+    assertEquals( 500, descriptor.getLevelWidth( 9 ) );
+    assertEquals( 301, descriptor.getLevelHeight( 9 ) );
+    assertEquals( 125, descriptor.getLevelWidth( 7 ) );
+    assertEquals( 76, descriptor.getLevelHeight( 7 ) );
+    assertEquals( 1, descriptor.getLevelWidth( 0 ) );
+    assertEquals( 1, descriptor.getLevelHeight( 0 ) );
+  }
+
+  @Test
+  public void tilePathsFollowTheDeepZoomLayout() {
+    DeepZoomDescriptor descriptor = new DeepZoomDescriptor( 1000, 600, 254, 1, "png" );
+    assertEquals( "9/3_1.png", descriptor.getTilePath( 9, 3, 1 ) );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void invalidDimensionsAreRejected() {
+    new DeepZoomDescriptor( 0, 600, 254, 1, "jpg" );
+  }
+}
@@ -0,0 +1,129 @@
+package com.qozix.tileview.detail;
+
+import android.content.ComponentCallbacks2;
+
+import com.qozix.tileview.BuildConfig;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the level each DetailLevelSelectionPolicy chooses, for levels at 0.25, 0.5 and 1.
+ */
+@RunWith( RobolectricGradleTestRunner.class )
+@Config( constants = BuildConfig.class, sdk = 21 )
+public class DetailLevelSelectionPolicyTest {
+
+  private static DetailLevelManager createDetailLevelManager() {
+    DetailLevelManager detailLevelManager = new DetailLevelManager();
+    detailLevelManager.setSize( 4096, 4096 );
+    detailLevelManager.addDetailLevel( 1f, "1000", 256, 256 );
+    detailLevelManager.addDetailLevel( 0.25f, "250", 256, 256 );
+    detailLevelManager.addDetailLevel( 0.5f, "500", 256, 256 );
+    return detailLevelManager;
+  }
+
+  private static float select( DetailLevelSelectionPolicy policy, List<DetailLevel> detailLevels, float scale, DetailLevel current ) {
+    return policy.selectDetailLevel( detailLevels, scale, current ).getScale();
+  }
+
+  @Test
+  public void scalePolicySelectsCoarsestLevelAtLeastAsFine() {
+    List<DetailLevel> detailLevels = createDetailLevelManager().getDetailLevels();
+    DetailLevelSelectionPolicy policy = new ScaleDetailLevelSelectionPolicy();
+    assertEquals( 0.25f, select( policy, detailLevels, 0.1f, null ), 0f );
+    assertEquals( 0.5f, select( policy, detailLevels, 0.3f, null ), 0f );
+    assertEquals( 0.5f, select( policy, detailLevels, 0.5f, null ), 0f );
+    assertEquals( 1f, select( policy, detailLevels, 0.75f, null ), 0f );
+    assertEquals( 1f, select( policy, detailLevels, 4f, null ), 0f );
+  }
+
+  @Test
+  public void levelsAreKeptInScaleOrder() {
+    List<DetailLevel> detailLevels = createDetailLevelManager().getDetailLevels();
+    assertEquals( 3, detailLevels.size() );
+    assertEquals( 0.25f, detailLevels.get( 0 ).getScale(), 0f );
+    assertEquals( 0.5f, detailLevels.get( 1 ).getScale(), 0f );
+    assertEquals( 1f, detailLevels.get( 2 ).getScale(), 0f );
+  }
+
+  @Test
+  public void hysteresisPolicyHoldsTheCurrentLevelWithinTheBand() {
+    List<DetailLevel> detailLevels = createDetailLevelManager().getDetailLevels();
+    DetailLevel half = detailLevels.get( 1 );
+    DetailLevel full = detailLevels.get( 2 );
+    DetailLevelSelectionPolicy policy = new HysteresisDetailLevelSelectionPolicy( new ScaleDetailLevelSelectionPolicy(), 0.1f );
+    // just past the threshold in either direction keeps the current level
+    assertEquals( 0.5f, select( policy, detailLevels, 0.52f, half ), 0f );
+    assertEquals( 1f, select( policy, detailLevels, 0.48f, full ), 0f );
+    // beyond the band the level changes
+    assertEquals( 1f, select( policy, detailLevels, 0.6f, half ), 0f );
+    assertEquals( 0.5f, select( policy, detailLevels, 0.4f, full ), 0f );
+    // with no current level, the delegate decides
+    assertEquals( 1f, select( policy, detailLevels, 0.52f, null ), 0f );
+  }
+
+  @Test
+  public void densityPolicyReducesScaleOnlyOnDenseScreens() {
+    List<DetailLevel> detailLevels = createDetailLevelManager().getDetailLevels();
+    DetailLevelSelectionPolicy dense = new DensityAwareDetailLevelSelectionPolicy( new ScaleDetailLevelSelectionPolicy(), 4f, 2f );
+    DetailLevelSelectionPolicy ordinary = new DensityAwareDetailLevelSelectionPolicy( new ScaleDetailLevelSelectionPolicy(), 1.5f, 2f );
+    assertEquals( 0.5f, select( dense, detailLevels, 1f, null ), 0f );
+    assertEquals( 0.25f, select( dense, detailLevels, 0.5f, null ), 0f );
+    assertEquals( 1f, select( ordinary, detailLevels, 1f, null ), 0f );
+  }
+
+  @Test
+  public void memoryPressurePolicyDropsLevelsUnderPressure() {
+    List<DetailLevel> detailLevels = createDetailLevelManager().getDetailLevels();
+    MemoryPressureDetailLevelSelectionPolicy policy = new MemoryPressureDetailLevelSelectionPolicy( new ScaleDetailLevelSelectionPolicy(), 1 );
+    policy.setHeapThreshold( 1f );
+    assertEquals( 1f, select( policy, detailLevels, 1f, null ), 0f );
+    policy.onTrimMemory( ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE );
+    assertFalse( policy.isUnderPressure() );
+    policy.onTrimMemory( ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW );
+    assertTrue( policy.isUnderPressure() );
+    assertEquals( 0.5f, select( policy, detailLevels, 1f, null ), 0f );
+    // the coarsest level has nothing coarser to drop to
+    assertEquals( 0.25f, select( policy, detailLevels, 0.2f, null ), 0f );
+    policy.onMemoryRelieved();
+    assertEquals( 1f, select( policy, detailLevels, 1f, null ), 0f );
+  }
+
+  @Test
+  public void memoryPressureChangesReselectTheManagersLevel() {
+    DetailLevelManager detailLevelManager = createDetailLevelManager();
+    final List<DetailLevel> changes = new ArrayList<>();
+    detailLevelManager.setDetailLevelChangeListener( new DetailLevelManager.DetailLevelChangeListener() {
+      @Override
+      public void onDetailLevelChanged( DetailLevel detailLevel ) {
+        changes.add( detailLevel );
+      }
+    } );
+    MemoryPressureDetailLevelSelectionPolicy policy = new MemoryPressureDetailLevelSelectionPolicy();
+    policy.setHeapThreshold( 1f );
+    detailLevelManager.setDetailLevelSelectionPolicy( policy );
+    detailLevelManager.setScale( 1f );
+    changes.clear();
+
+    policy.onLowMemory();
+    assertEquals( 0.5f, detailLevelManager.getCurrentDetailLevel().getScale(), 0f );
+    assertEquals( 1, changes.size() );
+    // repeated reports of the same pressure don't reselect
+    policy.onLowMemory();
+    assertEquals( 1, changes.size() );
+    policy.onMemoryRelieved();
+    assertEquals( 1f, detailLevelManager.getCurrentDetailLevel().getScale(), 0f );
+    assertSame( detailLevelManager.getCurrentDetailLevel(), changes.get( 1 ) );
+  }
+}
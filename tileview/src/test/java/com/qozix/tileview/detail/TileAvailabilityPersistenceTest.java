@@ -0,0 +1,70 @@
+package com.qozix.tileview.detail;
+
+import com.qozix.tileview.BuildConfig;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies that DetailLevelManager saves and restores only the availability indexes that hold misses.
+ */
+@RunWith( RobolectricGradleTestRunner.class )
+@Config( constants = BuildConfig.class, sdk = 21 )
+public class TileAvailabilityPersistenceTest {
+
+  private static DetailLevelManager createDetailLevelManager() {
+    DetailLevelManager detailLevelManager = new DetailLevelManager();
+    detailLevelManager.setSize( 4096, 4096 );
+    detailLevelManager.addDetailLevel( 1f, "1000", 256, 256 );
+    detailLevelManager.addDetailLevel( 0.5f, "500", 256, 256 );
+    return detailLevelManager;
+  }
+
+  private static DetailLevel getLevel( DetailLevelManager detailLevelManager, float scale ) {
+    for( DetailLevel detailLevel : detailLevelManager.getDetailLevels() ) {
+      if( detailLevel.getScale() == scale ) {
+        return detailLevel;
+      }
+    }
+    throw new IllegalArgumentException( "No level at " + scale );
+  }
+
+  @Test
+  public void writingCreatesNoIndexes() throws Exception {
+    DetailLevelManager detailLevelManager = createDetailLevelManager();
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    detailLevelManager.writeTileAvailability( outputStream );
+
+    assertEquals( 0, new DataInputStream( new ByteArrayInputStream( outputStream.toByteArray() ) ).readInt() );
+    for( DetailLevel detailLevel : detailLevelManager.getDetailLevels() ) {
+      assertNull( detailLevel.peekTileAvailability() );
+    }
+  }
+
+  @Test
+  public void missesAreRestoredToTheirLevel() throws Exception {
+    DetailLevelManager original = createDetailLevelManager();
+    getLevel( original, 0.5f ).getTileAvailability().markMissing( 3, 4 );
+    // an index with no misses is not worth writing
+    getLevel( original, 1f ).getTileAvailability();
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    original.writeTileAvailability( outputStream );
+
+    DetailLevelManager restored = createDetailLevelManager();
+    restored.readTileAvailability( new ByteArrayInputStream( outputStream.toByteArray() ) );
+    assertNull( getLevel( restored, 1f ).peekTileAvailability() );
+    assertFalse( getLevel( restored, 0.5f ).peekTileAvailability().isAvailable( 3, 4 ) );
+    assertTrue( getLevel( restored, 0.5f ).peekTileAvailability().isAvailable( 4, 3 ) );
+  }
+}
@@ -0,0 +1,65 @@
+package com.qozix.tileview.detail;
+
+import com.qozix.tileview.BuildConfig;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Verifies that the visible tile budget downshifts a level and lets it recover, whether or not the level is locked.
+ */
+@RunWith( RobolectricGradleTestRunner.class )
+@Config( constants = BuildConfig.class, sdk = 21 )
+public class VisibleTileBudgetTest {
+
+  private static DetailLevelManager createDetailLevelManager() {
+    DetailLevelManager detailLevelManager = new DetailLevelManager();
+    detailLevelManager.setSize( 8192, 8192 );
+    detailLevelManager.updateViewport( 0, 0, 1024, 1024 );
+    detailLevelManager.addDetailLevel( 1f, "1000", 256, 256 );
+    detailLevelManager.addDetailLevel( 0.5f, "500", 256, 256 );
+    detailLevelManager.addDetailLevel( 0.25f, "250", 256, 256 );
+    // a level shown at its own scale needs 5 x 5 tiles for this viewport, at half its scale 9 x 9
+    detailLevelManager.setMaximumVisibleTileCount( 30 );
+    return detailLevelManager;
+  }
+
+  @Test
+  public void budgetDownshiftsAndRecovers() {
+    DetailLevelManager detailLevelManager = createDetailLevelManager();
+    detailLevelManager.setScale( 1f );
+    assertEquals( 1f, detailLevelManager.getCurrentDetailLevel().getScale(), 0f );
+    // the 1 level is selected for 0.75, but would need 49 tiles
+    detailLevelManager.setScale( 0.75f );
+    assertEquals( 0.5f, detailLevelManager.getCurrentDetailLevel().getScale(), 0f );
+    detailLevelManager.setScale( 1f );
+    assertEquals( 1f, detailLevelManager.getCurrentDetailLevel().getScale(), 0f );
+  }
+
+  @Test
+  public void lockedLevelReturnsWhenItFitsAgain() {
+    DetailLevelManager detailLevelManager = createDetailLevelManager();
+    detailLevelManager.setScale( 1f );
+    detailLevelManager.lockDetailLevel();
+    detailLevelManager.setScale( 0.75f );
+    assertEquals( 0.5f, detailLevelManager.getCurrentDetailLevel().getScale(), 0f );
+    detailLevelManager.setScale( 1f );
+    assertEquals( 1f, detailLevelManager.getCurrentDetailLevel().getScale(), 0f );
+    detailLevelManager.unlockDetailLevel();
+    assertEquals( 1f, detailLevelManager.getCurrentDetailLevel().getScale(), 0f );
+  }
+
+  @Test
+  public void lockedLevelHoldsWithoutABudget() {
+    DetailLevelManager detailLevelManager = createDetailLevelManager();
+    detailLevelManager.setMaximumVisibleTileCount( 0 );
+    detailLevelManager.setScale( 1f );
+    detailLevelManager.lockDetailLevel();
+    detailLevelManager.setScale( 0.3f );
+    assertEquals( 1f, detailLevelManager.getCurrentDetailLevel().getScale(), 0f );
+  }
+}
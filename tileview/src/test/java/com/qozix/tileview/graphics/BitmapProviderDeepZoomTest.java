@@ -0,0 +1,67 @@
+package com.qozix.tileview.graphics;
+
+import android.graphics.Bitmap;
+
+import com.qozix.tileview.BuildConfig;
+import com.qozix.tileview.detail.DeepZoomDescriptor;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks that Deep Zoom overlap is cropped so tiles meet exactly on the grid.  The image is
+ * 1000 x 600 with 254 pixel tiles and 1 pixel of overlap, so level 10 has 4 x 3 tiles, the last
+ * column 238 pixels wide and the last row 92 pixels high.
+ */
+@RunWith( RobolectricGradleTestRunner.class )
+@Config( constants = BuildConfig.class, sdk = 21 )
+public class BitmapProviderDeepZoomTest {
+
+  private final BitmapProviderDeepZoom mBitmapProvider = new BitmapProviderDeepZoom(
+    new DeepZoomDescriptor( 1000, 600, 254, 1, "jpg" ), new File( "unused" ) );
+
+  private Bitmap crop( int width, int height, int level, int column, int row ) {
+    return mBitmapProvider.crop( Bitmap.createBitmap( width, height, Bitmap.Config.RGB_565 ), level, column, row );
+  }
+
+  private static void assertSize( int width, int height, Bitmap bitmap ) {
+    assertEquals( width, bitmap.getWidth() );
+    assertEquals( height, bitmap.getHeight() );
+  }
+
+  @Test
+  public void firstTileLosesTrailingOverlap() {
+    assertSize( 254, 254, crop( 255, 255, 10, 0, 0 ) );
+  }
+
+  @Test
+  public void interiorTileLosesOverlapOnEverySide() {
+    assertSize( 254, 254, crop( 256, 256, 10, 1, 1 ) );
+  }
+
+  @Test
+  public void edgeTilesAreClippedToTheLevel() {
+    assertSize( 238, 254, crop( 239, 256, 10, 3, 1 ) );
+    assertSize( 254, 92, crop( 256, 93, 10, 1, 2 ) );
+    assertSize( 238, 92, crop( 239, 93, 10, 3, 2 ) );
+  }
+
+  @Test
+  public void tileWithoutOverlapIsReturnedAsIs() {
+    Bitmap bitmap = Bitmap.createBitmap( 1, 1, Bitmap.Config.RGB_565 );
+    assertSame( bitmap, mBitmapProvider.crop( bitmap, 0, 0, 0 ) );
+  }
+
+  @Test
+  public void tileOutsideTheLevelIsDiscarded() {
+    assertNull( crop( 254, 254, 10, 4, 0 ) );
+  }
+}
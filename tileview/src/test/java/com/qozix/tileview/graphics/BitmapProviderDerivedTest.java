@@ -0,0 +1,169 @@
+package com.qozix.tileview.graphics;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+
+import com.qozix.tileview.BuildConfig;
+import com.qozix.tileview.detail.DerivedTileSource;
+import com.qozix.tileview.detail.DetailLevel;
+import com.qozix.tileview.detail.DetailLevelManager;
+import com.qozix.tileview.tiles.Tile;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that a derived tile is built from the source tiles it covers, at a reduced sample size,
+ * and cached.  The image is 768 x 768 with 256 pixel tiles, so the source level has 3 x 3 tiles
+ * and the level derived at half its scale has 2 x 2, the last row and column covering one source
+ * tile each.
+ */
+@RunWith( RobolectricGradleTestRunner.class )
+@Config( constants = BuildConfig.class, sdk = 21 )
+public class BitmapProviderDerivedTest {
+
+  private static final int TILE_SIZE = 256;
+
+  @Rule
+  public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+  private DetailLevelManager mDetailLevelManager;
+  private DetailLevel mDerivedDetailLevel;
+  private RecordingBitmapProvider mSourceBitmapProvider;
+
+  @Before
+  public void setUp() {
+    mDetailLevelManager = new DetailLevelManager();
+    mDetailLevelManager.setSize( 768, 768 );
+    mDetailLevelManager.addDetailLevel( 1f, "source", TILE_SIZE, TILE_SIZE );
+    mDetailLevelManager.addDerivedDetailLevel( 0.5f, 1f );
+    for( DetailLevel detailLevel : mDetailLevelManager.getDetailLevels() ) {
+      if( detailLevel.getScale() == 0.5f ) {
+        mDerivedDetailLevel = detailLevel;
+      }
+    }
+    mSourceBitmapProvider = new RecordingBitmapProvider();
+  }
+
+  private Tile createDerivedTile( int column, int row ) {
+    return new Tile( column, row, TILE_SIZE, TILE_SIZE, mDerivedDetailLevel.getData(), mDerivedDetailLevel );
+  }
+
+  @Test
+  public void derivedLevelMustBeAPowerOfTwoBelowItsSource() {
+    assertTrue( mDerivedDetailLevel.getData() instanceof DerivedTileSource );
+    assertEquals( 2, ((DerivedTileSource) mDerivedDetailLevel.getData()).getFactor() );
+    try {
+      mDetailLevelManager.addDerivedDetailLevel( 1 / 3f, 1f );
+      fail( "a factor of 3 was accepted" );
+    } catch( IllegalArgumentException e ) {
+      // expected
+    }
+    try {
+      mDetailLevelManager.addDerivedDetailLevel( 0.125f, 0.25f );
+      fail( "a missing source level was accepted" );
+    } catch( IllegalArgumentException e ) {
+      // expected
+    }
+  }
+
+  @Test
+  public void derivedTileIsBuiltFromReducedSourceTiles() {
+    BitmapProviderDerived bitmapProvider = new BitmapProviderDerived( mSourceBitmapProvider, null );
+    Bitmap bitmap = bitmapProvider.getBitmap( createDerivedTile( 0, 0 ), RuntimeEnvironment.application );
+    assertNotNull( bitmap );
+    assertEquals( TILE_SIZE, bitmap.getWidth() );
+    assertEquals( TILE_SIZE, bitmap.getHeight() );
+    assertEquals( new HashSet<>( Arrays.asList( "0,0", "1,0", "0,1", "1,1" ) ), mSourceBitmapProvider.getCells() );
+    for( int sampleSize : mSourceBitmapProvider.mSampleSizes ) {
+      assertEquals( 2, sampleSize );
+    }
+  }
+
+  @Test
+  public void edgeTileIsCroppedToTheSourceTilesItCovers() {
+    BitmapProviderDerived bitmapProvider = new BitmapProviderDerived( mSourceBitmapProvider, null );
+    Bitmap bitmap = bitmapProvider.getBitmap( createDerivedTile( 1, 1 ), RuntimeEnvironment.application );
+    assertEquals( new HashSet<>( Arrays.asList( "2,2" ) ), mSourceBitmapProvider.getCells() );
+    assertEquals( TILE_SIZE / 2, bitmap.getWidth() );
+    assertEquals( TILE_SIZE / 2, bitmap.getHeight() );
+  }
+
+  @Test
+  public void otherLevelsArePassedThrough() {
+    BitmapProviderDerived bitmapProvider = new BitmapProviderDerived( mSourceBitmapProvider, null );
+    DetailLevel sourceDetailLevel = ((DerivedTileSource) mDerivedDetailLevel.getData()).getSourceDetailLevel();
+    Tile tile = new Tile( 2, 1, TILE_SIZE, TILE_SIZE, sourceDetailLevel.getData(), sourceDetailLevel );
+    Bitmap bitmap = bitmapProvider.getBitmap( tile, RuntimeEnvironment.application );
+    assertEquals( TILE_SIZE, bitmap.getWidth() );
+    assertEquals( new HashSet<>( Arrays.asList( "2,1" ) ), mSourceBitmapProvider.getCells() );
+  }
+
+  @Test
+  public void derivedTileIsReadBackFromTheCache() throws Exception {
+    BitmapProviderDerived bitmapProvider = new BitmapProviderDerived( mSourceBitmapProvider, mTemporaryFolder.newFolder() );
+    bitmapProvider.getBitmap( createDerivedTile( 0, 0 ), RuntimeEnvironment.application );
+    int calls = mSourceBitmapProvider.mCells.size();
+    assertNotNull( bitmapProvider.getBitmap( createDerivedTile( 0, 0 ), RuntimeEnvironment.application ) );
+    assertEquals( "source tiles were decoded again", calls, mSourceBitmapProvider.mCells.size() );
+
+    bitmapProvider.clearCache();
+    bitmapProvider.getBitmap( createDerivedTile( 0, 0 ), RuntimeEnvironment.application );
+    assertEquals( "the cache was not cleared", 2 * calls, mSourceBitmapProvider.mCells.size() );
+  }
+
+  @Test
+  public void derivedTileWithNoSourceTilesIsPermanentlyUnavailable() {
+    BitmapProviderDerived bitmapProvider = new BitmapProviderDerived( new BitmapProvider() {
+      @Override
+      public Bitmap getBitmap( Tile tile, Context context ) {
+        throw new TileUnavailableException( true );
+      }
+    }, null );
+    try {
+      bitmapProvider.getBitmap( createDerivedTile( 0, 0 ), RuntimeEnvironment.application );
+      fail( "a tile with no sources was built" );
+    } catch( TileUnavailableException e ) {
+      assertTrue( e.isPermanent() );
+    }
+  }
+
+  private static class RecordingBitmapProvider implements SampledBitmapProvider {
+
+    final List<String> mCells = new ArrayList<>();
+    final List<Integer> mSampleSizes = new ArrayList<>();
+
+    @Override
+    public Bitmap getBitmap( Tile tile, Context context, int sampleSize ) {
+      mCells.add( tile.getColumn() + "," + tile.getRow() );
+      mSampleSizes.add( sampleSize );
+      return Bitmap.createBitmap( tile.getWidth() / sampleSize, tile.getHeight() / sampleSize, Bitmap.Config.RGB_565 );
+    }
+
+    @Override
+    public Bitmap getBitmap( Tile tile, Context context ) {
+      return getBitmap( tile, context, 1 );
+    }
+
+    Set<String> getCells() {
+      return new HashSet<>( mCells );
+    }
+  }
+}
@@ -0,0 +1,181 @@
+package com.qozix.tileview.graphics;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+
+import com.qozix.tileview.BuildConfig;
+import com.qozix.tileview.detail.DetailLevel;
+import com.qozix.tileview.detail.DetailLevelManager;
+import com.qozix.tileview.tiles.Tile;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that each layer is fetched with its own data and composited into one bitmap, how missing
+ * and failed layers complete or fail a tile, and that a saturated executor doesn't stall a tile.
+ */
+@RunWith( RobolectricGradleTestRunner.class )
+@Config( constants = BuildConfig.class, sdk = 21 )
+public class BitmapProviderLayeredTest {
+
+  private static final int TILE_SIZE = 256;
+
+  private static Tile createTile( Object data ) {
+    DetailLevel detailLevel = new DetailLevel( new DetailLevelManager(), 1f, data, TILE_SIZE, TILE_SIZE );
+    return new Tile( 1, 1, TILE_SIZE, TILE_SIZE, data, detailLevel );
+  }
+
+  private BitmapProviderLayered mBitmapProvider;
+
+  @After
+  public void tearDown() {
+    if( mBitmapProvider != null ) {
+      mBitmapProvider.shutdown();
+    }
+  }
+
+  private BitmapProviderLayered createProvider( TileLayer... tileLayers ) {
+    mBitmapProvider = new BitmapProviderLayered( Arrays.asList( tileLayers ) );
+    return mBitmapProvider;
+  }
+
+  @Test
+  public void eachLayerIsFetchedWithItsOwnData() {
+    RecordingBitmapProvider base = new RecordingBitmapProvider( TILE_SIZE );
+    RecordingBitmapProvider labels = new RecordingBitmapProvider( TILE_SIZE );
+    BitmapProviderLayered bitmapProvider = createProvider( new TileLayer( base ), new TileLayer( labels ) );
+    Bitmap bitmap = bitmapProvider.getBitmap( createTile( new Object[]{ "base", "labels" } ), RuntimeEnvironment.application );
+    assertNotNull( bitmap );
+    assertEquals( TILE_SIZE, bitmap.getWidth() );
+    assertEquals( TILE_SIZE, bitmap.getHeight() );
+    assertEquals( Collections.singletonList( "base" ), base.getData() );
+    assertEquals( Collections.singletonList( "labels" ), labels.getData() );
+  }
+
+  @Test
+  public void compositeIsCroppedToTheTile() {
+    BitmapProviderLayered bitmapProvider = createProvider(
+      new TileLayer( new RecordingBitmapProvider( TILE_SIZE / 2 ) ),
+      new TileLayer( new RecordingBitmapProvider( 2 * TILE_SIZE ) ) );
+    Bitmap bitmap = bitmapProvider.getBitmap( createTile( null ), RuntimeEnvironment.application );
+    assertEquals( TILE_SIZE, bitmap.getWidth() );
+    assertEquals( TILE_SIZE, bitmap.getHeight() );
+  }
+
+  @Test
+  public void missingOptionalLayerIsSkipped() {
+    RecordingBitmapProvider base = new RecordingBitmapProvider( TILE_SIZE );
+    RecordingBitmapProvider overlay = new RecordingBitmapProvider( TILE_SIZE );
+    // layers are optional by default
+    BitmapProviderLayered bitmapProvider = createProvider( new TileLayer( base ), new TileLayer( overlay ) );
+    assertNotNull( bitmapProvider.getBitmap( createTile( new Object[]{ "base", null } ), RuntimeEnvironment.application ) );
+    assertTrue( "a layer with no data was fetched", overlay.getData().isEmpty() );
+  }
+
+  @Test
+  public void missingRequiredLayerIsPermanentlyUnavailable() {
+    TileLayer overlayLayer = new TileLayer( new RecordingBitmapProvider( TILE_SIZE ) );
+    overlayLayer.setRequired( true );
+    BitmapProviderLayered bitmapProvider = createProvider(
+      new TileLayer( new RecordingBitmapProvider( TILE_SIZE ) ), overlayLayer );
+    try {
+      bitmapProvider.getBitmap( createTile( new Object[]{ "base", null } ), RuntimeEnvironment.application );
+      fail( "a tile missing a required layer was completed" );
+    } catch( TileUnavailableException e ) {
+      assertTrue( e.isPermanent() );
+    }
+  }
+
+  @Test
+  public void layerNotYetAvailableFailsTheTileTransiently() {
+    TileLayer overlayLayer = new TileLayer( new BitmapProvider() {
+      @Override
+      public Bitmap getBitmap( Tile tile, Context context ) {
+        return null;
+      }
+    } );
+    // even for an optional layer: the tile must not be completed without a layer that may yet arrive
+    BitmapProviderLayered bitmapProvider = createProvider(
+      new TileLayer( new RecordingBitmapProvider( TILE_SIZE ) ), overlayLayer );
+    try {
+      bitmapProvider.getBitmap( createTile( null ), RuntimeEnvironment.application );
+      fail( "a tile missing a layer was completed" );
+    } catch( TileUnavailableException e ) {
+      assertFalse( e.isPermanent() );
+    }
+  }
+
+  @Test
+  public void saturatedExecutorDoesNotStallTheTile() throws Exception {
+    ExecutorService executorService = Executors.newSingleThreadExecutor();
+    final CountDownLatch release = new CountDownLatch( 1 );
+    executorService.execute( new Runnable() {
+      @Override
+      public void run() {
+        try {
+          release.await();
+        } catch( InterruptedException e ) {
+          // shutting down
+        }
+      }
+    } );
+    try {
+      RecordingBitmapProvider overlay = new RecordingBitmapProvider( TILE_SIZE );
+      BitmapProviderLayered bitmapProvider = new BitmapProviderLayered( Arrays.asList(
+        new TileLayer( new RecordingBitmapProvider( TILE_SIZE ) ), new TileLayer( overlay ) ), executorService );
+      assertNotNull( bitmapProvider.getBitmap( createTile( null ), RuntimeEnvironment.application ) );
+      assertEquals( Collections.singletonList( Thread.currentThread() ), overlay.getThreads() );
+
+      bitmapProvider.shutdown();
+      assertFalse( "the caller's executor was shut down", executorService.isShutdown() );
+    } finally {
+      release.countDown();
+      executorService.shutdownNow();
+    }
+  }
+
+  private static class RecordingBitmapProvider implements BitmapProvider {
+
+    private final int mSize;
+    private final List<Object> mData = new ArrayList<>();
+    private final List<Thread> mThreads = new ArrayList<>();
+
+    RecordingBitmapProvider( int size ) {
+      mSize = size;
+    }
+
+    @Override
+    public synchronized Bitmap getBitmap( Tile tile, Context context ) {
+      mData.add( tile.getData() );
+      mThreads.add( Thread.currentThread() );
+      return Bitmap.createBitmap( mSize, mSize, Bitmap.Config.RGB_565 );
+    }
+
+    synchronized List<Object> getData() {
+      return new ArrayList<>( mData );
+    }
+
+    synchronized List<Thread> getThreads() {
+      return new ArrayList<>( mThreads );
+    }
+  }
+}
@@ -0,0 +1,88 @@
+package com.qozix.tileview.graphics;
+
+import com.qozix.tileview.BuildConfig;
+import com.qozix.tileview.detail.DetailLevel;
+import com.qozix.tileview.detail.DetailLevelManager;
+import com.qozix.tileview.tiles.Tile;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies that failures sampled by BitmapProviderSynthetic depend only on the seed and the
+ * request, not on the order requests arrive in.
+ */
+@RunWith( RobolectricGradleTestRunner.class )
+@Config( constants = BuildConfig.class, sdk = 21 )
+public class BitmapProviderSyntheticTest {
+
+  private static final int GRID = 8;
+  private static final int ATTEMPTS = 2;
+
+  private static List<Tile> createTiles() {
+    DetailLevel detailLevel = new DetailLevel( new DetailLevelManager(), 0.5f, "500", 64, 64 );
+    List<Tile> tiles = new ArrayList<>();
+    for( int row = 0; row < GRID; row++ ) {
+      for( int column = 0; column < GRID; column++ ) {
+        tiles.add( new Tile( column, row, 64, 64, null, detailLevel ) );
+      }
+    }
+    return tiles;
+  }
+
+  /**
+   * Requests every tile ATTEMPTS times, in the order given.
+   *
+   * @return "column:row:attempt" for every request that failed.
+   */
+  private static Set<String> collectFailures( long seed, List<Tile> tiles ) {
+    BitmapProviderSynthetic provider = new BitmapProviderSynthetic( seed );
+    provider.setFailureRate( 0.5f );
+    provider.setShouldDrawLabels( false );
+    Set<String> failures = new HashSet<>();
+    for( int attempt = 0; attempt < ATTEMPTS; attempt++ ) {
+      for( Tile tile : tiles ) {
+        if( provider.getBitmap( tile, RuntimeEnvironment.application ) == null ) {
+          failures.add( tile.getColumn() + ":" + tile.getRow() + ":" + attempt );
+        }
+      }
+    }
+    assertEquals( failures.size(), provider.getFailureCount() );
+    return failures;
+  }
+
+  @Test
+  public void sameSeedGivesSameFailures() {
+    List<Tile> tiles = createTiles();
+    Set<String> first = collectFailures( 42, tiles );
+    Collections.reverse( tiles );
+    Set<String> second = collectFailures( 42, tiles );
+    Collections.shuffle( tiles );
+    Set<String> third = collectFailures( 42, tiles );
+
+    assertFalse( "nothing failed", first.isEmpty() );
+    assertTrue( "everything failed", first.size() < GRID * GRID * ATTEMPTS );
+    assertEquals( first, second );
+    assertEquals( first, third );
+  }
+
+  @Test
+  public void differentSeedsGiveDifferentFailures() {
+    List<Tile> tiles = createTiles();
+    assertNotEquals( collectFailures( 1, tiles ), collectFailures( 2, tiles ) );
+  }
+}
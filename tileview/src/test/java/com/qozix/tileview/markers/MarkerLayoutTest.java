@@ -0,0 +1,150 @@
+package com.qozix.tileview.markers;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.qozix.tileview.BuildConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies that Marker records are bound to Views only near the viewport, and that panning
+ * rebinds recycled Views rather than creating new ones.
+ */
+@RunWith( RobolectricGradleTestRunner.class )
+@Config( constants = BuildConfig.class, sdk = 21 )
+public class MarkerLayoutTest {
+
+  private static final int IMAGE_SIZE = 8192;
+  private static final int SPACING = 80;
+  private static final int VIEWPORT_WIDTH = 1080;
+  private static final int VIEWPORT_HEIGHT = 1920;
+  private static final int PAN_STEPS = 100;
+  private static final int PAN_DISTANCE = 60;
+
+  private MarkerLayout mMarkerLayout;
+  private CountingMarkerAdapter mMarkerAdapter;
+  private Marker[][] mMarkers;
+
+  @Before
+  public void setUp() {
+    mMarkerLayout = new MarkerLayout( RuntimeEnvironment.application );
+    mMarkerLayout.setSize( IMAGE_SIZE, IMAGE_SIZE );
+    mMarkerLayout.setViewport( 0, 0, VIEWPORT_WIDTH, VIEWPORT_HEIGHT );
+    mMarkerAdapter = new CountingMarkerAdapter();
+    mMarkerLayout.setMarkerAdapter( mMarkerAdapter );
+    int count = IMAGE_SIZE / SPACING;
+    mMarkers = new Marker[count][count];
+    for( int column = 0; column < count; column++ ) {
+      for( int row = 0; row < count; row++ ) {
+        mMarkers[column][row] = mMarkerLayout.addMarker( new Marker( column * SPACING, row * SPACING, 0 ) );
+      }
+    }
+  }
+
+  /**
+   * @return The most Markers that can lie within the marker margin of a viewport at scale 1.
+   */
+  private int getMaximumMarkersInRegion() {
+    int margin = mMarkerLayout.getMarkerMargin();
+    int columns = (VIEWPORT_WIDTH + 2 * margin) / SPACING + 1;
+    int rows = (VIEWPORT_HEIGHT + 2 * margin) / SPACING + 1;
+    return columns * rows;
+  }
+
+  private void assertViewportBound( int left, int top ) {
+    Set<Marker> bound = new HashSet<>();
+    for( int i = 0; i < mMarkerLayout.getChildCount(); i++ ) {
+      View child = mMarkerLayout.getChildAt( i );
+      if( child.getVisibility() != View.GONE ) {
+        Marker marker = mMarkerLayout.getMarker( child );
+        assertNotNull( "visible View with no Marker", marker );
+        assertTrue( "Marker bound to two Views", bound.add( marker ) );
+      }
+    }
+    for( int column = left / SPACING + 1; column * SPACING < left + VIEWPORT_WIDTH; column++ ) {
+      for( int row = top / SPACING + 1; row * SPACING < top + VIEWPORT_HEIGHT; row++ ) {
+        assertTrue( "Marker in viewport not bound", bound.contains( mMarkers[column][row] ) );
+      }
+    }
+  }
+
+  @Test
+  public void panningBindsOnlyMarkersNearTheViewport() {
+    int maximumChildren = getMaximumMarkersInRegion() + MarkerLayout.DEFAULT_MAXIMUM_RECYCLED_VIEWS;
+    assertEquals( (IMAGE_SIZE / SPACING) * (IMAGE_SIZE / SPACING), mMarkerLayout.getMarkerCount() );
+    assertViewportBound( 0, 0 );
+    for( int step = 1; step <= PAN_STEPS; step++ ) {
+      int left = step * PAN_DISTANCE;
+      int top = step * PAN_DISTANCE / 2;
+      mMarkerLayout.setViewport( left, top, left + VIEWPORT_WIDTH, top + VIEWPORT_HEIGHT );
+      assertTrue( "too many children: " + mMarkerLayout.getChildCount(), mMarkerLayout.getChildCount() <= maximumChildren );
+      assertViewportBound( left, top );
+    }
+  }
+
+  @Test
+  public void panningReusesViews() {
+    // room in the pool for the Markers of a row or column leaving range, so none are discarded
+    int maximumRecycledViews = 64;
+    mMarkerLayout.setMaximumRecycledViews( maximumRecycledViews );
+    assertTrue( "no Views were created", mMarkerAdapter.mCreated.size() > 0 );
+    for( int step = 1; step <= PAN_STEPS; step++ ) {
+      int left = step * PAN_DISTANCE;
+      mMarkerLayout.setViewport( left, 0, left + VIEWPORT_WIDTH, VIEWPORT_HEIGHT );
+    }
+    assertTrue( "Views were not rebound", mMarkerAdapter.mReboundCount > 0 );
+    assertTrue( "Views were created while panning: " + mMarkerAdapter.mCreated.size(),
+      mMarkerAdapter.mCreated.size() <= getMaximumMarkersInRegion() + maximumRecycledViews );
+    for( int i = 0; i < mMarkerLayout.getChildCount(); i++ ) {
+      assertTrue( "child not created by the adapter", mMarkerAdapter.mCreated.contains( mMarkerLayout.getChildAt( i ) ) );
+    }
+  }
+
+  @Test
+  public void lowScaleBindsOnlyMarkersOnTheImage() {
+    // within the margin of the viewport at this scale, but off the image
+    Marker outside = mMarkerLayout.addMarker( new Marker( IMAGE_SIZE + 400, IMAGE_SIZE + 400, 0 ) );
+    mMarkerLayout.setScale( 0.125f );
+    for( int i = 0; i < mMarkerLayout.getChildCount(); i++ ) {
+      View child = mMarkerLayout.getChildAt( i );
+      if( child.getVisibility() != View.GONE ) {
+        assertTrue( "Marker off the image was bound", mMarkerLayout.getMarker( child ) != outside );
+      }
+    }
+  }
+
+  private static class CountingMarkerAdapter extends MarkerAdapter {
+
+    final Set<View> mCreated = new HashSet<>();
+    final Set<View> mBound = new HashSet<>();
+    int mReboundCount;
+
+    @Override
+    public View onCreateView( ViewGroup parent, int type ) {
+      View view = new View( parent.getContext() );
+      mCreated.add( view );
+      return view;
+    }
+
+    @Override
+    public void onBindView( View view, Marker marker ) {
+      if( !mBound.add( view ) ) {
+        mReboundCount++;
+      }
+    }
+  }
+
+}
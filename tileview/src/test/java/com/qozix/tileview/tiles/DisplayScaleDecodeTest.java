@@ -0,0 +1,146 @@
+package com.qozix.tileview.tiles;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.view.View;
+
+import com.qozix.tileview.BuildConfig;
+import com.qozix.tileview.TileView;
+import com.qozix.tileview.core.TileKey;
+import com.qozix.tileview.graphics.SampledBitmapProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies that a detail level displayed below its own resolution is decoded at a matching
+ * sample size, and that its tiles are fetched again at full resolution once the scale returns.
+ */
+@RunWith( RobolectricGradleTestRunner.class )
+@Config( constants = BuildConfig.class, sdk = 21 )
+public class DisplayScaleDecodeTest {
+
+  private static final int FRAME_INTERVAL_MS = 16;
+  private static final long RENDER_TIMEOUT_MS = 10000;
+
+  private TileView mTileView;
+  private RecordingBitmapProvider mBitmapProvider;
+
+  @Before
+  public void setUp() {
+    mBitmapProvider = new RecordingBitmapProvider();
+    mTileView = new TileView( RuntimeEnvironment.application );
+    mTileView.setSize( 8192, 8192 );
+    mTileView.setBitmapProvider( mBitmapProvider );
+    mTileView.setTransitionsEnabled( false );
+    mTileView.addDetailLevel( 1.000f, "1000" );
+    mTileView.setScaleLimits( 0, 2 );
+    mTileView.setScale( 0.25f );
+  }
+
+  @After
+  public void tearDown() {
+    mTileView.destroy();
+  }
+
+  private void runFrame() throws InterruptedException {
+    mTileView.measure(
+      View.MeasureSpec.makeMeasureSpec( 1080, View.MeasureSpec.EXACTLY ),
+      View.MeasureSpec.makeMeasureSpec( 1920, View.MeasureSpec.EXACTLY ) );
+    mTileView.layout( 0, 0, 1080, 1920 );
+    Robolectric.getForegroundThreadScheduler().advanceBy( FRAME_INTERVAL_MS );
+    Thread.sleep( 1 );
+    ShadowLooper.runUiThreadTasks();
+  }
+
+  private void renderViewport() throws InterruptedException {
+    TileCanvasViewGroup tileCanvasViewGroup = mTileView.getTileCanvasViewGroup();
+    long deadline = System.currentTimeMillis() + RENDER_TIMEOUT_MS;
+    do {
+      runFrame();
+    } while( !tileCanvasViewGroup.isViewportRendered() && System.currentTimeMillis() < deadline );
+    assertTrue( "viewport was not rendered", tileCanvasViewGroup.isViewportRendered() );
+  }
+
+  @Test
+  public void reducedTilesAreUpgradedWhenTheScaleReturns() throws Exception {
+    renderViewport();
+    Map<TileKey, List<Integer>> zoomedOut = mBitmapProvider.getSampleSizes();
+    assertFalse( "nothing was fetched", zoomedOut.isEmpty() );
+    for( List<Integer> sampleSizes : zoomedOut.values() ) {
+      assertEquals( "fetched at the wrong size while zoomed out", 4, (int) sampleSizes.get( 0 ) );
+    }
+
+    mTileView.setScale( 1 );
+    renderViewport();
+    // upgrades are queued once no render has been requested for DEFAULT_UPGRADE_DELAY
+    long frames = 2 * TileCanvasViewGroup.DEFAULT_UPGRADE_DELAY / FRAME_INTERVAL_MS;
+    for( int i = 0; i < frames; i++ ) {
+      runFrame();
+    }
+    renderViewport();
+
+    int upgraded = 0;
+    for( Map.Entry<TileKey, List<Integer>> entry : mBitmapProvider.getSampleSizes().entrySet() ) {
+      List<Integer> sampleSizes = entry.getValue();
+      if( sampleSizes.get( 0 ) > 1 && sampleSizes.contains( 1 ) ) {
+        upgraded++;
+      }
+    }
+    assertTrue( "no reduced tile was upgraded", upgraded > 0 );
+    for( Tile tile : mTileView.getTileCanvasViewGroup().getTilesInCurrentViewport() ) {
+      List<Integer> sampleSizes = mBitmapProvider.getSampleSizes().get( tile.getKey() );
+      assertEquals( "left reduced: " + tile.getKey(), 1, (int) sampleSizes.get( sampleSizes.size() - 1 ) );
+    }
+  }
+
+  private static class RecordingBitmapProvider implements SampledBitmapProvider {
+
+    private final Map<TileKey, List<Integer>> mSampleSizes = new HashMap<>();
+
+    @Override
+    public Bitmap getBitmap( Tile tile, Context context, int sampleSize ) {
+      synchronized( mSampleSizes ) {
+        List<Integer> sampleSizes = mSampleSizes.get( tile.getKey() );
+        if( sampleSizes == null ) {
+          sampleSizes = new ArrayList<>();
+          mSampleSizes.put( tile.getKey(), sampleSizes );
+        }
+        sampleSizes.add( sampleSize );
+      }
+      return Bitmap.createBitmap( tile.getWidth() / sampleSize, tile.getHeight() / sampleSize, Bitmap.Config.RGB_565 );
+    }
+
+    @Override
+    public Bitmap getBitmap( Tile tile, Context context ) {
+      return getBitmap( tile, context, 1 );
+    }
+
+    Map<TileKey, List<Integer>> getSampleSizes() {
+      synchronized( mSampleSizes ) {
+        Map<TileKey, List<Integer>> copy = new HashMap<>();
+        for( Map.Entry<TileKey, List<Integer>> entry : mSampleSizes.entrySet() ) {
+          copy.put( entry.getKey(), new ArrayList<>( entry.getValue() ) );
+        }
+        return copy;
+      }
+    }
+  }
+
+}
@@ -0,0 +1,106 @@
+package com.qozix.tileview.tiles;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+import com.qozix.tileview.BuildConfig;
+import com.qozix.tileview.detail.DetailLevel;
+import com.qozix.tileview.detail.DetailLevelManager;
+import com.qozix.tileview.graphics.SampledBitmapProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies that a tile decoded at reduced resolution is drawn filtered and scaled up to fill its
+ * bounds, and that its upgrade fetches at the requested sample size in its place.
+ */
+@RunWith( RobolectricGradleTestRunner.class )
+@Config( constants = BuildConfig.class, sdk = 21 )
+public class ProgressiveTileTest {
+
+  private static final int TILE_SIZE = 256;
+  private static final int PREVIEW_SAMPLE_SIZE = 4;
+
+  private DetailLevel mDetailLevel = new DetailLevel( new DetailLevelManager(), 1f, null, TILE_SIZE, TILE_SIZE );
+
+  private final SampledBitmapProvider mBitmapProvider = new SampledBitmapProvider() {
+    @Override
+    public Bitmap getBitmap( Tile tile, Context context, int sampleSize ) {
+      return Bitmap.createBitmap( tile.getWidth() / sampleSize, tile.getHeight() / sampleSize, Bitmap.Config.RGB_565 );
+    }
+
+    @Override
+    public Bitmap getBitmap( Tile tile, Context context ) {
+      return getBitmap( tile, context, 1 );
+    }
+  };
+
+  private Tile createSampledTile( boolean transitionsEnabled ) {
+    Tile tile = new Tile( 1, 2, TILE_SIZE, TILE_SIZE, null, mDetailLevel );
+    tile.setTransitionsEnabled( transitionsEnabled );
+    tile.setSampleSize( PREVIEW_SAMPLE_SIZE );
+    tile.generateBitmap( RuntimeEnvironment.application, mBitmapProvider );
+    return tile;
+  }
+
+  private void assertDrawnScaledAndFiltered( Tile tile ) {
+    RecordingCanvas canvas = new RecordingCanvas();
+    tile.draw( canvas );
+    assertNotNull( "the bitmap was not drawn into a destination", canvas.mDestination );
+    assertEquals( new Rect( TILE_SIZE, 2 * TILE_SIZE, 2 * TILE_SIZE, 3 * TILE_SIZE ), canvas.mDestination );
+    assertNotNull( "drawn without a paint", canvas.mPaint );
+    assertTrue( "drawn without filtering", (canvas.mPaint.getFlags() & Paint.FILTER_BITMAP_FLAG) != 0 );
+  }
+
+  @Test
+  public void sampledTileIsDrawnFilteredToItsFullBounds() {
+    Tile tile = createSampledTile( false );
+    assertEquals( TILE_SIZE / PREVIEW_SAMPLE_SIZE, tile.getBitmap().getWidth() );
+    assertDrawnScaledAndFiltered( tile );
+  }
+
+  @Test
+  public void fadingSampledTileIsDrawnFiltered() {
+    assertDrawnScaledAndFiltered( createSampledTile( true ) );
+  }
+
+  @Test
+  public void upgradeReplacesTheSampledTile() {
+    Tile tile = createSampledTile( false );
+    Tile upgrade = tile.createUpgrade( 1 );
+    assertEquals( tile, upgrade );
+    assertSame( tile, upgrade.getSupersededTile() );
+    upgrade.generateBitmap( RuntimeEnvironment.application, mBitmapProvider );
+    assertEquals( 1, upgrade.getSampleSize() );
+    assertEquals( TILE_SIZE, upgrade.getBitmap().getWidth() );
+  }
+
+  private static class RecordingCanvas extends Canvas {
+
+    Rect mDestination;
+    Paint mPaint;
+
+    @Override
+    public void drawBitmap( Bitmap bitmap, Rect source, Rect destination, Paint paint ) {
+      mDestination = new Rect( destination );
+      mPaint = paint;
+    }
+
+    @Override
+    public void drawBitmap( Bitmap bitmap, float left, float top, Paint paint ) {
+      mPaint = paint;
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package com.qozix.tileview.tiles;
+
+import android.view.View;
+
+import com.qozix.tileview.BuildConfig;
+import com.qozix.tileview.TileView;
+import com.qozix.tileview.graphics.BitmapProviderSynthetic;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies that a render pass is reported complete only once every tile it fetched has been
+ * committed to the canvas, however many frames the commit queue takes to drain.
+ */
+@RunWith( RobolectricGradleTestRunner.class )
+@Config( constants = BuildConfig.class, sdk = 21 )
+public class RenderCompleteTest {
+
+  private static final int FRAME_INTERVAL_MS = 16;
+  private static final long RENDER_TIMEOUT_MS = 10000;
+
+  private TileView mTileView;
+  private RecordingTileRenderListener mTileRenderListener;
+
+  @Before
+  public void setUp() {
+    mTileView = new TileView( RuntimeEnvironment.application );
+    mTileView.setSize( 8192, 8192 );
+    mTileView.setBitmapProvider( new BitmapProviderSynthetic( 1 ) );
+    mTileView.setTransitionsEnabled( false );
+    mTileView.addDetailLevel( 1.000f, "1000" );
+    mTileView.setScaleLimits( 0, 2 );
+    mTileView.setScale( 1 );
+    // no time to spare: one tile is committed per frame, so the queue outlasts the fetches
+    mTileView.getTileCanvasViewGroup().setCommitFrameBudget( 0 );
+    mTileRenderListener = new RecordingTileRenderListener( mTileView.getTileCanvasViewGroup() );
+    mTileView.getTileCanvasViewGroup().setTileRenderListener( mTileRenderListener );
+  }
+
+  @After
+  public void tearDown() {
+    mTileView.destroy();
+  }
+
+  @Test
+  public void completionWaitsForTheCommitQueueToDrain() throws Exception {
+    long deadline = System.currentTimeMillis() + RENDER_TIMEOUT_MS;
+    while( mTileRenderListener.mQueuedAtCompletion.isEmpty() && System.currentTimeMillis() < deadline ) {
+      mTileView.measure(
+        View.MeasureSpec.makeMeasureSpec( 1080, View.MeasureSpec.EXACTLY ),
+        View.MeasureSpec.makeMeasureSpec( 1920, View.MeasureSpec.EXACTLY ) );
+      mTileView.layout( 0, 0, 1080, 1920 );
+      Robolectric.getForegroundThreadScheduler().advanceBy( FRAME_INTERVAL_MS );
+      Thread.sleep( 1 );
+      ShadowLooper.runUiThreadTasks();
+    }
+    assertFalse( "the render never completed", mTileRenderListener.mQueuedAtCompletion.isEmpty() );
+    assertEquals( "completed with tiles still queued", 0, (int) mTileRenderListener.mQueuedAtCompletion.get( 0 ) );
+    assertTrue( "viewport was not rendered", mTileView.getTileCanvasViewGroup().isViewportRendered() );
+  }
+
+  private static class RecordingTileRenderListener implements TileCanvasViewGroup.TileRenderListener {
+
+    private final TileCanvasViewGroup mTileCanvasViewGroup;
+    final List<Integer> mQueuedAtCompletion = new ArrayList<>();
+
+    RecordingTileRenderListener( TileCanvasViewGroup tileCanvasViewGroup ) {
+      mTileCanvasViewGroup = tileCanvasViewGroup;
+    }
+
+    @Override
+    public void onRenderStart() {
+    }
+
+    @Override
+    public void onRenderCancelled() {
+    }
+
+    @Override
+    public void onRenderComplete() {
+      mQueuedAtCompletion.add( mTileCanvasViewGroup.getTileRenderClient().getTileCommitQueue().size() );
+    }
+  }
+}
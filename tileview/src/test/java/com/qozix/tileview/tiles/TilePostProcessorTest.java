@@ -0,0 +1,102 @@
+package com.qozix.tileview.tiles;
+
+import android.graphics.Bitmap;
+import android.view.View;
+
+import com.qozix.tileview.BuildConfig;
+import com.qozix.tileview.TileView;
+import com.qozix.tileview.graphics.BitmapProviderSynthetic;
+import com.qozix.tileview.graphics.TilePostProcessor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies that replacing the post processor while tiles are still queued or being fetched
+ * re-renders them with the new one, rather than leaving the viewport unrendered.
+ */
+@RunWith( RobolectricGradleTestRunner.class )
+@Config( constants = BuildConfig.class, sdk = 21 )
+public class TilePostProcessorTest {
+
+  private static final int FRAME_INTERVAL_MS = 16;
+  private static final long FETCH_LATENCY_MS = 20;
+  private static final long RENDER_TIMEOUT_MS = 15000;
+
+  private TileView mTileView;
+  private BitmapProviderSynthetic mBitmapProvider;
+
+  @Before
+  public void setUp() {
+    mBitmapProvider = new BitmapProviderSynthetic( 1 );
+    mBitmapProvider.setLatency( BitmapProviderSynthetic.LatencyDistribution.fixed( FETCH_LATENCY_MS ) );
+    mTileView = new TileView( RuntimeEnvironment.application );
+    mTileView.setSize( 8192, 8192 );
+    mTileView.setBitmapProvider( mBitmapProvider );
+    mTileView.setTransitionsEnabled( false );
+    mTileView.addDetailLevel( 1.000f, "1000" );
+    mTileView.setScaleLimits( 0, 2 );
+    mTileView.setScale( 1 );
+    layout();
+  }
+
+  @After
+  public void tearDown() {
+    mTileView.destroy();
+  }
+
+  private void layout() {
+    mTileView.measure(
+      View.MeasureSpec.makeMeasureSpec( 1080, View.MeasureSpec.EXACTLY ),
+      View.MeasureSpec.makeMeasureSpec( 1920, View.MeasureSpec.EXACTLY ) );
+    mTileView.layout( 0, 0, 1080, 1920 );
+  }
+
+  @Test
+  public void tilesPendingWhenTheProcessorChangesAreRenderedAgain() throws Exception {
+    TileCanvasViewGroup tileCanvasViewGroup = mTileView.getTileCanvasViewGroup();
+    Robolectric.getForegroundThreadScheduler().advanceBy( FRAME_INTERVAL_MS );
+    long deadline = System.currentTimeMillis() + RENDER_TIMEOUT_MS;
+    while( mBitmapProvider.getTotalCallCount() == 0 && System.currentTimeMillis() < deadline ) {
+      Thread.sleep( 1 );
+    }
+    assertTrue( "nothing was fetched", mBitmapProvider.getTotalCallCount() > 0 );
+
+    CountingTilePostProcessor tilePostProcessor = new CountingTilePostProcessor();
+    mTileView.setTilePostProcessor( tilePostProcessor );
+
+    while( !tileCanvasViewGroup.isViewportRendered() && System.currentTimeMillis() < deadline ) {
+      Robolectric.getForegroundThreadScheduler().advanceBy( FRAME_INTERVAL_MS );
+      Thread.sleep( 1 );
+      ShadowLooper.runUiThreadTasks();
+      layout();
+    }
+    assertTrue( "viewport was not rendered", tileCanvasViewGroup.isViewportRendered() );
+    int tiles = tileCanvasViewGroup.getTilesInCurrentViewport().size();
+    assertTrue( "processed " + tilePostProcessor.mCount.get() + " of " + tiles + " tiles",
+      tilePostProcessor.mCount.get() >= tiles );
+  }
+
+  private static class CountingTilePostProcessor implements TilePostProcessor {
+
+    final AtomicInteger mCount = new AtomicInteger();
+
+    @Override
+    public Bitmap process( Bitmap bitmap ) {
+      mCount.incrementAndGet();
+      return bitmap;
+    }
+  }
+
+}
@@ -0,0 +1,119 @@
+package com.qozix.tileview.tiles;
+
+import android.view.View;
+
+import com.qozix.tileview.BuildConfig;
+import com.qozix.tileview.TileView;
+import com.qozix.tileview.graphics.BitmapProviderSynthetic;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies that tiles requested again while an equal tile is still being fetched join the
+ * fetch in flight, rather than calling the BitmapProvider a second time, and that fetches no
+ * render pass joins are interrupted.
+ */
+@RunWith( RobolectricGradleTestRunner.class )
+@Config( constants = BuildConfig.class, sdk = 21 )
+public class TileRenderCoalescingTest {
+
+  private static final int OSCILLATIONS = 10;
+  private static final long RENDER_WAIT_MS = 500;
+  private static final long WORKER_TIMEOUT_MS = 5000;
+  // long enough, in real time, for every fetch to still be in flight while the test runs
+  private static final long FETCH_LATENCY_MS = 3000;
+
+  private TileView mTileView;
+  private BitmapProviderSynthetic mBitmapProvider;
+
+  @Before
+  public void setUp() {
+    mBitmapProvider = new BitmapProviderSynthetic( 1 );
+    mBitmapProvider.setLatency( BitmapProviderSynthetic.LatencyDistribution.fixed( FETCH_LATENCY_MS ) );
+    mTileView = new TileView( RuntimeEnvironment.application );
+    mTileView.setSize( 8192, 8192 );
+    mTileView.setBitmapProvider( mBitmapProvider );
+    mTileView.setTransitionsEnabled( false );
+    mTileView.addDetailLevel( 1.000f, "1000" );
+    mTileView.addDetailLevel( 0.500f, "500" );
+    mTileView.setScaleLimits( 0, 2 );
+    // starting above the minimum keeps the first layout from fitting the image and capping the
+    // maximum scale there, which would leave every setScale below at the minimum
+    mTileView.setScale( 1 );
+    mTileView.measure(
+      View.MeasureSpec.makeMeasureSpec( 1080, View.MeasureSpec.EXACTLY ),
+      View.MeasureSpec.makeMeasureSpec( 1920, View.MeasureSpec.EXACTLY ) );
+    mTileView.layout( 0, 0, 1080, 1920 );
+  }
+
+  @After
+  public void tearDown() {
+    mTileView.destroy();
+  }
+
+  @Test
+  public void rapidZoomOscillationMakesNoDuplicateProviderCalls() throws Exception {
+    for( int i = 0; i < OSCILLATIONS; i++ ) {
+      mTileView.setScale( i % 2 == 0 ? 1f : 0.5f );
+      Robolectric.getForegroundThreadScheduler().advanceBy( RENDER_WAIT_MS );
+      awaitCalls( 1 );
+    }
+    awaitWorkers();
+
+    assertTrue( "provider was never called", mBitmapProvider.getUniqueCallCount() > 0 );
+    assertEquals( "redundant calls", 0, mBitmapProvider.getRedundantCallCount() );
+    assertEquals( "interrupted calls", 0, mBitmapProvider.getInterruptedCount() );
+    assertTrue( "no requests were coalesced", mTileView.getTileCanvasViewGroup().getRenderMetrics().getTilesCoalesced() > 0 );
+  }
+
+  @Test
+  public void fetchesThatLeaveTheViewportAreInterrupted() throws Exception {
+    mTileView.setScale( 1f );
+    Robolectric.getForegroundThreadScheduler().advanceBy( RENDER_WAIT_MS );
+    awaitCalls( 1 );
+    int calls = mBitmapProvider.getTotalCallCount();
+
+    // far enough that no tile of the first viewport is still visible
+    mTileView.scrollTo( 6000, 6000 );
+    Robolectric.getForegroundThreadScheduler().advanceBy( RENDER_WAIT_MS );
+
+    long deadline = System.currentTimeMillis() + WORKER_TIMEOUT_MS;
+    while( mBitmapProvider.getInterruptedCount() < calls && System.currentTimeMillis() < deadline ) {
+      Thread.sleep( 1 );
+    }
+    assertTrue( "stale fetches kept running", mBitmapProvider.getInterruptedCount() >= calls );
+    assertEquals( "an interrupted fetch was recorded as a failure", 0,
+      mTileView.getTileCanvasViewGroup().getTileFailureTracker().getTransientFailureCount() );
+  }
+
+  /**
+   * Waits until the provider has been called at least count times, i.e., fetches are in flight.
+   */
+  private void awaitCalls( int count ) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + WORKER_TIMEOUT_MS;
+    while( mBitmapProvider.getTotalCallCount() < count && System.currentTimeMillis() < deadline ) {
+      Thread.sleep( 1 );
+    }
+  }
+
+  private void awaitWorkers() throws InterruptedException {
+    long deadline = System.currentTimeMillis() + WORKER_TIMEOUT_MS;
+    ShadowLooper.runUiThreadTasks();
+    while( mTileView.getTileCanvasViewGroup().getIsRendering() && System.currentTimeMillis() < deadline ) {
+      Thread.sleep( 1 );
+      ShadowLooper.runUiThreadTasks();
+    }
+    ShadowLooper.runUiThreadTasks();
+  }
+}
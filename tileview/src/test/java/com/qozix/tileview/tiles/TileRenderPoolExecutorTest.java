@@ -0,0 +1,50 @@
+package com.qozix.tileview.tiles;
+
+import com.qozix.tileview.BuildConfig;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies that the executor accepts work other than tiles.
+ */
+@RunWith( RobolectricGradleTestRunner.class )
+@Config( constants = BuildConfig.class, sdk = 21 )
+public class TileRenderPoolExecutorTest {
+
+  @Test
+  public void runsCallablesAndPlainRunnables() throws Exception {
+    TileRenderPoolExecutor executor = new TileRenderPoolExecutor();
+    try {
+      final CountDownLatch latch = new CountDownLatch( 20 );
+      for( int i = 0; i < 20; i++ ) {
+        executor.execute( new Runnable() {
+          @Override
+          public void run() {
+            latch.countDown();
+          }
+        } );
+      }
+      Future<String> future = executor.submit( new Callable<String>() {
+        @Override
+        public String call() {
+          return "done";
+        }
+      } );
+      assertEquals( "done", future.get( 5, TimeUnit.SECONDS ) );
+      assertTrue( latch.await( 5, TimeUnit.SECONDS ) );
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,140 @@
+package com.qozix.tileview.tiles;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+import com.qozix.tileview.BuildConfig;
+import com.qozix.tileview.detail.DetailLevel;
+import com.qozix.tileview.detail.DetailLevelManager;
+import com.qozix.tileview.graphics.BitmapProvider;
+import com.qozix.tileview.graphics.UniformColorBitmapProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies detection of solid-coloured tiles and how TileCanvasView draws them.
+ */
+@RunWith( RobolectricGradleTestRunner.class )
+@Config( constants = BuildConfig.class, sdk = 21 )
+public class UniformTileTest {
+
+  private static final int TILE_SIZE = 256;
+
+  private DetailLevel mDetailLevel = new DetailLevel( new DetailLevelManager(), 1f, null, TILE_SIZE, TILE_SIZE );
+
+  private Tile createTile( int column, int row, BitmapProvider bitmapProvider ) {
+    Tile tile = new Tile( column, row, TILE_SIZE, TILE_SIZE, null, mDetailLevel );
+    tile.setTransitionsEnabled( false );
+    tile.generateBitmap( RuntimeEnvironment.application, bitmapProvider );
+    return tile;
+  }
+
+  private static BitmapProvider solid( final int color, final boolean withStray ) {
+    return new BitmapProvider() {
+      @Override
+      public Bitmap getBitmap( Tile tile, Context context ) {
+        int width = tile.getWidth();
+        int[] colors = new int[width * tile.getHeight()];
+        Arrays.fill( colors, color );
+        if( withStray ) {
+          // away from the corners and centre, so only the full scan can find it
+          colors[3 * width + 17] = Color.BLACK;
+        }
+        return Bitmap.createBitmap( colors, width, tile.getHeight(), Bitmap.Config.ARGB_8888 );
+      }
+    };
+  }
+
+  private static UniformColorBitmapProvider uniform( final int color ) {
+    return new UniformColorBitmapProvider() {
+      @Override
+      public Integer getUniformColor( Tile tile, Context context ) {
+        return color;
+      }
+
+      @Override
+      public Bitmap getBitmap( Tile tile, Context context ) {
+        return null;
+      }
+    };
+  }
+
+  @Test
+  public void solidBitmapIsElided() {
+    Tile tile = createTile( 0, 0, solid( Color.BLUE, false ) );
+    assertTrue( tile.elideUniformBitmap() );
+    assertTrue( tile.hasUniformColor() );
+    assertEquals( Color.BLUE, tile.getUniformColor() );
+    assertNull( tile.getBitmap() );
+    assertTrue( tile.hasContent() );
+  }
+
+  @Test
+  public void bitmapWithOneStrayPixelIsKept() {
+    Tile tile = createTile( 0, 0, solid( Color.BLUE, true ) );
+    assertFalse( tile.elideUniformBitmap() );
+    assertFalse( tile.hasUniformColor() );
+    assertTrue( tile.getBitmap() != null );
+  }
+
+  @Test
+  public void elisionIsOffByDefault() {
+    assertFalse( new TileCanvasViewGroup( RuntimeEnvironment.application ).getShouldElideUniformTiles() );
+  }
+
+  @Test
+  public void uniformRunsAreDrawnInPlace() {
+    TileCanvasView tileCanvasView = new TileCanvasView( RuntimeEnvironment.application );
+    BitmapProvider image = solid( Color.BLUE, true );
+    // row 0: two red tiles then an image; row 1: an image then a red tile
+    tileCanvasView.addTile( createTile( 2, 0, image ) );
+    tileCanvasView.addTile( createTile( 1, 1, uniform( Color.RED ) ) );
+    tileCanvasView.addTile( createTile( 0, 0, uniform( Color.RED ) ) );
+    tileCanvasView.addTile( createTile( 0, 1, image ) );
+    tileCanvasView.addTile( createTile( 1, 0, uniform( Color.RED ) ) );
+
+    RecordingCanvas canvas = new RecordingCanvas();
+    tileCanvasView.onDraw( canvas );
+
+    assertEquals( Arrays.asList(
+      "rect 0,0,512,256",
+      "bitmap 512,0",
+      "bitmap 0,256",
+      "rect 256,256,512,512" ), canvas.getCalls() );
+  }
+
+  private static class RecordingCanvas extends Canvas {
+
+    private final List<String> mCalls = new ArrayList<>();
+
+    @Override
+    public void drawRect( float left, float top, float right, float bottom, Paint paint ) {
+      mCalls.add( "rect " + (int) left + "," + (int) top + "," + (int) right + "," + (int) bottom );
+    }
+
+    @Override
+    public void drawBitmap( Bitmap bitmap, float left, float top, Paint paint ) {
+      mCalls.add( "bitmap " + (int) left + "," + (int) top );
+    }
+
+    public List<String> getCalls() {
+      return mCalls;
+    }
+  }
+}
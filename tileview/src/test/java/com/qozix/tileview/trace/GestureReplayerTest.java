@@ -0,0 +1,116 @@
+package com.qozix.tileview.trace;
+
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+
+import com.qozix.tileview.BuildConfig;
+import com.qozix.tileview.widgets.ZoomPanLayout;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Records a drag into a ZoomPanLayout, round trips the trace through its binary form, and
+ * replays it into a fresh layout under Robolectric's clock.
+ */
+@RunWith( RobolectricGradleTestRunner.class )
+@Config( constants = BuildConfig.class, sdk = 21 )
+public class GestureReplayerTest {
+
+  private static final int WIDTH = 1080;
+  private static final int HEIGHT = 1920;
+  private static final int STEP_MS = 16;
+
+  private boolean mReplayComplete;
+
+  private static ZoomPanLayout createZoomPanLayout() {
+    ZoomPanLayout zoomPanLayout = new ZoomPanLayout( RuntimeEnvironment.application );
+    zoomPanLayout.setSize( 8192, 8192 );
+    // at scale 1 the image is larger than the viewport in both dimensions, so there is room to
+    // drag; left at the minimum, the first layout would fit its width to the viewport
+    zoomPanLayout.setScaleLimits( 0, 2 );
+    zoomPanLayout.setScale( 1 );
+    zoomPanLayout.measure(
+      View.MeasureSpec.makeMeasureSpec( WIDTH, View.MeasureSpec.EXACTLY ),
+      View.MeasureSpec.makeMeasureSpec( HEIGHT, View.MeasureSpec.EXACTLY ) );
+    zoomPanLayout.layout( 0, 0, WIDTH, HEIGHT );
+    return zoomPanLayout;
+  }
+
+  private static void advance( long millis ) {
+    Robolectric.getForegroundThreadScheduler().advanceBy( millis );
+  }
+
+  private static void touch( ZoomPanLayout zoomPanLayout, long downTime, int action, float x, float y ) {
+    MotionEvent event = MotionEvent.obtain( downTime, SystemClock.uptimeMillis(), action, x, y, 0 );
+    zoomPanLayout.dispatchTouchEvent( event );
+    event.recycle();
+  }
+
+  /**
+   * Drags up and to the left, then holds still before lifting so the gesture ends without a fling.
+   */
+  private static void drag( ZoomPanLayout zoomPanLayout ) {
+    long downTime = SystemClock.uptimeMillis();
+    float x = 800;
+    float y = 1400;
+    touch( zoomPanLayout, downTime, MotionEvent.ACTION_DOWN, x, y );
+    for( int i = 0; i < 20; i++ ) {
+      advance( STEP_MS );
+      x -= 20;
+      y -= 30;
+      touch( zoomPanLayout, downTime, MotionEvent.ACTION_MOVE, x, y );
+    }
+    for( int i = 0; i < 10; i++ ) {
+      advance( STEP_MS );
+      touch( zoomPanLayout, downTime, MotionEvent.ACTION_MOVE, x, y );
+    }
+    advance( STEP_MS );
+    touch( zoomPanLayout, downTime, MotionEvent.ACTION_UP, x, y );
+  }
+
+  @Test
+  public void replayReproducesRecordedStates() throws Exception {
+    ZoomPanLayout recorded = createZoomPanLayout();
+    GestureRecorder gestureRecorder = new GestureRecorder();
+    gestureRecorder.start( recorded );
+    assertTrue( gestureRecorder.isRecording() );
+    drag( recorded );
+    advance( 500 );
+    GestureTrace gestureTrace = gestureRecorder.stop();
+    assertNotNull( gestureTrace );
+    assertTrue( "the drag did not scroll", recorded.getScrollX() > 0 && recorded.getScrollY() > 0 );
+
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    gestureTrace.writeTo( outputStream );
+    GestureTrace copy = GestureTrace.readFrom( new ByteArrayInputStream( outputStream.toByteArray() ) );
+
+    ZoomPanLayout replayed = createZoomPanLayout();
+    GestureReplayer gestureReplayer = new GestureReplayer();
+    gestureReplayer.setReplayListener( new GestureReplayer.ReplayListener() {
+      @Override
+      public void onReplayComplete( GestureReplayer gestureReplayer ) {
+        mReplayComplete = true;
+      }
+    } );
+    gestureReplayer.replay( replayed, copy );
+    advance( copy.getDuration() + STEP_MS );
+
+    assertTrue( "replay did not complete", mReplayComplete );
+    assertTrue( gestureReplayer.getDivergences().toString(), gestureReplayer.getDivergences().isEmpty() );
+    assertEquals( recorded.getScrollX(), replayed.getScrollX() );
+    assertEquals( recorded.getScrollY(), replayed.getScrollY() );
+  }
+}
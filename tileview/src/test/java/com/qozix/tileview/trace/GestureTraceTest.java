@@ -0,0 +1,95 @@
+package com.qozix.tileview.trace;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * GestureTrace has no platform dependencies, so its encoding is verified on the plain JVM.
+ */
+public class GestureTraceTest {
+
+  private static GestureTrace createTrace() {
+    GestureTrace trace = new GestureTrace( 1080, 1920, new GestureTrace.State( 0, 0.5f, 120, 240 ) );
+    trace.add( new GestureTrace.Motion( 10, 10, 0, new int[]{ 0 }, new float[]{ 100.5f }, new float[]{ 200.25f } ) );
+    trace.add( new GestureTrace.State( 10, 0.5f, 120, 240 ) );
+    // a second pointer down, with the pointer index in the action bits
+    trace.add( new GestureTrace.Motion( 42, 10, 0x0105, new int[]{ 0, 1 }, new float[]{ 110f, 400f }, new float[]{ 210f, 800f } ) );
+    trace.add( new GestureTrace.State( 42, 0.75f, 130, 250 ) );
+    return trace;
+  }
+
+  private static byte[] encode( GestureTrace trace ) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    trace.writeTo( outputStream );
+    return outputStream.toByteArray();
+  }
+
+  @Test
+  public void roundTripPreservesEveryRecord() throws Exception {
+    GestureTrace original = createTrace();
+    GestureTrace copy = GestureTrace.readFrom( new ByteArrayInputStream( encode( original ) ) );
+
+    assertEquals( 1080, copy.getViewportWidth() );
+    assertEquals( 1920, copy.getViewportHeight() );
+    assertTrue( original.getInitialState().matches( copy.getInitialState() ) );
+    assertEquals( 42, copy.getDuration() );
+
+    List<GestureTrace.Record> records = copy.getRecords();
+    assertEquals( original.getRecords().size(), records.size() );
+    for( int i = 0; i < records.size(); i++ ) {
+      GestureTrace.Record expected = original.getRecords().get( i );
+      GestureTrace.Record actual = records.get( i );
+      assertEquals( expected.getClass(), actual.getClass() );
+      assertEquals( expected.getTimeOffset(), actual.getTimeOffset() );
+      if( expected instanceof GestureTrace.State ) {
+        assertTrue( ((GestureTrace.State) expected).matches( (GestureTrace.State) actual ) );
+      } else {
+        GestureTrace.Motion expectedMotion = (GestureTrace.Motion) expected;
+        GestureTrace.Motion actualMotion = (GestureTrace.Motion) actual;
+        assertEquals( expectedMotion.getDownTimeOffset(), actualMotion.getDownTimeOffset() );
+        assertEquals( expectedMotion.getAction(), actualMotion.getAction() );
+        assertEquals( expectedMotion.getPointerCount(), actualMotion.getPointerCount() );
+        for( int p = 0; p < expectedMotion.getPointerCount(); p++ ) {
+          assertEquals( expectedMotion.getPointerId( p ), actualMotion.getPointerId( p ) );
+          assertEquals( expectedMotion.getX( p ), actualMotion.getX( p ), 0f );
+          assertEquals( expectedMotion.getY( p ), actualMotion.getY( p ), 0f );
+        }
+      }
+    }
+  }
+
+  @Test
+  public void emptyTraceHasNoDuration() throws Exception {
+    GestureTrace trace = new GestureTrace( 10, 20, new GestureTrace.State( 0, 1f, 0, 0 ) );
+    GestureTrace copy = GestureTrace.readFrom( new ByteArrayInputStream( encode( trace ) ) );
+    assertEquals( 0, copy.getDuration() );
+    assertTrue( copy.getRecords().isEmpty() );
+  }
+
+  @Test( expected = IOException.class )
+  public void rejectsOtherData() throws Exception {
+    GestureTrace.readFrom( new ByteArrayInputStream( new byte[]{ 'P', 'K', 3, 4, 0, 0, 0, 0 } ) );
+  }
+
+  @Test( expected = IOException.class )
+  public void rejectsUnknownVersion() throws Exception {
+    byte[] bytes = encode( createTrace() );
+    bytes[4] = 99;
+    GestureTrace.readFrom( new ByteArrayInputStream( bytes ) );
+  }
+
+  @Test( expected = IOException.class )
+  public void rejectsTruncatedTrace() throws Exception {
+    byte[] bytes = encode( createTrace() );
+    byte[] truncated = new byte[bytes.length - 1];
+    System.arraycopy( bytes, 0, truncated, 0, truncated.length );
+    GestureTrace.readFrom( new ByteArrayInputStream( truncated ) );
+  }
+}
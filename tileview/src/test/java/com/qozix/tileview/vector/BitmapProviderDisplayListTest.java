@@ -0,0 +1,109 @@
+package com.qozix.tileview.vector;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.RectF;
+
+import com.qozix.tileview.BuildConfig;
+import com.qozix.tileview.detail.DetailLevel;
+import com.qozix.tileview.detail.DetailLevelManager;
+import com.qozix.tileview.tiles.Tile;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that a tile is rasterized from the operations intersecting it at its detail level scale,
+ * that a list given as tile data replaces the provider's, and that the bitmap config follows the
+ * background.
+ */
+@RunWith( RobolectricGradleTestRunner.class )
+@Config( constants = BuildConfig.class, sdk = 21 )
+public class BitmapProviderDisplayListTest {
+
+  private static final int TILE_SIZE = 256;
+
+  private static Tile createTile( int column, int row, float scale, Object data ) {
+    DetailLevel detailLevel = new DetailLevel( new DetailLevelManager(), scale, data, TILE_SIZE, TILE_SIZE );
+    return new Tile( column, row, TILE_SIZE, TILE_SIZE, data, detailLevel );
+  }
+
+  private static List<VectorDisplayList.DrawOp> query( VectorDisplayList vectorDisplayList, float left, float top, float right, float bottom ) {
+    List<VectorDisplayList.DrawOp> results = new ArrayList<>();
+    vectorDisplayList.query( left, top, right, bottom, results );
+    return results;
+  }
+
+  @Test
+  public void strokesAreFoundBeyondTheirGeometry() {
+    VectorDisplayList vectorDisplayList = new VectorDisplayList();
+    Paint fill = new Paint();
+    Paint stroke = new Paint();
+    stroke.setStyle( Paint.Style.STROKE );
+    stroke.setStrokeWidth( 20 );
+    vectorDisplayList.drawRect( 100, 100, 200, 200, fill );
+    vectorDisplayList.drawRect( 100, 300, 200, 400, stroke );
+    // 5 pixels left of both rectangles: inside the stroke's half width only
+    assertEquals( 0, query( vectorDisplayList, 90, 100, 95, 200 ).size() );
+    assertEquals( 1, query( vectorDisplayList, 90, 300, 95, 400 ).size() );
+  }
+
+  @Test
+  public void tileIsQueriedInImageCoordinates() {
+    RecordingVectorDisplayList vectorDisplayList = new RecordingVectorDisplayList();
+    BitmapProviderDisplayList bitmapProvider = new BitmapProviderDisplayList( vectorDisplayList );
+    // at half scale, tile (1, 2) covers image pixels 512 to 1024 across and 1024 to 1536 down
+    Bitmap bitmap = bitmapProvider.getBitmap( createTile( 1, 2, 0.5f, null ), RuntimeEnvironment.application );
+    assertNotNull( bitmap );
+    assertEquals( TILE_SIZE, bitmap.getWidth() );
+    assertEquals( TILE_SIZE, bitmap.getHeight() );
+    assertEquals( new RectF( 512, 1024, 1024, 1536 ), vectorDisplayList.mQueried );
+  }
+
+  @Test
+  public void tileDataReplacesTheProvidersList() {
+    RecordingVectorDisplayList shared = new RecordingVectorDisplayList();
+    RecordingVectorDisplayList floor = new RecordingVectorDisplayList();
+    BitmapProviderDisplayList bitmapProvider = new BitmapProviderDisplayList( shared );
+    assertNotNull( bitmapProvider.getBitmap( createTile( 0, 0, 1, floor ), RuntimeEnvironment.application ) );
+    assertNull( "the provider's list was drawn", shared.mQueried );
+    assertNotNull( "the tile's list was not drawn", floor.mQueried );
+
+    assertNull( new BitmapProviderDisplayList( null ).getBitmap( createTile( 0, 0, 1, null ), RuntimeEnvironment.application ) );
+  }
+
+  @Test
+  public void opaqueBackgroundUsesRgb565() {
+    BitmapProviderDisplayList bitmapProvider = new BitmapProviderDisplayList( new VectorDisplayList() );
+    Tile tile = createTile( 0, 0, 1, null );
+    assertSame( Bitmap.Config.RGB_565, bitmapProvider.getBitmap( tile, RuntimeEnvironment.application ).getConfig() );
+    bitmapProvider.setBackgroundColor( Color.TRANSPARENT );
+    Bitmap bitmap = bitmapProvider.getBitmap( tile, RuntimeEnvironment.application );
+    assertSame( Bitmap.Config.ARGB_8888, bitmap.getConfig() );
+    assertTrue( bitmap.getWidth() == TILE_SIZE && bitmap.getHeight() == TILE_SIZE );
+  }
+
+  private static class RecordingVectorDisplayList extends VectorDisplayList {
+
+    RectF mQueried;
+
+    @Override
+    void query( float left, float top, float right, float bottom, List<DrawOp> results ) {
+      mQueried = new RectF( left, top, right, bottom );
+      super.query( left, top, right, bottom, results );
+    }
+  }
+}
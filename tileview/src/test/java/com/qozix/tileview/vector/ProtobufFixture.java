@@ -0,0 +1,79 @@
+package com.qozix.tileview.vector;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Builds protocol buffer encoded fixtures for the vector tile tests.
+ */
+class ProtobufFixture {
+
+  private final ByteArrayOutputStream mOutputStream = new ByteArrayOutputStream();
+
+  ProtobufFixture varint( long value ) {
+    while( (value & ~0x7FL) != 0 ) {
+      mOutputStream.write( (int) ((value & 0x7F) | 0x80) );
+      value >>>= 7;
+    }
+    mOutputStream.write( (int) value );
+    return this;
+  }
+
+  ProtobufFixture tag( int field, int wireType ) {
+    return varint( (field << 3) | wireType );
+  }
+
+  ProtobufFixture varintField( int field, long value ) {
+    return tag( field, ProtobufReader.WIRE_TYPE_VARINT ).varint( value );
+  }
+
+  ProtobufFixture bytesField( int field, byte[] bytes ) {
+    tag( field, ProtobufReader.WIRE_TYPE_LENGTH_DELIMITED ).varint( bytes.length );
+    mOutputStream.write( bytes, 0, bytes.length );
+    return this;
+  }
+
+  ProtobufFixture stringField( int field, String value ) {
+    return bytesField( field, value.getBytes( Charset.forName( "UTF-8" ) ) );
+  }
+
+  ProtobufFixture messageField( int field, ProtobufFixture message ) {
+    return bytesField( field, message.toByteArray() );
+  }
+
+  ProtobufFixture packedField( int field, int... values ) {
+    ProtobufFixture packed = new ProtobufFixture();
+    for( int value : values ) {
+      packed.varint( value & 0xFFFFFFFFL );
+    }
+    return bytesField( field, packed.toByteArray() );
+  }
+
+  ProtobufFixture fixed32Field( int field, int value ) {
+    tag( field, ProtobufReader.WIRE_TYPE_FIXED32 );
+    for( int i = 0; i < 4; i++ ) {
+      mOutputStream.write( value >>> (i * 8) );
+    }
+    return this;
+  }
+
+  ProtobufFixture fixed64Field( int field, long value ) {
+    tag( field, ProtobufReader.WIRE_TYPE_FIXED64 );
+    for( int i = 0; i < 8; i++ ) {
+      mOutputStream.write( (int) (value >>> (i * 8)) );
+    }
+    return this;
+  }
+
+  byte[] toByteArray() {
+    return mOutputStream.toByteArray();
+  }
+
+  static int zigZag( int value ) {
+    return (value << 1) ^ (value >> 31);
+  }
+
+  static int command( int id, int count ) {
+    return (count << 3) | id;
+  }
+}
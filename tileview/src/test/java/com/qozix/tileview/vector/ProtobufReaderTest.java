@@ -0,0 +1,172 @@
+package com.qozix.tileview.vector;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ProtobufReaderTest {
+
+  private static ProtobufReader reader( ProtobufFixture fixture ) {
+    return new ProtobufReader( fixture.toByteArray() );
+  }
+
+  private static ProtobufReader reader( int... bytes ) {
+    byte[] buffer = new byte[bytes.length];
+    for( int i = 0; i < bytes.length; i++ ) {
+      buffer[i] = (byte) bytes[i];
+    }
+    return new ProtobufReader( buffer );
+  }
+
+  private static void assertTruncated( ProtobufReader reader ) {
+    try {
+      reader.next();
+      reader.skip();
+      fail( "Expected an IOException" );
+    } catch( IOException e ) {
+      // expected
+    }
+  }
+
+  @Test
+  public void varintsAtEncodingBoundaries() throws Exception {
+    long[] values = { 0, 1, 127, 128, 300, 16383, 16384, Integer.MAX_VALUE, 0xFFFFFFFFL, Long.MAX_VALUE, -1 };
+    ProtobufFixture fixture = new ProtobufFixture();
+    for( long value : values ) {
+      fixture.varint( value );
+    }
+    ProtobufReader reader = reader( fixture );
+    for( long value : values ) {
+      assertEquals( value, reader.readVarint() );
+    }
+  }
+
+  @Test
+  public void minusOneTakesTenBytes() throws Exception {
+    assertEquals( 10, new ProtobufFixture().varint( -1 ).toByteArray().length );
+  }
+
+  @Test( expected = IOException.class )
+  public void overlongVarintIsRejected() throws Exception {
+    reader( 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0x01 ).readVarint();
+  }
+
+  @Test( expected = IOException.class )
+  public void truncatedVarintIsRejected() throws Exception {
+    reader( 0x80, 0x80 ).readVarint();
+  }
+
+  @Test
+  public void zigZagDecoding() {
+    assertEquals( 0, ProtobufReader.decodeZigZag( 0 ) );
+    assertEquals( -1, ProtobufReader.decodeZigZag( 1 ) );
+    assertEquals( 1, ProtobufReader.decodeZigZag( 2 ) );
+    assertEquals( -2, ProtobufReader.decodeZigZag( 3 ) );
+    assertEquals( Integer.MAX_VALUE, ProtobufReader.decodeZigZag( 0xFFFFFFFE ) );
+    assertEquals( Integer.MIN_VALUE, ProtobufReader.decodeZigZag( 0xFFFFFFFF ) );
+    assertEquals( Long.MIN_VALUE, ProtobufReader.decodeZigZag( -1L ) );
+  }
+
+  @Test
+  public void fieldsAndWireTypes() throws Exception {
+    ProtobufReader reader = reader( new ProtobufFixture()
+      .varintField( 1, 150 )
+      .stringField( 2, "testing" )
+      .fixed32Field( 3, 0x12345678 )
+      .fixed64Field( 4, 0x0102030405060708L ) );
+    assertTrue( reader.next() );
+    assertEquals( 1, reader.getFieldNumber() );
+    assertEquals( ProtobufReader.WIRE_TYPE_VARINT, reader.getWireType() );
+    assertEquals( 150, reader.readVarint() );
+    assertTrue( reader.next() );
+    assertEquals( ProtobufReader.WIRE_TYPE_LENGTH_DELIMITED, reader.getWireType() );
+    assertEquals( "testing", reader.readString() );
+    assertTrue( reader.next() );
+    assertEquals( 0x12345678, reader.readFixed32() );
+    assertTrue( reader.next() );
+    assertEquals( 0x0102030405060708L, reader.readFixed64() );
+    assertFalse( reader.next() );
+  }
+
+  @Test
+  public void skipPassesOverEveryWireType() throws Exception {
+    ProtobufReader reader = reader( new ProtobufFixture()
+      .varintField( 1, 1L << 40 )
+      .fixed64Field( 2, 7 )
+      .stringField( 3, "skipped" )
+      .fixed32Field( 4, 9 )
+      .varintField( 5, 42 ) );
+    for( int i = 0; i < 4; i++ ) {
+      assertTrue( reader.next() );
+      reader.skip();
+    }
+    assertTrue( reader.next() );
+    assertEquals( 5, reader.getFieldNumber() );
+    assertEquals( 42, reader.readVarint() );
+  }
+
+  @Test( expected = IOException.class )
+  public void unsupportedWireTypeIsRejected() throws Exception {
+    // wire type 3, a deprecated group start
+    ProtobufReader reader = reader( new ProtobufFixture().tag( 1, 3 ) );
+    reader.next();
+    reader.skip();
+  }
+
+  @Test
+  public void packedInts() throws Exception {
+    int[] values = { 0, 1, 127, 128, 16384, Integer.MAX_VALUE, 0xFFFFFFFF };
+    ProtobufReader reader = reader( new ProtobufFixture().packedField( 1, values ).varintField( 2, 3 ) );
+    assertTrue( reader.next() );
+    assertArrayEquals( values, reader.readPackedInts() );
+    assertTrue( reader.next() );
+    assertEquals( 3, reader.readVarint() );
+  }
+
+  @Test
+  public void emptyPackedField() throws Exception {
+    ProtobufReader reader = reader( new ProtobufFixture().packedField( 1 ) );
+    assertTrue( reader.next() );
+    assertEquals( 0, reader.readPackedInts().length );
+  }
+
+  @Test( expected = IOException.class )
+  public void packedFieldEndingMidVarintIsRejected() throws Exception {
+    // a two byte payload whose last varint is unterminated
+    ProtobufReader reader = reader( 0x0A, 0x02, 0x01, 0x80, 0x01 );
+    reader.next();
+    reader.readPackedInts();
+  }
+
+  @Test
+  public void nestedMessagesAreBounded() throws Exception {
+    ProtobufReader reader = reader( new ProtobufFixture()
+      .messageField( 1, new ProtobufFixture().varintField( 1, 7 ) )
+      .varintField( 2, 8 ) );
+    assertTrue( reader.next() );
+    ProtobufReader message = reader.readMessage();
+    assertTrue( message.next() );
+    assertEquals( 7, message.readVarint() );
+    assertFalse( message.next() );
+    assertTrue( reader.next() );
+    assertEquals( 8, reader.readVarint() );
+  }
+
+  @Test
+  public void truncatedFieldsAreRejected() {
+    byte[] string = new ProtobufFixture().stringField( 1, "truncated" ).toByteArray();
+    byte[] fixed32 = new ProtobufFixture().fixed32Field( 1, 1 ).toByteArray();
+    byte[] fixed64 = new ProtobufFixture().fixed64Field( 1, 1 ).toByteArray();
+    for( byte[] bytes : new byte[][]{ string, fixed32, fixed64 } ) {
+      byte[] truncated = new byte[bytes.length - 1];
+      System.arraycopy( bytes, 0, truncated, 0, truncated.length );
+      assertTruncated( new ProtobufReader( truncated ) );
+    }
+  }
+}
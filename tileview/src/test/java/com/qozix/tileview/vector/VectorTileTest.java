@@ -0,0 +1,166 @@
+package com.qozix.tileview.vector;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.qozix.tileview.vector.ProtobufFixture.command;
+import static com.qozix.tileview.vector.ProtobufFixture.zigZag;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class VectorTileTest {
+
+  /**
+   * Records geometry commands as strings, e.g. "M 2 3", "L 4 5" and "Z".
+   */
+  private static class RecordingHandler implements VectorTile.GeometryHandler {
+
+    final List<String> mCommands = new ArrayList<>();
+
+    @Override
+    public void moveTo( int x, int y ) {
+      mCommands.add( "M " + x + " " + y );
+    }
+
+    @Override
+    public void lineTo( int x, int y ) {
+      mCommands.add( "L " + x + " " + y );
+    }
+
+    @Override
+    public void closePath() {
+      mCommands.add( "Z" );
+    }
+  }
+
+  private static List<String> decode( VectorTile.Feature feature ) {
+    RecordingHandler handler = new RecordingHandler();
+    feature.decodeGeometry( handler );
+    return handler.mCommands;
+  }
+
+  private static ProtobufFixture feature( int type, int[] tags, int... geometry ) {
+    ProtobufFixture feature = new ProtobufFixture().varintField( 3, type ).packedField( 4, geometry );
+    if( tags != null ) {
+      feature.packedField( 2, tags );
+    }
+    return feature;
+  }
+
+  private static VectorTile.Layer decodeLayer( ProtobufFixture layer ) throws IOException {
+    VectorTile vectorTile = VectorTile.decode( new ProtobufFixture().messageField( 3, layer ).toByteArray() );
+    return vectorTile.getLayers().values().iterator().next();
+  }
+
+  @Test
+  public void decodesLayersFeaturesAndProperties() throws Exception {
+    // the feature refers to keys and values that follow it, as the spec allows
+    ProtobufFixture layer = new ProtobufFixture()
+      .varintField( 15, 2 )
+      .stringField( 1, "roads" )
+      .messageField( 2, feature( VectorTile.GEOMETRY_POINT, new int[]{ 0, 0, 1, 1, 2, 2, 3, 3 }, command( 1, 1 ), zigZag( 5 ), zigZag( 7 ) ) )
+      .stringField( 3, "name" )
+      .stringField( 3, "lanes" )
+      .stringField( 3, "oneway" )
+      .stringField( 3, "width" )
+      .messageField( 4, new ProtobufFixture().stringField( 1, "Main" ) )
+      .messageField( 4, new ProtobufFixture().varintField( 5, 4 ) )
+      .messageField( 4, new ProtobufFixture().varintField( 7, 1 ) )
+      .messageField( 4, new ProtobufFixture().varintField( 6, zigZag( -3 ) ) )
+      .varintField( 5, 512 );
+    VectorTile vectorTile = VectorTile.decode( new ProtobufFixture().messageField( 3, layer ).toByteArray() );
+    VectorTile.Layer roads = vectorTile.getLayer( "roads" );
+    assertNull( vectorTile.getLayer( "water" ) );
+    assertEquals( 512, roads.getExtent() );
+    assertEquals( 1, roads.getFeatures().size() );
+    VectorTile.Feature feature = roads.getFeatures().get( 0 );
+    assertEquals( VectorTile.GEOMETRY_POINT, feature.getType() );
+    assertEquals( "Main", feature.getProperty( "name" ) );
+    assertEquals( 4L, feature.getProperty( "lanes" ) );
+    assertEquals( Boolean.TRUE, feature.getProperty( "oneway" ) );
+    assertEquals( -3L, feature.getProperty( "width" ) );
+    assertEquals( Arrays.asList( "M 5 7" ), decode( feature ) );
+  }
+
+  @Test
+  public void extentDefaultsTo4096() throws Exception {
+    assertEquals( 4096, decodeLayer( new ProtobufFixture().stringField( 1, "empty" ) ).getExtent() );
+  }
+
+  @Test
+  public void tagsOutsideTheTablesAreIgnored() throws Exception {
+    VectorTile.Layer layer = decodeLayer( new ProtobufFixture()
+      .stringField( 1, "layer" )
+      .messageField( 2, feature( VectorTile.GEOMETRY_POINT, new int[]{ 0, 5, 9, 0 } ) )
+      .stringField( 3, "key" )
+      .messageField( 4, new ProtobufFixture().stringField( 1, "value" ) ) );
+    assertEquals( 0, layer.getFeatures().get( 0 ).getProperties().size() );
+  }
+
+  @Test
+  public void lineStringVerticesAreRelative() throws Exception {
+    VectorTile.Layer layer = decodeLayer( new ProtobufFixture()
+      .stringField( 1, "lines" )
+      .messageField( 2, feature( VectorTile.GEOMETRY_LINESTRING, null,
+        command( 1, 1 ), zigZag( 2 ), zigZag( 2 ),
+        command( 2, 2 ), zigZag( 0 ), zigZag( 8 ), zigZag( 8 ), zigZag( 0 ),
+        command( 1, 1 ), zigZag( -10 ), zigZag( -10 ),
+        command( 2, 1 ), zigZag( -1 ), zigZag( 3 ) ) ) );
+    assertEquals( Arrays.asList( "M 2 2", "L 2 10", "L 10 10", "M 0 0", "L -1 3" ), decode( layer.getFeatures().get( 0 ) ) );
+  }
+
+  @Test
+  public void polygonRingsClose() throws Exception {
+    VectorTile.Layer layer = decodeLayer( new ProtobufFixture()
+      .stringField( 1, "polygons" )
+      .messageField( 2, feature( VectorTile.GEOMETRY_POLYGON, null,
+        command( 1, 1 ), zigZag( 3 ), zigZag( 6 ),
+        command( 2, 2 ), zigZag( 5 ), zigZag( 6 ), zigZag( 12 ), zigZag( 22 ),
+        command( 7, 1 ) ) ) );
+    assertEquals( Arrays.asList( "M 3 6", "L 8 12", "L 20 34", "Z" ), decode( layer.getFeatures().get( 0 ) ) );
+  }
+
+  @Test
+  public void geometryRunningPastItsEndIsCutShort() throws Exception {
+    VectorTile.Layer layer = decodeLayer( new ProtobufFixture()
+      .stringField( 1, "short" )
+      .messageField( 2, feature( VectorTile.GEOMETRY_LINESTRING, null,
+        command( 1, 1 ), zigZag( 1 ), zigZag( 1 ),
+        command( 2, 3 ), zigZag( 1 ), zigZag( 1 ), zigZag( 1 ) ) ) );
+    assertEquals( Arrays.asList( "M 1 1", "L 2 2" ), decode( layer.getFeatures().get( 0 ) ) );
+  }
+
+  @Test
+  public void unknownCommandsEndTheGeometry() throws Exception {
+    VectorTile.Layer layer = decodeLayer( new ProtobufFixture()
+      .stringField( 1, "unknown" )
+      .messageField( 2, feature( VectorTile.GEOMETRY_POINT, null,
+        command( 1, 1 ), zigZag( 1 ), zigZag( 1 ),
+        command( 3, 1 ), zigZag( 1 ), zigZag( 1 ),
+        command( 1, 1 ), zigZag( 1 ), zigZag( 1 ) ) ) );
+    assertEquals( Arrays.asList( "M 1 1" ), decode( layer.getFeatures().get( 0 ) ) );
+  }
+
+  @Test
+  public void unknownFieldsAreSkipped() throws Exception {
+    byte[] bytes = new ProtobufFixture()
+      .stringField( 9, "extension" )
+      .messageField( 3, new ProtobufFixture().stringField( 1, "layer" ).stringField( 8, "ignored" ).varintField( 5, 256 ) )
+      .toByteArray();
+    assertEquals( 256, VectorTile.decode( bytes ).getLayer( "layer" ).getExtent() );
+  }
+
+  @Test( expected = IOException.class )
+  public void truncatedTileIsRejected() throws Exception {
+    byte[] bytes = new ProtobufFixture()
+      .messageField( 3, new ProtobufFixture().stringField( 1, "layer" ) )
+      .toByteArray();
+    byte[] truncated = new byte[bytes.length - 2];
+    System.arraycopy( bytes, 0, truncated, 0, truncated.length );
+    VectorTile.decode( truncated );
+  }
+}